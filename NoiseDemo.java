@@ -28,22 +28,23 @@ public class NoiseDemo
 		double[][] buffer = new double[HEIGHT][WIDTH];
 		noise.generate2(noiseBulk, buffer, OFF_X, OFF_Y);
 		
-		// Image
-		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
-		for (int y = 0; y < HEIGHT; y++)
-		{
-			for (int x = 0; x < WIDTH; x++)
+		// Compare
+		if (DEMONSTRATE_SUBTLE_DIFFERENCE) {
+			for (int y = 0; y < HEIGHT; y++)
 			{
-				double value = buffer[y][x]; if (value < -1) value = -1; if (value > 1) value = 1;
-				if (DEMONSTRATE_SUBTLE_DIFFERENCE) {
+				for (int x = 0; x < WIDTH; x++)
+				{
+					double value = buffer[y][x]; if (value < -1) value = -1; if (value > 1) value = 1;
 					double oldValue = noise.noise2((x + OFF_X) * 1.0 / PERIOD, (y + OFF_Y) * 1.0 / PERIOD);
-					value -= oldValue;
+					buffer[y][x] = value - oldValue;
 				}
-				int rgb = 0x010101 * (int)((value + 1) * 127.5);
-				image.setRGB(x, y, rgb);
 			}
 		}
 		
+		// Image
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		NoiseRenderer.render(buffer, image, 0, 0, NoiseRenderer.GradientMap.grayscale());
+		
 		// Save it or show it
 		if (args.length > 0 && args[0] != null) {
 			ImageIO.write(image, "png", new File(args[0]));
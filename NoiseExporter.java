@@ -0,0 +1,385 @@
+/*
+ * Streams 2D noise of any size to disk, for images far too big to hold in memory.
+ * Generation happens in square tiles on a few threads, and a writer thread puts each finished tile in the file
+ * while the next ones are generated. Tile buffers come from a fixed pool, so a generator that gets ahead of
+ * the writer waits for it, and the heap in use doesn't depend on the image size.
+ *
+ * Formats:
+ *   FLOAT32        Raw little-endian 32-bit floats, row by row, no header.
+ *   PGM16          Binary PGM (P5) with maxval 65535: big-endian 16-bit, q = round((value + 1) * 32767.5), clamped.
+ *   TILED_FLOAT32  A 4096-byte header, then each tile as tileSize * tileSize little-endian floats, tiles row by row.
+ *                  The header is "NTF1" followed by little-endian ints width, height, tileSize, tilesX, tilesY.
+ *                  Edge tiles are padded with zeros, so tile i always starts at 4096 + i * tileSize * tileSize * 4.
+ *
+ * The row-by-row formats are written through memory-mapped windows of one band of tiles each, which live outside
+ * the heap and are flushed as each band completes. The tiled format is written with positional FileChannel writes,
+ * each a whole tile, which stay 4096-aligned when tileSize is a multiple of 32.
+ *
+ * java NoiseExporter out=<file> [format=tiled|float32|pgm16] [width=16384] [height=16384] [period=256] [seed=0]
+ *   [tile=256] [threads=<processors>]
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NoiseExporter {
+	
+	public static final int DEFAULT_TILE_SIZE = 256;
+	static final int TILED_HEADER_SIZE = 4096;
+	
+	public enum Format {
+		FLOAT32, PGM16, TILED_FLOAT32
+	}
+	
+	/**
+	 * What an export wrote, and how long it took from start to the last byte being flushed.
+	 */
+	public static class Result {
+		public final long bytes;
+		public final long nanos;
+		
+		Result(long bytes, long nanos) {
+			this.bytes = bytes;
+			this.nanos = nanos;
+		}
+		
+		public double megabytesPerSecond() {
+			return bytes / 1e6 / (nanos / 1e9);
+		}
+		
+		public String toString() {
+			return String.format("%d bytes in %.2fs, %.1f MB/s", bytes, nanos / 1e9, megabytesPerSecond());
+		}
+	}
+	
+	public static Result export2(OpenSimplex2S noise, OpenSimplex2S.GenerateContext2D context, Path path, Format format,
+			int x0, int y0, int width, int height) throws IOException {
+		return export2(noise, context, path, format, x0, y0, width, height, DEFAULT_TILE_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+	
+	public static Result export2(final OpenSimplex2S noise, final OpenSimplex2S.GenerateContext2D context, Path path, Format format,
+			int x0, int y0, int width, int height, int tileSize, int threads) throws IOException {
+		return export(new TileGenerator() {
+			void generate(double[][] tile, int x0, int y0, int width, int height) {
+				noise.generate2(context, tile, x0, y0, width, height, 0, 0);
+			}
+		}, path, format, x0, y0, width, height, tileSize, threads);
+	}
+	
+	public static Result export2(OpenSimplex2F noise, OpenSimplex2F.GenerateContext2D context, Path path, Format format,
+			int x0, int y0, int width, int height) throws IOException {
+		return export2(noise, context, path, format, x0, y0, width, height, DEFAULT_TILE_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+	
+	public static Result export2(final OpenSimplex2F noise, final OpenSimplex2F.GenerateContext2D context, Path path, Format format,
+			int x0, int y0, int width, int height, int tileSize, int threads) throws IOException {
+		return export(new TileGenerator() {
+			void generate(double[][] tile, int x0, int y0, int width, int height) {
+				noise.generate2(context, tile, x0, y0, width, height, 0, 0);
+			}
+		}, path, format, x0, y0, width, height, tileSize, threads);
+	}
+	
+	public static void main(String[] args) throws IOException {
+		Map<String, String> options = new LinkedHashMap<String, String>();
+		options.put("out", "");
+		options.put("format", "tiled");
+		options.put("width", "16384");
+		options.put("height", "16384");
+		options.put("period", "256");
+		options.put("seed", "0");
+		options.put("tile", Integer.toString(DEFAULT_TILE_SIZE));
+		options.put("threads", Integer.toString(Runtime.getRuntime().availableProcessors()));
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0 || !options.containsKey(arg.substring(0, eq))) {
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+			options.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+		if (options.get("out").isEmpty()) throw new IllegalArgumentException("out=<file> is required");
+		
+		double freq = 1.0 / Double.parseDouble(options.get("period"));
+		OpenSimplex2S noise = new OpenSimplex2S(Long.parseLong(options.get("seed")));
+		OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, freq, freq, 1.0);
+		Result result = export2(noise, ctx, Paths.get(options.get("out")), parseFormat(options.get("format")), 0, 0,
+				Integer.parseInt(options.get("width")), Integer.parseInt(options.get("height")),
+				Integer.parseInt(options.get("tile")), Integer.parseInt(options.get("threads")));
+		System.out.println("Wrote " + options.get("out") + ": " + result);
+	}
+	
+	static Format parseFormat(String name) {
+		if (name.equals("tiled")) return Format.TILED_FLOAT32;
+		if (name.equals("float32")) return Format.FLOAT32;
+		if (name.equals("pgm16")) return Format.PGM16;
+		throw new IllegalArgumentException("Unknown format: " + name);
+	}
+	
+	private static abstract class TileGenerator {
+		abstract void generate(double[][] tile, int x0, int y0, int width, int height);
+	}
+	
+	// A generated tile on its way to the writer. A null buffer means a generator failed.
+	private static class Finished {
+		final int index;
+		final double[][] buffer;
+		final Throwable failure;
+		
+		Finished(int index, double[][] buffer, Throwable failure) {
+			this.index = index;
+			this.buffer = buffer;
+			this.failure = failure;
+		}
+	}
+	
+	/*
+	 * Generators claim tiles in order, so tiles finish roughly a band at a time.
+	 * There are two tile buffers per generator. That's enough to keep the writer busy while they work,
+	 * and is the most that can be waiting to be written at once.
+	 */
+	private static Result export(final TileGenerator generator, Path path, Format format, final int x0, final int y0,
+			final int width, final int height, final int tileSize, int threads) throws IOException {
+		if (width < 1 || height < 1) throw new IllegalArgumentException("width and height must be at least 1");
+		if (tileSize < 1) throw new IllegalArgumentException("tileSize must be at least 1");
+		if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+		long start = System.nanoTime();
+		
+		final int tilesX = (width + tileSize - 1) / tileSize, tilesY = (height + tileSize - 1) / tileSize;
+		final int tileCount = tilesX * tilesY;
+		final AtomicInteger next = new AtomicInteger();
+		final BlockingQueue<double[][]> free = new ArrayBlockingQueue<double[][]>(threads * 2);
+		final BlockingQueue<Finished> finished = new ArrayBlockingQueue<Finished>(threads * 2 + 1);
+		for (int i = 0; i < threads * 2; i++) {
+			free.add(new double[tileSize][tileSize]);
+		}
+		
+		Thread[] generators = new Thread[Math.min(threads, tileCount)];
+		for (int i = 0; i < generators.length; i++) {
+			generators[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						for (int t; (t = next.getAndIncrement()) < tileCount; ) {
+							double[][] tile = free.take();
+							int tileX = (t % tilesX) * tileSize, tileY = (t / tilesX) * tileSize;
+							int tileWidth = Math.min(tileSize, width - tileX), tileHeight = Math.min(tileSize, height - tileY);
+							for (double[] row : tile) {
+								Arrays.fill(row, 0);
+							}
+							generator.generate(tile, x0 + tileX, y0 + tileY, tileWidth, tileHeight);
+							finished.put(new Finished(t, tile, null));
+						}
+					} catch (InterruptedException e) {
+						// The writer gave up
+					} catch (Throwable e) {
+						finished.offer(new Finished(-1, null, e));
+					}
+				}
+			}, "NoiseExporter generator " + i);
+			generators[i].setDaemon(true);
+			generators[i].start();
+		}
+		
+		Writer writer = format == Format.TILED_FLOAT32 ? new TiledWriter(width, height, tileSize, tilesX, tilesY)
+				: new StripedWriter(format, width, height, tileSize, tilesX);
+		boolean completed = false;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			writer.begin(channel);
+			for (int i = 0; i < tileCount; i++) {
+				Finished tile = finished.take();
+				if (tile.buffer == null) throw new IOException("Tile generation failed", tile.failure);
+				int tileX = (tile.index % tilesX) * tileSize, tileY = (tile.index / tilesX) * tileSize;
+				writer.write(channel, tile.index, tile.buffer, tileX, tileY, Math.min(tileSize, width - tileX), Math.min(tileSize, height - tileY));
+				free.put(tile.buffer);
+			}
+			writer.end(channel);
+			channel.force(false);
+			completed = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", e);
+		} finally {
+			if (!completed) {
+				for (Thread thread : generators) thread.interrupt();
+			}
+		}
+		
+		return new Result(writer.size(), System.nanoTime() - start);
+	}
+	
+	/*
+	 * Writers. These only ever run on the calling thread.
+	 */
+	
+	private static abstract class Writer {
+		abstract void begin(FileChannel channel) throws IOException;
+		abstract void write(FileChannel channel, int index, double[][] tile, int tileX, int tileY, int tileWidth, int tileHeight) throws IOException;
+		abstract void end(FileChannel channel) throws IOException;
+		abstract long size();
+	}
+	
+	private static class TiledWriter extends Writer {
+		final int width, height, tileSize, tilesX, tilesY;
+		final ByteBuffer bytes;
+		final FloatBuffer floats;
+		final float[] row;
+		
+		TiledWriter(int width, int height, int tileSize, int tilesX, int tilesY) {
+			this.width = width;
+			this.height = height;
+			this.tileSize = tileSize;
+			this.tilesX = tilesX;
+			this.tilesY = tilesY;
+			this.bytes = ByteBuffer.allocateDirect(tileSize * tileSize * 4).order(ByteOrder.LITTLE_ENDIAN);
+			this.floats = bytes.asFloatBuffer();
+			this.row = new float[tileSize];
+		}
+		
+		void begin(FileChannel channel) throws IOException {
+			ByteBuffer header = ByteBuffer.allocate(TILED_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.put("NTF1".getBytes(StandardCharsets.US_ASCII));
+			header.putInt(width).putInt(height).putInt(tileSize).putInt(tilesX).putInt(tilesY);
+			header.clear();
+			writeFully(channel, header, 0);
+		}
+		
+		void write(FileChannel channel, int index, double[][] tile, int tileX, int tileY, int tileWidth, int tileHeight) throws IOException {
+			floats.clear();
+			for (int y = 0; y < tileSize; y++) {
+				double[] values = tile[y];
+				
+				// The generator cleared the whole tile, so the padding past the edges is already zero.
+				for (int x = 0; x < tileSize; x++) {
+					row[x] = (float)values[x];
+				}
+				floats.put(row, 0, tileSize);
+			}
+			bytes.clear();
+			writeFully(channel, bytes, TILED_HEADER_SIZE + (long)index * bytes.capacity());
+		}
+		
+		void end(FileChannel channel) {
+		}
+		
+		long size() {
+			return TILED_HEADER_SIZE + (long)tilesX * tilesY * bytes.capacity();
+		}
+	}
+	
+	/*
+	 * Maps one band of tile rows at a time. Tiles arrive in roughly band order, but not exactly,
+	 * so every band with tiles still to come stays mapped until its last tile is in.
+	 */
+	private static class StripedWriter extends Writer {
+		final Format format;
+		final int width, height, tileSize, tilesX, bytesPerValue;
+		final long headerSize;
+		final Map<Integer, Band> bands = new HashMap<Integer, Band>();
+		final float[] floatRow;
+		final short[] shortRow;
+		
+		StripedWriter(Format format, int width, int height, int tileSize, int tilesX) {
+			this.format = format;
+			this.width = width;
+			this.height = height;
+			this.tileSize = tileSize;
+			this.tilesX = tilesX;
+			this.bytesPerValue = format == Format.FLOAT32 ? 4 : 2;
+			this.headerSize = format == Format.PGM16 ? pgmHeader(width, height).length : 0;
+			this.floatRow = new float[tileSize];
+			this.shortRow = new short[tileSize];
+			if ((long)width * tileSize * bytesPerValue > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("A band of " + tileSize + " rows of " + width + " is too big to map, use a smaller tile size or the tiled format");
+			}
+		}
+		
+		static byte[] pgmHeader(int width, int height) {
+			return ("P5\n" + width + " " + height + "\n65535\n").getBytes(StandardCharsets.US_ASCII);
+		}
+		
+		void begin(FileChannel channel) throws IOException {
+			if (format == Format.PGM16) writeFully(channel, ByteBuffer.wrap(pgmHeader(width, height)), 0);
+		}
+		
+		void write(FileChannel channel, int index, double[][] tile, int tileX, int tileY, int tileWidth, int tileHeight) throws IOException {
+			int bandIndex = index / tilesX;
+			Band band = bands.get(bandIndex);
+			if (band == null) {
+				int rows = Math.min(tileSize, height - tileY);
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, headerSize + (long)tileY * width * bytesPerValue, (long)rows * width * bytesPerValue);
+				band = new Band(mapped, tilesX);
+				bands.put(bandIndex, band);
+			}
+			
+			if (format == Format.FLOAT32) {
+				FloatBuffer floats = band.mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+				for (int y = 0; y < tileHeight; y++) {
+					double[] values = tile[y];
+					for (int x = 0; x < tileWidth; x++) {
+						floatRow[x] = (float)values[x];
+					}
+					floats.position(y * width + tileX);
+					floats.put(floatRow, 0, tileWidth);
+				}
+			} else {
+				ShortBuffer shorts = band.mapped.duplicate().order(ByteOrder.BIG_ENDIAN).asShortBuffer();
+				for (int y = 0; y < tileHeight; y++) {
+					double[] values = tile[y];
+					for (int x = 0; x < tileWidth; x++) {
+						int q = (int)((values[x] + 1) * 32767.5 + 0.5);
+						if (q < 0) q = 0;
+						else if (q > 65535) q = 65535;
+						shortRow[x] = (short)q;
+					}
+					shorts.position(y * width + tileX);
+					shorts.put(shortRow, 0, tileWidth);
+				}
+			}
+			
+			// Flushing here, on the writer, overlaps it with the generators working on the next band.
+			if (--band.remaining == 0) {
+				band.mapped.force();
+				bands.remove(bandIndex);
+			}
+		}
+		
+		void end(FileChannel channel) {
+		}
+		
+		long size() {
+			return headerSize + (long)width * height * bytesPerValue;
+		}
+		
+		static class Band {
+			final MappedByteBuffer mapped;
+			int remaining;
+			
+			Band(MappedByteBuffer mapped, int tiles) {
+				this.mapped = mapped;
+				this.remaining = tiles;
+			}
+		}
+	}
+	
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+}
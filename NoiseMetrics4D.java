@@ -1,24 +1,29 @@
 /*
- * SuperSimplex Noise 2D Area Generation metrics.
+ * SuperSimplex Noise 4D Area Generation metrics.
  */
 
-class NoiseMetrics {
+class NoiseMetrics4D {
 	
 	static final int N_INSTANCES = 1;
 	static final int N_PREP_ITERATIONS = 8;
 	static final int N_TIMED_ITERATIONS = 16;
 	
-	static final int WIDTH = 512;
-	static final int HEIGHT = 512;
-	static final double NOISE_EVAL_PERIOD = 128.0;
+	static final int WIDTH = 64;
+	static final int HEIGHT = 64;
+	static final int DEPTH = 16;
+	static final int EXTENT_W = 16;
+	static final double NOISE_EVAL_PERIOD = 32.0;
 	static final int OFF_X = 8192;
 	static final int OFF_Y = 8192;
+	static final int OFF_Z = 8192;
+	static final int OFF_W = 8192;
 	
 	static final double NOISE_EVAL_FREQ = 1.0 / NOISE_EVAL_PERIOD;
 	
 	public static void main(String[] args) {
 		
-		OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+		OpenSimplex2S.GenerateContext4D ctx = new OpenSimplex2S.GenerateContext4D(OpenSimplex2S.LatticeOrientation4D.Classic,
+				NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
 		OpenSimplex2S[] noises = new OpenSimplex2S[N_INSTANCES];
 		for (int i = 0; i < N_INSTANCES; i++) {
 			noises[i] = new OpenSimplex2S(i);
@@ -28,77 +33,91 @@ class NoiseMetrics {
 		double sum1 = 0;
 		long time2 = 0;
 		double sum2 = 0;
-
+		
 		for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
 			
 			for (int i = 0; i < N_INSTANCES; i++) {
 				
-				double[][] buffer = new double[HEIGHT][WIDTH];
+				double[][][][] buffer = new double[EXTENT_W][DEPTH][HEIGHT][WIDTH];
 				long start = System.currentTimeMillis();
 				
 				// Generate area
-				noises[i].generate2(ctx, buffer, OFF_X, OFF_Y);
+				noises[i].generate4(ctx, buffer, OFF_X, OFF_Y, OFF_Z, OFF_W);
 				
 				long elapsed = System.currentTimeMillis() - start;
 				
-				// Want to make sure the JVM isn't taking any shortcuts for unused values (would it do that?)
-				for (int y = 0; y < HEIGHT; y++) {
-					for (int x = 0; x < WIDTH; x++) {
-						sum1 += buffer[y][x];
+				// Want to make sure the JVM isn't taking any shortcuts for unused values
+				for (int w = 0; w < EXTENT_W; w++) {
+					for (int z = 0; z < DEPTH; z++) {
+						for (int y = 0; y < HEIGHT; y++) {
+							for (int x = 0; x < WIDTH; x++) {
+								sum1 += buffer[w][z][y][x];
+							}
+						}
 					}
 				}
-			
+				
 				if (ie >= N_PREP_ITERATIONS) {
 					time1 += elapsed;
 				}
 			}
 		}
-
+		
 		for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
 			
 			for (int i = 0; i < N_INSTANCES; i++) {
 				
-				double[][] buffer = new double[HEIGHT][WIDTH];
+				double[][][][] buffer = new double[EXTENT_W][DEPTH][HEIGHT][WIDTH];
 				long start = System.currentTimeMillis();
 				
 				// Generate traditionally
-				for (int y = 0; y < HEIGHT; y++) {
-					for (int x = 0; x < WIDTH; x++) {
-						buffer[y][x] = noises[i].noise2((x + OFF_X) * NOISE_EVAL_FREQ, (y + OFF_Y) * NOISE_EVAL_FREQ);
+				for (int w = 0; w < EXTENT_W; w++) {
+					for (int z = 0; z < DEPTH; z++) {
+						for (int y = 0; y < HEIGHT; y++) {
+							for (int x = 0; x < WIDTH; x++) {
+								buffer[w][z][y][x] = noises[i].noise4_Classic((x + OFF_X) * NOISE_EVAL_FREQ, (y + OFF_Y) * NOISE_EVAL_FREQ,
+										(z + OFF_Z) * NOISE_EVAL_FREQ, (w + OFF_W) * NOISE_EVAL_FREQ);
+							}
+						}
 					}
 				}
 				
 				long elapsed = System.currentTimeMillis() - start;
 				
-				// Want to make sure the JVM isn't taking any shortcuts for unused values (would it do that?)
-				for (int y = 0; y < HEIGHT; y++) {
-					for (int x = 0; x < WIDTH; x++) {
-						sum2 += buffer[y][x];
+				// Want to make sure the JVM isn't taking any shortcuts for unused values
+				for (int w = 0; w < EXTENT_W; w++) {
+					for (int z = 0; z < DEPTH; z++) {
+						for (int y = 0; y < HEIGHT; y++) {
+							for (int x = 0; x < WIDTH; x++) {
+								sum2 += buffer[w][z][y][x];
+							}
+						}
 					}
 				}
-			
+				
 				if (ie >= N_PREP_ITERATIONS) {
 					time2 += elapsed;
 				}
 			}
 		}
 		
+		long nValues = (long)WIDTH * HEIGHT * DEPTH * EXTENT_W;
 		System.out.println("Noise class name: " + noises[0].getClass().getName());
 		System.out.println("Number of prep iterations: " + N_PREP_ITERATIONS);
 		System.out.println("Number of timed iterations: " + N_TIMED_ITERATIONS);
-		System.out.println("Size: " + WIDTH  + "x" + HEIGHT);
-		System.out.println("Offset: " + OFF_X  + "," + OFF_Y);
+		System.out.println("Size: " + WIDTH  + "x" + HEIGHT + "x" + DEPTH + "x" + EXTENT_W);
+		System.out.println("Offset: " + OFF_X  + "," + OFF_Y + "," + OFF_Z + "," + OFF_W);
 		System.out.println("Noise Period: " + NOISE_EVAL_PERIOD);
 		System.out.println();
 		System.out.println("---- Area Generation ----");
 		System.out.println("Sum of all noise values: " + sum1 + " (sanity check)");
 		System.out.println("Total milliseconds: " + time1);
-		System.out.println("Nanoseconds per generated value: " + (time1 * 1_000_000.0 / (N_TIMED_ITERATIONS * N_INSTANCES * WIDTH * HEIGHT)));
+		System.out.println("Nanoseconds per generated value: " + (time1 * 1_000_000.0 / (N_TIMED_ITERATIONS * N_INSTANCES * nValues)));
 		System.out.println();
 		System.out.println("---- Traditional Evaluation ----");
 		System.out.println("Sum of all noise values: " + sum2 + " (sanity check)");
 		System.out.println("Total milliseconds: " + time2);
-		System.out.println("Nanoseconds per generated value: " + (time2 * 1_000_000.0 / (N_TIMED_ITERATIONS * N_INSTANCES * WIDTH * HEIGHT)));
+		System.out.println("Nanoseconds per generated value: " + (time2 * 1_000_000.0 / (N_TIMED_ITERATIONS * N_INSTANCES * nValues)));
 		System.out.println();
 		System.out.println("Performance ratio: ~" + Math.round(time2 * 100.0 / time1) + "%");
 		System.out.println("Time ratio: ~" + Math.round(time1 * 100.0 / time2) + "%");
@@ -107,4 +126,4 @@ class NoiseMetrics {
 	}
 	
 	
-}
\ No newline at end of file
+}
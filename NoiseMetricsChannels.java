@@ -0,0 +1,75 @@
+/*
+ * SuperSimplex Noise multi-seed Area Generation metrics: one generate2 call per seed, vs all seeds in one traversal.
+ */
+
+class NoiseMetricsChannels {
+	
+	static final int N_PREP_ITERATIONS = 8;
+	static final int N_TIMED_ITERATIONS = 16;
+	
+	static final int CHANNELS = 4;
+	static final int WIDTH = 1024;
+	static final int HEIGHT = 1024;
+	static final double NOISE_EVAL_PERIOD = 128.0;
+	static final int OFF_X = 8192;
+	static final int OFF_Y = 8192;
+	
+	static final double NOISE_EVAL_FREQ = 1.0 / NOISE_EVAL_PERIOD;
+	
+	public static void main(String[] args) {
+		
+		OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+		OpenSimplex2S[] noises = new OpenSimplex2S[CHANNELS];
+		for (int c = 0; c < CHANNELS; c++) {
+			noises[c] = new OpenSimplex2S(c);
+		}
+		
+		long time1 = 0, time2 = 0, time3 = 0;
+		double sum1 = 0, sum2 = 0, sum3 = 0;
+		
+		for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
+			double[][][] buffers = new double[CHANNELS][HEIGHT][WIDTH];
+			double[][][] channelBuffers = new double[CHANNELS][HEIGHT][WIDTH];
+			double[][] interleaved = new double[HEIGHT][WIDTH * CHANNELS];
+			
+			// One call per seed
+			long start = System.nanoTime();
+			for (int c = 0; c < CHANNELS; c++) {
+				noises[c].generate2(ctx, buffers[c], OFF_X, OFF_Y);
+			}
+			long elapsed1 = System.nanoTime() - start;
+			
+			// All seeds at once, into a buffer each
+			start = System.nanoTime();
+			OpenSimplex2S.generate2Channels(noises, ctx, channelBuffers, OFF_X, OFF_Y);
+			long elapsed2 = System.nanoTime() - start;
+			
+			// All seeds at once, interleaved
+			start = System.nanoTime();
+			OpenSimplex2S.generate2Interleaved(noises, ctx, interleaved, OFF_X, OFF_Y);
+			long elapsed3 = System.nanoTime() - start;
+			
+			// Want to make sure the JVM isn't taking any shortcuts for unused values
+			for (int c = 0; c < CHANNELS; c++) {
+				for (int y = 0; y < HEIGHT; y++) {
+					for (int x = 0; x < WIDTH; x++) {
+						sum1 += buffers[c][y][x];
+						sum2 += channelBuffers[c][y][x];
+						sum3 += interleaved[y][x * CHANNELS + c];
+					}
+				}
+			}
+			
+			if (ie >= N_PREP_ITERATIONS) {
+				time1 += elapsed1;
+				time2 += elapsed2;
+				time3 += elapsed3;
+			}
+		}
+		
+		System.out.println(CHANNELS + " seeds, " + WIDTH + "x" + HEIGHT + ", period " + NOISE_EVAL_PERIOD + ":");
+		System.out.println("  generate2 per seed:   " + (time1 / 1000000.0 / N_TIMED_ITERATIONS) + "ms (sum " + sum1 + ")");
+		System.out.println("  generate2Channels:    " + (time2 / 1000000.0 / N_TIMED_ITERATIONS) + "ms (sum " + sum2 + ")");
+		System.out.println("  generate2Interleaved: " + (time3 / 1000000.0 / N_TIMED_ITERATIONS) + "ms (sum " + sum3 + ")");
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Culling metrics: bounds3 on a grid of cells per chunk, to skip chunks that come out all solid or all air,
+ * on terrain density of two octaves of noise plus a height gradient.
+ * Every chunk is also generated, to count how many really were uniform, and to check no chunk was culled that shouldn't have been.
+ * Then how wide the ranges come out per cell on one octave, against the real ranges and the most generate3 can output at all.
+ */
+
+class NoiseMetricsCulling {
+	
+	static final int CHUNK_SIZE = 32;
+	static final int CHUNKS_X = 8;
+	static final int CHUNKS_Y = 8;
+	static final int CHUNKS_Z = 8;
+	static final int OFF_X = 4096;
+	static final int OFF_Y = 0;
+	static final int OFF_Z = 4096;
+	
+	// density = octave1 + 0.5 * octave2 + (SURFACE_Y - y) / HEIGHT_SCALE, solid where it's positive
+	static final double OCTAVE1_PERIOD = 64.0;
+	static final double OCTAVE2_PERIOD = 32.0;
+	static final double SURFACE_Y = 128;
+	static final double HEIGHT_SCALE = 24;
+	
+	// 0 is 8^3 cells first, then 4^3 for the chunks those can't decide
+	static final int[] CELL_SIZES = { 32, 16, 8, 4, 0 };
+	
+	// For how wide bounds3's ranges come out on one octave, against the most generate3 can output anywhere
+	static final double[] WIDTH_PERIODS = { 16.0, 64.0 };
+	static final int[] WIDTH_CELL_SIZES = { 4, 8, 16, 32 };
+	static final int WIDTH_AREA = 128;
+	
+	public static void main(String[] args) {
+		OpenSimplex2S noise = new OpenSimplex2S(0);
+		OpenSimplex2S.GenerateContext3D octave1 = new OpenSimplex2S.GenerateContext3D(OpenSimplex2S.LatticeOrientation3D.XZBeforeY,
+				1 / OCTAVE1_PERIOD, 1 / OCTAVE1_PERIOD, 1 / OCTAVE1_PERIOD, 1.0);
+		OpenSimplex2S.GenerateContext3D octave2 = new OpenSimplex2S.GenerateContext3D(OpenSimplex2S.LatticeOrientation3D.XZBeforeY,
+				1 / OCTAVE2_PERIOD, 1 / OCTAVE2_PERIOD, 1 / OCTAVE2_PERIOD, 0.5);
+		int chunkCount = CHUNKS_X * CHUNKS_Y * CHUNKS_Z;
+		
+		// Warm up both, on chunks outside the measured area
+		for (int i = 0; i < 40; i++) {
+			generateChunk(noise, octave1, octave2, -CHUNK_SIZE * (i + 1), 0, 0);
+			for (int cellSize = 4; cellSize <= CHUNK_SIZE; cellSize *= 2) classifyChunk(noise, octave1, octave2, -CHUNK_SIZE * (i + 1), 0, 0, cellSize);
+		}
+		
+		// What each chunk really is: 1 all solid, -1 all air, 0 mixed
+		int[] truth = new int[chunkCount];
+		int uniform = 0;
+		for (int c = 0; c < chunkCount; c++) {
+			double[][][] density = generateChunk(noise, octave1, octave2, chunkX(c), chunkY(c), chunkZ(c));
+			boolean anySolid = false, anyAir = false;
+			for (double[][] slice : density) for (double[] row : slice) for (double value : row) {
+				if (value > 0) anySolid = true; else anyAir = true;
+			}
+			truth[c] = anySolid && anyAir ? 0 : anySolid ? 1 : -1;
+			if (truth[c] != 0) uniform++;
+		}
+		
+		long generateTime = 0;
+		for (int c = 0; c < chunkCount; c++) {
+			long start = System.nanoTime();
+			generateChunk(noise, octave1, octave2, chunkX(c), chunkY(c), chunkZ(c));
+			generateTime += System.nanoTime() - start;
+		}
+		
+		System.out.println(CHUNKS_X + "x" + CHUNKS_Y + "x" + CHUNKS_Z + " chunks of " + CHUNK_SIZE + "^3, "
+				+ uniform + " of " + chunkCount + " all solid or all air");
+		System.out.println(String.format("%-24s %10s %10s %12s %14s %14s", "", "culled", "of uniform", "wrongly", "ms per chunk", "total ms"));
+		System.out.println(String.format("%-24s %10s %10s %12s %14.3f %14.1f", "generate3 everything", "", "", "",
+				generateTime / 1e6 / chunkCount, generateTime / 1e6));
+		for (int cellSize : CELL_SIZES) {
+			int culled = 0, wrong = 0;
+			long boundsTime = 0, remainingTime = 0;
+			for (int c = 0; c < chunkCount; c++) {
+				long start = System.nanoTime();
+				int verdict = cellSize != 0 ? classifyChunk(noise, octave1, octave2, chunkX(c), chunkY(c), chunkZ(c), cellSize)
+						: classifyChunk(noise, octave1, octave2, chunkX(c), chunkY(c), chunkZ(c), 8);
+				if (cellSize == 0 && verdict == 0) verdict = classifyChunk(noise, octave1, octave2, chunkX(c), chunkY(c), chunkZ(c), 4);
+				boundsTime += System.nanoTime() - start;
+				if (verdict != 0) {
+					culled++;
+					if (verdict != truth[c]) wrong++;
+				} else {
+					start = System.nanoTime();
+					generateChunk(noise, octave1, octave2, chunkX(c), chunkY(c), chunkZ(c));
+					remainingTime += System.nanoTime() - start;
+				}
+			}
+			String name = cellSize != 0 ? "bounds3, " + cellSize + "^3 cells" : "bounds3, 8^3 then 4^3";
+			System.out.println(String.format("%-24s %10d %9.1f%% %12d %14.3f %14.1f", name, culled, 100.0 * culled / uniform, wrong,
+					boundsTime / 1e6 / chunkCount, (boundsTime + remainingTime) / 1e6));
+		}
+		
+		// Each cell's range should be well inside the global one, or bounds3 isn't telling anything the global one doesn't.
+		System.out.println();
+		System.out.println(String.format("%-24s %12s %12s %12s %12s", "one octave", "mean width", "real range", "global", "under global"));
+		for (double period : WIDTH_PERIODS) {
+			OpenSimplex2S.GenerateContext3D context = new OpenSimplex2S.GenerateContext3D(OpenSimplex2S.LatticeOrientation3D.XZBeforeY,
+					1 / period, 1 / period, 1 / period, 1.0);
+			double[][][] values = new double[WIDTH_AREA][WIDTH_AREA][WIDTH_AREA];
+			noise.generate3(context, values, OFF_X, OFF_Y, OFF_Z);
+			double global = 2 * context.boundsLimit();
+			for (int cellSize : WIDTH_CELL_SIZES) {
+				int cells = WIDTH_AREA / cellSize;
+				double[][][] lower = new double[cells][cells][cells], upper = new double[cells][cells][cells];
+				noise.bounds3(context, lower, upper, OFF_X, OFF_Y, OFF_Z, cellSize, cellSize, cellSize);
+				double widthSum = 0, rangeSum = 0;
+				int narrower = 0, outside = 0;
+				for (int cz = 0; cz < cells; cz++) {
+					for (int cy = 0; cy < cells; cy++) {
+						for (int cx = 0; cx < cells; cx++) {
+							double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+							for (int z = cz * cellSize; z < (cz + 1) * cellSize; z++) {
+								for (int y = cy * cellSize; y < (cy + 1) * cellSize; y++) {
+									for (int x = cx * cellSize; x < (cx + 1) * cellSize; x++) {
+										min = Math.min(min, values[z][y][x]);
+										max = Math.max(max, values[z][y][x]);
+									}
+								}
+							}
+							double width = upper[cz][cy][cx] - lower[cz][cy][cx];
+							widthSum += width;
+							rangeSum += max - min;
+							if (width < global) narrower++;
+							if (min < lower[cz][cy][cx] || max > upper[cz][cy][cx]) outside++;
+						}
+					}
+				}
+				int cellCount = cells * cells * cells;
+				System.out.println(String.format("%-24s %12.3f %12.3f %12.3f %11.1f%%%s", "period " + (int)period + ", " + cellSize + "^3 cells",
+						widthSum / cellCount, rangeSum / cellCount, global, 100.0 * narrower / cellCount,
+						outside == 0 ? "" : ", " + outside + " cells outside their bounds!"));
+			}
+		}
+	}
+	
+	static int chunkX(int c) { return OFF_X + (c % CHUNKS_X) * CHUNK_SIZE; }
+	static int chunkY(int c) { return OFF_Y + (c / CHUNKS_X % CHUNKS_Y) * CHUNK_SIZE; }
+	static int chunkZ(int c) { return OFF_Z + (c / (CHUNKS_X * CHUNKS_Y)) * CHUNK_SIZE; }
+	
+	static double[][][] generateChunk(OpenSimplex2S noise, OpenSimplex2S.GenerateContext3D octave1, OpenSimplex2S.GenerateContext3D octave2,
+			int x0, int y0, int z0) {
+		double[][][] density = new double[CHUNK_SIZE][CHUNK_SIZE][CHUNK_SIZE];
+		noise.generate3(octave1, density, x0, y0, z0);
+		noise.generate3(octave2, density, x0, y0, z0);
+		for (int z = 0; z < CHUNK_SIZE; z++) {
+			for (int y = 0; y < CHUNK_SIZE; y++) {
+				double height = (SURFACE_Y - (y0 + y)) / HEIGHT_SCALE;
+				for (int x = 0; x < CHUNK_SIZE; x++) density[z][y][x] += height;
+			}
+		}
+		return density;
+	}
+	
+	// 1 if the bounds say every voxel is solid, -1 if every one is air, 0 if they can't tell
+	static int classifyChunk(OpenSimplex2S noise, OpenSimplex2S.GenerateContext3D octave1, OpenSimplex2S.GenerateContext3D octave2,
+			int x0, int y0, int z0, int cellSize) {
+		int cells = CHUNK_SIZE / cellSize;
+		double[][][] lower1 = new double[cells][cells][cells], upper1 = new double[cells][cells][cells];
+		double[][][] lower2 = new double[cells][cells][cells], upper2 = new double[cells][cells][cells];
+		noise.bounds3(octave1, lower1, upper1, x0, y0, z0, cellSize, cellSize, cellSize);
+		noise.bounds3(octave2, lower2, upper2, x0, y0, z0, cellSize, cellSize, cellSize);
+		boolean allSolid = true, allAir = true;
+		for (int cz = 0; cz < cells; cz++) {
+			for (int cy = 0; cy < cells; cy++) {
+				double heightMin = (SURFACE_Y - (y0 + (cy + 1) * cellSize - 1)) / HEIGHT_SCALE;
+				double heightMax = (SURFACE_Y - (y0 + cy * cellSize)) / HEIGHT_SCALE;
+				for (int cx = 0; cx < cells; cx++) {
+					if (lower1[cz][cy][cx] + lower2[cz][cy][cx] + heightMin <= 0) allSolid = false;
+					if (upper1[cz][cy][cx] + upper2[cz][cy][cx] + heightMax > 0) allAir = false;
+				}
+			}
+			if (!allSolid && !allAir) return 0;
+		}
+		return allSolid ? 1 : allAir ? -1 : 0;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * NoiseExporter metrics: sustained throughput writing each format to disk, and the peak heap in use while doing it,
+ * at a few image sizes. The heap should stay flat as the images grow.
+ *
+ * java NoiseMetricsExport [dir=<temp dir>] [sizes=4096,8192,16384] [formats=tiled,float32,pgm16] [period=256]
+ */
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class NoiseMetricsExport {
+	
+	static final int OFF_X = 8192;
+	static final int OFF_Y = 8192;
+	
+	public static void main(String[] args) throws IOException {
+		Map<String, String> options = new LinkedHashMap<String, String>();
+		options.put("dir", System.getProperty("java.io.tmpdir"));
+		options.put("sizes", "4096,8192,16384");
+		options.put("formats", "tiled,float32,pgm16");
+		options.put("period", "256");
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0 || !options.containsKey(arg.substring(0, eq))) {
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+			options.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+		
+		double freq = 1.0 / Double.parseDouble(options.get("period"));
+		OpenSimplex2S noise = new OpenSimplex2S(0);
+		OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, freq, freq, 1.0);
+		Path dir = Paths.get(options.get("dir"));
+		
+		// Warm up on something small, so the first real run isn't also compiling
+		Path warmup = dir.resolve("noise-export-warmup");
+		for (String format : options.get("formats").split(",")) {
+			NoiseExporter.export2(noise, ctx, warmup, NoiseExporter.parseFormat(format), OFF_X, OFF_Y, 2048, 2048);
+		}
+		Files.delete(warmup);
+		
+		System.out.println(String.format("%-8s %6s %10s %8s %9s %9s %12s", "format", "size", "MB", "seconds", "MB/s", "Mpx/s", "heap peak MB"));
+		for (String sizeString : options.get("sizes").split(",")) {
+			int size = Integer.parseInt(sizeString);
+			for (String format : options.get("formats").split(",")) {
+				Path path = dir.resolve("noise-export-" + size + "." + format);
+				System.gc();
+				resetPeakHeap();
+				NoiseExporter.Result result = NoiseExporter.export2(noise, ctx, path, NoiseExporter.parseFormat(format), OFF_X, OFF_Y, size, size);
+				long peak = peakHeap();
+				Files.delete(path);
+				System.out.println(String.format("%-8s %6d %10.1f %8.2f %9.1f %9.1f %12.1f", format, size, result.bytes / 1e6, result.nanos / 1e9,
+						result.megabytesPerSecond(), (double)size * size / 1e6 / (result.nanos / 1e9), peak / 1e6));
+			}
+		}
+		System.out.println("(for comparison, a double[][] of the largest size would be "
+				+ String.format("%.1f", 8.0 * Math.pow(Double.parseDouble(options.get("sizes").replaceAll(".*,", "")), 2) / 1e6) + " MB)");
+	}
+	
+	static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+		}
+	}
+	
+	// The sum of each pool's peak, which overstates the peak of the total a little, but never understates it.
+	static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Fixed point metrics: generate2Fixed/generate3Fixed vs generate2/generate3, in speed and in how far apart they are.
+ * Also whether each gives the same bits when the area is generated in one go, in four tiles, or on two threads,
+ * which fixed point always should and doubles generally don't, since their sums depend on the order the vertices come in.
+ */
+
+class NoiseMetricsFixed {
+	
+	static final int N_PREP_ITERATIONS = 8;
+	static final int N_TIMED_ITERATIONS = 16;
+	
+	static final int SIZE_2D = 2048;
+	static final int SIZE_3D = 128;
+	static final double[] PERIODS = { 16.0, 64.0 };
+	static final int OFF_X = 2048;
+	static final int OFF_Y = 2048;
+	static final int OFF_Z = 2048;
+	
+	static final double FIXED_SCALE = 1.0 / (1 << OpenSimplex2S.FIXED_SHIFT);
+	
+	public static void main(String[] args) throws InterruptedException {
+		OpenSimplex2S noise = new OpenSimplex2S(0);
+		System.out.println(String.format("%-28s %8s %10s %8s %10s %10s %12s", "", "ms", "Mvalue/s", "speedup", "max diff", "rms diff", "split-stable"));
+		for (double period : PERIODS) {
+			double freq = 1.0 / period;
+			OpenSimplex2S.GenerateContext2D ctx2 = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, freq, freq, 1.0);
+			OpenSimplex2S.GenerateContext3D ctx3 = new OpenSimplex2S.GenerateContext3D(OpenSimplex2S.LatticeOrientation3D.Classic, freq, freq, freq, 1.0);
+			
+			long time2 = 0, timeFixed2 = 0, time3 = 0, timeFixed3 = 0;
+			double[][] buffer2 = new double[SIZE_2D][SIZE_2D];
+			int[][] fixed2 = new int[SIZE_2D][SIZE_2D];
+			double[][][] buffer3 = new double[SIZE_3D][SIZE_3D][SIZE_3D];
+			int[][][] fixed3 = new int[SIZE_3D][SIZE_3D][SIZE_3D];
+			for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
+				clear(buffer2); clear(fixed2); clear(buffer3); clear(fixed3);
+				long start = System.nanoTime();
+				noise.generate2(ctx2, buffer2, OFF_X, OFF_Y);
+				long elapsed2 = System.nanoTime() - start;
+				start = System.nanoTime();
+				noise.generate2Fixed(ctx2, fixed2, OFF_X, OFF_Y);
+				long elapsedFixed2 = System.nanoTime() - start;
+				start = System.nanoTime();
+				noise.generate3(ctx3, buffer3, OFF_X, OFF_Y, OFF_Z);
+				long elapsed3 = System.nanoTime() - start;
+				start = System.nanoTime();
+				noise.generate3Fixed(ctx3, fixed3, OFF_X, OFF_Y, OFF_Z);
+				long elapsedFixed3 = System.nanoTime() - start;
+				if (ie >= N_PREP_ITERATIONS) {
+					time2 += elapsed2; timeFixed2 += elapsedFixed2;
+					time3 += elapsed3; timeFixed3 += elapsedFixed3;
+				}
+			}
+			
+			// Differences from the double path, after the last iteration
+			double max2 = 0, sumSq2 = 0, max3 = 0, sumSq3 = 0;
+			for (int y = 0; y < SIZE_2D; y++) {
+				for (int x = 0; x < SIZE_2D; x++) {
+					double difference = Math.abs(fixed2[y][x] * FIXED_SCALE - buffer2[y][x]);
+					max2 = Math.max(max2, difference);
+					sumSq2 += difference * difference;
+				}
+			}
+			for (int z = 0; z < SIZE_3D; z++) {
+				for (int y = 0; y < SIZE_3D; y++) {
+					for (int x = 0; x < SIZE_3D; x++) {
+						double difference = Math.abs(fixed3[z][y][x] * FIXED_SCALE - buffer3[z][y][x]);
+						max3 = Math.max(max3, difference);
+						sumSq3 += difference * difference;
+					}
+				}
+			}
+			
+			String stable2 = splitStable2(noise, ctx2, buffer2, fixed2);
+			String stable3 = splitStable3(noise, ctx3, buffer3, fixed3);
+			
+			double values2 = (double)SIZE_2D * SIZE_2D * N_TIMED_ITERATIONS, values3 = (double)SIZE_3D * SIZE_3D * SIZE_3D * N_TIMED_ITERATIONS;
+			String size2 = SIZE_2D + "x" + SIZE_2D + ", period " + period, size3 = SIZE_3D + "^3, period " + period;
+			System.out.println(size2);
+			print("  generate2", time2, time2, values2, Double.NaN, Double.NaN, stable2.substring(0, stable2.indexOf(' ')));
+			print("  generate2Fixed", timeFixed2, time2, values2, max2, Math.sqrt(sumSq2 / (SIZE_2D * SIZE_2D)), stable2.substring(stable2.indexOf(' ') + 1));
+			System.out.println(size3);
+			print("  generate3", time3, time3, values3, Double.NaN, Double.NaN, stable3.substring(0, stable3.indexOf(' ')));
+			print("  generate3Fixed", timeFixed3, time3, values3, max3, Math.sqrt(sumSq3 / ((double)SIZE_3D * SIZE_3D * SIZE_3D)),
+					stable3.substring(stable3.indexOf(' ') + 1));
+		}
+	}
+	
+	// Generates the area again as four tiles, and as two halves on their own threads, and compares both to whole.
+	// "yes" if every value matched bit for bit, for doubles then fixed point.
+	static String splitStable2(final OpenSimplex2S noise, final OpenSimplex2S.GenerateContext2D ctx, double[][] whole, int[][] wholeFixed)
+			throws InterruptedException {
+		int half = SIZE_2D / 2;
+		final double[][] tiled = new double[SIZE_2D][SIZE_2D];
+		final int[][] tiledFixed = new int[SIZE_2D][SIZE_2D];
+		for (int ty = 0; ty < SIZE_2D; ty += half) {
+			for (int tx = 0; tx < SIZE_2D; tx += half) {
+				double[][] tile = new double[half][half];
+				int[][] tileFixed = new int[half][half];
+				noise.generate2(ctx, tile, OFF_X + tx, OFF_Y + ty);
+				noise.generate2Fixed(ctx, tileFixed, OFF_X + tx, OFF_Y + ty);
+				for (int y = 0; y < half; y++) {
+					System.arraycopy(tile[y], 0, tiled[ty + y], tx, half);
+					System.arraycopy(tileFixed[y], 0, tiledFixed[ty + y], tx, half);
+				}
+			}
+		}
+		final double[][][] halves = new double[2][][];
+		final int[][][] halvesFixed = new int[2][][];
+		Thread[] threads = new Thread[2];
+		for (int t = 0; t < 2; t++) {
+			final int i = t;
+			threads[t] = new Thread() { public void run() {
+				halves[i] = new double[SIZE_2D / 2][SIZE_2D];
+				halvesFixed[i] = new int[SIZE_2D / 2][SIZE_2D];
+				noise.generate2(ctx, halves[i], OFF_X, OFF_Y + i * SIZE_2D / 2);
+				noise.generate2Fixed(ctx, halvesFixed[i], OFF_X, OFF_Y + i * SIZE_2D / 2);
+			} };
+			threads[t].start();
+		}
+		for (Thread thread : threads) thread.join();
+		boolean doubles = true, fixed = true;
+		for (int y = 0; y < SIZE_2D; y++) {
+			double[] threadRow = halves[y / half][y % half];
+			int[] threadRowFixed = halvesFixed[y / half][y % half];
+			for (int x = 0; x < SIZE_2D; x++) {
+				if (tiled[y][x] != whole[y][x] || threadRow[x] != whole[y][x]) doubles = false;
+				if (tiledFixed[y][x] != wholeFixed[y][x] || threadRowFixed[x] != wholeFixed[y][x]) fixed = false;
+			}
+		}
+		return (doubles ? "yes" : "no") + " " + (fixed ? "yes" : "no");
+	}
+	
+	static String splitStable3(final OpenSimplex2S noise, final OpenSimplex2S.GenerateContext3D ctx, double[][][] whole, int[][][] wholeFixed)
+			throws InterruptedException {
+		int half = SIZE_3D / 2;
+		boolean doubles = true, fixed = true;
+		for (int bz = 0; bz < SIZE_3D; bz += half) {
+			for (int bx = 0; bx < SIZE_3D; bx += half) {
+				double[][][] brick = new double[half][SIZE_3D][half];
+				int[][][] brickFixed = new int[half][SIZE_3D][half];
+				noise.generate3(ctx, brick, OFF_X + bx, OFF_Y, OFF_Z + bz);
+				noise.generate3Fixed(ctx, brickFixed, OFF_X + bx, OFF_Y, OFF_Z + bz);
+				for (int z = 0; z < half; z++) {
+					for (int y = 0; y < SIZE_3D; y++) {
+						for (int x = 0; x < half; x++) {
+							if (brick[z][y][x] != whole[bz + z][y][bx + x]) doubles = false;
+							if (brickFixed[z][y][x] != wholeFixed[bz + z][y][bx + x]) fixed = false;
+						}
+					}
+				}
+			}
+		}
+		return (doubles ? "yes" : "no") + " " + (fixed ? "yes" : "no");
+	}
+	
+	static void clear(double[][] buffer) { for (double[] row : buffer) java.util.Arrays.fill(row, 0); }
+	static void clear(int[][] buffer) { for (int[] row : buffer) java.util.Arrays.fill(row, 0); }
+	static void clear(double[][][] buffer) { for (double[][] slice : buffer) clear(slice); }
+	static void clear(int[][][] buffer) { for (int[][] slice : buffer) clear(slice); }
+	
+	static void print(String name, long nanos, long baseNanos, double values, double maxDifference, double rmsDifference, String stable) {
+		System.out.println(String.format("%-28s %8.2f %10.1f %7.2fx %10s %10s %12s", name, nanos / 1e6 / N_TIMED_ITERATIONS, values / (nanos / 1e3),
+				(double)baseNanos / nanos, Double.isNaN(maxDifference) ? "" : String.format("%.2e", maxDifference),
+				Double.isNaN(rmsDifference) ? "" : String.format("%.2e", rmsDifference), stable));
+	}
+}
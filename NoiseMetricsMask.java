@@ -0,0 +1,101 @@
+/*
+ * Masked generation metrics: generate2Masked with masks of different shapes and coverage, vs generate2 over the whole rectangle.
+ * Per masked pixel, the cost should stay roughly flat as the mask gets sparser, instead of growing like it does per rectangle pixel.
+ */
+
+import java.util.Random;
+
+class NoiseMetricsMask {
+	
+	static final int N_PREP_ITERATIONS = 8;
+	static final int N_TIMED_ITERATIONS = 16;
+	
+	static final int SIZE = 2048;
+	static final int CHUNK_SIZE = 64;
+	static final double NOISE_EVAL_PERIOD = 64.0;
+	static final int OFF_X = 8192;
+	static final int OFF_Y = 8192;
+	
+	static final double NOISE_EVAL_FREQ = 1.0 / NOISE_EVAL_PERIOD;
+	
+	public static void main(String[] args) {
+		OpenSimplex2S noise = new OpenSimplex2S(0);
+		OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+		
+		String[] names = { "full", "circle, radius 1024", "circle, radius 256", "circle, radius 64", "10% of chunks", "coastline band" };
+		OpenSimplex2S.Mask2D[] masks = {
+			new OpenSimplex2S.Mask2D(SIZE, SIZE, fullSpans()),
+			OpenSimplex2S.Mask2D.circle(SIZE, SIZE, SIZE / 2, SIZE / 2, 1024),
+			OpenSimplex2S.Mask2D.circle(SIZE, SIZE, SIZE / 2, SIZE / 2, 256),
+			OpenSimplex2S.Mask2D.circle(SIZE, SIZE, SIZE / 2, SIZE / 2, 64),
+			OpenSimplex2S.Mask2D.fromBitmap(chunks(0.1)),
+			OpenSimplex2S.Mask2D.fromBitmap(coastline(16))
+		};
+		
+		long rectangleTime = 0;
+		long[] maskedTime = new long[masks.length];
+		double sum = 0;
+		
+		for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
+			double[][] buffer = new double[SIZE][SIZE];
+			long start = System.nanoTime();
+			noise.generate2(ctx, buffer, OFF_X, OFF_Y);
+			long elapsedRectangle = System.nanoTime() - start;
+			sum += buffer[SIZE / 2][SIZE / 2];
+			if (ie >= N_PREP_ITERATIONS) rectangleTime += elapsedRectangle;
+			
+			for (int m = 0; m < masks.length; m++) {
+				buffer = new double[SIZE][SIZE];
+				start = System.nanoTime();
+				noise.generate2Masked(ctx, buffer, masks[m], OFF_X, OFF_Y);
+				long elapsedMasked = System.nanoTime() - start;
+				
+				// Want to make sure the JVM isn't taking any shortcuts for unused values
+				sum += buffer[SIZE / 2][SIZE / 2];
+				if (ie >= N_PREP_ITERATIONS) maskedTime[m] += elapsedMasked;
+			}
+		}
+		
+		System.out.println(SIZE + "x" + SIZE + ", period " + NOISE_EVAL_PERIOD);
+		System.out.println(String.format("%-40s %9s %8s %14s", "", "coverage", "ms", "ns/masked px"));
+		System.out.println(String.format("%-40s %8.1f%% %8.2f %14.2f", "generate2, whole rectangle", 100.0,
+				rectangleTime / 1e6 / N_TIMED_ITERATIONS, rectangleTime / ((double)SIZE * SIZE * N_TIMED_ITERATIONS)));
+		for (int m = 0; m < masks.length; m++) {
+			double area = masks[m].area();
+			System.out.println(String.format("%-40s %8.1f%% %8.2f %14.2f", "generate2Masked, " + names[m], 100 * area / ((double)SIZE * SIZE),
+					maskedTime[m] / 1e6 / N_TIMED_ITERATIONS, maskedTime[m] / (area * N_TIMED_ITERATIONS)));
+		}
+		System.out.println("(checksum " + sum + ")");
+	}
+	
+	static int[][] fullSpans() {
+		int[][] spans = new int[SIZE][];
+		for (int y = 0; y < SIZE; y++) spans[y] = new int[] { 0, SIZE };
+		return spans;
+	}
+	
+	// Whole chunks picked at random, like the ones in view
+	static boolean[][] chunks(double fraction) {
+		boolean[][] bitmap = new boolean[SIZE][SIZE];
+		Random random = new Random(0);
+		for (int cy = 0; cy < SIZE; cy += CHUNK_SIZE) {
+			for (int cx = 0; cx < SIZE; cx += CHUNK_SIZE) {
+				if (random.nextDouble() >= fraction) continue;
+				for (int y = cy; y < cy + CHUNK_SIZE; y++) {
+					for (int x = cx; x < cx + CHUNK_SIZE; x++) bitmap[y][x] = true;
+				}
+			}
+		}
+		return bitmap;
+	}
+	
+	// A band either side of a wavy line across the area
+	static boolean[][] coastline(int halfWidth) {
+		boolean[][] bitmap = new boolean[SIZE][SIZE];
+		for (int x = 0; x < SIZE; x++) {
+			int center = (int)(SIZE / 2 + 300 * Math.sin(x * 0.004) + 60 * Math.sin(x * 0.031));
+			for (int y = Math.max(0, center - halfWidth); y < Math.min(SIZE, center + halfWidth); y++) bitmap[y][x] = true;
+		}
+		return bitmap;
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Periodic generation metrics: a seamlessly tiling texture from GenerateContext2D.periodic, vs the same size of plain generate2,
+ * which doesn't tile, vs the usual tiling trick of evaluating 4D noise on a torus, one point at a time.
+ * Also how far apart each method's opposite edges are.
+ */
+
+class NoiseMetricsPeriodic {
+	
+	static final int N_PREP_ITERATIONS = 8;
+	static final int N_TIMED_ITERATIONS = 16;
+	
+	static final int SIZE = 512;
+	static final double NOISE_EVAL_PERIOD = 64.0;
+	
+	static final double NOISE_EVAL_FREQ = 1.0 / NOISE_EVAL_PERIOD;
+	
+	public static void main(String[] args) {
+		OpenSimplex2S noise = new OpenSimplex2S(0);
+		OpenSimplex2S.GenerateContext2D plainCtx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+		OpenSimplex2S.GenerateContext2D periodicCtx = OpenSimplex2S.GenerateContext2D.periodic(OpenSimplex2S.LatticeOrientation2D.Standard, SIZE, SIZE, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+		
+		// A torus whose circles are SIZE pixels around, so features come out about the same size.
+		double radius = SIZE * NOISE_EVAL_FREQ / (2 * Math.PI);
+		double[] cosines = new double[SIZE + 1], sines = new double[SIZE + 1];
+		for (int i = 0; i <= SIZE; i++) {
+			cosines[i] = radius * Math.cos(2 * Math.PI * i / SIZE);
+			sines[i] = radius * Math.sin(2 * Math.PI * i / SIZE);
+		}
+		
+		long plainTime = 0, periodicTime = 0, torusTime = 0;
+		double plainSeam = 0, periodicSeam = 0, torusSeam = 0;
+		double sum = 0;
+		
+		for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
+			
+			// One extra row and column, to compare against the first.
+			double[][] plain = new double[SIZE + 1][SIZE + 1];
+			double[][] periodic = new double[SIZE + 1][SIZE + 1];
+			double[][] torus = new double[SIZE + 1][SIZE + 1];
+			
+			long start = System.nanoTime();
+			noise.generate2(plainCtx, plain, 0, 0);
+			long elapsedPlain = System.nanoTime() - start;
+			
+			start = System.nanoTime();
+			noise.generate2(periodicCtx, periodic, 0, 0);
+			long elapsedPeriodic = System.nanoTime() - start;
+			
+			start = System.nanoTime();
+			for (int y = 0; y <= SIZE; y++) {
+				for (int x = 0; x <= SIZE; x++) {
+					torus[y][x] = noise.noise4_Classic(cosines[x], sines[x], cosines[y], sines[y]);
+				}
+			}
+			long elapsedTorus = System.nanoTime() - start;
+			
+			// Want to make sure the JVM isn't taking any shortcuts for unused values
+			sum += plain[SIZE / 2][SIZE / 2] + periodic[SIZE / 3][SIZE / 3] + torus[SIZE / 5][SIZE / 5];
+			
+			if (ie >= N_PREP_ITERATIONS) {
+				plainTime += elapsedPlain;
+				periodicTime += elapsedPeriodic;
+				torusTime += elapsedTorus;
+			}
+			if (ie == 0) {
+				plainSeam = seam(plain);
+				periodicSeam = seam(periodic);
+				torusSeam = seam(torus);
+			}
+		}
+		
+		double pixels = (double)(SIZE + 1) * (SIZE + 1) * N_TIMED_ITERATIONS;
+		System.out.println(SIZE + "x" + SIZE + " tile, period " + NOISE_EVAL_PERIOD + " (rounded to " + String.format("%.2f", 1 / Math.hypot(periodicCtx.m00, periodicCtx.m10)) + " along X for the periodic one)");
+		System.out.println(String.format("%-24s %8s %8s %14s", "", "ms", "ns/px", "max edge diff"));
+		print("generate2, plain", plainTime, pixels, plainSeam);
+		print("generate2, periodic", periodicTime, pixels, periodicSeam);
+		print("noise4_Classic torus", torusTime, pixels, torusSeam);
+		System.out.println("(checksum " + sum + ")");
+	}
+	
+	// The biggest difference between the last row or column and the first, which a tiling texture wants to be zero.
+	static double seam(double[][] buffer) {
+		double max = 0;
+		for (int i = 0; i <= SIZE; i++) {
+			max = Math.max(max, Math.abs(buffer[i][SIZE] - buffer[i][0]));
+			max = Math.max(max, Math.abs(buffer[SIZE][i] - buffer[0][i]));
+		}
+		return max;
+	}
+	
+	static void print(String name, long nanos, double pixels, double seam) {
+		System.out.println(String.format("%-24s %8.2f %8.2f %14.3g", name, nanos / 1e6 / N_TIMED_ITERATIONS, nanos / pixels, seam));
+	}
+}
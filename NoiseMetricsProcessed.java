@@ -0,0 +1,164 @@
+/*
+ * Fused post-processing metrics: two octaves of ridged noise, normalized, done the usual way with generate2/generate3
+ * and separate passes to clear, ridge, scale and find the range, vs generate2Processed/generate3Processed doing it as each tile is made.
+ * Also the largest difference between the two, which should only be rounding.
+ */
+
+import java.util.Arrays;
+
+class NoiseMetricsProcessed {
+	
+	static final int N_PREP_ITERATIONS = 8;
+	static final int N_TIMED_ITERATIONS = 16;
+	
+	static final int SIZE_2D = 2048;
+	static final int SIZE_3D = 128;
+	static final double NOISE_EVAL_PERIOD = 64.0;
+	static final int OFF_X = 2048;
+	static final int OFF_Y = 2048;
+	static final int OFF_Z = 2048;
+	
+	static final double NOISE_EVAL_FREQ = 1.0 / NOISE_EVAL_PERIOD;
+	
+	public static void main(String[] args) {
+		OpenSimplex2S noise = new OpenSimplex2S(0);
+		OpenSimplex2S.GenerateContext2D octave1 = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard,
+				NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+		OpenSimplex2S.GenerateContext2D octave2 = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard,
+				2 * NOISE_EVAL_FREQ, 2 * NOISE_EVAL_FREQ, 1.0);
+		OpenSimplex2S.GenerateContext3D octave1_3 = new OpenSimplex2S.GenerateContext3D(OpenSimplex2S.LatticeOrientation3D.Classic,
+				NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+		OpenSimplex2S.GenerateContext3D octave2_3 = new OpenSimplex2S.GenerateContext3D(OpenSimplex2S.LatticeOrientation3D.Classic,
+				2 * NOISE_EVAL_FREQ, 2 * NOISE_EVAL_FREQ, 2 * NOISE_EVAL_FREQ, 1.0);
+		
+		// Octave 1 overwrites, octave 2 goes on top at half weight, and both are ridged
+		OpenSimplex2S.PostProcess first = new OpenSimplex2S.PostProcess(OpenSimplex2S.WriteMode.Overwrite).ridge();
+		OpenSimplex2S.PostProcess second = new OpenSimplex2S.PostProcess(OpenSimplex2S.WriteMode.WeightedAdd, 0.5).ridge();
+		
+		long separate2 = 0, fused2 = 0, separate3 = 0, fused3 = 0;
+		double error2 = 0, error3 = 0;
+		double sum = 0;
+		double[][] a2 = new double[SIZE_2D][SIZE_2D], b2 = new double[SIZE_2D][SIZE_2D];
+		double[][] scratch2 = new double[SIZE_2D][SIZE_2D];
+		double[][][] a3 = new double[SIZE_3D][SIZE_3D][SIZE_3D], b3 = new double[SIZE_3D][SIZE_3D][SIZE_3D];
+		double[][][] scratch3 = new double[SIZE_3D][SIZE_3D][SIZE_3D];
+		
+		for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
+			
+			// The buffers are reused, like they would be from one frame or chunk to the next, so they have to be cleared.
+			long start = System.nanoTime();
+			clear(a2);
+			noise.generate2(octave1, a2, OFF_X, OFF_Y);
+			ridge(a2, a2, 1.0);
+			clear(scratch2);
+			noise.generate2(octave2, scratch2, OFF_X, OFF_Y);
+			ridge(scratch2, a2, 0.5);
+			double[] range2 = range(a2);
+			normalize(a2, range2);
+			long elapsedSeparate2 = System.nanoTime() - start;
+			
+			start = System.nanoTime();
+			OpenSimplex2S.Reduction reduction2 = new OpenSimplex2S.Reduction();
+			noise.generate2Processed(octave1, b2, OFF_X, OFF_Y, first, null);
+			noise.generate2Processed(octave2, b2, OFF_X, OFF_Y, second, reduction2);
+			normalize(b2, new double[] { reduction2.min, reduction2.max });
+			long elapsedFused2 = System.nanoTime() - start;
+			
+			start = System.nanoTime();
+			clear(a3);
+			noise.generate3(octave1_3, a3, OFF_X, OFF_Y, OFF_Z);
+			for (double[][] slice : a3) ridge(slice, slice, 1.0);
+			clear(scratch3);
+			noise.generate3(octave2_3, scratch3, OFF_X, OFF_Y, OFF_Z);
+			for (int z = 0; z < SIZE_3D; z++) ridge(scratch3[z], a3[z], 0.5);
+			double[] range3 = { Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+			for (double[][] slice : a3) {
+				double[] sliceRange = range(slice);
+				range3[0] = Math.min(range3[0], sliceRange[0]);
+				range3[1] = Math.max(range3[1], sliceRange[1]);
+			}
+			for (double[][] slice : a3) normalize(slice, range3);
+			long elapsedSeparate3 = System.nanoTime() - start;
+			
+			start = System.nanoTime();
+			OpenSimplex2S.Reduction reduction3 = new OpenSimplex2S.Reduction();
+			noise.generate3Processed(octave1_3, b3, OFF_X, OFF_Y, OFF_Z, first, null);
+			noise.generate3Processed(octave2_3, b3, OFF_X, OFF_Y, OFF_Z, second, reduction3);
+			for (double[][] slice : b3) normalize(slice, new double[] { reduction3.min, reduction3.max });
+			long elapsedFused3 = System.nanoTime() - start;
+			
+			// Want to make sure the JVM isn't taking any shortcuts for unused values
+			sum += a2[SIZE_2D / 3][SIZE_2D / 3] + b2[SIZE_2D / 3][SIZE_2D / 3] + a3[SIZE_3D / 3][SIZE_3D / 3][SIZE_3D / 3] + b3[SIZE_3D / 3][SIZE_3D / 3][SIZE_3D / 3];
+			
+			if (ie >= N_PREP_ITERATIONS) {
+				separate2 += elapsedSeparate2;
+				fused2 += elapsedFused2;
+				separate3 += elapsedSeparate3;
+				fused3 += elapsedFused3;
+			}
+			if (ie == 0) {
+				error2 = maxDifference(a2, b2);
+				for (int z = 0; z < SIZE_3D; z++) error3 = Math.max(error3, maxDifference(a3[z], b3[z]));
+			}
+		}
+		
+		System.out.println("two ridged octaves, normalized, period " + NOISE_EVAL_PERIOD);
+		System.out.println(String.format("%-44s %8s %8s %10s", "", "ms", "speedup", "max diff"));
+		print(SIZE_2D + "x" + SIZE_2D + ", generate2 + separate passes", separate2, separate2, Double.NaN);
+		print(SIZE_2D + "x" + SIZE_2D + ", generate2Processed", fused2, separate2, error2);
+		print(SIZE_3D + "^3, generate3 + separate passes", separate3, separate3, Double.NaN);
+		print(SIZE_3D + "^3, generate3Processed", fused3, separate3, error3);
+		System.out.println("(checksum " + sum + ")");
+	}
+	
+	static void clear(double[][] buffer) {
+		for (double[] row : buffer) Arrays.fill(row, 0);
+	}
+	
+	static void clear(double[][][] buffer) {
+		for (double[][] slice : buffer) clear(slice);
+	}
+	
+	// Overwrites destination when it's the same buffer as source, adds to it otherwise
+	static void ridge(double[][] source, double[][] destination, double weight) {
+		for (int y = 0; y < source.length; y++) {
+			double[] from = source[y], to = destination[y];
+			if (from == to) {
+				for (int x = 0; x < from.length; x++) to[x] = weight * (1 - Math.abs(from[x]));
+			} else {
+				for (int x = 0; x < from.length; x++) to[x] += weight * (1 - Math.abs(from[x]));
+			}
+		}
+	}
+	
+	static double[] range(double[][] buffer) {
+		double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+		for (double[] row : buffer) {
+			for (double value : row) {
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+		}
+		return new double[] { min, max };
+	}
+	
+	static void normalize(double[][] buffer, double[] range) {
+		double scale = 1 / (range[1] - range[0]);
+		for (double[] row : buffer) {
+			for (int x = 0; x < row.length; x++) row[x] = (row[x] - range[0]) * scale;
+		}
+	}
+	
+	static double maxDifference(double[][] a, double[][] b) {
+		double max = 0;
+		for (int y = 0; y < a.length; y++) {
+			for (int x = 0; x < a[0].length; x++) max = Math.max(max, Math.abs(a[y][x] - b[y][x]));
+		}
+		return max;
+	}
+	
+	static void print(String name, long nanos, long baseNanos, double difference) {
+		System.out.println(String.format("%-44s %8.2f %7.2fx %10s", name, nanos / 1e6 / N_TIMED_ITERATIONS, (double)baseNanos / nanos,
+				Double.isNaN(difference) ? "" : String.format("%.2e", difference)));
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Mip pyramid metrics: generate2Pyramid, vs generate2 at full resolution and box-filtering it down level by level,
+ * vs a separate generate2 call per level. Then only the coarse levels, which the pyramid can skip straight to.
+ */
+
+class NoiseMetricsPyramid {
+	
+	static final int N_PREP_ITERATIONS = 8;
+	static final int N_TIMED_ITERATIONS = 16;
+	
+	static final int SIZE = 1024;
+	static final int LEVELS = 6;
+	static final int COARSE_FIRST_LEVEL = 2;
+	static final double NOISE_EVAL_PERIOD = 128.0;
+	static final int OFF_X = 8192;
+	static final int OFF_Y = 8192;
+	
+	static final double NOISE_EVAL_FREQ = 1.0 / NOISE_EVAL_PERIOD;
+	
+	public static void main(String[] args) {
+		OpenSimplex2S noise = new OpenSimplex2S(0);
+		OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+		OpenSimplex2S.GenerateContext2D[] levelCtxs = new OpenSimplex2S.GenerateContext2D[LEVELS];
+		for (int l = 0; l < LEVELS; l++) {
+			levelCtxs[l] = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, NOISE_EVAL_FREQ * (1 << l), NOISE_EVAL_FREQ * (1 << l), 1.0);
+		}
+		
+		long downsampleTime = 0, separateTime = 0, pyramidTime = 0, coarseDownsampleTime = 0, coarsePyramidTime = 0;
+		double sum = 0;
+		
+		for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
+			
+			// Full resolution, then each level the average of 2x2 pixels of the one before
+			double[][][] downsampled = OpenSimplex2S.pyramid2Buffers(SIZE, SIZE, 0, LEVELS);
+			long start = System.nanoTime();
+			noise.generate2(ctx, downsampled[0], OFF_X, OFF_Y);
+			for (int l = 1; l < LEVELS; l++) {
+				downsample(downsampled[l - 1], downsampled[l]);
+			}
+			long elapsedDownsample = System.nanoTime() - start;
+			
+			// Its own context and call for each level. (Sampled at the corners of their blocks, rather than the centers.)
+			double[][][] separate = OpenSimplex2S.pyramid2Buffers(SIZE, SIZE, 0, LEVELS);
+			start = System.nanoTime();
+			for (int l = 0; l < LEVELS; l++) {
+				noise.generate2(levelCtxs[l], separate[l], OFF_X >> l, OFF_Y >> l);
+			}
+			long elapsedSeparate = System.nanoTime() - start;
+			
+			double[][][] pyramid = OpenSimplex2S.pyramid2Buffers(SIZE, SIZE, 0, LEVELS);
+			start = System.nanoTime();
+			noise.generate2Pyramid(ctx, pyramid, OFF_X, OFF_Y);
+			long elapsedPyramid = System.nanoTime() - start;
+			
+			// Only the coarse levels
+			double[][][] coarseDownsampled = OpenSimplex2S.pyramid2Buffers(SIZE, SIZE, 0, LEVELS);
+			start = System.nanoTime();
+			noise.generate2(ctx, coarseDownsampled[0], OFF_X, OFF_Y);
+			for (int l = 1; l < LEVELS; l++) {
+				downsample(coarseDownsampled[l - 1], coarseDownsampled[l]);
+			}
+			long elapsedCoarseDownsample = System.nanoTime() - start;
+			
+			double[][][] coarsePyramid = OpenSimplex2S.pyramid2Buffers(SIZE, SIZE, COARSE_FIRST_LEVEL, LEVELS - COARSE_FIRST_LEVEL);
+			start = System.nanoTime();
+			noise.generate2Pyramid(ctx, coarsePyramid, COARSE_FIRST_LEVEL, OFF_X, OFF_Y, SIZE, SIZE);
+			long elapsedCoarsePyramid = System.nanoTime() - start;
+			
+			// Want to make sure the JVM isn't taking any shortcuts for unused values
+			sum += downsampled[LEVELS - 1][0][0] + separate[LEVELS - 1][0][0] + pyramid[LEVELS - 1][0][0]
+					+ coarseDownsampled[LEVELS - 1][0][0] + coarsePyramid[LEVELS - 1 - COARSE_FIRST_LEVEL][0][0];
+			
+			if (ie >= N_PREP_ITERATIONS) {
+				downsampleTime += elapsedDownsample;
+				separateTime += elapsedSeparate;
+				pyramidTime += elapsedPyramid;
+				coarseDownsampleTime += elapsedCoarseDownsample;
+				coarsePyramidTime += elapsedCoarsePyramid;
+			}
+		}
+		
+		System.out.println(SIZE + "x" + SIZE + ", period " + NOISE_EVAL_PERIOD + ", levels 0 to " + (LEVELS - 1));
+		System.out.println(String.format("%-40s %8s", "", "ms"));
+		print("generate2 + downsampling", downsampleTime);
+		print("generate2 per level", separateTime);
+		print("generate2Pyramid", pyramidTime);
+		System.out.println("Levels " + COARSE_FIRST_LEVEL + " to " + (LEVELS - 1) + " only:");
+		print("generate2 + downsampling", coarseDownsampleTime);
+		print("generate2Pyramid", coarsePyramidTime);
+		System.out.println("(checksum " + sum + ")");
+	}
+	
+	static void downsample(double[][] from, double[][] to) {
+		int fromHeight = from.length, fromWidth = from[0].length;
+		for (int y = 0; y < to.length; y++) {
+			double[] row0 = from[2 * y], row1 = from[Math.min(2 * y + 1, fromHeight - 1)];
+			for (int x = 0; x < to[0].length; x++) {
+				int x1 = Math.min(2 * x + 1, fromWidth - 1);
+				to[y][x] = 0.25 * (row0[2 * x] + row0[x1] + row1[2 * x] + row1[x1]);
+			}
+		}
+	}
+	
+	static void print(String name, long nanos) {
+		System.out.println(String.format("%-40s %8.2f", name, nanos / 1e6 / N_TIMED_ITERATIONS));
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Rendering metrics: NoiseDemo's setRGB loop, vs NoiseRenderer writing the image's data array directly,
+ * vs NoiseRenderer generating and rendering tile by tile, on one thread and on all of them.
+ */
+
+import java.awt.image.BufferedImage;
+
+class NoiseMetricsRender {
+	
+	static final int N_PREP_ITERATIONS = 8;
+	static final int N_TIMED_ITERATIONS = 16;
+	
+	static final int WIDTH = 2048;
+	static final int HEIGHT = 2048;
+	static final double NOISE_EVAL_PERIOD = 64.0;
+	static final int OFF_X = 8192;
+	static final int OFF_Y = 8192;
+	
+	static final double NOISE_EVAL_FREQ = 1.0 / NOISE_EVAL_PERIOD;
+	
+	public static void main(String[] args) {
+		OpenSimplex2S noise = new OpenSimplex2S(0);
+		OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+		NoiseRenderer.GradientMap map = NoiseRenderer.GradientMap.grayscale();
+		int threads = Runtime.getRuntime().availableProcessors();
+		
+		long generateTime = 0, setRGBTime = 0, directTime = 0, fused128Time = 0, fused256Time = 0, fusedNTime = 0;
+		long sum = 0;
+		
+		for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
+			double[][] buffer = new double[HEIGHT][WIDTH];
+			BufferedImage image1 = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+			BufferedImage image2 = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+			BufferedImage image3 = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+			
+			// Generate the whole buffer, then convert it
+			long start = System.nanoTime();
+			noise.generate2(ctx, buffer, OFF_X, OFF_Y);
+			long elapsedGenerate = System.nanoTime() - start;
+			
+			// NoiseDemo's way
+			start = System.nanoTime();
+			for (int y = 0; y < HEIGHT; y++) {
+				for (int x = 0; x < WIDTH; x++) {
+					double value = buffer[y][x]; if (value < -1) value = -1; if (value > 1) value = 1;
+					image1.setRGB(x, y, 0x010101 * (int)((value + 1) * 127.5));
+				}
+			}
+			long elapsedSetRGB = System.nanoTime() - start;
+			
+			// Straight into the data array
+			start = System.nanoTime();
+			NoiseRenderer.render(buffer, image2, 0, 0, map);
+			long elapsedDirect = System.nanoTime() - start;
+			
+			// Generated and converted tile by tile, on one thread, at two tile sizes, then on all of them
+			start = System.nanoTime();
+			NoiseRenderer.render2(noise, ctx, image3, OFF_X, OFF_Y, map, 128, 1);
+			long elapsedFused128 = System.nanoTime() - start;
+			
+			start = System.nanoTime();
+			NoiseRenderer.render2(noise, ctx, image3, OFF_X, OFF_Y, map, 256, 1);
+			long elapsedFused256 = System.nanoTime() - start;
+			
+			start = System.nanoTime();
+			NoiseRenderer.render2(noise, ctx, image3, OFF_X, OFF_Y, map);
+			long elapsedFusedN = System.nanoTime() - start;
+			
+			// Want to make sure the JVM isn't taking any shortcuts for unused values
+			sum += image1.getRGB(WIDTH / 2, HEIGHT / 2) + image2.getRGB(WIDTH / 3, HEIGHT / 3) + image3.getRGB(WIDTH / 5, HEIGHT / 5);
+			
+			if (ie >= N_PREP_ITERATIONS) {
+				generateTime += elapsedGenerate;
+				setRGBTime += elapsedSetRGB;
+				directTime += elapsedDirect;
+				fused128Time += elapsedFused128;
+				fused256Time += elapsedFused256;
+				fusedNTime += elapsedFusedN;
+			}
+		}
+		
+		double pixels = (double)WIDTH * HEIGHT * N_TIMED_ITERATIONS;
+		System.out.println(WIDTH + "x" + HEIGHT + ", period " + NOISE_EVAL_PERIOD + ", " + threads + " thread(s) available");
+		System.out.println(String.format("%-36s %8s %8s", "", "ms", "ns/px"));
+		print("generate2", generateTime, pixels);
+		print("  + setRGB", setRGBTime, pixels);
+		print("  + render (direct)", directTime, pixels);
+		print("generate2 + setRGB, total", generateTime + setRGBTime, pixels);
+		print("generate2 + render, total", generateTime + directTime, pixels);
+		print("render2, 128px tiles, 1 thread", fused128Time, pixels);
+		print("render2, 256px tiles, 1 thread", fused256Time, pixels);
+		print("render2, 256px tiles, " + threads + " thread(s)", fusedNTime, pixels);
+		System.out.println("(checksum " + sum + ")");
+	}
+	
+	static void print(String name, long nanos, double pixels) {
+		System.out.println(String.format("%-36s %8.2f %8.2f", name, nanos / 1e6 / N_TIMED_ITERATIONS, nanos / pixels));
+	}
+}
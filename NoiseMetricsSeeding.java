@@ -0,0 +1,65 @@
+/*
+ * OpenSimplex2S seeding metrics: construction time and heap footprint per instance,
+ * for full instances, lightweight ones, and cached ones, plus evaluation speed for each.
+ */
+
+class NoiseMetricsSeeding {
+	
+	static final int N_INSTANCES = 20000;
+	static final int N_ITERATIONS = 4;
+	static final int EVAL_SIZE = 512;
+	static final double NOISE_EVAL_FREQ = 1.0 / 64.0;
+	
+	public static void main(String[] args) {
+		double sum = 0;
+		
+		// The first pass is only to warm up.
+		for (int pass = 0; pass < 2; pass++) for (int mode = 0; mode < 3; mode++) {
+			String name = mode == 0 ? "new OpenSimplex2S(seed)" : mode == 1 ? "OpenSimplex2S.lightweight(seed)" : "OpenSimplex2S.cached(seed), 64 seeds";
+			OpenSimplex2S[] noises = null;
+			long time = 0;
+			long bytes = 0;
+			
+			for (int ie = 0; ie < N_ITERATIONS; ie++) {
+				noises = null;
+				long before = usedMemory();
+				long start = System.nanoTime();
+				noises = new OpenSimplex2S[N_INSTANCES];
+				for (int i = 0; i < N_INSTANCES; i++) {
+					long seed = i * 0x9E3779B97F4A7C15L;
+					noises[i] = mode == 0 ? new OpenSimplex2S(seed) : mode == 1 ? OpenSimplex2S.lightweight(seed) : OpenSimplex2S.cached(i & 63);
+				}
+				time = System.nanoTime() - start;
+				bytes = usedMemory() - before - (16L + 4L * N_INSTANCES); // minus the array holding them
+			}
+			
+			// Evaluation speed shouldn't depend on how the instance was made.
+			OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+			long evalTime = 0;
+			for (int ie = 0; ie < 16; ie++) {
+				double[][] buffer = new double[EVAL_SIZE][EVAL_SIZE];
+				long start = System.nanoTime();
+				noises[ie].generate2(ctx, buffer, 0, 0);
+				for (int y = 0; y < EVAL_SIZE; y += 4) {
+					for (int x = 0; x < EVAL_SIZE; x += 4) {
+						buffer[y][x] += noises[ie].noise2(x * NOISE_EVAL_FREQ, y * NOISE_EVAL_FREQ);
+					}
+				}
+				if (ie >= 8) evalTime += System.nanoTime() - start;
+				sum += buffer[EVAL_SIZE / 2][EVAL_SIZE / 2];
+			}
+			
+			if (pass == 0) continue;
+			System.out.println(name + ":");
+			System.out.println("  " + (time / (double)N_INSTANCES) + "ns to construct, ~" + (bytes / N_INSTANCES) + " bytes each");
+			System.out.println("  " + (evalTime / 8 / 1000000.0) + "ms for a " + EVAL_SIZE + "x" + EVAL_SIZE + " generate2 plus point samples");
+		}
+		System.out.println("(sum " + sum + ")");
+	}
+	
+	static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
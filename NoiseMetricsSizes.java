@@ -0,0 +1,74 @@
+/*
+ * SuperSimplex Noise Area Generation metrics over a range of buffer sizes and periods.
+ * Small buffers at high frequencies are mostly border vertices, large buffers at low frequencies mostly interior ones.
+ */
+
+class NoiseMetricsSizes {
+	
+	static final long TARGET_NANOS = 1000000000L;
+	
+	// {size, period} pairs. The 2D ones match the graphs in the README.
+	static final int[][] CASES_2D = {
+		{ 4096, 1024 }, { 2048, 128 }, { 1024, 128 }, { 256, 64 }, { 64, 512 }, { 64, 32 }, { 32, 16 }, { 16, 64 }, { 16, 8 }
+	};
+	static final int[][] CASES_3D = {
+		{ 256, 64 }, { 128, 32 }, { 64, 16 }, { 32, 32 }, { 16, 8 }
+	};
+	static final int OFF_X = 8192;
+	static final int OFF_Y = 8192;
+	static final int OFF_Z = 8192;
+	
+	public static void main(String[] args) {
+		OpenSimplex2S noise = new OpenSimplex2S(0);
+		double sum = 0;
+		
+		for (int[] c : CASES_2D) {
+			int size = c[0];
+			double freq = 1.0 / c[1];
+			OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, freq, freq, 1.0);
+			double[][] buffer = new double[size][size];
+			
+			// Warm up for the same amount of time as we measure.
+			for (int pass = 0; pass < 2; pass++) {
+				long time = 0, count = 0;
+				while (time < TARGET_NANOS / 2) {
+					long start = System.nanoTime();
+					noise.generate2(ctx, buffer, OFF_X, OFF_Y);
+					time += System.nanoTime() - start;
+					count++;
+					
+					// Want to make sure the JVM isn't taking any shortcuts for unused values
+					sum += buffer[size / 2][size / 2];
+				}
+				if (pass == 1) {
+					System.out.println("2D " + size + "x" + size + ", period " + c[1] + ": "
+							+ (time / (double)count / size / size) + "ns per value");
+				}
+			}
+		}
+		
+		for (int[] c : CASES_3D) {
+			int size = c[0];
+			double freq = 1.0 / c[1];
+			OpenSimplex2S.GenerateContext3D ctx = new OpenSimplex2S.GenerateContext3D(OpenSimplex2S.LatticeOrientation3D.Classic, freq, freq, freq, 1.0);
+			double[][][] buffer = new double[size][size][size];
+			
+			for (int pass = 0; pass < 2; pass++) {
+				long time = 0, count = 0;
+				while (time < TARGET_NANOS / 2) {
+					long start = System.nanoTime();
+					noise.generate3(ctx, buffer, OFF_X, OFF_Y, OFF_Z);
+					time += System.nanoTime() - start;
+					count++;
+					sum += buffer[size / 2][size / 2][size / 2];
+				}
+				if (pass == 1) {
+					System.out.println("3D " + size + "x" + size + "x" + size + ", period " + c[1] + ": "
+							+ (time / (double)count / size / size / size) + "ns per value");
+				}
+			}
+		}
+		
+		System.out.println("(sum " + sum + ")");
+	}
+}
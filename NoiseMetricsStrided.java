@@ -0,0 +1,128 @@
+/*
+ * Strided generation metrics: generate3Strided at a few sample spacings, vs generate3 at every voxel,
+ * vs generate3 on a coarse array with a scaled context and trilinear interpolation done afterwards.
+ * Also how far each is from generate3, over all voxels and at the samples alone.
+ */
+
+class NoiseMetricsStrided {
+	
+	static final int N_PREP_ITERATIONS = 8;
+	static final int N_TIMED_ITERATIONS = 16;
+	
+	static final int WIDTH = 129;
+	static final int HEIGHT = 129;
+	static final int DEPTH = 129;
+	static final double NOISE_EVAL_PERIOD = 64.0;
+	static final int OFF_X = 2048;
+	static final int OFF_Y = 2048;
+	static final int OFF_Z = 2048;
+	
+	static final int[][] STRIDES = { { 2, 2, 2 }, { 4, 4, 4 }, { 4, 8, 4 }, { 8, 8, 8 } };
+	
+	static final double NOISE_EVAL_FREQ = 1.0 / NOISE_EVAL_PERIOD;
+	
+	public static void main(String[] args) {
+		OpenSimplex2S noise = new OpenSimplex2S(0);
+		OpenSimplex2S.GenerateContext3D ctx = new OpenSimplex2S.GenerateContext3D(OpenSimplex2S.LatticeOrientation3D.Classic,
+				NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+		
+		long fullTime = 0;
+		long[] stridedTime = new long[STRIDES.length], manualTime = new long[STRIDES.length];
+		double[] stridedError = new double[STRIDES.length], stridedSampleError = new double[STRIDES.length], manualError = new double[STRIDES.length];
+		double sum = 0;
+		
+		for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
+			double[][][] full = new double[DEPTH][HEIGHT][WIDTH];
+			long start = System.nanoTime();
+			noise.generate3(ctx, full, OFF_X, OFF_Y, OFF_Z);
+			long elapsedFull = System.nanoTime() - start;
+			sum += full[DEPTH / 2][HEIGHT / 2][WIDTH / 2];
+			if (ie >= N_PREP_ITERATIONS) fullTime += elapsedFull;
+			
+			for (int s = 0; s < STRIDES.length; s++) {
+				int sx = STRIDES[s][0], sy = STRIDES[s][1], sz = STRIDES[s][2];
+				
+				double[][][] strided = new double[DEPTH][HEIGHT][WIDTH];
+				start = System.nanoTime();
+				noise.generate3Strided(ctx, strided, OFF_X, OFF_Y, OFF_Z, sx, sy, sz);
+				long elapsedStrided = System.nanoTime() - start;
+				
+				// What we'd do without it: a context at the coarse resolution, a coarse array, and interpolating it ourselves
+				double[][][] manual = new double[DEPTH][HEIGHT][WIDTH];
+				start = System.nanoTime();
+				OpenSimplex2S.GenerateContext3D coarseCtx = new OpenSimplex2S.GenerateContext3D(OpenSimplex2S.LatticeOrientation3D.Classic,
+						NOISE_EVAL_FREQ * sx, NOISE_EVAL_FREQ * sy, NOISE_EVAL_FREQ * sz, 1.0);
+				double[][][] coarse = new double[(DEPTH - 1) / sz + 1][(HEIGHT - 1) / sy + 1][(WIDTH - 1) / sx + 1];
+				noise.generate3(coarseCtx, coarse, OFF_X / sx, OFF_Y / sy, OFF_Z / sz);
+				upsample(coarse, manual, sx, sy, sz);
+				long elapsedManual = System.nanoTime() - start;
+				
+				// Want to make sure the JVM isn't taking any shortcuts for unused values
+				sum += strided[DEPTH / 3][HEIGHT / 3][WIDTH / 3] + manual[DEPTH / 3][HEIGHT / 3][WIDTH / 3];
+				
+				if (ie >= N_PREP_ITERATIONS) {
+					stridedTime[s] += elapsedStrided;
+					manualTime[s] += elapsedManual;
+				}
+				if (ie == 0) {
+					stridedError[s] = maxDifference(full, strided, 1, 1, 1);
+					stridedSampleError[s] = maxDifference(full, strided, sx, sy, sz);
+					manualError[s] = maxDifference(full, manual, 1, 1, 1);
+				}
+			}
+		}
+		
+		double voxels = (double)WIDTH * HEIGHT * DEPTH * N_TIMED_ITERATIONS;
+		System.out.println(WIDTH + "x" + HEIGHT + "x" + DEPTH + ", period " + NOISE_EVAL_PERIOD);
+		System.out.println(String.format("%-36s %8s %10s %8s %10s %10s", "", "ms", "Mvoxel/s", "speedup", "max err", "at samples"));
+		System.out.println(String.format("%-36s %8.2f %10.1f %8s", "generate3", fullTime / 1e6 / N_TIMED_ITERATIONS, voxels / (fullTime / 1e3), ""));
+		for (int s = 0; s < STRIDES.length; s++) {
+			String strides = STRIDES[s][0] + "x" + STRIDES[s][1] + "x" + STRIDES[s][2];
+			print("generate3Strided " + strides, stridedTime[s], fullTime, voxels, stridedError[s], stridedSampleError[s]);
+			print("  coarse generate3 + upsampling", manualTime[s], fullTime, voxels, manualError[s], Double.NaN);
+		}
+		System.out.println("(checksum " + sum + ")");
+	}
+	
+	static void upsample(double[][][] coarse, double[][][] fine, int sx, int sy, int sz) {
+		int width = fine[0][0].length;
+		int[] cell = new int[width];
+		double[] fraction = new double[width];
+		for (int x = 0; x < width; x++) {
+			cell[x] = Math.min(x / sx, coarse[0][0].length - 2);
+			fraction[x] = (x - cell[x] * sx) / (double)sx;
+		}
+		for (int z = 0; z < fine.length; z++) {
+			int k = Math.min(z / sz, coarse.length - 2); double fz = (z - k * sz) / (double)sz;
+			for (int y = 0; y < fine[0].length; y++) {
+				int j = Math.min(y / sy, coarse[0].length - 2); double fy = (y - j * sy) / (double)sy;
+				double[] r00 = coarse[k][j], r01 = coarse[k][j + 1], r10 = coarse[k + 1][j], r11 = coarse[k + 1][j + 1];
+				double[] row = fine[z][y];
+				for (int x = 0; x < width; x++) {
+					int i = cell[x]; double fx = fraction[x];
+					double a = r00[i] + (r00[i + 1] - r00[i]) * fx, b = r01[i] + (r01[i + 1] - r01[i]) * fx;
+					double c = r10[i] + (r10[i + 1] - r10[i]) * fx, d = r11[i] + (r11[i + 1] - r11[i]) * fx;
+					double ab = a + (b - a) * fy, cd = c + (d - c) * fy;
+					row[x] = ab + (cd - ab) * fz;
+				}
+			}
+		}
+	}
+	
+	static double maxDifference(double[][][] a, double[][][] b, int sx, int sy, int sz) {
+		double max = 0;
+		for (int z = 0; z < a.length; z += sz) {
+			for (int y = 0; y < a[0].length; y += sy) {
+				for (int x = 0; x < a[0][0].length; x += sx) {
+					max = Math.max(max, Math.abs(a[z][y][x] - b[z][y][x]));
+				}
+			}
+		}
+		return max;
+	}
+	
+	static void print(String name, long nanos, long fullNanos, double voxels, double error, double sampleError) {
+		System.out.println(String.format("%-36s %8.2f %10.1f %7.1fx %10.4f %10s", name, nanos / 1e6 / N_TIMED_ITERATIONS, voxels / (nanos / 1e3),
+				(double)fullNanos / nanos, error, Double.isNaN(sampleError) ? "" : String.format("%.4f", sampleError)));
+	}
+}
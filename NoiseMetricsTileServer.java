@@ -0,0 +1,144 @@
+/*
+ * Load test for NoiseTileServer: several client threads requesting random tiles for a fixed time.
+ * Some requests revalidate a tile the thread already has, with If-None-Match, like a client with a cache would.
+ * Prints throughput, and latency percentiles over every request.
+ *
+ * java NoiseMetricsTileServer [url=<base url, or empty to start a server in this JVM>] [threads=8] [seconds=10]
+ *   [format=f32|q16|png] [zoom=2] [span=16] [revalidate=0.25]
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+class NoiseMetricsTileServer {
+	
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<String, String>();
+		options.put("url", "");
+		options.put("threads", "8");
+		options.put("seconds", "10");
+		options.put("format", "f32");
+		options.put("zoom", "2");
+		options.put("span", "16");
+		options.put("revalidate", "0.25");
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0 || !options.containsKey(arg.substring(0, eq))) {
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+			options.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+		
+		NoiseTileServer server = null;
+		String base = options.get("url");
+		if (base.isEmpty()) {
+			server = new NoiseTileServer(new InetSocketAddress("localhost", 0), 0, 256, 64, 5, Runtime.getRuntime().availableProcessors());
+			server.start();
+			base = "http://localhost:" + server.port();
+		}
+		
+		int threads = Integer.parseInt(options.get("threads"));
+		long seconds = Long.parseLong(options.get("seconds"));
+		Client[] clients = new Client[threads];
+		Thread[] running = new Thread[threads];
+		
+		// Warm up for a quarter of the time, then measure
+		for (int pass = 0; pass < 2; pass++) {
+			long end = System.nanoTime() + (pass == 0 ? seconds * 250000000L : seconds * 1000000000L);
+			for (int i = 0; i < threads; i++) {
+				clients[i] = new Client(base, options.get("format"), Integer.parseInt(options.get("zoom")), Integer.parseInt(options.get("span")),
+						Double.parseDouble(options.get("revalidate")), end, i);
+				running[i] = new Thread(clients[i]);
+				running[i].start();
+			}
+			for (Thread thread : running) thread.join();
+		}
+		
+		List<Long> latencies = new ArrayList<Long>();
+		long bytes = 0, ok = 0, notModified = 0, errors = 0;
+		for (Client client : clients) {
+			latencies.addAll(client.latencies);
+			bytes += client.bytes;
+			ok += client.ok;
+			notModified += client.notModified;
+			errors += client.errors;
+		}
+		Collections.sort(latencies);
+		int n = latencies.size();
+		System.out.println(String.format("%d requests in %ds: %d 200, %d 304, %d errors", n, seconds, ok, notModified, errors));
+		System.out.println(String.format("%.1f requests/s, %.1f MB/s", n / (double)seconds, bytes / 1e6 / seconds));
+		if (n > 0) {
+			System.out.println(String.format("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f",
+					latencies.get(n / 2) / 1e6, latencies.get((int)(n * 0.9)) / 1e6, latencies.get(Math.min(n - 1, (int)(n * 0.99))) / 1e6, latencies.get(n - 1) / 1e6));
+		}
+		
+		if (server != null) server.stop();
+	}
+	
+	static class Client implements Runnable {
+		final String base, format;
+		final int zoom, span;
+		final double revalidate;
+		final long end;
+		final Random random;
+		final Map<String, String> etags = new HashMap<String, String>();
+		final List<Long> latencies = new ArrayList<Long>();
+		final byte[] scratch = new byte[65536];
+		long bytes, ok, notModified, errors;
+		
+		Client(String base, String format, int zoom, int span, double revalidate, long end, int seed) {
+			this.base = base;
+			this.format = format;
+			this.zoom = zoom;
+			this.span = span;
+			this.revalidate = revalidate;
+			this.end = end;
+			this.random = new Random(seed);
+		}
+		
+		public void run() {
+			List<String> seen = new ArrayList<String>();
+			while (System.nanoTime() < end) {
+				String path;
+				if (!seen.isEmpty() && random.nextDouble() < revalidate) {
+					path = seen.get(random.nextInt(seen.size()));
+				} else {
+					path = "/" + zoom + "/" + random.nextInt(span) + "/" + random.nextInt(span) + "." + format;
+				}
+				
+				long start = System.nanoTime();
+				try {
+					HttpURLConnection connection = (HttpURLConnection)new URL(base + path).openConnection();
+					String etag = etags.get(path);
+					if (etag != null) connection.setRequestProperty("If-None-Match", etag);
+					int status = connection.getResponseCode();
+					if (status == 200) {
+						InputStream in = connection.getInputStream();
+						for (int read; (read = in.read(scratch)) > 0; ) bytes += read;
+						in.close();
+						if (!etags.containsKey(path)) seen.add(path);
+						etags.put(path, connection.getHeaderField("ETag"));
+						ok++;
+					} else if (status == 304) {
+						notModified++;
+					} else {
+						errors++;
+					}
+				} catch (IOException e) {
+					errors++;
+				}
+				latencies.add(System.nanoTime() - start);
+			}
+		}
+	}
+}
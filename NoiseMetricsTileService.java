@@ -0,0 +1,119 @@
+/*
+ * NoiseTileService metrics: a viewer moving faster than the tiles around it can be generated.
+ * Compares first-come first-served against nearest-first with stale tiles cancelled, on how much of the view
+ * is ready each frame, how long tiles in view take, and how many tiles get generated after they've left the view.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+class NoiseMetricsTileService {
+	
+	static final int TILE_SIZE = 256;
+	static final int VIEW_RADIUS = 3;
+	static final int FRAMES = 240;
+	static final long FRAME_NANOS = 8000000L;
+	static final double TILES_PER_FRAME = 1.0;
+	static final int QUEUE_CAPACITY = 64;
+	static final double NOISE_EVAL_PERIOD = 64.0;
+	
+	static final double NOISE_EVAL_FREQ = 1.0 / NOISE_EVAL_PERIOD;
+	
+	public static void main(String[] args) throws InterruptedException {
+		OpenSimplex2S noise = new OpenSimplex2S(0);
+		OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+		
+		// Warm up the generator, so the first policy doesn't pay for compilation
+		for (int i = 0; i < 64; i++) {
+			noise.generate2(ctx, new double[TILE_SIZE][TILE_SIZE], i * TILE_SIZE, 0);
+		}
+		
+		System.out.println(String.format("%-16s %9s %9s %9s %9s %7s %9s", "policy", "coverage", "p50 ms", "p99 ms", "generated", "wasted", "blocked"));
+		for (int pass = 0; pass < 2; pass++) {
+			run("fifo", false, noise, ctx, pass == 1);
+			run("nearest+cancel", true, noise, ctx, pass == 1);
+		}
+	}
+	
+	static void run(String name, boolean prioritize, OpenSimplex2S noise, OpenSimplex2S.GenerateContext2D ctx, boolean print) throws InterruptedException {
+		NoiseTileService service = new NoiseTileService(QUEUE_CAPACITY);
+		Map<Long, NoiseTileService.Tile<double[][]>> requested = new HashMap<Long, NoiseTileService.Tile<double[][]>>();
+		List<NoiseTileService.Tile<double[][]>> submitted = new ArrayList<NoiseTileService.Tile<double[][]>>();
+		List<Long> submittedKeys = new ArrayList<Long>();
+		Map<Long, Long> requestedAt = new HashMap<Long, Long>();
+		List<Long> latencies = new ArrayList<Long>();
+		double coverageSum = 0;
+		long blocked = 0;
+		
+		long frameStart = System.nanoTime();
+		for (int frame = 0; frame < FRAMES; frame++) {
+			double viewerX = frame * TILES_PER_FRAME, viewerY = 0;
+			int cx = (int)Math.floor(viewerX), cy = 0;
+			
+			// Let go of everything that's left the view
+			if (prioritize) {
+				Iterator<Map.Entry<Long, NoiseTileService.Tile<double[][]>>> it = requested.entrySet().iterator();
+				while (it.hasNext()) {
+					Map.Entry<Long, NoiseTileService.Tile<double[][]>> entry = it.next();
+					int tx = (int)(entry.getKey() >> 32), ty = (int)(long)entry.getKey();
+					if (Math.abs(tx - cx) > VIEW_RADIUS || Math.abs(ty - cy) > VIEW_RADIUS) {
+						entry.getValue().cancel(false);
+						it.remove();
+					}
+				}
+			}
+			
+			// Ask for every tile in view not asked for yet
+			int inView = 0, ready = 0;
+			for (int ty = cy - VIEW_RADIUS; ty <= cy + VIEW_RADIUS; ty++) {
+				for (int tx = cx - VIEW_RADIUS; tx <= cx + VIEW_RADIUS; tx++) {
+					long key = ((long)tx << 32) | (ty & 0xFFFFFFFFL);
+					inView++;
+					NoiseTileService.Tile<double[][]> tile = requested.get(key);
+					if (tile == null) {
+						double distance = Math.hypot(tx + 0.5 - (viewerX + 0.5), ty + 0.5 - (viewerY + 0.5));
+						long start = System.nanoTime();
+						tile = service.submit(NoiseTileService.tile2(noise, ctx, tx * TILE_SIZE, ty * TILE_SIZE, TILE_SIZE, TILE_SIZE, prioritize ? distance : 0));
+						blocked += System.nanoTime() - start;
+						requested.put(key, tile);
+						submitted.add(tile);
+						submittedKeys.add(key);
+						requestedAt.put(key, System.nanoTime());
+					} else if (tile.isDone() && !tile.isCancelled()) {
+						ready++;
+						Long at = requestedAt.remove(key);
+						if (at != null) latencies.add(System.nanoTime() - at);
+					}
+				}
+			}
+			coverageSum += ready / (double)inView;
+			
+			frameStart += FRAME_NANOS;
+			long sleep = frameStart - System.nanoTime();
+			if (sleep > 0) TimeUnit.NANOSECONDS.sleep(sleep);
+		}
+		
+		service.close();
+		service.awaitTermination(10, TimeUnit.SECONDS);
+		
+		// Wasted if it was generated, but never seen ready while in view
+		int generated = 0, wasted = 0;
+		for (int i = 0; i < submitted.size(); i++) {
+			NoiseTileService.Tile<double[][]> tile = submitted.get(i);
+			if (!tile.isDone() || tile.isCancelled() || tile.isCompletedExceptionally()) continue;
+			generated++;
+			if (requestedAt.containsKey(submittedKeys.get(i))) wasted++;
+		}
+		
+		if (!print) return;
+		Collections.sort(latencies);
+		double p50 = latencies.isEmpty() ? Double.NaN : latencies.get(latencies.size() / 2) / 1e6;
+		double p99 = latencies.isEmpty() ? Double.NaN : latencies.get(Math.min(latencies.size() - 1, (int)(latencies.size() * 0.99))) / 1e6;
+		System.out.println(String.format("%-16s %8.1f%% %9.1f %9.1f %9d %7d %7.0fms", name, 100 * coverageSum / FRAMES, p50, p99, generated, wasted, blocked / 1e6));
+	}
+}
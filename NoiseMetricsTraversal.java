@@ -0,0 +1,100 @@
+/*
+ * SuperSimplex Noise Area Generation metrics: breadth-first vs tile-ordered vertex traversal.
+ * Run one mode per JVM, so the counters only see that mode, e.g.
+ *   perf stat -e cache-references,cache-misses,L1-dcache-load-misses java -Xmx3g NoiseMetricsTraversal 3d tiled
+ *   perf stat -e cache-references,cache-misses,L1-dcache-load-misses java -Xmx3g NoiseMetricsTraversal 3d bfs
+ * and compare the miss counts against the throughputs printed here.
+ */
+
+import java.util.Arrays;
+
+class NoiseMetricsTraversal {
+	
+	static final int N_PREP_ITERATIONS = 2;
+	static final int N_TIMED_ITERATIONS = 4;
+	
+	static final int SIZE_2D = 8192;
+	static final int SIZE_3D = 512;
+	static final double NOISE_EVAL_PERIOD_2D = 64.0;
+	static final double NOISE_EVAL_PERIOD_3D = 32.0;
+	static final int OFF_X = 8192;
+	static final int OFF_Y = 8192;
+	static final int OFF_Z = 8192;
+	
+	public static void main(String[] args) {
+		boolean is3D = args.length > 0 && args[0].equals("3d");
+		boolean tiled = args.length > 1 && args[1].equals("tiled");
+		OpenSimplex2S noise = new OpenSimplex2S(0);
+		
+		long time = 0;
+		double sum = 0;
+		long values;
+		
+		if (!is3D) {
+			double freq = 1.0 / NOISE_EVAL_PERIOD_2D;
+			OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, freq, freq, 1.0);
+			double[][] buffer = new double[SIZE_2D][SIZE_2D];
+			values = (long)SIZE_2D * SIZE_2D;
+			
+			for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
+				for (int y = 0; y < SIZE_2D; y++) {
+					Arrays.fill(buffer[y], 0);
+				}
+				long start = System.nanoTime();
+				
+				if (tiled) noise.generate2Tiled(ctx, buffer, OFF_X, OFF_Y);
+				else noise.generate2(ctx, buffer, OFF_X, OFF_Y);
+				
+				long elapsed = System.nanoTime() - start;
+				
+				// Want to make sure the JVM isn't taking any shortcuts for unused values
+				for (int y = 0; y < SIZE_2D; y++) {
+					for (int x = 0; x < SIZE_2D; x++) {
+						sum += buffer[y][x];
+					}
+				}
+				
+				if (ie >= N_PREP_ITERATIONS) {
+					time += elapsed;
+				}
+			}
+		} else {
+			double freq = 1.0 / NOISE_EVAL_PERIOD_3D;
+			OpenSimplex2S.GenerateContext3D ctx = new OpenSimplex2S.GenerateContext3D(OpenSimplex2S.LatticeOrientation3D.Classic, freq, freq, freq, 1.0);
+			double[][][] buffer = new double[SIZE_3D][SIZE_3D][SIZE_3D];
+			values = (long)SIZE_3D * SIZE_3D * SIZE_3D;
+			
+			for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
+				for (int z = 0; z < SIZE_3D; z++) {
+					for (int y = 0; y < SIZE_3D; y++) {
+						Arrays.fill(buffer[z][y], 0);
+					}
+				}
+				long start = System.nanoTime();
+				
+				if (tiled) noise.generate3Tiled(ctx, buffer, OFF_X, OFF_Y, OFF_Z);
+				else noise.generate3(ctx, buffer, OFF_X, OFF_Y, OFF_Z);
+				
+				long elapsed = System.nanoTime() - start;
+				
+				// Want to make sure the JVM isn't taking any shortcuts for unused values
+				for (int z = 0; z < SIZE_3D; z++) {
+					for (int y = 0; y < SIZE_3D; y++) {
+						for (int x = 0; x < SIZE_3D; x++) {
+							sum += buffer[z][y][x];
+						}
+					}
+				}
+				
+				if (ie >= N_PREP_ITERATIONS) {
+					time += elapsed;
+				}
+			}
+		}
+		
+		double seconds = time / 1e9 / N_TIMED_ITERATIONS;
+		System.out.println((is3D ? "3D " + SIZE_3D + "^3" : "2D " + SIZE_2D + "^2") + ", " + (tiled ? "tiled" : "breadth-first") + " order:");
+		System.out.println("  " + (seconds * 1000) + "ms per generation, " + (values / seconds / 1e6) + " Mvalues/s");
+		System.out.println("  (sum " + sum + ")");
+	}
+}
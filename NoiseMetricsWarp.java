@@ -1,42 +1,51 @@
 /*
- * SuperSimplex Noise 2D Area Generation metrics.
- * Modified to also compare against FastNoise.
+ * SuperSimplex Noise domain warping metrics.
+ * Area-generated warp fields with the batched base evaluator, versus noise2 for everything.
  */
 
-class NoiseMetricsVsFastNoise {
+class NoiseMetricsWarp {
 	
 	static final int N_INSTANCES = 1;
-	static final int N_PREP_ITERATIONS = 8;
-	static final int N_TIMED_ITERATIONS = 16;
+	static final int N_PREP_ITERATIONS = 4;
+	static final int N_TIMED_ITERATIONS = 8;
 	
 	static final int WIDTH = 1024;
 	static final int HEIGHT = 1024;
 	static final double NOISE_EVAL_PERIOD = 128.0;
 	static final int OFF_X = 8192;
 	static final int OFF_Y = 8192;
-	static final FastNoise.NoiseType fastNoiseType = FastNoise.NoiseType.Simplex;
+	
+	// Warp octaves, with their displacements in pixels.
+	static final double[] WARP_PERIODS = { 256.0, 64.0, 16.0 };
+	static final double[] WARP_AMPLITUDES = { 40.0, 12.0, 3.0 };
+	
+	// Where the second warp field is read from, same as in generateWarped2.
+	static final int WARP_OFFSET_A = 5419;
+	static final int WARP_OFFSET_B = -7173;
 	
 	static final double NOISE_EVAL_FREQ = 1.0 / NOISE_EVAL_PERIOD;
 	
 	public static void main(String[] args) {
 		
-		OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0);
+		OpenSimplex2S.GenerateContext2D[] warpOctaves = new OpenSimplex2S.GenerateContext2D[WARP_PERIODS.length];
+		for (int i = 0; i < WARP_PERIODS.length; i++) {
+			warpOctaves[i] = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard,
+					1.0 / WARP_PERIODS[i], 1.0 / WARP_PERIODS[i], WARP_AMPLITUDES[i]);
+		}
+		OpenSimplex2S.GenerateContextWarp2D ctx = new OpenSimplex2S.GenerateContextWarp2D(OpenSimplex2S.LatticeOrientation2D.Standard,
+				NOISE_EVAL_FREQ, NOISE_EVAL_FREQ, 1.0, warpOctaves);
 		OpenSimplex2S[] noises = new OpenSimplex2S[N_INSTANCES];
-		FastNoise[] fastNoises = new FastNoise[N_INSTANCES];
 		for (int i = 0; i < N_INSTANCES; i++) {
 			noises[i] = new OpenSimplex2S(i);
-			fastNoises[i] = new FastNoise(i);
-			fastNoises[i].SetNoiseType(fastNoiseType);
-			fastNoises[i].SetFrequency((float)NOISE_EVAL_FREQ);
 		}
 		
 		long time1 = 0;
 		double sum1 = 0;
 		long time2 = 0;
 		double sum2 = 0;
-		long time3 = 0;
-		double sum3 = 0;
-
+		double maxDiff = 0;
+		double[][] reference = null;
+		
 		for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
 			
 			for (int i = 0; i < N_INSTANCES; i++) {
@@ -45,23 +54,24 @@ class NoiseMetricsVsFastNoise {
 				long start = System.currentTimeMillis();
 				
 				// Generate area
-				noises[i].generate2(ctx, buffer, OFF_X, OFF_Y);
+				noises[i].generateWarped2(ctx, buffer, OFF_X, OFF_Y);
 				
 				long elapsed = System.currentTimeMillis() - start;
 				
-				// Want to make sure the JVM isn't taking any shortcuts for unused values (would it do that?)
+				// Want to make sure the JVM isn't taking any shortcuts for unused values
 				for (int y = 0; y < HEIGHT; y++) {
 					for (int x = 0; x < WIDTH; x++) {
 						sum1 += buffer[y][x];
 					}
 				}
-			
+				
 				if (ie >= N_PREP_ITERATIONS) {
 					time1 += elapsed;
 				}
+				reference = buffer;
 			}
 		}
-
+		
 		for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
 			
 			for (int i = 0; i < N_INSTANCES; i++) {
@@ -72,86 +82,63 @@ class NoiseMetricsVsFastNoise {
 				// Generate traditionally
 				for (int y = 0; y < HEIGHT; y++) {
 					for (int x = 0; x < WIDTH; x++) {
-						buffer[y][x] = noises[i].noise2((x + OFF_X) * NOISE_EVAL_FREQ, (y + OFF_Y) * NOISE_EVAL_FREQ);
+						double xw = x + OFF_X, yw = y + OFF_Y;
+						for (int j = 0; j < WARP_PERIODS.length; j++) {
+							double f = 1.0 / WARP_PERIODS[j];
+							xw += WARP_AMPLITUDES[j] * noises[i].noise2((x + OFF_X) * f, (y + OFF_Y) * f);
+							yw += WARP_AMPLITUDES[j] * noises[i].noise2((x + OFF_X + WARP_OFFSET_A) * f, (y + OFF_Y + WARP_OFFSET_B) * f);
+						}
+						buffer[y][x] = noises[i].noise2(xw * NOISE_EVAL_FREQ, yw * NOISE_EVAL_FREQ);
 					}
 				}
 				
 				long elapsed = System.currentTimeMillis() - start;
 				
-				// Want to make sure the JVM isn't taking any shortcuts for unused values (would it do that?)
+				// Want to make sure the JVM isn't taking any shortcuts for unused values
 				for (int y = 0; y < HEIGHT; y++) {
 					for (int x = 0; x < WIDTH; x++) {
 						sum2 += buffer[y][x];
 					}
 				}
-			
+				
 				if (ie >= N_PREP_ITERATIONS) {
 					time2 += elapsed;
 				}
-			}
-		}
-
-		for (int ie = 0; ie < N_PREP_ITERATIONS + N_TIMED_ITERATIONS; ie++) {
-			
-			for (int i = 0; i < N_INSTANCES; i++) {
-				
-				double[][] buffer = new double[HEIGHT][WIDTH];
-				long start = System.currentTimeMillis();
-				
-				// Generate traditionally
-				for (int y = 0; y < HEIGHT; y++) {
-					for (int x = 0; x < WIDTH; x++) {
-						buffer[y][x] = fastNoises[i].GetNoise((x + OFF_X), (y + OFF_Y));
-					}
-				}
-				
-				long elapsed = System.currentTimeMillis() - start;
-				
-				// Want to make sure the JVM isn't taking any shortcuts for unused values (would it do that?)
-				for (int y = 0; y < HEIGHT; y++) {
-					for (int x = 0; x < WIDTH; x++) {
-						sum3 += buffer[y][x];
+				if (i == N_INSTANCES - 1 && ie == N_PREP_ITERATIONS + N_TIMED_ITERATIONS - 1) {
+					for (int y = 0; y < HEIGHT; y++) {
+						for (int x = 0; x < WIDTH; x++) {
+							maxDiff = Math.max(maxDiff, Math.abs(buffer[y][x] - reference[y][x]));
+						}
 					}
 				}
-			
-				if (ie >= N_PREP_ITERATIONS) {
-					time3 += elapsed;
-				}
 			}
 		}
 		
+		long nValues = (long)WIDTH * HEIGHT;
 		System.out.println("Noise class name: " + noises[0].getClass().getName());
 		System.out.println("Number of prep iterations: " + N_PREP_ITERATIONS);
 		System.out.println("Number of timed iterations: " + N_TIMED_ITERATIONS);
 		System.out.println("Size: " + WIDTH  + "x" + HEIGHT);
 		System.out.println("Offset: " + OFF_X  + "," + OFF_Y);
 		System.out.println("Noise Period: " + NOISE_EVAL_PERIOD);
+		System.out.println("Warp octaves: " + WARP_PERIODS.length);
 		System.out.println();
 		System.out.println("---- Area Generation ----");
 		System.out.println("Sum of all noise values: " + sum1 + " (sanity check)");
 		System.out.println("Total milliseconds: " + time1);
-		System.out.println("Nanoseconds per generated value: " + (time1 * 1_000_000.0 / (N_TIMED_ITERATIONS * N_INSTANCES * WIDTH * HEIGHT)));
+		System.out.println("Nanoseconds per generated value: " + (time1 * 1_000_000.0 / (N_TIMED_ITERATIONS * N_INSTANCES * nValues)));
 		System.out.println();
 		System.out.println("---- Traditional Evaluation ----");
 		System.out.println("Sum of all noise values: " + sum2 + " (sanity check)");
 		System.out.println("Total milliseconds: " + time2);
-		System.out.println("Nanoseconds per generated value: " + (time2 * 1_000_000.0 / (N_TIMED_ITERATIONS * N_INSTANCES * WIDTH * HEIGHT)));
+		System.out.println("Nanoseconds per generated value: " + (time2 * 1_000_000.0 / (N_TIMED_ITERATIONS * N_INSTANCES * nValues)));
 		System.out.println();
-		System.out.println("---- FastNoise " + fastNoiseType + " 2D Evaluation ----");
-		System.out.println("Sum of all noise values: " + sum3 + " (sanity check)");
-		System.out.println("Total milliseconds: " + time3);
-		System.out.println("Nanoseconds per generated value: " + (time3 * 1_000_000.0 / (N_TIMED_ITERATIONS * N_INSTANCES * WIDTH * HEIGHT)));
-		System.out.println();
-		System.out.println("---- Area vs Traditional (non-FastNoise) ----");
+		System.out.println("Max difference from traditional evaluation: " + maxDiff);
 		System.out.println("Performance ratio: ~" + Math.round(time2 * 100.0 / time1) + "%");
 		System.out.println("Time ratio: ~" + Math.round(time1 * 100.0 / time2) + "%");
-		System.out.println();
-		System.out.println("---- Area vs FastNoise " + fastNoiseType + " 2D ----");
-		System.out.println("Performance ratio: ~" + Math.round(time3 * 100.0 / time1) + "%");
-		System.out.println("Time ratio: ~" + Math.round(time1 * 100.0 / time3) + "%");
 		
 		
 	}
 	
 	
-}
\ No newline at end of file
+}
@@ -0,0 +1,355 @@
+/*
+ * Quality vs speed of each area generation mode, against point evaluation.
+ * For each class, orientation, size and period, prints ns per value, max and RMS error against noise2/noise3_*,
+ * and how far the output overshoots [-1, 1]. Modes not beaten on both speed and max error by another are marked with *.
+ * Fixed point is converted back from 2^FIXED_SHIFT before comparing, outside the timing.
+ * Masked uses a mask covering everything, pyramid is just level 0, and slice is one generateSlice3 per Z.
+ * Warped has no warp octaves, so it's the batched base evaluator, at the same positions as point evaluation.
+ * Strided generates a voxel more along each axis, since its size has to be a multiple of the stride plus one.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class NoiseQuality {
+	
+	static final long TARGET_NANOS = 500000000L;
+	
+	static final int[] SIZES_2D = { 64, 256, 1024 };
+	static final double[] PERIODS_2D = { 8.0, 32.0, 128.0, 512.0 };
+	static final int[] SIZES_3D = { 32, 64 };
+	static final double[] PERIODS_3D = { 8.0, 16.0, 32.0 };
+	static final int OFF_X = 8192;
+	static final int OFF_Y = 8192;
+	static final int OFF_Z = 8192;
+	static final String[] ORIENTATIONS_2D = { "Standard", "XBeforeY" };
+	static final String[] ORIENTATIONS_3D = { "Classic", "XYBeforeZ", "XZBeforeY" };
+	
+	public static void main(String[] args) {
+		System.out.println(String.format("%-3s %-3s %-9s %5s %7s  %-7s %9s %10s %10s %9s",
+				"cls", "dim", "orient", "size", "period", "mode", "ns/value", "max err", "rms err", "overshoot"));
+		for (String cls : new String[] { "2S", "2F" }) {
+			for (String orientation : ORIENTATIONS_2D) {
+				for (int size : SIZES_2D) {
+					for (double period : PERIODS_2D) {
+						report(cls, 2, orientation, size, period, modes2(cls, orientation, size, 1.0 / period));
+					}
+				}
+			}
+			for (String orientation : ORIENTATIONS_3D) {
+				for (int size : SIZES_3D) {
+					for (double period : PERIODS_3D) {
+						report(cls, 3, orientation, size, period, modes3(cls, orientation, size, 1.0 / period));
+					}
+				}
+			}
+		}
+	}
+	
+	static void report(String cls, int dim, String orientation, int size, double period, List<Mode> modes) {
+		Mode reference = modes.get(0);
+		reference.reset();
+		reference.run();
+		double[] expected = reference.result();
+		
+		int n = modes.size();
+		double[] nanos = new double[n], maxError = new double[n], rmsError = new double[n], overshoot = new double[n];
+		for (int i = 0; i < n; i++) {
+			Mode mode = modes.get(i);
+			mode.reset();
+			mode.run();
+			double[] actual = mode.result();
+			double sumSq = 0, max = 0, range = 0;
+			for (int j = 0; j < actual.length; j++) {
+				double error = Math.abs(actual[j] - expected[j]);
+				if (error > max) max = error;
+				sumSq += error * error;
+				if (Math.abs(actual[j]) > range) range = Math.abs(actual[j]);
+			}
+			maxError[i] = max;
+			rmsError[i] = Math.sqrt(sumSq / actual.length);
+			overshoot[i] = Math.max(range - 1, 0);
+			
+			// Warm up, then time, for the same amount of time each.
+			long time = 0, count = 0;
+			for (int pass = 0; pass < 2; pass++) {
+				time = 0; count = 0;
+				while (time < TARGET_NANOS / 2) {
+					mode.reset();
+					long start = System.nanoTime();
+					mode.run();
+					time += System.nanoTime() - start;
+					count++;
+				}
+			}
+			nanos[i] = time / (double)count / actual.length;
+		}
+		
+		for (int i = 0; i < n; i++) {
+			boolean dominated = false;
+			for (int j = 0; j < n; j++) {
+				if (j != i && nanos[j] <= nanos[i] && maxError[j] <= maxError[i] && (nanos[j] < nanos[i] || maxError[j] < maxError[i])) {
+					dominated = true;
+				}
+			}
+			System.out.println(String.format("%-3s %-3s %-9s %5d %7.1f  %-7s %9.2f %10.6f %10.6f %9.6f%s", cls, dim + "D", orientation, size, period,
+					modes.get(i).name, nanos[i], maxError[i], rmsError[i], overshoot[i], dominated ? "" : " *"));
+		}
+		System.out.println();
+	}
+	
+	/*
+	 * Modes. run() generates the whole area into a buffer that reset() cleared, and is the only part timed.
+	 * result() returns it flattened in x, then y, then z order.
+	 * The first one is always point evaluation, which the others are compared against.
+	 */
+	
+	static abstract class Mode {
+		final String name;
+		Mode(String name) { this.name = name; }
+		abstract void reset();
+		abstract void run();
+		abstract double[] result();
+	}
+	
+	static abstract class Mode2D extends Mode {
+		final double[][] buffer;
+		Mode2D(String name, int size) { super(name); buffer = new double[size][size]; }
+		void reset() { for (double[] row : buffer) Arrays.fill(row, 0); }
+		double[] result() { return flatten(buffer); }
+	}
+	
+	static abstract class Mode3D extends Mode {
+		final double[][][] buffer;
+		Mode3D(String name, int size) { super(name); buffer = new double[size][size][size]; }
+		void reset() { for (double[][] slice : buffer) for (double[] row : slice) Arrays.fill(row, 0); }
+		double[] result() { return flatten(buffer); }
+	}
+	
+	// Strided modes generate a voxel more along each axis, and only compare the size the others generate.
+	static abstract class StridedMode3D extends Mode3D {
+		final int size;
+		StridedMode3D(String name, int size) { super(name, size + 1); this.size = size; }
+		double[] result() {
+			double[][][] cropped = new double[size][size][];
+			for (int z = 0; z < size; z++) for (int y = 0; y < size; y++) cropped[z][y] = Arrays.copyOf(buffer[z][y], size);
+			return flatten(cropped);
+		}
+	}
+	
+	// Fixed point modes generate into ints, and only convert them in result(), which isn't timed.
+	static abstract class FixedMode2D extends Mode {
+		final int[][] buffer;
+		FixedMode2D(String name, int size) { super(name); buffer = new int[size][size]; }
+		void reset() { for (int[] row : buffer) Arrays.fill(row, 0); }
+		double[] result() { return flatten(buffer); }
+	}
+	
+	static abstract class FixedMode3D extends Mode {
+		final int[][][] buffer;
+		FixedMode3D(String name, int size) { super(name); buffer = new int[size][size][size]; }
+		void reset() { for (int[][] slice : buffer) for (int[] row : slice) Arrays.fill(row, 0); }
+		double[] result() { return flatten(buffer); }
+	}
+	
+	static List<Mode> modes2(String cls, String orientation, final int size, final double freq) {
+		List<Mode> modes = new ArrayList<Mode>();
+		if (cls.equals("2S")) {
+			final OpenSimplex2S noise = new OpenSimplex2S(0);
+			final OpenSimplex2S.LatticeOrientation2D orient = OpenSimplex2S.LatticeOrientation2D.valueOf(orientation);
+			final OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(orient, freq, freq, 1.0);
+			modes.add(new Mode2D("point", size) { void run() {
+				for (int y = 0; y < size; y++) for (int x = 0; x < size; x++) {
+					double xs = (x + OFF_X) * freq, ys = (y + OFF_Y) * freq;
+					buffer[y][x] = orient == OpenSimplex2S.LatticeOrientation2D.XBeforeY ? noise.noise2_XBeforeY(xs, ys) : noise.noise2(xs, ys);
+				}
+			} });
+			modes.add(new Mode2D("area", size) { void run() {
+				noise.generate2(ctx, buffer, OFF_X, OFF_Y);
+			} });
+			modes.add(new Mode2D("tiled", size) { void run() {
+				noise.generate2Tiled(ctx, buffer, OFF_X, OFF_Y);
+			} });
+			modes.add(new Mode2D("rows", size) { void run() {
+				noise.generate2Rows(ctx, new OpenSimplex2S.RowConsumer() { public void accept(int y, double[] row) {
+					System.arraycopy(row, 0, buffer[y], 0, size);
+				} }, OFF_X, OFF_Y, size, size);
+			} });
+			modes.add(new FixedMode2D("fixed", size) { void run() {
+				noise.generate2Fixed(ctx, buffer, OFF_X, OFF_Y);
+			} });
+			final OpenSimplex2S.Mask2D mask = OpenSimplex2S.Mask2D.fromBitmap(fullBitmap(size));
+			modes.add(new Mode2D("masked", size) { void run() {
+				noise.generate2Masked(ctx, buffer, mask, OFF_X, OFF_Y);
+			} });
+			modes.add(new Mode2D("pyramid", size) { void run() {
+				noise.generate2Pyramid(ctx, new double[][][] { buffer }, OFF_X, OFF_Y);
+			} });
+			final OpenSimplex2S.GenerateContextWarp2D warp = new OpenSimplex2S.GenerateContextWarp2D(orient, freq, freq, 1.0);
+			modes.add(new Mode2D("warped", size) { void run() {
+				noise.generateWarped2(warp, buffer, OFF_X, OFF_Y);
+			} });
+		} else {
+			final OpenSimplex2F noise = new OpenSimplex2F(0);
+			final OpenSimplex2F.LatticeOrientation2D orient = OpenSimplex2F.LatticeOrientation2D.valueOf(orientation);
+			final OpenSimplex2F.GenerateContext2D ctx = new OpenSimplex2F.GenerateContext2D(orient, freq, freq, 1.0);
+			modes.add(new Mode2D("point", size) { void run() {
+				for (int y = 0; y < size; y++) for (int x = 0; x < size; x++) {
+					double xs = (x + OFF_X) * freq, ys = (y + OFF_Y) * freq;
+					buffer[y][x] = orient == OpenSimplex2F.LatticeOrientation2D.XBeforeY ? noise.noise2_XBeforeY(xs, ys) : noise.noise2(xs, ys);
+				}
+			} });
+			modes.add(new Mode2D("area", size) { void run() {
+				noise.generate2(ctx, buffer, OFF_X, OFF_Y);
+			} });
+			modes.add(new Mode2D("tiled", size) { void run() {
+				noise.generate2Tiled(ctx, buffer, OFF_X, OFF_Y);
+			} });
+			modes.add(new Mode2D("rows", size) { void run() {
+				noise.generate2Rows(ctx, new OpenSimplex2F.RowConsumer() { public void accept(int y, double[] row) {
+					System.arraycopy(row, 0, buffer[y], 0, size);
+				} }, OFF_X, OFF_Y, size, size);
+			} });
+			modes.add(new FixedMode2D("fixed", size) { void run() {
+				noise.generate2Fixed(ctx, buffer, OFF_X, OFF_Y);
+			} });
+			final OpenSimplex2F.Mask2D mask = OpenSimplex2F.Mask2D.fromBitmap(fullBitmap(size));
+			modes.add(new Mode2D("masked", size) { void run() {
+				noise.generate2Masked(ctx, buffer, mask, OFF_X, OFF_Y);
+			} });
+			modes.add(new Mode2D("pyramid", size) { void run() {
+				noise.generate2Pyramid(ctx, new double[][][] { buffer }, OFF_X, OFF_Y);
+			} });
+			final OpenSimplex2F.GenerateContextWarp2D warp = new OpenSimplex2F.GenerateContextWarp2D(orient, freq, freq, 1.0);
+			modes.add(new Mode2D("warped", size) { void run() {
+				noise.generateWarped2(warp, buffer, OFF_X, OFF_Y);
+			} });
+		}
+		return modes;
+	}
+	
+	static List<Mode> modes3(String cls, String orientation, final int size, final double freq) {
+		List<Mode> modes = new ArrayList<Mode>();
+		if (cls.equals("2S")) {
+			final OpenSimplex2S noise = new OpenSimplex2S(0);
+			final OpenSimplex2S.LatticeOrientation3D orient = OpenSimplex2S.LatticeOrientation3D.valueOf(orientation);
+			final OpenSimplex2S.GenerateContext3D ctx = new OpenSimplex2S.GenerateContext3D(orient, freq, freq, freq, 1.0);
+			modes.add(new Mode3D("point", size) { void run() {
+				for (int z = 0; z < size; z++) for (int y = 0; y < size; y++) for (int x = 0; x < size; x++) {
+					double xs = (x + OFF_X) * freq, ys = (y + OFF_Y) * freq, zs = (z + OFF_Z) * freq;
+					buffer[z][y][x] = orient == OpenSimplex2S.LatticeOrientation3D.XYBeforeZ ? noise.noise3_XYBeforeZ(xs, ys, zs)
+							: orient == OpenSimplex2S.LatticeOrientation3D.XZBeforeY ? noise.noise3_XZBeforeY(xs, ys, zs) : noise.noise3_Classic(xs, ys, zs);
+				}
+			} });
+			modes.add(new Mode3D("area", size) { void run() {
+				noise.generate3(ctx, buffer, OFF_X, OFF_Y, OFF_Z);
+			} });
+			modes.add(new Mode3D("tiled", size) { void run() {
+				noise.generate3Tiled(ctx, buffer, OFF_X, OFF_Y, OFF_Z);
+			} });
+			modes.add(new Mode3D("stream", size) { void run() {
+				OpenSimplex2S.SliceStream3D stream = noise.sliceStream3(ctx, OFF_X, OFF_Y, OFF_Z, size, size);
+				for (int z = 0; z < size; z++) {
+					double[][] frame = stream.nextFrame();
+					for (int y = 0; y < size; y++) System.arraycopy(frame[y], 0, buffer[z][y], 0, size);
+				}
+			} });
+			modes.add(new FixedMode3D("fixed", size) { void run() {
+				noise.generate3Fixed(ctx, buffer, OFF_X, OFF_Y, OFF_Z);
+			} });
+			final OpenSimplex2S.GenerateContextSlice3D slice = new OpenSimplex2S.GenerateContextSlice3D(orient, freq, freq, freq, 1.0, 1, 0, 0, 0, 1, 0);
+			modes.add(new Mode3D("slice", size) { void run() {
+				for (int z = 0; z < size; z++) noise.generateSlice3(slice, buffer[z], OFF_X, OFF_Y, OFF_Z + z);
+			} });
+			final OpenSimplex2S.GenerateContextWarp3D warp = new OpenSimplex2S.GenerateContextWarp3D(orient, freq, freq, freq, 1.0);
+			modes.add(new Mode3D("warped", size) { void run() {
+				noise.generateWarped3(warp, buffer, OFF_X, OFF_Y, OFF_Z);
+			} });
+			modes.add(new StridedMode3D("stride2", size) { void run() {
+				noise.generate3Strided(ctx, buffer, OFF_X, OFF_Y, OFF_Z, 2, 2, 2);
+			} });
+			modes.add(new StridedMode3D("stride4", size) { void run() {
+				noise.generate3Strided(ctx, buffer, OFF_X, OFF_Y, OFF_Z, 4, 4, 4);
+			} });
+		} else {
+			final OpenSimplex2F noise = new OpenSimplex2F(0);
+			final OpenSimplex2F.LatticeOrientation3D orient = OpenSimplex2F.LatticeOrientation3D.valueOf(orientation);
+			final OpenSimplex2F.GenerateContext3D ctx = new OpenSimplex2F.GenerateContext3D(orient, freq, freq, freq, 1.0);
+			modes.add(new Mode3D("point", size) { void run() {
+				for (int z = 0; z < size; z++) for (int y = 0; y < size; y++) for (int x = 0; x < size; x++) {
+					double xs = (x + OFF_X) * freq, ys = (y + OFF_Y) * freq, zs = (z + OFF_Z) * freq;
+					buffer[z][y][x] = orient == OpenSimplex2F.LatticeOrientation3D.XYBeforeZ ? noise.noise3_XYBeforeZ(xs, ys, zs)
+							: orient == OpenSimplex2F.LatticeOrientation3D.XZBeforeY ? noise.noise3_XZBeforeY(xs, ys, zs) : noise.noise3_Classic(xs, ys, zs);
+				}
+			} });
+			modes.add(new Mode3D("area", size) { void run() {
+				noise.generate3(ctx, buffer, OFF_X, OFF_Y, OFF_Z);
+			} });
+			modes.add(new Mode3D("tiled", size) { void run() {
+				noise.generate3Tiled(ctx, buffer, OFF_X, OFF_Y, OFF_Z);
+			} });
+			modes.add(new Mode3D("stream", size) { void run() {
+				OpenSimplex2F.SliceStream3D stream = noise.sliceStream3(ctx, OFF_X, OFF_Y, OFF_Z, size, size);
+				for (int z = 0; z < size; z++) {
+					double[][] frame = stream.nextFrame();
+					for (int y = 0; y < size; y++) System.arraycopy(frame[y], 0, buffer[z][y], 0, size);
+				}
+			} });
+			modes.add(new FixedMode3D("fixed", size) { void run() {
+				noise.generate3Fixed(ctx, buffer, OFF_X, OFF_Y, OFF_Z);
+			} });
+			final OpenSimplex2F.GenerateContextSlice3D slice = new OpenSimplex2F.GenerateContextSlice3D(orient, freq, freq, freq, 1.0, 1, 0, 0, 0, 1, 0);
+			modes.add(new Mode3D("slice", size) { void run() {
+				for (int z = 0; z < size; z++) noise.generateSlice3(slice, buffer[z], OFF_X, OFF_Y, OFF_Z + z);
+			} });
+			final OpenSimplex2F.GenerateContextWarp3D warp = new OpenSimplex2F.GenerateContextWarp3D(orient, freq, freq, freq, 1.0);
+			modes.add(new Mode3D("warped", size) { void run() {
+				noise.generateWarped3(warp, buffer, OFF_X, OFF_Y, OFF_Z);
+			} });
+			modes.add(new StridedMode3D("stride2", size) { void run() {
+				noise.generate3Strided(ctx, buffer, OFF_X, OFF_Y, OFF_Z, 2, 2, 2);
+			} });
+			modes.add(new StridedMode3D("stride4", size) { void run() {
+				noise.generate3Strided(ctx, buffer, OFF_X, OFF_Y, OFF_Z, 4, 4, 4);
+			} });
+		}
+		return modes;
+	}
+	
+	static boolean[][] fullBitmap(int size) {
+		boolean[][] bitmap = new boolean[size][size];
+		for (boolean[] row : bitmap) Arrays.fill(row, true);
+		return bitmap;
+	}
+	
+	static double[] flatten(double[][] buffer) {
+		int height = buffer.length, width = buffer[0].length;
+		double[] out = new double[width * height];
+		for (int y = 0; y < height; y++) System.arraycopy(buffer[y], 0, out, y * width, width);
+		return out;
+	}
+	
+	static double[] flatten(int[][] buffer) {
+		int height = buffer.length, width = buffer[0].length;
+		double[] out = new double[width * height];
+		for (int y = 0; y < height; y++) for (int x = 0; x < width; x++) out[y * width + x] = buffer[y][x] / (double)(1 << OpenSimplex2S.FIXED_SHIFT);
+		return out;
+	}
+	
+	static double[] flatten(int[][][] buffer) {
+		int depth = buffer.length, height = buffer[0].length, width = buffer[0][0].length;
+		double[] out = new double[width * height * depth];
+		for (int z = 0; z < depth; z++) for (int y = 0; y < height; y++) for (int x = 0; x < width; x++) {
+			out[(z * height + y) * width + x] = buffer[z][y][x] / (double)(1 << OpenSimplex2S.FIXED_SHIFT);
+		}
+		return out;
+	}
+	
+	static double[] flatten(double[][][] buffer) {
+		int depth = buffer.length, height = buffer[0].length, width = buffer[0][0].length;
+		double[] out = new double[width * height * depth];
+		for (int z = 0; z < depth; z++) for (int y = 0; y < height; y++) System.arraycopy(buffer[z][y], 0, out, (z * height + y) * width, width);
+		return out;
+	}
+}
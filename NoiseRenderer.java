@@ -0,0 +1,248 @@
+/*
+ * Renders noise into a BufferedImage by writing its DataBufferInt or DataBufferByte directly,
+ * through a gradient-map lookup table, instead of going pixel by pixel through setRGB.
+ * render2(...) also generates the noise, a tile at a time, converting each tile while it's still in cache,
+ * and spreads the tiles over several threads.
+ *
+ * Supported image types are TYPE_INT_RGB, TYPE_INT_ARGB and TYPE_BYTE_GRAY.
+ * Taking the image's data array means Java2D stops caching it on the GPU, which doesn't matter for images
+ * that get saved or sent somewhere, but is worth knowing before drawing the same one to the screen over and over.
+ */
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NoiseRenderer {
+	
+	public static final int DEFAULT_TILE_SIZE = 256;
+	
+	/**
+	 * Writes the buffer into the image, with its top left corner at (imageX, imageY).
+	 */
+	public static void render(double[][] buffer, BufferedImage image, int imageX, int imageY, GradientMap map) {
+		Target target = new Target(image);
+		target.write(buffer, buffer[0].length, buffer.length, imageX, imageY, map);
+	}
+	
+	/**
+	 * Generates the noise for the whole image and renders it, in tiles of DEFAULT_TILE_SIZE, using every processor.
+	 * (x0, y0) is the noise offset of the image's top left corner, like in generate2.
+	 */
+	public static void render2(OpenSimplex2S noise, OpenSimplex2S.GenerateContext2D context, BufferedImage image, int x0, int y0, GradientMap map) {
+		render2(noise, context, image, x0, y0, map, DEFAULT_TILE_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+	
+	public static void render2(final OpenSimplex2S noise, final OpenSimplex2S.GenerateContext2D context, BufferedImage image, int x0, int y0,
+			GradientMap map, int tileSize, int threads) {
+		renderTiles(new TileGenerator() {
+			void generate(double[][] tile, int x0, int y0, int width, int height) {
+				noise.generate2(context, tile, x0, y0, width, height, 0, 0);
+			}
+		}, image, x0, y0, map, tileSize, threads);
+	}
+	
+	public static void render2(OpenSimplex2F noise, OpenSimplex2F.GenerateContext2D context, BufferedImage image, int x0, int y0, GradientMap map) {
+		render2(noise, context, image, x0, y0, map, DEFAULT_TILE_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+	
+	public static void render2(final OpenSimplex2F noise, final OpenSimplex2F.GenerateContext2D context, BufferedImage image, int x0, int y0,
+			GradientMap map, int tileSize, int threads) {
+		renderTiles(new TileGenerator() {
+			void generate(double[][] tile, int x0, int y0, int width, int height) {
+				noise.generate2(context, tile, x0, y0, width, height, 0, 0);
+			}
+		}, image, x0, y0, map, tileSize, threads);
+	}
+	
+	private static abstract class TileGenerator {
+		abstract void generate(double[][] tile, int x0, int y0, int width, int height);
+	}
+	
+	/*
+	 * Each thread takes the next tile until there are none left, generating into its own tile buffer and
+	 * converting it straight away. The calling thread works too, so one thread means no pool at all.
+	 */
+	private static void renderTiles(final TileGenerator generator, BufferedImage image, final int x0, final int y0,
+			final GradientMap map, final int tileSize, int threads) {
+		if (tileSize < 1) throw new IllegalArgumentException("tileSize must be at least 1");
+		final Target target = new Target(image);
+		final int width = image.getWidth(), height = image.getHeight();
+		final int tilesX = (width + tileSize - 1) / tileSize;
+		final int tileCount = tilesX * ((height + tileSize - 1) / tileSize);
+		final AtomicInteger next = new AtomicInteger();
+		
+		Runnable worker = new Runnable() {
+			public void run() {
+				double[][] tile = new double[tileSize][tileSize];
+				for (int t; (t = next.getAndIncrement()) < tileCount; ) {
+					int tileX = (t % tilesX) * tileSize, tileY = (t / tilesX) * tileSize;
+					int tileWidth = Math.min(tileSize, width - tileX), tileHeight = Math.min(tileSize, height - tileY);
+					for (int y = 0; y < tileHeight; y++) {
+						Arrays.fill(tile[y], 0, tileWidth, 0);
+					}
+					generator.generate(tile, x0 + tileX, y0 + tileY, tileWidth, tileHeight);
+					target.write(tile, tileWidth, tileHeight, tileX, tileY, map);
+				}
+			}
+		};
+		
+		List<Future<?>> helpers = new ArrayList<Future<?>>();
+		for (int i = 1; i < Math.min(threads, tileCount); i++) {
+			helpers.add(ForkJoinPool.commonPool().submit(worker));
+		}
+		worker.run();
+		for (Future<?> helper : helpers) {
+			try {
+				helper.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+	
+	/*
+	 * The image's data array, and how to find a pixel in it.
+	 */
+	private static class Target {
+		final int[] ints;
+		final byte[] bytes;
+		final int offset, stride, width, height;
+		
+		Target(BufferedImage image) {
+			WritableRaster raster = image.getRaster();
+			width = image.getWidth();
+			height = image.getHeight();
+			switch (image.getType()) {
+				case BufferedImage.TYPE_INT_RGB:
+				case BufferedImage.TYPE_INT_ARGB: {
+					DataBufferInt data = (DataBufferInt)raster.getDataBuffer();
+					stride = ((SinglePixelPackedSampleModel)raster.getSampleModel()).getScanlineStride();
+					ints = data.getData();
+					bytes = null;
+					offset = data.getOffset() - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+					break;
+				}
+				case BufferedImage.TYPE_BYTE_GRAY: {
+					DataBufferByte data = (DataBufferByte)raster.getDataBuffer();
+					stride = ((ComponentSampleModel)raster.getSampleModel()).getScanlineStride();
+					ints = null;
+					bytes = data.getData();
+					offset = data.getOffset() - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+					break;
+				}
+				default:
+					throw new IllegalArgumentException("Unsupported image type " + image.getType() + ", use TYPE_INT_RGB, TYPE_INT_ARGB or TYPE_BYTE_GRAY");
+			}
+		}
+		
+		void write(double[][] buffer, int bufferWidth, int bufferHeight, int imageX, int imageY, GradientMap map) {
+			if (imageX < 0 || imageY < 0 || imageX + bufferWidth > width || imageY + bufferHeight > height) {
+				throw new IllegalArgumentException("Buffer doesn't fit in the image at (" + imageX + ", " + imageY + ")");
+			}
+			double min = map.min, scale = map.scale;
+			int maxIndex = GradientMap.LUT_SIZE - 1;
+			if (ints != null) {
+				int[] lut = map.argb;
+				for (int y = 0; y < bufferHeight; y++) {
+					double[] row = buffer[y];
+					int pixel = offset + (imageY + y) * stride + imageX;
+					for (int x = 0; x < bufferWidth; x++) {
+						int index = (int)((row[x] - min) * scale);
+						if (index < 0) index = 0;
+						else if (index > maxIndex) index = maxIndex;
+						ints[pixel + x] = lut[index];
+					}
+				}
+			} else {
+				byte[] lut = map.gray;
+				for (int y = 0; y < bufferHeight; y++) {
+					double[] row = buffer[y];
+					int pixel = offset + (imageY + y) * stride + imageX;
+					for (int x = 0; x < bufferWidth; x++) {
+						int index = (int)((row[x] - min) * scale);
+						if (index < 0) index = 0;
+						else if (index > maxIndex) index = maxIndex;
+						bytes[pixel + x] = lut[index];
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Maps noise values in [min, max] onto colors, interpolated between stops. Values outside the range clamp to the ends.
+	 * Stops are positions in [0, 1] in increasing order, and colors are ARGB. Grayscale images get the colors' luminance.
+	 */
+	public static class GradientMap {
+		static final int LUT_SIZE = 1024;
+		
+		final int[] argb = new int[LUT_SIZE];
+		final byte[] gray = new byte[LUT_SIZE];
+		final double min, scale;
+		
+		public GradientMap(double min, double max, double[] stops, int[] colors) {
+			if (!(max > min)) throw new IllegalArgumentException("max must be greater than min");
+			if (stops.length != colors.length || stops.length == 0) throw new IllegalArgumentException("Need one color per stop, and at least one");
+			this.min = min;
+			
+			// Index i covers values from min + i / scale to min + (i + 1) / scale, and gets the color at its middle.
+			this.scale = LUT_SIZE / (max - min);
+			int stop = 0;
+			for (int i = 0; i < LUT_SIZE; i++) {
+				double t = (i + 0.5) / LUT_SIZE;
+				while (stop < stops.length - 1 && t > stops[stop + 1]) stop++;
+				int color;
+				if (t <= stops[0]) {
+					color = colors[0];
+				} else if (stop == stops.length - 1) {
+					color = colors[stops.length - 1];
+				} else {
+					double f = (t - stops[stop]) / (stops[stop + 1] - stops[stop]);
+					color = lerp(colors[stop], colors[stop + 1], f);
+				}
+				argb[i] = color;
+				int r = (color >> 16) & 0xFF, g = (color >> 8) & 0xFF, b = color & 0xFF;
+				gray[i] = (byte)(int)(0.299 * r + 0.587 * g + 0.114 * b + 0.5);
+			}
+		}
+		
+		/**
+		 * Black at -1 to white at 1, like NoiseDemo.
+		 */
+		public static GradientMap grayscale() {
+			return new GradientMap(-1, 1, new double[] { 0, 1 }, new int[] { 0xFF000000, 0xFFFFFFFF });
+		}
+		
+		/**
+		 * Deep water, shallows, sand, grass, rock and snow, as a quick terrain preview.
+		 */
+		public static GradientMap terrain() {
+			return new GradientMap(-1, 1,
+					new double[] { 0.0, 0.45, 0.5, 0.53, 0.7, 0.85, 1.0 },
+					new int[] { 0xFF0A1E5A, 0xFF2864B4, 0xFFDCD296, 0xFF50A03C, 0xFF2D6E28, 0xFF827366, 0xFFFFFFFF });
+		}
+		
+		private static int lerp(int a, int b, double f) {
+			int color = 0;
+			for (int shift = 0; shift < 32; shift += 8) {
+				int ca = (a >>> shift) & 0xFF, cb = (b >>> shift) & 0xFF;
+				color |= ((int)(ca + (cb - ca) * f + 0.5) & 0xFF) << shift;
+			}
+			return color;
+		}
+	}
+}
@@ -0,0 +1,329 @@
+/*
+ * Embedded HTTP tile server for 2D noise, on the JDK's built-in HttpServer.
+ *
+ * GET /{z}/{x}/{y}.{f32|q16|png}[?seed=<long>]
+ *   f32  width*height little-endian 32-bit floats, row by row.
+ *   q16  width*height little-endian unsigned 16-bit ints, q = round((value + 1) * 32767.5), clamped to [0, 65535].
+ *   png  8-bit grayscale, (value + 1) * 127.5.
+ *
+ * Each zoom level halves the size of a pixel, so tile (x, y) at zoom z covers the same area as the four tiles
+ * (2x..2x+1, 2y..2y+1) at zoom z+1. The period given is the one at zoom 0.
+ * The output only depends on the seed, zoom and tile, so responses carry an ETag and can be cached indefinitely.
+ *
+ * java NoiseTileServer [port=8080] [seed=0] [tile=256] [period=64] [zooms=5] [workers=<processors>]
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+public class NoiseTileServer {
+	
+	private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+	private static final byte[] PNG_SIGNATURE = { (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	private static final int PNG_IDAT_SIZE = 32768;
+	
+	private final HttpServer server;
+	private final ExecutorService handlers;
+	private final NoiseTileService service;
+	private final long seed;
+	private final int tileSize;
+	private final double period;
+	private final OpenSimplex2S.GenerateContext2D[] contexts;
+	
+	/**
+	 * Binds to the address, and builds the contexts for every zoom level up front.
+	 * Kernels grow with the square of the period, so keep period * 2^(zooms - 1) within reason.
+	 */
+	public NoiseTileServer(InetSocketAddress address, long seed, int tileSize, double period, int zooms, int workers) throws IOException {
+		if (tileSize < 1) throw new IllegalArgumentException("tileSize must be at least 1");
+		if (zooms < 1) throw new IllegalArgumentException("zooms must be at least 1");
+		this.seed = seed;
+		this.tileSize = tileSize;
+		this.period = period;
+		this.contexts = new OpenSimplex2S.GenerateContext2D[zooms];
+		for (int z = 0; z < zooms; z++) {
+			double freq = 1.0 / (period * (1 << z));
+			contexts[z] = new OpenSimplex2S.GenerateContext2D(OpenSimplex2S.LatticeOrientation2D.Standard, freq, freq, 1.0);
+		}
+		
+		// Generation is limited to the workers. Extra handler threads only wait in the queue, or write responses.
+		this.service = new NoiseTileService(workers, workers * 4, false);
+		this.handlers = Executors.newFixedThreadPool(workers * 2);
+		this.server = HttpServer.create(address, 0);
+		this.server.setExecutor(handlers);
+		this.server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					serve(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+	}
+	
+	public void start() {
+		server.start();
+	}
+	
+	public void stop() {
+		server.stop(0);
+		service.close();
+		handlers.shutdown();
+	}
+	
+	public int port() {
+		return server.getAddress().getPort();
+	}
+	
+	public static void main(String[] args) throws IOException {
+		Map<String, String> options = new LinkedHashMap<String, String>();
+		options.put("port", "8080");
+		options.put("seed", "0");
+		options.put("tile", "256");
+		options.put("period", "64");
+		options.put("zooms", "5");
+		options.put("workers", Integer.toString(Runtime.getRuntime().availableProcessors()));
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0 || !options.containsKey(arg.substring(0, eq))) {
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+			options.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+		
+		NoiseTileServer server = new NoiseTileServer(new InetSocketAddress(Integer.parseInt(options.get("port"))),
+				Long.parseLong(options.get("seed")), Integer.parseInt(options.get("tile")), Double.parseDouble(options.get("period")),
+				Integer.parseInt(options.get("zooms")), Integer.parseInt(options.get("workers")));
+		server.start();
+		System.out.println("Serving on http://localhost:" + server.port() + "/{z}/{x}/{y}.{f32|q16|png}");
+	}
+	
+	private void serve(HttpExchange exchange) throws IOException {
+		String method = exchange.getRequestMethod();
+		if (!method.equals("GET") && !method.equals("HEAD")) {
+			exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+			sendError(exchange, 405, "Only GET and HEAD are supported");
+			return;
+		}
+		
+		// /{z}/{x}/{y}.{format}
+		String[] parts = exchange.getRequestURI().getPath().split("/");
+		int dot = parts.length == 4 ? parts[3].lastIndexOf('.') : -1;
+		if (parts.length != 4 || !parts[0].isEmpty() || dot < 0) {
+			sendError(exchange, 404, "Expected /{z}/{x}/{y}.{f32|q16|png}");
+			return;
+		}
+		String format = parts[3].substring(dot + 1);
+		int z, x, y;
+		long tileSeed = seed;
+		try {
+			z = Integer.parseInt(parts[1]);
+			x = Integer.parseInt(parts[2]);
+			y = Integer.parseInt(parts[3].substring(0, dot));
+			String query = exchange.getRequestURI().getQuery();
+			if (query != null) {
+				for (String param : query.split("&")) {
+					if (param.startsWith("seed=")) tileSeed = Long.parseLong(param.substring(5));
+				}
+			}
+		} catch (NumberFormatException e) {
+			sendError(exchange, 400, "Bad number in " + exchange.getRequestURI());
+			return;
+		}
+		if (!format.equals("f32") && !format.equals("q16") && !format.equals("png")) {
+			sendError(exchange, 404, "Unknown format: " + format);
+			return;
+		}
+		if (z < 0 || z >= contexts.length) {
+			sendError(exchange, 404, "Zoom must be in 0.." + (contexts.length - 1));
+			return;
+		}
+		
+		// Pixel offsets past this would overflow
+		long x0 = (long)x * tileSize, y0 = (long)y * tileSize;
+		if (x0 != (int)x0 || y0 != (int)y0 || x0 + tileSize != (int)(x0 + tileSize) || y0 + tileSize != (int)(y0 + tileSize)) {
+			sendError(exchange, 404, "Tile out of range");
+			return;
+		}
+		
+		// Same seed, tile size, period, zoom, tile and format, same bytes.
+		String etag = "\"" + tileSeed + "-" + tileSize + "-" + period + "-" + z + "-" + x + "-" + y + "-" + format + "\"";
+		exchange.getResponseHeaders().set("ETag", etag);
+		exchange.getResponseHeaders().set("Cache-Control", CACHE_CONTROL);
+		String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+		if (ifNoneMatch != null && (ifNoneMatch.equals(etag) || ifNoneMatch.equals("*"))) {
+			exchange.sendResponseHeaders(304, -1);
+			return;
+		}
+		
+		double[][] buffer;
+		if (method.equals("HEAD")) {
+			buffer = null;
+		} else {
+			OpenSimplex2S noise = OpenSimplex2S.cached(tileSeed);
+			try {
+				buffer = service.submit(NoiseTileService.tile2(noise, contexts[z], (int)x0, (int)y0, tileSize, tileSize, 0)).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				sendError(exchange, 503, "Interrupted");
+				return;
+			} catch (RejectedExecutionException e) {
+				sendError(exchange, 503, "Shutting down");
+				return;
+			} catch (CancellationException e) {
+				sendError(exchange, 503, "Cancelled");
+				return;
+			} catch (ExecutionException e) {
+				sendError(exchange, 500, String.valueOf(e.getCause()));
+				return;
+			}
+		}
+		
+		exchange.getResponseHeaders().set("X-Tile-Width", Integer.toString(tileSize));
+		exchange.getResponseHeaders().set("X-Tile-Height", Integer.toString(tileSize));
+		if (format.equals("png")) {
+			exchange.getResponseHeaders().set("Content-Type", "image/png");
+			
+			// Compressed size isn't known until it's written, so it goes out chunked.
+			exchange.sendResponseHeaders(200, buffer == null ? -1 : 0);
+			if (buffer != null) writePng(buffer, exchange.getResponseBody());
+		} else {
+			int bytesPerValue = format.equals("f32") ? 4 : 2;
+			exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+			exchange.sendResponseHeaders(200, buffer == null ? -1 : (long)tileSize * tileSize * bytesPerValue);
+			if (buffer == null) return;
+			if (bytesPerValue == 4) writeFloat32(buffer, exchange.getResponseBody());
+			else writeQ16(buffer, exchange.getResponseBody());
+		}
+	}
+	
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.getResponseHeaders().remove("ETag");
+		exchange.getResponseHeaders().remove("Cache-Control");
+		exchange.sendResponseHeaders(status, exchange.getRequestMethod().equals("HEAD") ? -1 : body.length);
+		if (!exchange.getRequestMethod().equals("HEAD")) exchange.getResponseBody().write(body);
+	}
+	
+	/*
+	 * Encoders. Each converts one row at a time into a row-sized scratch array and writes it,
+	 * so nothing the size of the tile is allocated besides the buffer itself.
+	 */
+	
+	static void writeFloat32(double[][] buffer, OutputStream out) throws IOException {
+		byte[] row = new byte[buffer[0].length * 4];
+		for (double[] values : buffer) {
+			for (int x = 0, i = 0; x < values.length; x++, i += 4) {
+				int bits = Float.floatToRawIntBits((float)values[x]);
+				row[i] = (byte)bits;
+				row[i + 1] = (byte)(bits >> 8);
+				row[i + 2] = (byte)(bits >> 16);
+				row[i + 3] = (byte)(bits >> 24);
+			}
+			out.write(row, 0, values.length * 4);
+		}
+	}
+	
+	static void writeQ16(double[][] buffer, OutputStream out) throws IOException {
+		byte[] row = new byte[buffer[0].length * 2];
+		for (double[] values : buffer) {
+			for (int x = 0, i = 0; x < values.length; x++, i += 2) {
+				int q = (int)((values[x] + 1) * 32767.5 + 0.5);
+				if (q < 0) q = 0;
+				else if (q > 65535) q = 65535;
+				row[i] = (byte)q;
+				row[i + 1] = (byte)(q >> 8);
+			}
+			out.write(row, 0, values.length * 2);
+		}
+	}
+	
+	/**
+	 * 8-bit grayscale PNG. Rows use the Sub filter, which suits smooth noise, and go through one Deflater,
+	 * with each IDAT chunk written as soon as its compressed bytes fill up.
+	 */
+	static void writePng(double[][] buffer, OutputStream out) throws IOException {
+		int height = buffer.length, width = buffer[0].length;
+		CRC32 crc = new CRC32();
+		
+		out.write(PNG_SIGNATURE);
+		byte[] header = new byte[13];
+		putInt(header, 0, width);
+		putInt(header, 4, height);
+		header[8] = 8; // Bit depth
+		header[9] = 0; // Grayscale. Compression, filter and interlace methods all stay 0.
+		writeChunk(out, crc, "IHDR", header, header.length);
+		
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		byte[] row = new byte[width + 1];
+		byte[] compressed = new byte[PNG_IDAT_SIZE];
+		int compressedLength = 0;
+		row[0] = 1; // Sub filter
+		try {
+			for (int y = 0; y <= height; y++) {
+				if (y < height) {
+					double[] values = buffer[y];
+					int previous = 0;
+					for (int x = 0; x < width; x++) {
+						int v = (int)((values[x] + 1) * 127.5 + 0.5);
+						if (v < 0) v = 0;
+						else if (v > 255) v = 255;
+						row[x + 1] = (byte)(v - previous);
+						previous = v;
+					}
+					deflater.setInput(row);
+				} else {
+					deflater.finish();
+				}
+				while (y == height ? !deflater.finished() : !deflater.needsInput()) {
+					compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+					if (compressedLength == compressed.length) {
+						writeChunk(out, crc, "IDAT", compressed, compressedLength);
+						compressedLength = 0;
+					}
+				}
+			}
+			if (compressedLength > 0) writeChunk(out, crc, "IDAT", compressed, compressedLength);
+		} finally {
+			deflater.end();
+		}
+		
+		writeChunk(out, crc, "IEND", compressed, 0);
+	}
+	
+	private static void writeChunk(OutputStream out, CRC32 crc, String type, byte[] data, int length) throws IOException {
+		byte[] bytes = new byte[8];
+		putInt(bytes, 0, length);
+		for (int i = 0; i < 4; i++) bytes[4 + i] = (byte)type.charAt(i);
+		out.write(bytes, 0, 8);
+		out.write(data, 0, length);
+		crc.reset();
+		crc.update(bytes, 4, 4);
+		crc.update(data, 0, length);
+		putInt(bytes, 0, (int)crc.getValue());
+		out.write(bytes, 0, 4);
+	}
+	
+	private static void putInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte)(value >> 24);
+		bytes[offset + 1] = (byte)(value >> 16);
+		bytes[offset + 2] = (byte)(value >> 8);
+		bytes[offset + 3] = (byte)value;
+	}
+}
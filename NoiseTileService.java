@@ -0,0 +1,367 @@
+/*
+ * Asynchronous tile generation, for clients that ask for tiles faster than they can be generated.
+ * Jobs wait in a bounded queue ordered by a priority the caller gives (e.g. distance to the viewer),
+ * and a fixed pool of workers takes the most urgent first. Jobs still in the queue can be cancelled,
+ * so tiles nobody wants anymore don't hold up the ones they do.
+ */
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class NoiseTileService implements AutoCloseable {
+	
+	private final int capacity;
+	private final PriorityQueue<Tile<?>> queue;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private final Thread[] workers;
+	private final Executor frontEnd;
+	private final boolean virtualFrontEnd;
+	private long sequence;
+	private boolean closed;
+	
+	/**
+	 * A service with one worker per processor, and room for the given number of queued jobs.
+	 */
+	public NoiseTileService(int capacity) {
+		this(Runtime.getRuntime().availableProcessors(), capacity, false);
+	}
+	
+	/**
+	 * Generation is CPU bound, so the workers are always a fixed number of platform threads.
+	 * The front end is what submitAsync waits for queue space on. If virtualFrontEnd is set and the
+	 * JVM has virtual threads (Java 21+), each waiting submission parks a virtual thread instead of
+	 * holding a platform thread. Otherwise it falls back to a cached pool of platform threads.
+	 */
+	public NoiseTileService(int threads, int capacity, boolean virtualFrontEnd) {
+		if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+		if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+		this.capacity = capacity;
+		this.queue = new PriorityQueue<Tile<?>>(capacity);
+		
+		Executor virtualExecutor = virtualFrontEnd ? newVirtualThreadExecutor() : null;
+		this.virtualFrontEnd = virtualExecutor != null;
+		this.frontEnd = virtualExecutor != null ? virtualExecutor : Executors.newCachedThreadPool(daemonThreads("NoiseTileService front end"));
+		
+		this.workers = new Thread[threads];
+		ThreadFactory workerThreads = daemonThreads("NoiseTileService worker");
+		for (int i = 0; i < threads; i++) {
+			workers[i] = workerThreads.newThread(new Runnable() {
+				public void run() {
+					work();
+				}
+			});
+			workers[i].start();
+		}
+	}
+	
+	/**
+	 * Queues the job, waiting for space if the queue is full. This is the backpressure:
+	 * a client that submits faster than the workers keep up with is held here.
+	 */
+	public <T> Tile<T> submit(Job<T> job) throws InterruptedException {
+		Tile<T> tile = new Tile<T>(this, job);
+		enqueue(tile, -1);
+		return tile;
+	}
+	
+	/**
+	 * Queues the job if there's space within the timeout, otherwise returns null.
+	 */
+	public <T> Tile<T> offer(Job<T> job, long timeout, TimeUnit unit) throws InterruptedException {
+		Tile<T> tile = new Tile<T>(this, job);
+		return enqueue(tile, unit.toNanos(timeout)) ? tile : null;
+	}
+	
+	/**
+	 * Returns straight away, and waits for queue space on the front end.
+	 * Cancelling the tile while it's still waiting keeps it from ever being queued.
+	 */
+	public <T> Tile<T> submitAsync(Job<T> job) {
+		final Tile<T> tile = new Tile<T>(this, job);
+		frontEnd.execute(new Runnable() {
+			public void run() {
+				try {
+					enqueue(tile, -1);
+				} catch (InterruptedException e) {
+					tile.completeExceptionally(e);
+				} catch (RejectedExecutionException e) {
+					tile.completeExceptionally(e);
+				}
+			}
+		});
+		return tile;
+	}
+	
+	/**
+	 * Cancels every queued job with a priority value above the given one, e.g. everything now too far from the viewer.
+	 * Returns how many were cancelled. Jobs already running finish, but nothing is waiting on their results.
+	 */
+	public int cancelBeyond(double priority) {
+		List<Tile<?>> stale = new ArrayList<Tile<?>>();
+		lock.lock();
+		try {
+			for (Tile<?> tile : queue) {
+				if (tile.priority > priority) stale.add(tile);
+			}
+		} finally {
+			lock.unlock();
+		}
+		
+		// Outside the lock, since cancelling runs whatever the caller chained onto the tile.
+		int count = 0;
+		for (Tile<?> tile : stale) {
+			if (tile.cancel(false)) count++;
+		}
+		return count;
+	}
+	
+	public int queued() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	public int capacity() {
+		return capacity;
+	}
+	
+	public boolean usesVirtualThreads() {
+		return virtualFrontEnd;
+	}
+	
+	/**
+	 * Stops taking jobs, cancels the queued ones, and lets the workers finish what they're running.
+	 */
+	public void close() {
+		List<Tile<?>> remaining;
+		lock.lock();
+		try {
+			closed = true;
+			remaining = new ArrayList<Tile<?>>(queue);
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		for (Tile<?> tile : remaining) {
+			tile.cancel(false);
+		}
+		if (frontEnd instanceof ExecutorService) {
+			((ExecutorService)frontEnd).shutdown();
+		}
+	}
+	
+	/**
+	 * Waits for the workers to exit after close(). Returns false if they didn't within the timeout.
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (Thread worker : workers) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining > 0) TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+			if (worker.isAlive()) return false;
+		}
+		return true;
+	}
+	
+	// A negative timeout waits as long as it takes.
+	private boolean enqueue(Tile<?> tile, long timeoutNanos) throws InterruptedException {
+		boolean timed = timeoutNanos >= 0;
+		lock.lockInterruptibly();
+		try {
+			while (queue.size() >= capacity && !closed && !tile.isDone()) {
+				if (!timed) {
+					notFull.await();
+				} else if (timeoutNanos <= 0) {
+					return false;
+				} else {
+					timeoutNanos = notFull.awaitNanos(timeoutNanos);
+				}
+			}
+			if (tile.isDone()) return true;
+			if (closed) throw new RejectedExecutionException("NoiseTileService is closed");
+			
+			tile.sequence = sequence++;
+			queue.add(tile);
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private void remove(Tile<?> tile) {
+		lock.lock();
+		try {
+			queue.remove(tile);
+			
+			// Also wakes submissions of cancelled tiles still waiting for space.
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private void work() {
+		while (true) {
+			Tile<?> tile;
+			lock.lock();
+			try {
+				while (queue.isEmpty() && !closed) {
+					notEmpty.awaitUninterruptibly();
+				}
+				tile = queue.poll();
+				if (tile == null) return;
+				notFull.signal();
+			} finally {
+				lock.unlock();
+			}
+			tile.run();
+		}
+	}
+	
+	private static Executor newVirtualThreadExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (Executor)factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			// Not available (before Java 21, or a preview that isn't enabled)
+			return null;
+		} catch (UnsupportedOperationException e) {
+			return null;
+		}
+	}
+	
+	private static ThreadFactory daemonThreads(final String name) {
+		return new ThreadFactory() {
+			int count;
+			public synchronized Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + " " + (count++));
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+	
+	/*
+	 * Jobs
+	 */
+	
+	/**
+	 * A unit of work. Lower priority values run first, and equal ones in the order they were queued.
+	 */
+	public static abstract class Job<T> {
+		final double priority;
+		
+		protected Job(double priority) {
+			this.priority = priority;
+		}
+		
+		protected abstract T run();
+	}
+	
+	public static Job<double[][]> tile2(final OpenSimplex2S noise, final OpenSimplex2S.GenerateContext2D context,
+			final int x0, final int y0, final int width, final int height, double priority) {
+		return new Job<double[][]>(priority) {
+			protected double[][] run() {
+				double[][] buffer = new double[height][width];
+				noise.generate2(context, buffer, x0, y0, width, height, 0, 0);
+				return buffer;
+			}
+		};
+	}
+	
+	public static Job<double[][]> tile2(final OpenSimplex2F noise, final OpenSimplex2F.GenerateContext2D context,
+			final int x0, final int y0, final int width, final int height, double priority) {
+		return new Job<double[][]>(priority) {
+			protected double[][] run() {
+				double[][] buffer = new double[height][width];
+				noise.generate2(context, buffer, x0, y0, width, height, 0, 0);
+				return buffer;
+			}
+		};
+	}
+	
+	public static Job<double[][][]> tile3(final OpenSimplex2S noise, final OpenSimplex2S.GenerateContext3D context,
+			final int x0, final int y0, final int z0, final int width, final int height, final int depth, double priority) {
+		return new Job<double[][][]>(priority) {
+			protected double[][][] run() {
+				double[][][] buffer = new double[depth][height][width];
+				noise.generate3(context, buffer, x0, y0, z0, width, height, depth, 0, 0, 0);
+				return buffer;
+			}
+		};
+	}
+	
+	public static Job<double[][][]> tile3(final OpenSimplex2F noise, final OpenSimplex2F.GenerateContext3D context,
+			final int x0, final int y0, final int z0, final int width, final int height, final int depth, double priority) {
+		return new Job<double[][][]>(priority) {
+			protected double[][][] run() {
+				double[][][] buffer = new double[depth][height][width];
+				noise.generate3(context, buffer, x0, y0, z0, width, height, depth, 0, 0, 0);
+				return buffer;
+			}
+		};
+	}
+	
+	/**
+	 * The result of a submitted job. Cancelling it takes it out of the queue if it hasn't started.
+	 * Once it has, the generation runs to the end, but the result is dropped.
+	 */
+	public static final class Tile<T> extends CompletableFuture<T> implements Comparable<Tile<?>> {
+		private final NoiseTileService service;
+		private final Job<T> job;
+		private final double priority;
+		private long sequence;
+		
+		Tile(NoiseTileService service, Job<T> job) {
+			this.service = service;
+			this.job = job;
+			this.priority = job.priority;
+		}
+		
+		public double priority() {
+			return priority;
+		}
+		
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) service.remove(this);
+			return cancelled;
+		}
+		
+		public int compareTo(Tile<?> other) {
+			int c = Double.compare(priority, other.priority);
+			return c != 0 ? c : Long.compare(sequence, other.sequence);
+		}
+		
+		void run() {
+			
+			// Cancelled between being taken from the queue and now
+			if (isDone()) return;
+			
+			try {
+				complete(job.run());
+			} catch (Throwable e) {
+				completeExceptionally(e);
+			}
+		}
+	}
+}
@@ -14,6 +14,16 @@ import java.util.Queue;
 import java.util.LinkedList;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
 
 public class OpenSimplex2S {
 	
@@ -23,11 +33,25 @@ public class OpenSimplex2S {
 	private short[] perm;
 	private Grad2[] permGrad2;
 	private Grad3[] permGrad3;
+	private Grad4[] permGrad4;
+	
+	// XORed into the lattice coordinates before hashing. Zero for instances with their own tables,
+	// and the whole seed for lightweight ones, which share one set of tables.
+	private int seedX, seedY, seedZ, seedW;
+	
+	// Fully built instances kept by cached(seed).
+	private static final int SEED_CACHE_SIZE = 64;
+	private static final Map<Long, OpenSimplex2S> SEED_CACHE = new LinkedHashMap<Long, OpenSimplex2S>(SEED_CACHE_SIZE * 2, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry<Long, OpenSimplex2S> eldest) {
+			return size() > SEED_CACHE_SIZE;
+		}
+	};
 
 	public OpenSimplex2S(long seed) {
 		perm = new short[PSIZE];
 		permGrad2 = new Grad2[PSIZE];
 		permGrad3 = new Grad3[PSIZE];
+		permGrad4 = new Grad4[PSIZE];
 		short[] source = new short[PSIZE]; 
 		for (short i = 0; i < PSIZE; i++)
 			source[i] = i;
@@ -39,10 +63,61 @@ public class OpenSimplex2S {
 			perm[i] = source[r];
 			permGrad2[i] = GRADIENTS_2D[perm[i]];
 			permGrad3[i] = GRADIENTS_3D[perm[i]];
+			permGrad4[i] = GRADIENTS_4D[perm[i]];
 			source[r] = source[i];
 		}
 	}
 	
+	/**
+	 * Lightweight instance. Shares the tables of a base instance, and mixes the seed into the lattice coordinates instead.
+	 */
+	private OpenSimplex2S(OpenSimplex2S base, long seed) {
+		perm = base.perm;
+		permGrad2 = base.permGrad2;
+		permGrad3 = base.permGrad3;
+		permGrad4 = base.permGrad4;
+		
+		// SplitMix64, so nearby seeds don't give nearby offsets.
+		long z = seed + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		seedX = (int)z & PMASK;
+		seedY = (int)(z >>> 16) & PMASK;
+		seedZ = (int)(z >>> 32) & PMASK;
+		seedW = (int)(z >>> 48) & PMASK;
+	}
+	
+	/**
+	 * An instance for the seed that's O(1) to construct and a few dozen bytes in size, for when there are thousands of seeds.
+	 * It shares its permutation tables with every other lightweight instance, and XORs the seed into the lattice coordinates.
+	 * The noise is just as fast, and looks the same statistically, but isn't the same as new OpenSimplex2S(seed) gives.
+	 * There are 2^22 distinct 2D fields, 2^33 3D, and 2^44 4D.
+	 */
+	public static OpenSimplex2S lightweight(long seed) {
+		return new OpenSimplex2S(SharedTables.BASE, seed);
+	}
+	
+	/**
+	 * The same as new OpenSimplex2S(seed), but keeps the last few instances asked for, so seeds used over and over
+	 * aren't rebuilt each time. Safe to call from multiple threads.
+	 */
+	public static OpenSimplex2S cached(long seed) {
+		synchronized (SEED_CACHE) {
+			OpenSimplex2S noise = SEED_CACHE.get(seed);
+			if (noise == null) {
+				noise = new OpenSimplex2S(seed);
+				SEED_CACHE.put(seed, noise);
+			}
+			return noise;
+		}
+	}
+	
+	// Built the first time a lightweight instance is needed, after the gradient tables exist.
+	private static class SharedTables {
+		static final OpenSimplex2S BASE = new OpenSimplex2S(0);
+	}
+	
 	/*
 	 * Traditional evaluators
 	 */
@@ -102,7 +177,7 @@ public class OpenSimplex2S {
 			double attn = 2.0 / 3.0 - dx * dx - dy * dy;
 			if (attn <= 0) continue;
 
-			int pxm = (xsb + c.xsv) & PMASK, pym = (ysb + c.ysv) & PMASK;
+			int pxm = ((xsb + c.xsv) ^ seedX) & PMASK, pym = ((ysb + c.ysv) ^ seedY) & PMASK;
 			Grad2 grad = permGrad2[perm[pxm] ^ pym];
 			double extrapolation = grad.dx * dx + grad.dy * dy;
 			
@@ -201,7 +276,7 @@ public class OpenSimplex2S {
 			if (attn < 0) {
 				c = c.nextOnFailure;
 			} else {
-				int pxm = (xrb + c.xrv) & PMASK, pym = (yrb + c.yrv) & PMASK, pzm = (zrb + c.zrv) & PMASK;
+				int pxm = ((xrb + c.xrv) ^ seedX) & PMASK, pym = ((yrb + c.yrv) ^ seedY) & PMASK, pzm = ((zrb + c.zrv) ^ seedZ) & PMASK;
 				Grad3 grad = permGrad3[perm[perm[pxm] ^ pym] ^ pzm];
 				double extrapolation = grad.dx * dxr + grad.dy * dyr + grad.dz * dzr;
 				
@@ -213,6 +288,60 @@ public class OpenSimplex2S {
 		return value;
 	}
 	
+	/**
+	 * 4D SuperSimplex noise, classic lattice orientation.
+	 * Good for seamlessly looping 2D animations (walk a circle through Z and W),
+	 * or for 3D fields that vary over time.
+	 */
+	public double noise4_Classic(double x, double y, double z, double w) {
+		
+		// Get points for A4 lattice
+		double s = 0.309016994374947 * (x + y + z + w);
+		double xs = x + s, ys = y + s, zs = z + s, ws = w + s;
+		
+		return noise4_Base(xs, ys, zs, ws);
+	}
+	
+	/**
+	 * 4D SuperSimplex noise base.
+	 * The skewed hypercube is split into 24 simplices by the order of its coordinates.
+	 * Each simplex has its own pre-generated list of lattice points that can be in range.
+	 */
+	private double noise4_Base(double xs, double ys, double zs, double ws) {
+		double value = 0;
+		
+		// Get base points and offsets
+		int xsb = fastFloor(xs), ysb = fastFloor(ys), zsb = fastFloor(zs), wsb = fastFloor(ws);
+		double xsi = xs - xsb, ysi = ys - ysb, zsi = zs - zsb, wsi = ws - wsb;
+		
+		// Index to point list. Pairwise comparisons identify the simplex.
+		int index =
+			(xsi > ysi ? 1 : 0) | (xsi > zsi ? 2 : 0) | (xsi > wsi ? 4 : 0) |
+			(ysi > zsi ? 8 : 0) | (ysi > wsi ? 16 : 0) | (zsi > wsi ? 32 : 0);
+		
+		double ssi = (xsi + ysi + zsi + wsi) * -0.138196601125011;
+		double xi = xsi + ssi, yi = ysi + ssi, zi = zsi + ssi, wi = wsi + ssi;
+		
+		// Point contributions
+		LatticePoint4D[] points = LOOKUP_4D[index];
+		for (int i = 0; i < points.length; i++) {
+			LatticePoint4D c = points[i];
+			
+			double dx = xi + c.dx, dy = yi + c.dy, dz = zi + c.dz, dw = wi + c.dw;
+			double attn = 0.8 - dx * dx - dy * dy - dz * dz - dw * dw;
+			if (attn <= 0) continue;
+			
+			int pxm = ((xsb + c.xsv) ^ seedX) & PMASK, pym = ((ysb + c.ysv) ^ seedY) & PMASK, pzm = ((zsb + c.zsv) ^ seedZ) & PMASK, pwm = ((wsb + c.wsv) ^ seedW) & PMASK;
+			Grad4 grad = permGrad4[perm[perm[perm[pxm] ^ pym] ^ pzm] ^ pwm];
+			double extrapolation = grad.dx * dx + grad.dy * dy + grad.dz * dz + grad.dw * dw;
+			
+			attn *= attn;
+			value += attn * attn * extrapolation;
+		}
+		
+		return value;
+	}
+	
 	/*
 	 * Area Generators
 	 */
@@ -234,30 +363,74 @@ public class OpenSimplex2S {
 	 * Results may occasionally slightly exceed [-1, 1] due to the grid-snapped pre-generated kernel.
 	 */
 	public void generate2(GenerateContext2D context, double[][] buffer, int x0, int y0, int width, int height, int skipX, int skipY) {
+		generate2(context, buffer, null, null, x0, y0, width, height, skipX, skipY);
+	}
+	
+	/**
+	 * Generate the 2D noise over a large area, adding what the traversal did to stats.
+	 * Nothing is allocated for the stats, but timing traversal and stamping separately costs two clock reads per vertex.
+	 */
+	public void generate2(GenerateContext2D context, double[][] buffer, int x0, int y0, int width, int height, int skipX, int skipY,
+			GenerationStats stats) {
+		generate2(context, buffer, null, null, x0, y0, width, height, skipX, skipY, stats);
+	}
+	
+	/**
+	 * Generate the 2D noise over a large area, along with its analytic derivatives.
+	 * bufferDx and bufferDy receive dN/dx and dN/dy per image pixel, accumulated in the same traversal.
+	 * Divide by the frequency to get them per noise unit.
+	 */
+	public void generate2(GenerateContext2D context, double[][] buffer, double[][] bufferDx, double[][] bufferDy, int x0, int y0) {
+		int height = buffer.length;
+		int width = buffer[0].length;
+		generate2(context, buffer, bufferDx, bufferDy, x0, y0, width, height, 0, 0);
+	}
+	
+	/**
+	 * Generate the 2D noise over a large area, along with its analytic derivatives.
+	 * bufferDx and bufferDy receive dN/dx and dN/dy per image pixel, accumulated in the same traversal.
+	 * Pass null for both to generate only the noise.
+	 */
+	public void generate2(GenerateContext2D context, double[][] buffer, double[][] bufferDx, double[][] bufferDy,
+			int x0, int y0, int width, int height, int skipX, int skipY) {
+		generate2(context, buffer, bufferDx, bufferDy, x0, y0, width, height, skipX, skipY, null);
+	}
+	
+	/**
+	 * Generate the 2D noise over a large area, along with its analytic derivatives, adding what the traversal did to stats.
+	 * Pass null for bufferDx and bufferDy to generate only the noise, and null for stats to not collect any.
+	 */
+	public void generate2(GenerateContext2D context, double[][] buffer, double[][] bufferDx, double[][] bufferDy,
+			int x0, int y0, int width, int height, int skipX, int skipY, GenerationStats stats) {
+		if ((bufferDx == null) != (bufferDy == null)) throw new IllegalArgumentException("Pass both bufferDx and bufferDy, or neither.");
+		if (bufferDx != null && (bufferDx.length < height || bufferDy.length < height
+				|| bufferDx[0].length < width || bufferDy[0].length < width)) {
+			throw new IllegalArgumentException("bufferDx and bufferDy need to be at least width by height.");
+		}
+		if (context.periodWidth != 0) {
+			generate2Periodic(context, buffer, bufferDx, bufferDy, x0, y0, width, height, skipX, skipY, stats);
+			return;
+		}
+		
+		Generate2Event event = new Generate2Event();
+		event.begin();
+		long startNanos = stats != null ? System.nanoTime() : 0;
+		long verticesVisited = 0, probesOutOfRange = 0, probesAlreadySeen = 0, cellsStamped = 0, stampNanos = 0;
+		
 		Queue<AreaGenLatticePoint2D> queue = new LinkedList<AreaGenLatticePoint2D>();
 		Set<AreaGenLatticePoint2D> seen = new HashSet<AreaGenLatticePoint2D>();
 		
 		int scaledRadiusX = context.scaledRadiusX;
 		int scaledRadiusY = context.scaledRadiusY;
-		double[][] kernel = context.kernel;
 		int x0Skipped = x0 + skipX, y0Skipped = y0 + skipY;
-		
-		// It seems that it's better for performance, to create a local copy.
-		// - Slightly faster than generating the kernel here.
-		// - Much faster than referencing it directly from the context object.
-		// - Much faster than computing the kernel equation every time.
-		// You can remove these lines if you find it's the opposite for you.
-		// You'll have to double the bounds again in GenerateContext2D
-		kernel = new double[scaledRadiusY * 2][/*scaledRadiusX * 2*/];
-		for (int yy = 0; yy < scaledRadiusY; yy++) {
-			kernel[2 * scaledRadiusY - yy - 1] = kernel[yy] = (double[]) context.kernel[yy].clone();
-		}
+		VertexStamper2D stamper = new VertexStamper2D(context, buffer, bufferDx, bufferDy, x0, y0, width, height, skipX, skipY);
 		
 		// Get started with one point/vertex.
 		// For some lattices, you might need to try a handful of points in the cell,
 		// or flip a couple of coordinates, to guarantee it or a neighbor contributes.
 		// For An* lattices, the base coordinate seems fine.
-		double x0f = x0Skipped * context.xFrequency; double y0f = y0Skipped * context.yFrequency;
+		double x0f = context.m00 * x0Skipped + context.m01 * y0Skipped;
+		double y0f = context.m10 * x0Skipped + context.m11 * y0Skipped;
 		double x0s = context.orientation.s00 * x0f + context.orientation.s01 * y0f;
 		double y0s = context.orientation.s10 * x0f + context.orientation.s11 * y0f;
 		int x0sb = fastFloor(x0s), y0sb = fastFloor(y0s);
@@ -267,42 +440,11 @@ public class OpenSimplex2S {
 		
 		while (!queue.isEmpty()) {
 			AreaGenLatticePoint2D point = queue.remove();
-			int destPointX = point.destPointX;
-			int destPointY = point.destPointY;
-			
-			// Prepare gradient vector
-			int pxm = point.xsv & PMASK, pym = point.ysv & PMASK;
-			Grad2 grad = context.orientation.gradients[perm[perm[pxm] ^ pym]];
-			double gx = grad.dx * context.xFrequency;
-			double gy = grad.dy * context.yFrequency;
-			double gOff = 0.5 * (gx + gy); // to correct for (0.5, 0.5)-offset kernel
-			
-			// Contribution kernel bounds
-			int yy0 = destPointY - scaledRadiusY; if (yy0 < y0Skipped) yy0 = y0Skipped;
-			int yy1 = destPointY + scaledRadiusY; if (yy1 > y0 + height) yy1 = y0 + height;
-			
-			// For each row of the contribution circle,
-			for (int yy = yy0; yy < yy1; yy++) {
-				int dy = yy - destPointY;
-				int ky = dy + scaledRadiusY;
+			verticesVisited++;
 			
-				// Set up bounds so we only loop over what we need to
-				int thisScaledRadiusX = context.kernelBounds[ky];
-				int xx0 = destPointX - thisScaledRadiusX; if (xx0 < x0Skipped) xx0 = x0Skipped;
-				int xx1 = destPointX + thisScaledRadiusX; if (xx1 > x0 + width) xx1 = x0 + width;
-				
-				// For each point on that row
-				for (int xx = xx0; xx < xx1; xx++) {
-					int dx = xx - destPointX;
-					int kx = dx + scaledRadiusX;
-						
-					// gOff accounts for our choice to offset the pre-generated kernel by (0.5, 0.5) to avoid the zero center.
-					// I found almost no difference in performance using gOff vs not (under 1ns diff per value on my system)
-					double extrapolation = gx * dx + gy * dy + gOff;
-					buffer[yy - y0][xx - x0] += kernel[ky][kx] * extrapolation;
-					
-				}
-			}
+			long stampStart = stats != null ? System.nanoTime() : 0;
+			cellsStamped += stamper.stamp(point.xsv, point.ysv, point.destPointX, point.destPointY);
+			if (stats != null) stampNanos += System.nanoTime() - stampStart;
 			
 			// For each neighbor of the point
 			for (int i = 0; i < NEIGHBOR_MAP_2D.length; i++) {
@@ -311,151 +453,2778 @@ public class OpenSimplex2S {
 						
 				// If it's in range of the buffer region and not seen before
 				if (neighbor.destPointX + scaledRadiusX >= x0Skipped && neighbor.destPointX - scaledRadiusX <= x0 + width - 1
-						&& neighbor.destPointY + scaledRadiusY >= y0Skipped && neighbor.destPointY - scaledRadiusY <= y0 + height - 1
-						&& !seen.contains(neighbor)) {
-					
-					// Add it to the queue so we can process it at some point
-					queue.add(neighbor);
-					
-					// Add it to the set so we don't add it to the queue again
-					seen.add(neighbor);
+						&& neighbor.destPointY + scaledRadiusY >= y0Skipped && neighbor.destPointY - scaledRadiusY <= y0 + height - 1) {
+					if (!seen.contains(neighbor)) {
+						
+						// Add it to the queue so we can process it at some point
+						queue.add(neighbor);
+						
+						// Add it to the set so we don't add it to the queue again
+						seen.add(neighbor);
+					} else {
+						probesAlreadySeen++;
+					}
+				} else {
+					probesOutOfRange++;
 				}
 			}
 		}
+		
+		if (stats != null) {
+			stats.record(verticesVisited, probesOutOfRange, probesAlreadySeen, cellsStamped, System.nanoTime() - startNanos - stampNanos, stampNanos);
+		}
+		if (event.shouldCommit()) {
+			event.orientation = context.orientation.name();
+			event.m00 = context.m00; event.m01 = context.m01;
+			event.m10 = context.m10; event.m11 = context.m11;
+			event.amplitude = context.amplitude;
+			event.x0 = x0; event.y0 = y0;
+			event.width = width; event.height = height;
+			event.derivatives = bufferDx != null;
+			event.vertices = verticesVisited;
+			event.cellsStamped = cellsStamped;
+			event.commit();
+		}
 	}
 	
-	/**
-	 * Generate the 3D noise over a large area/volume.
-	 * Propagates by flood-fill instead of iterating over a range.
-	 * Results may occasionally slightly exceed [-1, 1] due to the grid-snapped pre-generated kernel.
-	 */
-	public void generate3(GenerateContext3D context, double[][][] buffer, int x0, int y0, int z0) {
-		int depth = buffer.length;
-		int height = buffer[0].length;
-		int width = buffer[0][0].length;
-		generate3(context, buffer, x0, y0, z0, width, height, depth, 0, 0, 0);
-	}
-	
-	/**
-	 * Generate the 3D noise over a large area/volume.
-	 * Propagates by flood-fill instead of iterating over a range.
-	 * Results may occasionally slightly exceed [-1, 1] due to the grid-snapped pre-generated kernel.
+	/*
+	 * Periodic area generation, for contexts made with GenerateContext2D.periodic.
+	 * Every vertex has a copy one period over in each direction with the same gradient, so instead of flood-filling,
+	 * this takes one vertex from each set of copies and stamps it at every copy that reaches the area.
+	 * Shifting the one destination point by whole periods keeps every copy on the same pixel grid,
+	 * where flood-filled copies would each round their own destination point, and could land a pixel apart.
 	 */
-	public void generate3(GenerateContext3D context, double[][][] buffer, int x0, int y0, int z0, int width, int height, int depth, int skipX, int skipY, int skipZ) {
-		Queue<AreaGenLatticePoint3D> queue = new LinkedList<AreaGenLatticePoint3D>();
-		Set<AreaGenLatticePoint3D> seen = new HashSet<AreaGenLatticePoint3D>();
+	private void generate2Periodic(GenerateContext2D context, double[][] buffer, double[][] bufferDx, double[][] bufferDy,
+			int x0, int y0, int width, int height, int skipX, int skipY, GenerationStats stats) {
+		Generate2Event event = new Generate2Event();
+		event.begin();
+		long startNanos = stats != null ? System.nanoTime() : 0;
+		long verticesVisited = 0, cellsStamped = 0, stampNanos = 0;
 		
 		int scaledRadiusX = context.scaledRadiusX;
 		int scaledRadiusY = context.scaledRadiusY;
-		int scaledRadiusZ = context.scaledRadiusZ;
-		double[][][] kernel = context.kernel;
-		int x0Skipped = x0 + skipX, y0Skipped = y0 + skipY, z0Skipped = z0 + skipZ;
+		int periodWidth = context.periodWidth, periodHeight = context.periodHeight;
+		int x0Skipped = x0 + skipX, y0Skipped = y0 + skipY;
+		VertexStamper2D stamper = new VertexStamper2D(context, buffer, bufferDx, bufferDy, x0, y0, width, height, skipX, skipY);
 		
-		// Quaternion multiplication for rotation.
-		// https://blog.molecular-matters.com/2013/05/24/a-faster-quaternion-vector-multiplication/
-		double qx = context.orientation.qx, qy = context.orientation.qy, qz = context.orientation.qz, qw = context.orientation.qw;
-		double x0f = x0Skipped * context.xFrequency, y0f = y0Skipped * context.yFrequency, z0f = z0Skipped * context.zFrequency;
-		double tx = 2 * (qy * z0f - qz * y0f);
-		double ty = 2 * (qz * x0f - qx * z0f);
-		double tz = 2 * (qx * y0f - qy * x0f);
-		double x0r = x0f + qw * tx + (qy * tz - qz * ty);
-		double y0r = y0f + qw * ty + (qz * tx - qx * tz);
-		double z0r = z0f + qw * tz + (qx * ty - qy * tx);
+		// One period along X moves (period00, period10) on the lattice, and one along Y moves (period01, period11).
+		// Vertex (xsv, ysv) is (s * first + t * second) / determinant, and the one with s and t both in [0, |determinant|)
+		// stands in for all of its copies. They're all inside the parallelogram the two vectors make.
+		long p00 = context.period00, p01 = context.period01, p10 = context.period10, p11 = context.period11;
+		long determinant = p00 * p11 - p01 * p10;
+		long sign = determinant > 0 ? 1 : -1, cells = Math.abs(determinant);
+		int xsv0 = (int)Math.min(Math.min(0, p00), Math.min(p01, p00 + p01)), xsv1 = (int)Math.max(Math.max(0, p00), Math.max(p01, p00 + p01));
+		int ysv0 = (int)Math.min(Math.min(0, p10), Math.min(p11, p10 + p11)), ysv1 = (int)Math.max(Math.max(0, p10), Math.max(p11, p10 + p11));
+		List<AreaGenLatticePoint2D> vertices = new ArrayList<AreaGenLatticePoint2D>();
+		for (int ysv = ysv0; ysv <= ysv1; ysv++) {
+			for (int xsv = xsv0; xsv <= xsv1; xsv++) {
+				long s = sign * (p11 * xsv - p01 * ysv), t = sign * (p00 * ysv - p10 * xsv);
+				if (s >= 0 && s < cells && t >= 0 && t < cells) {
+					vertices.add(new AreaGenLatticePoint2D(context, xsv, ysv));
+				}
+			}
+		}
 		
-		int x0rb = fastFloor(x0r), y0rb = fastFloor(y0r), z0rb = fastFloor(z0r);
+		for (AreaGenLatticePoint2D point : vertices) {
+			
+			// Every copy whose kernel reaches the area.
+			int ix0 = Math.floorDiv(x0Skipped - scaledRadiusX - point.destPointX + periodWidth - 1, periodWidth);
+			int ix1 = Math.floorDiv(x0 + width - 1 + scaledRadiusX - point.destPointX, periodWidth);
+			int iy0 = Math.floorDiv(y0Skipped - scaledRadiusY - point.destPointY + periodHeight - 1, periodHeight);
+			int iy1 = Math.floorDiv(y0 + height - 1 + scaledRadiusY - point.destPointY, periodHeight);
+			for (int iy = iy0; iy <= iy1; iy++) {
+				int destPointY = point.destPointY + iy * periodHeight;
+				for (int ix = ix0; ix <= ix1; ix++) {
+					int destPointX = point.destPointX + ix * periodWidth;
+					verticesVisited++;
+					
+					long stampStart = stats != null ? System.nanoTime() : 0;
+					cellsStamped += stamper.stamp(point.xsv, point.ysv, destPointX, destPointY);
+					if (stats != null) stampNanos += System.nanoTime() - stampStart;
+				}
+			}
+		}
 		
-		AreaGenLatticePoint3D firstPoint = new AreaGenLatticePoint3D(context, x0rb, y0rb, z0rb, 0);
-		queue.add(firstPoint);
-		seen.add(firstPoint);
+		if (stats != null) {
+			stats.record(verticesVisited, 0, 0, cellsStamped, System.nanoTime() - startNanos - stampNanos, stampNanos);
+		}
+		if (event.shouldCommit()) {
+			event.orientation = context.orientation.name();
+			event.m00 = context.m00; event.m01 = context.m01;
+			event.m10 = context.m10; event.m11 = context.m11;
+			event.amplitude = context.amplitude;
+			event.x0 = x0; event.y0 = y0;
+			event.width = width; event.height = height;
+			event.derivatives = bufferDx != null;
+			event.vertices = verticesVisited;
+			event.cellsStamped = cellsStamped;
+			event.commit();
+		}
+	}
+	
+	// It seems that it's better for performance, to create a local copy.
+	// - Slightly faster than generating the kernel here.
+	// - Much faster than referencing it directly from the context object.
+	// - Much faster than computing the kernel equation every time.
+	// You can remove the calls if you find it's the opposite for you.
+	// Rows the context shares between mirrored halves stay shared here.
+	private static double[][] kernelCopy(GenerateContext2D context) {
+		int scaledRadiusY = context.scaledRadiusY;
+		double[][] kernel = new double[scaledRadiusY * 2][];
+		for (int yy = 0; yy < scaledRadiusY * 2; yy++) {
+			int mirror = 2 * scaledRadiusY - yy - 1;
+			if (mirror < yy && context.kernel[yy] == context.kernel[mirror]) {
+				kernel[yy] = kernel[mirror];
+			} else {
+				kernel[yy] = context.kernel[yy].clone();
+			}
+		}
+		return kernel;
+	}
+	
+	/*
+	 * Stamps one vertex's contribution into a region, for generate2, generate2Periodic and generate2Tiled,
+	 * which only differ in which vertices they visit and where in the image each one lands.
+	 */
+	private class VertexStamper2D {
 		
-		while (!queue.isEmpty()) {
-			AreaGenLatticePoint3D point = queue.remove();
-			int destPointX = point.destPointX;
-			int destPointY = point.destPointY;
-			int destPointZ = point.destPointZ;
+		private GenerateContext2D context;
+		private double[][] buffer, bufferDx, bufferDy;
+		private double[][] kernel, kernelDx, kernelDy;
+		private int x0, y0, width, height, x0Skipped, y0Skipped;
+		private long kernelCells;
+		
+		private VertexStamper2D(GenerateContext2D context, double[][] buffer, double[][] bufferDx, double[][] bufferDy,
+				int x0, int y0, int width, int height, int skipX, int skipY) {
+			this.context = context;
+			this.buffer = buffer; this.bufferDx = bufferDx; this.bufferDy = bufferDy;
+			this.x0 = x0; this.y0 = y0;
+			this.width = width; this.height = height;
+			this.x0Skipped = x0 + skipX; this.y0Skipped = y0 + skipY;
+			this.kernel = kernelCopy(context);
+			
+			// Slopes of the kernel along X and Y, if derivatives were asked for.
+			if (bufferDx != null) {
+				double[][][] derivativeKernels = context.derivativeKernels();
+				kernelDx = derivativeKernels[0];
+				kernelDy = derivativeKernels[1];
+			}
+			
+			// Interior vertices stamp the whole kernel, so count its cells once instead of row by row.
+			for (int ky = context.kernelBoundsY0; ky < context.kernelBoundsY1; ky++) kernelCells += context.kernelBoundsX1[ky] - context.kernelBoundsX0[ky];
+		}
+		
+		/*
+		 * Adds the contribution of vertex (xsv, ysv), centered on (destPointX, destPointY) in the image, and returns how many cells it wrote.
+		 */
+		private long stamp(int xsv, int ysv, int destPointX, int destPointY) {
+			GenerateContext2D context = this.context;
+			double[][] buffer = this.buffer, bufferDx = this.bufferDx, bufferDy = this.bufferDy;
+			double[][] kernel = this.kernel, kernelDx = this.kernelDx, kernelDy = this.kernelDy;
+			int x0 = this.x0, y0 = this.y0, width = this.width, height = this.height, x0Skipped = this.x0Skipped, y0Skipped = this.y0Skipped;
+			int scaledRadiusX = context.scaledRadiusX;
+			int scaledRadiusY = context.scaledRadiusY;
 			
 			// Prepare gradient vector
-			int pxm = point.xsv & PMASK, pym = point.ysv & PMASK, pzm = point.zsv & PMASK;
-			Grad3 grad = context.orientation.gradients[perm[perm[perm[pxm] ^ pym] ^ pzm]];
-			double gx = grad.dx * context.xFrequency;
-			double gy = grad.dy * context.yFrequency;
-			double gz = grad.dz * context.zFrequency;
-			double gOff = 0.5 * (gx + gy + gz); // to correct for (0.5, 0.5, 0.5)-offset kernel
+			int pxm = (xsv ^ seedX) & PMASK, pym = (ysv ^ seedY) & PMASK;
+			Grad2 grad = context.orientation.gradients[perm[perm[pxm] ^ pym]];
+			double gx = grad.dx * context.m00 + grad.dy * context.m10;
+			double gy = grad.dx * context.m01 + grad.dy * context.m11;
+			double gOff = 0.5 * (gx + gy); // to correct for (0.5, 0.5)-offset kernel
 			
-			// Contribution kernel bounds.
-			int zz0 = destPointZ - scaledRadiusZ; if (zz0 < z0Skipped) zz0 = z0Skipped;
-			int zz1 = destPointZ + scaledRadiusZ; if (zz1 > z0 + depth) zz1 = z0 + depth;
+			// Vertices whose whole kernel lands inside the region don't need any clamping,
+			// and can walk the kernel rows start to end, with trip counts that only depend on the context.
+			if (kernelDx == null && destPointX - scaledRadiusX >= x0Skipped && destPointX + scaledRadiusX <= x0 + width
+					&& destPointY - scaledRadiusY >= y0Skipped && destPointY + scaledRadiusY <= y0 + height) {
+				int kernelBoundsY0 = context.kernelBoundsY0, kernelBoundsY1 = context.kernelBoundsY1;
+				int[] kernelBoundsX0 = context.kernelBoundsX0, kernelBoundsX1 = context.kernelBoundsX1;
+				int rowOffset = destPointX - scaledRadiusX - x0;
+				int columnOffset = destPointY - scaledRadiusY - y0;
+				double extrapolationOffset = gOff - gx * scaledRadiusX - gy * scaledRadiusY;
+				
+				// For each row of the contribution ellipse,
+				for (int ky = kernelBoundsY0; ky < kernelBoundsY1; ky++) {
+					double[] kernelRow = kernel[ky];
+					double[] row = buffer[ky + columnOffset];
+					double rowExtrapolation = gy * ky + extrapolationOffset;
+					
+					// For each point on that row
+					for (int kx = kernelBoundsX0[ky], kx1 = kernelBoundsX1[ky]; kx < kx1; kx++) {
+						row[kx + rowOffset] += kernelRow[kx] * (gx * kx + rowExtrapolation);
+					}
+				}
+				return kernelCells;
+			}
 			
-			// For each x/y slice of the contribution sphere,
-			for (int zz = zz0; zz < zz1; zz++) {
-				int dz = zz - destPointZ;
-				int kz = dz + scaledRadiusZ;
+			// Contribution kernel bounds
+			long cellsStamped = 0;
+			int yy0 = destPointY + context.kernelBoundsY0 - scaledRadiusY; if (yy0 < y0Skipped) yy0 = y0Skipped;
+			int yy1 = destPointY + context.kernelBoundsY1 - scaledRadiusY; if (yy1 > y0 + height) yy1 = y0 + height;
+			
+			// For each row of the contribution ellipse,
+			for (int yy = yy0; yy < yy1; yy++) {
+				int dy = yy - destPointY;
+				int ky = dy + scaledRadiusY;
 				
 				// Set up bounds so we only loop over what we need to
-				int thisScaledRadiusY = context.kernelBoundsY[kz];
-				int yy0 = destPointY - thisScaledRadiusY; if (yy0 < y0Skipped) yy0 = y0Skipped;
-				int yy1 = destPointY + thisScaledRadiusY; if (yy1 > y0 + height) yy1 = y0 + height;
-			
-				// For each row of the contribution circle,
-				for (int yy = yy0; yy < yy1; yy++) {
-					int dy = yy - destPointY;
-					int ky = dy + scaledRadiusY;
+				int xx0 = destPointX + context.kernelBoundsX0[ky] - scaledRadiusX; if (xx0 < x0Skipped) xx0 = x0Skipped;
+				int xx1 = destPointX + context.kernelBoundsX1[ky] - scaledRadiusX; if (xx1 > x0 + width) xx1 = x0 + width;
 				
-					// Set up bounds so we only loop over what we need to
-					int thisScaledRadiusX = context.kernelBoundsX[kz][ky];
-					int xx0 = destPointX - thisScaledRadiusX; if (xx0 < x0Skipped) xx0 = x0Skipped;
-					int xx1 = destPointX + thisScaledRadiusX; if (xx1 > x0 + width) xx1 = x0 + width;
+				if (xx1 > xx0) cellsStamped += xx1 - xx0;
+				
+				if (kernelDx == null) {
+					
+					// For each point on that row
+					for (int xx = xx0; xx < xx1; xx++) {
+						int dx = xx - destPointX;
+						int kx = dx + scaledRadiusX;
+						
+						// gOff accounts for our choice to offset the pre-generated kernel by (0.5, 0.5) to avoid the zero center.
+						// I found almost no difference in performance using gOff vs not (under 1ns diff per value on my system)
+						double extrapolation = gx * dx + gy * dy + gOff;
+						buffer[yy - y0][xx - x0] += kernel[ky][kx] * extrapolation;
+						
+					}
+				} else {
+					double[] kernelRow = kernel[ky], kernelRowDx = kernelDx[ky], kernelRowDy = kernelDy[ky];
+					double[] row = buffer[yy - y0], rowDx = bufferDx[yy - y0], rowDy = bufferDy[yy - y0];
 					
 					// For each point on that row
 					for (int xx = xx0; xx < xx1; xx++) {
 						int dx = xx - destPointX;
 						int kx = dx + scaledRadiusX;
-							
-						// gOff accounts for our choice to offset the pre-generated kernel by (0.5, 0.5, 0.5) to avoid the zero center.
-						double extrapolation = gx * dx + gy * dy + gz * dz + gOff;
-						buffer[zz - z0][yy - y0][xx - x0] += kernel[kz][ky][kx] * extrapolation;
 						
+						// Product rule: the kernel's slope times the extrapolation, plus the kernel times the gradient.
+						double extrapolation = gx * dx + gy * dy + gOff;
+						double k = kernelRow[kx];
+						row[xx - x0] += k * extrapolation;
+						rowDx[xx - x0] += kernelRowDx[kx] * extrapolation + k * gx;
+						rowDy[xx - x0] += kernelRowDy[kx] * extrapolation + k * gy;
 					}
 				}
 			}
+			return cellsStamped;
+		}
+	}
+	
+	/**
+	 * Generate the 2D noise over an area of any height, handing each row to the consumer, in order, as soon as it's done.
+	 * Only one band of about twice the kernel height is kept in memory, so the image height doesn't matter.
+	 * The row array is reused once accept returns, so copy it if you need to keep it.
+	 */
+	public void generate2Rows(GenerateContext2D context, RowConsumer consumer, int x0, int y0, int width, int height) {
+		
+		// Every vertex that can reach a band is flood-filled for that band, so some are visited twice.
+		// Bands of twice the kernel height keep that down, without costing much memory.
+		int bandHeight = Math.max(2 * context.scaledRadiusY, 1);
+		if (bandHeight > height) bandHeight = height;
+		double[][] band = new double[bandHeight][width];
+		
+		for (int by = 0; by < height; by += bandHeight) {
+			int rows = Math.min(bandHeight, height - by);
+			for (int y = 0; y < rows; y++) {
+				Arrays.fill(band[y], 0);
+			}
 			
-			// For each neighbor of the point
-			for (int i = 0; i < NEIGHBOR_MAP_3D[0].length; i++) {
-				int l = point.lattice;
-				AreaGenLatticePoint3D neighbor = new AreaGenLatticePoint3D(context,
-						point.xsv + NEIGHBOR_MAP_3D[l][i][0], point.ysv + NEIGHBOR_MAP_3D[l][i][1], point.zsv + NEIGHBOR_MAP_3D[l][i][2], 1 ^ l);
-						
-				// If it's in range of the buffer region and not seen before
-				if (neighbor.destPointX + scaledRadiusX >= x0Skipped && neighbor.destPointX - scaledRadiusX <= x0 + width - 1
-						&& neighbor.destPointY + scaledRadiusY >= y0Skipped && neighbor.destPointY - scaledRadiusY <= y0 + height - 1
-						&& neighbor.destPointZ + scaledRadiusZ >= z0Skipped && neighbor.destPointZ - scaledRadiusZ <= z0 + depth - 1
-						&& !seen.contains(neighbor)) {
-					
-					// Add it to the queue so we can process it at some point
-					queue.add(neighbor);
-					
-					// Add it to the set so we don't add it to the queue again
-					seen.add(neighbor);
-				}
+			// The flood-fill already clips to the buffer, so each band is its own small area generation.
+			generate2(context, band, x0, y0 + by, width, rows, 0, 0);
+			
+			for (int y = 0; y < rows; y++) {
+				consumer.accept(by + y, band[y]);
 			}
 		}
 	}
 	
-	/*
-	 * Utility
+	/**
+	 * Receives finished rows from generate2Rows. y is relative to the requested area, like a buffer index.
 	 */
+	public interface RowConsumer {
+		void accept(int y, double[] row);
+	}
 	
-	private static int fastFloor(double x) {
-		int xi = (int)x;
-		return x < xi ? xi - 1 : xi;
+	// A 2D tile of doubles stays in L2 between generating it and processing it. 3D bricks are bigger than that,
+	// since smaller ones flood-fill too many of the vertices around their edges again, and that costs more than the cache misses.
+	private static final int PROCESSED_TILE_SIZE_2D = 128;
+	private static final int PROCESSED_TILE_SIZE_3D = 64;
+	
+	/**
+	 * Generate the 2D noise over an area, running post's operations on every sample and putting the result in the buffer
+	 * by post's write mode. It goes one tile at a time, so each sample is generated, processed, written and reduced
+	 * while it's still in cache, instead of the buffer being streamed through again for each of those afterwards.
+	 * The buffer doesn't need clearing first for WriteMode.Overwrite. Pass null for reduction to not collect one.
+	 */
+	public void generate2Processed(GenerateContext2D context, double[][] buffer, int x0, int y0, PostProcess post, Reduction reduction) {
+		int height = buffer.length;
+		int width = buffer[0].length;
+		generate2Processed(context, buffer, x0, y0, width, height, post, reduction);
 	}
 	
-	/*
-	 * Definitions
+	/**
+	 * Generate the 2D noise over an area, running post's operations on every sample and putting the result in the buffer
+	 * by post's write mode, one tile at a time while it's still in cache. Pass null for reduction to not collect one.
 	 */
-
+	public void generate2Processed(GenerateContext2D context, double[][] buffer, int x0, int y0, int width, int height,
+			PostProcess post, Reduction reduction) {
+		
+		// Vertices near a tile edge are flood-filled for each tile they reach, but every pixel is still only stamped once per vertex.
+		int tileWidth = Math.min(width, PROCESSED_TILE_SIZE_2D), tileHeight = Math.min(height, PROCESSED_TILE_SIZE_2D);
+		double[][] tile = new double[tileHeight][tileWidth];
+		
+		for (int ty = 0; ty < height; ty += tileHeight) {
+			int rows = Math.min(tileHeight, height - ty);
+			for (int tx = 0; tx < width; tx += tileWidth) {
+				int columns = Math.min(tileWidth, width - tx);
+				for (int y = 0; y < rows; y++) {
+					Arrays.fill(tile[y], 0);
+				}
+				generate2(context, tile, x0 + tx, y0 + ty, columns, rows, 0, 0);
+				for (int y = 0; y < rows; y++) {
+					post.process(tile[y], buffer[ty + y], tx, columns, reduction);
+				}
+			}
+		}
+	}
+	
+	// Fixed point values are the noise times 2^FIXED_SHIFT, rounded.
+	public static final int FIXED_SHIFT = 16;
+	
+	/**
+	 * Generate the 2D noise over a large area in fixed point, adding the noise times 2^FIXED_SHIFT to each int in the buffer.
+	 * Every vertex's contribution to every pixel is worked out in integers and added exactly, so the result doesn't depend on
+	 * the order vertices are visited in, or on how the area is split between calls or threads, and is the same on every machine.
+	 */
+	public void generate2Fixed(GenerateContext2D context, int[][] buffer, int x0, int y0) {
+		int height = buffer.length;
+		int width = buffer[0].length;
+		generate2Fixed(context, buffer, x0, y0, width, height);
+	}
+	
+	/**
+	 * Generate the 2D noise over a large area in fixed point, adding the noise times 2^FIXED_SHIFT to each int in the buffer.
+	 * The kernel and gradients are quantized once per context, so the result differs from generate2 by about 1e-4.
+	 */
+	public void generate2Fixed(GenerateContext2D context, int[][] buffer, int x0, int y0, int width, int height) {
+		if (context.periodWidth != 0) throw new IllegalArgumentException("generate2Fixed doesn't support periodic contexts, use generate2.");
+		Queue<AreaGenLatticePoint2D> queue = new LinkedList<AreaGenLatticePoint2D>();
+		Set<AreaGenLatticePoint2D> seen = new HashSet<AreaGenLatticePoint2D>();
+		
+		int[][] kernel = context.fixedKernel();
+		int[] gradientsX = context.fixedGradientsX, gradientsY = context.fixedGradientsY;
+		int gradientShift = context.fixedGradientShift, outputShift = context.fixedOutputShift;
+		int rounding = 1 << (outputShift - 1);
+		int scaledRadiusX = context.scaledRadiusX;
+		int scaledRadiusY = context.scaledRadiusY;
+		int kernelBoundsY0 = context.kernelBoundsY0, kernelBoundsY1 = context.kernelBoundsY1;
+		int[] kernelBoundsX0 = context.kernelBoundsX0, kernelBoundsX1 = context.kernelBoundsX1;
+		
+		double x0f = context.m00 * x0 + context.m01 * y0;
+		double y0f = context.m10 * x0 + context.m11 * y0;
+		double x0s = context.orientation.s00 * x0f + context.orientation.s01 * y0f;
+		double y0s = context.orientation.s10 * x0f + context.orientation.s11 * y0f;
+		AreaGenLatticePoint2D firstPoint = new AreaGenLatticePoint2D(context, fastFloor(x0s), fastFloor(y0s));
+		queue.add(firstPoint);
+		seen.add(firstPoint);
+		
+		while (!queue.isEmpty()) {
+			AreaGenLatticePoint2D point = queue.remove();
+			int destPointX = point.destPointX;
+			int destPointY = point.destPointY;
+			
+			// Twice the extrapolation at pixel center (kx + 0.5 - rx, ky + 0.5 - ry) of the kernel, at the gradients' finer scale,
+			// is 2 * gx * kx + 2 * gy * ky + gx * (1 - 2 * rx) + gy * (1 - 2 * ry). Each pixel's value only depends on kx and ky,
+			// so it comes out the same no matter which area the vertex is stamped into.
+			int pxm = (point.xsv ^ seedX) & PMASK, pym = (point.ysv ^ seedY) & PMASK;
+			int gradient = perm[perm[pxm] ^ pym];
+			int gx = gradientsX[gradient], gy = gradientsY[gradient];
+			int gx2 = 2 * gx;
+			int extrapolationOffset = gx * (1 - 2 * scaledRadiusX) + gy * (1 - 2 * scaledRadiusY);
+			
+			// Interior vertices and ones on the edge share a loop, since clamping the kernel range is all that differs.
+			int rowOffset = destPointX - scaledRadiusX - x0;
+			int columnOffset = destPointY - scaledRadiusY - y0;
+			int ky0 = Math.max(kernelBoundsY0, -columnOffset), ky1 = Math.min(kernelBoundsY1, height - columnOffset);
+			for (int ky = ky0; ky < ky1; ky++) {
+				int[] kernelRow = kernel[ky];
+				int[] row = buffer[ky + columnOffset];
+				int rowExtrapolation = 2 * gy * ky + extrapolationOffset;
+				int kx0 = Math.max(kernelBoundsX0[ky], -rowOffset), kx1 = Math.min(kernelBoundsX1[ky], width - rowOffset);
+				for (int kx = kx0; kx < kx1; kx++) {
+					int extrapolation = (gx2 * kx + rowExtrapolation) >> gradientShift;
+					row[kx + rowOffset] += (kernelRow[kx] * extrapolation + rounding) >> outputShift;
+				}
+			}
+			
+			// For each neighbor of the point
+			for (int i = 0; i < NEIGHBOR_MAP_2D.length; i++) {
+				AreaGenLatticePoint2D neighbor = new AreaGenLatticePoint2D(context,
+						point.xsv + NEIGHBOR_MAP_2D[i][0], point.ysv + NEIGHBOR_MAP_2D[i][1]);
+				
+				// If it's in range of the buffer region and not seen before
+				if (neighbor.destPointX + scaledRadiusX >= x0 && neighbor.destPointX - scaledRadiusX <= x0 + width - 1
+						&& neighbor.destPointY + scaledRadiusY >= y0 && neighbor.destPointY - scaledRadiusY <= y0 + height - 1
+						&& !seen.contains(neighbor)) {
+					queue.add(neighbor);
+					seen.add(neighbor);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Generate the 2D noise at several levels of a mip pyramid in one traversal, sharing the vertices and gradients between them.
+	 * levels[i] is level firstLevel + i, whose pixels are 2^level full resolution pixels across, so it needs to be
+	 * ceil(width / 2^level) by ceil(height / 2^level). (x0, y0, width, height) is the area at full resolution,
+	 * and x0 and y0 have to be multiples of the coarsest level's 2^level, so that every level lines up with the area.
+	 * Each pixel of a level covers a 2^level by 2^level block of full resolution pixels, and is sampled at its center,
+	 * like a texture's mip levels. Like generate2, vertices snap to each level's own pixel grid.
+	 */
+	public void generate2Pyramid(GenerateContext2D context, double[][][] levels, int firstLevel, int x0, int y0, int width, int height) {
+		if (context.periodWidth != 0) throw new IllegalArgumentException("generate2Pyramid doesn't support periodic contexts, use generate2.");
+		int levelCount = levels.length;
+		int alignment = 1 << (firstLevel + levelCount - 1);
+		if ((x0 & (alignment - 1)) != 0 || (y0 & (alignment - 1)) != 0) {
+			throw new IllegalArgumentException("x0 and y0 need to be multiples of " + alignment + " for these levels.");
+		}
+		GenerateContext2D[] contexts = new GenerateContext2D[levelCount];
+		int[] levelWidths = new int[levelCount], levelHeights = new int[levelCount];
+		double[] scales = new double[levelCount], centers = new double[levelCount];
+		for (int i = 0; i < levelCount; i++) {
+			int level = firstLevel + i;
+			contexts[i] = context.pyramidLevel(level);
+			levelWidths[i] = ((width - 1) >> level) + 1;
+			levelHeights[i] = ((height - 1) >> level) + 1;
+			if (levels[i].length < levelHeights[i] || levels[i][0].length < levelWidths[i]) {
+				throw new IllegalArgumentException("Level " + level + " needs a buffer of at least " + levelWidths[i] + "x" + levelHeights[i] + ".");
+			}
+			scales[i] = 1 << level;
+			centers[i] = ((1 << level) - 1) * 0.5;
+		}
+		
+		Queue<AreaGenLatticePoint2D> queue = new LinkedList<AreaGenLatticePoint2D>();
+		Set<AreaGenLatticePoint2D> seen = new HashSet<AreaGenLatticePoint2D>();
+		
+		// Start from the first level's first pixel, rather than the corner, since that's where it samples.
+		double xc = x0 + centers[0], yc = y0 + centers[0];
+		double x0f = context.m00 * xc + context.m01 * yc;
+		double y0f = context.m10 * xc + context.m11 * yc;
+		double x0s = context.orientation.s00 * x0f + context.orientation.s01 * y0f;
+		double y0s = context.orientation.s10 * x0f + context.orientation.s11 * y0f;
+		AreaGenLatticePoint2D firstPoint = new AreaGenLatticePoint2D(context, fastFloor(x0s), fastFloor(y0s));
+		queue.add(firstPoint);
+		seen.add(firstPoint);
+		
+		// First find every vertex any level needs, with its gradient, and where it lands at full resolution before any rounding.
+		// Then stamp them into one level at a time, which keeps each level's loops as tight as generate2's.
+		int count = 0;
+		double[] vertexX = new double[256], vertexY = new double[256], vertexGx = new double[256], vertexGy = new double[256];
+		while (!queue.isEmpty()) {
+			AreaGenLatticePoint2D point = queue.remove();
+			if (count == vertexX.length) {
+				vertexX = Arrays.copyOf(vertexX, count * 2); vertexY = Arrays.copyOf(vertexY, count * 2);
+				vertexGx = Arrays.copyOf(vertexGx, count * 2); vertexGy = Arrays.copyOf(vertexGy, count * 2);
+			}
+			
+			// Prepare gradient vector
+			int pxm = (point.xsv ^ seedX) & PMASK, pym = (point.ysv ^ seedY) & PMASK;
+			Grad2 grad = context.orientation.gradients[perm[perm[pxm] ^ pym]];
+			vertexGx[count] = grad.dx * context.m00 + grad.dy * context.m10;
+			vertexGy[count] = grad.dx * context.m01 + grad.dy * context.m11;
+			double xu = context.orientation.t00 * point.xsv + context.orientation.t01 * point.ysv;
+			double yu = context.orientation.t10 * point.xsv + context.orientation.t11 * point.ysv;
+			vertexX[count] = context.inverse00 * xu + context.inverse01 * yu;
+			vertexY[count] = context.inverse10 * xu + context.inverse11 * yu;
+			count++;
+			
+			// For each neighbor of the point
+			for (int n = 0; n < NEIGHBOR_MAP_2D.length; n++) {
+				AreaGenLatticePoint2D neighbor = new AreaGenLatticePoint2D(context,
+						point.xsv + NEIGHBOR_MAP_2D[n][0], point.ysv + NEIGHBOR_MAP_2D[n][1]);
+				if (seen.contains(neighbor)) continue;
+				
+				// If it's in range of any level
+				xu = context.orientation.t00 * neighbor.xsv + context.orientation.t01 * neighbor.ysv;
+				yu = context.orientation.t10 * neighbor.xsv + context.orientation.t11 * neighbor.ysv;
+				double px = context.inverse00 * xu + context.inverse01 * yu;
+				double py = context.inverse10 * xu + context.inverse11 * yu;
+				for (int i = 0; i < levelCount; i++) {
+					int level = firstLevel + i;
+					int destPointX = (int)Math.ceil((px - centers[i]) / scales[i]) - (x0 >> level);
+					int destPointY = (int)Math.ceil((py - centers[i]) / scales[i]) - (y0 >> level);
+					int scaledRadiusX = contexts[i].scaledRadiusX, scaledRadiusY = contexts[i].scaledRadiusY;
+					if (destPointX + scaledRadiusX >= 0 && destPointX - scaledRadiusX <= levelWidths[i] - 1
+							&& destPointY + scaledRadiusY >= 0 && destPointY - scaledRadiusY <= levelHeights[i] - 1) {
+						queue.add(neighbor);
+						seen.add(neighbor);
+						break;
+					}
+				}
+			}
+		}
+		
+		for (int i = 0; i < levelCount; i++) {
+			int level = firstLevel + i;
+			stampPyramidLevel(contexts[i], levels[i], x0 >> level, y0 >> level, levelWidths[i], levelHeights[i], scales[i], centers[i],
+					vertexX, vertexY, vertexGx, vertexGy, count);
+		}
+	}
+	
+	/*
+	 * One level's pass over the vertices generate2Pyramid found, in that level's own pixel coordinates.
+	 */
+	private static void stampPyramidLevel(GenerateContext2D levelContext, double[][] buffer, int x0, int y0, int width, int height,
+			double scale, double center, double[] vertexX, double[] vertexY, double[] vertexGx, double[] vertexGy, int count) {
+		int scaledRadiusX = levelContext.scaledRadiusX, scaledRadiusY = levelContext.scaledRadiusY;
+		int[] kernelBoundsX0 = levelContext.kernelBoundsX0, kernelBoundsX1 = levelContext.kernelBoundsX1;
+		int kernelBoundsY0 = levelContext.kernelBoundsY0, kernelBoundsY1 = levelContext.kernelBoundsY1;
+		
+		// The same local copy of the kernel as generate2.
+		double[][] kernel = kernelCopy(levelContext);
+		
+		for (int v = 0; v < count; v++) {
+			stampPyramidVertex(buffer, kernel, kernelBoundsX0, kernelBoundsX1, kernelBoundsY0, kernelBoundsY1, scaledRadiusX, scaledRadiusY,
+					x0, y0, width, height, scale, center, vertexX[v], vertexY[v], vertexGx[v], vertexGy[v]);
+		}
+	}
+	
+	/*
+	 * The same stamping as generate2. It's in its own method because C2 vectorized it noticeably worse
+	 * when it was the whole body of the loop over the vertices.
+	 */
+	private static void stampPyramidVertex(double[][] buffer, double[][] kernel, int[] kernelBoundsX0, int[] kernelBoundsX1,
+			int kernelBoundsY0, int kernelBoundsY1, int scaledRadiusX, int scaledRadiusY, int x0, int y0, int width, int height,
+			double scale, double center, double vertexX, double vertexY, double vertexGx, double vertexGy) {
+		int destPointX = (int)Math.ceil((vertexX - center) / scale);
+		int destPointY = (int)Math.ceil((vertexY - center) / scale);
+		
+		// Each level's pixels are 2^level times as far apart, so its slopes are that much steeper.
+		double gx = vertexGx * scale, gy = vertexGy * scale;
+		double gOff = 0.5 * (gx + gy); // to correct for (0.5, 0.5)-offset kernel
+		
+		if (destPointX - scaledRadiusX >= x0 && destPointX + scaledRadiusX <= x0 + width
+				&& destPointY - scaledRadiusY >= y0 && destPointY + scaledRadiusY <= y0 + height) {
+			int rowOffset = destPointX - scaledRadiusX - x0;
+			int columnOffset = destPointY - scaledRadiusY - y0;
+			double extrapolationOffset = gOff - gx * scaledRadiusX - gy * scaledRadiusY;
+			for (int ky = kernelBoundsY0, ky1 = kernelBoundsY1; ky < ky1; ky++) {
+				double[] kernelRow = kernel[ky];
+				double[] row = buffer[ky + columnOffset];
+				double rowExtrapolation = gy * ky + extrapolationOffset;
+				for (int kx = kernelBoundsX0[ky], kx1 = kernelBoundsX1[ky]; kx < kx1; kx++) {
+					row[kx + rowOffset] += kernelRow[kx] * (gx * kx + rowExtrapolation);
+				}
+			}
+		} else {
+			int yy0 = destPointY + kernelBoundsY0 - scaledRadiusY; if (yy0 < y0) yy0 = y0;
+			int yy1 = destPointY + kernelBoundsY1 - scaledRadiusY; if (yy1 > y0 + height) yy1 = y0 + height;
+			for (int yy = yy0; yy < yy1; yy++) {
+				int dy = yy - destPointY;
+				int ky = dy + scaledRadiusY;
+				int xx0 = destPointX + kernelBoundsX0[ky] - scaledRadiusX; if (xx0 < x0) xx0 = x0;
+				int xx1 = destPointX + kernelBoundsX1[ky] - scaledRadiusX; if (xx1 > x0 + width) xx1 = x0 + width;
+				double[] kernelRow = kernel[ky];
+				double[] row = buffer[yy - y0];
+				for (int xx = xx0; xx < xx1; xx++) {
+					int dx = xx - destPointX;
+					row[xx - x0] += kernelRow[dx + scaledRadiusX] * (gx * dx + gy * dy + gOff);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Generate the 2D noise at full resolution and every level below it, down to levels.length - 1, in one traversal.
+	 * levels[0] sets the size of the area. Allocate the rest with pyramid2Buffers, or to the sizes generate2Pyramid describes.
+	 */
+	public void generate2Pyramid(GenerateContext2D context, double[][][] levels, int x0, int y0) {
+		generate2Pyramid(context, levels, 0, x0, y0, levels[0][0].length, levels[0].length);
+	}
+	
+	/**
+	 * Buffers for levels firstLevel to firstLevel + levelCount - 1 of a width by height pyramid, each half the size of the last.
+	 */
+	public static double[][][] pyramid2Buffers(int width, int height, int firstLevel, int levelCount) {
+		double[][][] levels = new double[levelCount][][];
+		for (int i = 0; i < levelCount; i++) {
+			int level = firstLevel + i;
+			levels[i] = new double[((height - 1) >> level) + 1][((width - 1) >> level) + 1];
+		}
+		return levels;
+	}
+	
+	/**
+	 * Generate the 2D noise only where the mask is set, with the mask's (0, 0) at (x0, y0).
+	 * Vertices whose kernel can't reach the mask are never visited, and stamps only touch the mask's spans,
+	 * so the cost follows the masked area instead of the bounding rectangle. Pixels outside the mask are left as they were.
+	 * The buffer needs to be at least the mask's size.
+	 */
+	public void generate2Masked(GenerateContext2D context, double[][] buffer, Mask2D mask, int x0, int y0) {
+		generate2Masked(context, buffer, mask, x0, y0, null);
+	}
+	
+	/**
+	 * Generate the 2D noise only where the mask is set, adding what the traversal did to stats. See above.
+	 */
+	public void generate2Masked(GenerateContext2D context, double[][] buffer, Mask2D mask, int x0, int y0, GenerationStats stats) {
+		if (context.periodWidth != 0) throw new IllegalArgumentException("generate2Masked doesn't support periodic contexts, use generate2.");
+		if (buffer.length < mask.height || buffer[0].length < mask.width) {
+			throw new IllegalArgumentException("Buffer is smaller than the mask (" + mask.width + "x" + mask.height + ")");
+		}
+		Generate2Event event = new Generate2Event();
+		event.begin();
+		long startNanos = stats != null ? System.nanoTime() : 0;
+		long verticesVisited = 0, probesOutOfRange = 0, probesAlreadySeen = 0, cellsStamped = 0, stampNanos = 0;
+		
+		Queue<AreaGenLatticePoint2D> queue = new LinkedList<AreaGenLatticePoint2D>();
+		Set<AreaGenLatticePoint2D> seen = new HashSet<AreaGenLatticePoint2D>();
+		
+		int scaledRadiusX = context.scaledRadiusX;
+		int scaledRadiusY = context.scaledRadiusY;
+		int kernelBoundsY0 = context.kernelBoundsY0, kernelBoundsY1 = context.kernelBoundsY1;
+		int[] kernelBoundsX0 = context.kernelBoundsX0, kernelBoundsX1 = context.kernelBoundsX1;
+		int[][] spans = mask.spans;
+		
+		// The same local copy of the kernel as generate2.
+		double[][] kernel = kernelCopy(context);
+		
+		// Start from a masked pixel in every block that has one, the same way generate2 starts from its first pixel,
+		// so that parts of the mask which don't touch each other each get a start too.
+		for (int block = 0; block < mask.blockSeedX.length; block++) {
+			if (mask.blockSeedX[block] < 0) continue;
+			int seedPixelX = x0 + mask.blockSeedX[block], seedPixelY = y0 + mask.blockSeedY[block];
+			double xf = context.m00 * seedPixelX + context.m01 * seedPixelY;
+			double yf = context.m10 * seedPixelX + context.m11 * seedPixelY;
+			double xs = context.orientation.s00 * xf + context.orientation.s01 * yf;
+			double ys = context.orientation.s10 * xf + context.orientation.s11 * yf;
+			AreaGenLatticePoint2D seedPoint = new AreaGenLatticePoint2D(context, fastFloor(xs), fastFloor(ys));
+			if (seen.add(seedPoint)) queue.add(seedPoint);
+		}
+		
+		while (!queue.isEmpty()) {
+			AreaGenLatticePoint2D point = queue.remove();
+			verticesVisited++;
+			int destPointX = point.destPointX;
+			int destPointY = point.destPointY;
+			
+			// Prepare gradient vector
+			int pxm = (point.xsv ^ seedX) & PMASK, pym = (point.ysv ^ seedY) & PMASK;
+			Grad2 grad = context.orientation.gradients[perm[perm[pxm] ^ pym]];
+			double gx = grad.dx * context.m00 + grad.dy * context.m10;
+			double gy = grad.dx * context.m01 + grad.dy * context.m11;
+			double gOff = 0.5 * (gx + gy); // to correct for (0.5, 0.5)-offset kernel
+			
+			long stampStart = stats != null ? System.nanoTime() : 0;
+			
+			// Contribution kernel bounds, in mask coordinates
+			int yy0 = destPointY + kernelBoundsY0 - scaledRadiusY - y0; if (yy0 < 0) yy0 = 0;
+			int yy1 = destPointY + kernelBoundsY1 - scaledRadiusY - y0; if (yy1 > mask.height) yy1 = mask.height;
+			
+			// For each row of the contribution ellipse, and each span of the mask on it
+			for (int yy = yy0; yy < yy1; yy++) {
+				int ky = yy + y0 - destPointY + scaledRadiusY;
+				int xx0 = destPointX + kernelBoundsX0[ky] - scaledRadiusX - x0;
+				int xx1 = destPointX + kernelBoundsX1[ky] - scaledRadiusX - x0;
+				int[] rowSpans = spans[yy];
+				double[] kernelRow = kernel[ky];
+				double[] row = buffer[yy];
+				int kernelOffset = x0 - destPointX + scaledRadiusX;
+				double rowExtrapolation = gy * (yy + y0 - destPointY) + gOff - gx * (destPointX - x0);
+				for (int s = Mask2D.firstSpan(rowSpans, xx0); s < rowSpans.length && rowSpans[s] < xx1; s += 2) {
+					int sx0 = Math.max(rowSpans[s], xx0), sx1 = Math.min(rowSpans[s + 1], xx1);
+					cellsStamped += sx1 - sx0;
+					for (int xx = sx0; xx < sx1; xx++) {
+						row[xx] += kernelRow[xx + kernelOffset] * (gx * xx + rowExtrapolation);
+					}
+				}
+			}
+			if (stats != null) stampNanos += System.nanoTime() - stampStart;
+			
+			// For each neighbor of the point
+			for (int i = 0; i < NEIGHBOR_MAP_2D.length; i++) {
+				AreaGenLatticePoint2D neighbor = new AreaGenLatticePoint2D(context,
+						point.xsv + NEIGHBOR_MAP_2D[i][0], point.ysv + NEIGHBOR_MAP_2D[i][1]);
+				
+				// If its kernel's bounding box reaches the mask and it's not seen before
+				if (seen.contains(neighbor)) {
+					probesAlreadySeen++;
+				} else if (mask.intersects(neighbor.destPointX - scaledRadiusX - x0, neighbor.destPointY - scaledRadiusY - y0,
+						neighbor.destPointX + scaledRadiusX - x0, neighbor.destPointY + scaledRadiusY - y0)) {
+					queue.add(neighbor);
+					seen.add(neighbor);
+				} else {
+					probesOutOfRange++;
+				}
+			}
+		}
+		
+		if (stats != null) {
+			long totalNanos = System.nanoTime() - startNanos;
+			stats.record(verticesVisited, probesOutOfRange, probesAlreadySeen, cellsStamped, totalNanos - stampNanos, stampNanos);
+		}
+		if (event.shouldCommit()) {
+			event.orientation = context.orientation.name();
+			event.m00 = context.m00; event.m01 = context.m01;
+			event.m10 = context.m10; event.m11 = context.m11;
+			event.amplitude = context.amplitude;
+			event.x0 = x0; event.y0 = y0;
+			event.width = mask.width; event.height = mask.height;
+			event.vertices = verticesVisited;
+			event.cellsStamped = cellsStamped;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Generate the 2D noise for several seeds at once, one instance per channel, into one buffer per channel (buffers[channel][y][x]).
+	 * The vertices, kernel and bounds are the same for every seed, so the lattice is only walked once. Only the gradients differ.
+	 */
+	public static void generate2Channels(OpenSimplex2S[] noises, GenerateContext2D context, double[][][] buffers, int x0, int y0) {
+		int height = buffers[0].length;
+		int width = buffers[0][0].length;
+		generate2Channels(noises, context, buffers, x0, y0, width, height, 0, 0);
+	}
+	
+	/**
+	 * Generate the 2D noise for several seeds at once, one instance per channel, into one buffer per channel (buffers[channel][y][x]).
+	 * The vertices, kernel and bounds are the same for every seed, so the lattice is only walked once. Only the gradients differ.
+	 */
+	public static void generate2Channels(OpenSimplex2S[] noises, GenerateContext2D context, double[][][] buffers,
+			int x0, int y0, int width, int height, int skipX, int skipY) {
+		generate2Channels(noises, context, buffers, null, x0, y0, width, height, skipX, skipY);
+	}
+	
+	/**
+	 * Generate the 2D noise for several seeds at once, one instance per channel, into one interleaved buffer.
+	 * Channel c of pixel (x, y) is at buffer[y][x * noises.length + c].
+	 */
+	public static void generate2Interleaved(OpenSimplex2S[] noises, GenerateContext2D context, double[][] buffer, int x0, int y0) {
+		int height = buffer.length;
+		int width = buffer[0].length / noises.length;
+		generate2Interleaved(noises, context, buffer, x0, y0, width, height, 0, 0);
+	}
+	
+	/**
+	 * Generate the 2D noise for several seeds at once, one instance per channel, into one interleaved buffer.
+	 * Channel c of pixel (x, y) is at buffer[y][x * noises.length + c].
+	 */
+	public static void generate2Interleaved(OpenSimplex2S[] noises, GenerateContext2D context, double[][] buffer,
+			int x0, int y0, int width, int height, int skipX, int skipY) {
+		generate2Channels(noises, context, null, buffer, x0, y0, width, height, skipX, skipY);
+	}
+	
+	private static void generate2Channels(OpenSimplex2S[] noises, GenerateContext2D context, double[][][] buffers, double[][] interleaved,
+			int x0, int y0, int width, int height, int skipX, int skipY) {
+		if (context.periodWidth != 0) throw new IllegalArgumentException("generate2Channels and generate2Interleaved don't support periodic contexts, use generate2.");
+		Queue<AreaGenLatticePoint2D> queue = new LinkedList<AreaGenLatticePoint2D>();
+		Set<AreaGenLatticePoint2D> seen = new HashSet<AreaGenLatticePoint2D>();
+		
+		int channels = noises.length;
+		int scaledRadiusX = context.scaledRadiusX;
+		int scaledRadiusY = context.scaledRadiusY;
+		double[][] kernel = context.kernel;
+		int x0Skipped = x0 + skipX, y0Skipped = y0 + skipY;
+		
+		List<AreaGenLatticePoint2D> vertices = new ArrayList<AreaGenLatticePoint2D>();
+		
+		// Same starting point as generate2.
+		double x0f = context.m00 * x0Skipped + context.m01 * y0Skipped;
+		double y0f = context.m10 * x0Skipped + context.m11 * y0Skipped;
+		double x0s = context.orientation.s00 * x0f + context.orientation.s01 * y0f;
+		double y0s = context.orientation.s10 * x0f + context.orientation.s11 * y0f;
+		AreaGenLatticePoint2D firstPoint = new AreaGenLatticePoint2D(context, fastFloor(x0s), fastFloor(y0s));
+		queue.add(firstPoint);
+		seen.add(firstPoint);
+		
+		// First only find the vertices, with the same flood-fill.
+		while (!queue.isEmpty()) {
+			AreaGenLatticePoint2D point = queue.remove();
+			vertices.add(point);
+			
+			// For each neighbor of the point
+			for (int i = 0; i < NEIGHBOR_MAP_2D.length; i++) {
+				AreaGenLatticePoint2D neighbor = new AreaGenLatticePoint2D(context,
+						point.xsv + NEIGHBOR_MAP_2D[i][0], point.ysv + NEIGHBOR_MAP_2D[i][1]);
+				
+				// If it's in range of the buffer region and not seen before
+				if (neighbor.destPointX + scaledRadiusX >= x0Skipped && neighbor.destPointX - scaledRadiusX <= x0 + width - 1
+						&& neighbor.destPointY + scaledRadiusY >= y0Skipped && neighbor.destPointY - scaledRadiusY <= y0 + height - 1
+						&& !seen.contains(neighbor)) {
+					queue.add(neighbor);
+					seen.add(neighbor);
+				}
+			}
+		}
+		
+		if (interleaved == null) {
+			
+			// Two channels per pass. They share the kernel loads, and only keep two buffers' rows in cache.
+			// Stamping them all per vertex would have every kernel row touch N buffers at once.
+			for (int c = 0; c < channels; c += 2) {
+				OpenSimplex2S noiseA = noises[c], noiseB = noises[Math.min(c + 1, channels - 1)];
+				short[] permA = noiseA.perm, permB = noiseB.perm;
+				double[][] bufferA = buffers[c];
+				double[][] bufferB = c + 1 < channels ? buffers[c + 1] : null;
+				for (int v = 0; v < vertices.size(); v++) {
+					AreaGenLatticePoint2D point = vertices.get(v);
+					int destPointX = point.destPointX;
+					int destPointY = point.destPointY;
+					
+					// Prepare gradient vectors
+					int pxm = point.xsv & PMASK, pym = point.ysv & PMASK;
+					Grad2 gradA = context.orientation.gradients[permA[permA[pxm ^ noiseA.seedX] ^ pym ^ noiseA.seedY]];
+					Grad2 gradB = context.orientation.gradients[permB[permB[pxm ^ noiseB.seedX] ^ pym ^ noiseB.seedY]];
+					double gxA = gradA.dx * context.m00 + gradA.dy * context.m10;
+					double gyA = gradA.dx * context.m01 + gradA.dy * context.m11;
+					double gxB = gradB.dx * context.m00 + gradB.dy * context.m10;
+					double gyB = gradB.dx * context.m01 + gradB.dy * context.m11;
+					double gOffA = 0.5 * (gxA + gyA) - gxA * scaledRadiusX; // kernel offset, and kx instead of dx below
+					double gOffB = 0.5 * (gxB + gyB) - gxB * scaledRadiusX;
+					
+					// Contribution kernel bounds
+					int yy0 = destPointY + context.kernelBoundsY0 - scaledRadiusY; if (yy0 < y0Skipped) yy0 = y0Skipped;
+					int yy1 = destPointY + context.kernelBoundsY1 - scaledRadiusY; if (yy1 > y0 + height) yy1 = y0 + height;
+					int rowOffset = destPointX - scaledRadiusX - x0;
+					
+					// For each row of the contribution ellipse,
+					for (int yy = yy0; yy < yy1; yy++) {
+						int dy = yy - destPointY;
+						int ky = dy + scaledRadiusY;
+						
+						// Set up bounds so we only loop over what we need to
+						int kx0 = context.kernelBoundsX0[ky], kx1 = context.kernelBoundsX1[ky];
+						if (kx0 + rowOffset < skipX) kx0 = skipX - rowOffset;
+						if (kx1 + rowOffset > width) kx1 = width - rowOffset;
+						double[] kernelRow = kernel[ky];
+						double[] rowA = bufferA[yy - y0];
+						double rowExtrapolationA = gyA * dy + gOffA;
+						
+						// For each point on that row
+						if (bufferB == null) {
+							for (int kx = kx0; kx < kx1; kx++) {
+								rowA[kx + rowOffset] += kernelRow[kx] * (gxA * kx + rowExtrapolationA);
+							}
+						} else {
+							double[] rowB = bufferB[yy - y0];
+							double rowExtrapolationB = gyB * dy + gOffB;
+							for (int kx = kx0; kx < kx1; kx++) {
+								double k = kernelRow[kx];
+								rowA[kx + rowOffset] += k * (gxA * kx + rowExtrapolationA);
+								rowB[kx + rowOffset] += k * (gxB * kx + rowExtrapolationB);
+							}
+						}
+					}
+				}
+			}
+		} else {
+			
+			// Interleaved channels sit next to each other, so stamp every channel of a pixel together.
+			double[] gxs = new double[channels], gys = new double[channels], gOffs = new double[channels];
+			double[] rowExtrapolations = new double[channels];
+			for (int v = 0; v < vertices.size(); v++) {
+				AreaGenLatticePoint2D point = vertices.get(v);
+				int destPointX = point.destPointX;
+				int destPointY = point.destPointY;
+				
+				// Prepare gradient vectors, one per seed
+				int pxm = point.xsv & PMASK, pym = point.ysv & PMASK;
+				for (int c = 0; c < channels; c++) {
+					short[] perm = noises[c].perm;
+					Grad2 grad = context.orientation.gradients[perm[perm[pxm ^ noises[c].seedX] ^ pym ^ noises[c].seedY]];
+					gxs[c] = grad.dx * context.m00 + grad.dy * context.m10;
+					gys[c] = grad.dx * context.m01 + grad.dy * context.m11;
+					gOffs[c] = 0.5 * (gxs[c] + gys[c]) - gxs[c] * scaledRadiusX; // kernel offset, and kx instead of dx below
+				}
+				
+				// Contribution kernel bounds
+				int yy0 = destPointY + context.kernelBoundsY0 - scaledRadiusY; if (yy0 < y0Skipped) yy0 = y0Skipped;
+				int yy1 = destPointY + context.kernelBoundsY1 - scaledRadiusY; if (yy1 > y0 + height) yy1 = y0 + height;
+				int rowOffset = destPointX - scaledRadiusX - x0;
+				
+				// For each row of the contribution ellipse,
+				for (int yy = yy0; yy < yy1; yy++) {
+					int dy = yy - destPointY;
+					int ky = dy + scaledRadiusY;
+					
+					// Set up bounds so we only loop over what we need to
+					int kx0 = context.kernelBoundsX0[ky], kx1 = context.kernelBoundsX1[ky];
+					if (kx0 + rowOffset < skipX) kx0 = skipX - rowOffset;
+					if (kx1 + rowOffset > width) kx1 = width - rowOffset;
+					double[] kernelRow = kernel[ky];
+					double[] row = interleaved[yy - y0];
+					for (int c = 0; c < channels; c++) {
+						rowExtrapolations[c] = gys[c] * dy + gOffs[c];
+					}
+					
+					// Each kernel value once, into every channel of the pixel. The common channel counts are written out,
+					// since the JIT won't unroll a loop over a channel count it doesn't know, or drop the range checks on its stride.
+					if (channels == 2) {
+						double gx0 = gxs[0], gx1 = gxs[1], r0 = rowExtrapolations[0], r1 = rowExtrapolations[1];
+						for (int kx = kx0; kx < kx1; kx++) {
+							double k = kernelRow[kx];
+							int index = (kx + rowOffset) * 2;
+							row[index] += k * (gx0 * kx + r0);
+							row[index + 1] += k * (gx1 * kx + r1);
+						}
+					} else if (channels == 3) {
+						double gx0 = gxs[0], gx1 = gxs[1], gx2 = gxs[2];
+						double r0 = rowExtrapolations[0], r1 = rowExtrapolations[1], r2 = rowExtrapolations[2];
+						for (int kx = kx0; kx < kx1; kx++) {
+							double k = kernelRow[kx];
+							int index = (kx + rowOffset) * 3;
+							row[index] += k * (gx0 * kx + r0);
+							row[index + 1] += k * (gx1 * kx + r1);
+							row[index + 2] += k * (gx2 * kx + r2);
+						}
+					} else if (channels == 4) {
+						double gx0 = gxs[0], gx1 = gxs[1], gx2 = gxs[2], gx3 = gxs[3];
+						double r0 = rowExtrapolations[0], r1 = rowExtrapolations[1], r2 = rowExtrapolations[2], r3 = rowExtrapolations[3];
+						for (int kx = kx0; kx < kx1; kx++) {
+							double k = kernelRow[kx];
+							int index = (kx + rowOffset) * 4;
+							row[index] += k * (gx0 * kx + r0);
+							row[index + 1] += k * (gx1 * kx + r1);
+							row[index + 2] += k * (gx2 * kx + r2);
+							row[index + 3] += k * (gx3 * kx + r3);
+						}
+					} else {
+						for (int kx = kx0; kx < kx1; kx++) {
+							double k = kernelRow[kx];
+							int index = (kx + rowOffset) * channels;
+							for (int c = 0; c < channels; c++) {
+								row[index + c] += k * (gxs[c] * kx + rowExtrapolations[c]);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Generate the 3D noise over a large area/volume.
+	 * Propagates by flood-fill instead of iterating over a range.
+	 * Results may occasionally slightly exceed [-1, 1] due to the grid-snapped pre-generated kernel.
+	 */
+	public void generate3(GenerateContext3D context, double[][][] buffer, int x0, int y0, int z0) {
+		int depth = buffer.length;
+		int height = buffer[0].length;
+		int width = buffer[0][0].length;
+		generate3(context, buffer, x0, y0, z0, width, height, depth, 0, 0, 0);
+	}
+	
+	/**
+	 * Generate the 3D noise over a large area/volume.
+	 * Propagates by flood-fill instead of iterating over a range.
+	 * Results may occasionally slightly exceed [-1, 1] due to the grid-snapped pre-generated kernel.
+	 */
+	public void generate3(GenerateContext3D context, double[][][] buffer, int x0, int y0, int z0, int width, int height, int depth, int skipX, int skipY, int skipZ) {
+		generate3(context, buffer, null, null, null, x0, y0, z0, width, height, depth, skipX, skipY, skipZ);
+	}
+	
+	/**
+	 * Generate the 3D noise over a large area/volume, adding what the traversal did to stats.
+	 * Nothing is allocated for the stats, but timing traversal and stamping separately costs two clock reads per vertex.
+	 */
+	public void generate3(GenerateContext3D context, double[][][] buffer, int x0, int y0, int z0, int width, int height, int depth,
+			int skipX, int skipY, int skipZ, GenerationStats stats) {
+		generate3(context, buffer, null, null, null, x0, y0, z0, width, height, depth, skipX, skipY, skipZ, stats);
+	}
+	
+	/**
+	 * Generate the 3D noise over a large area/volume, along with its analytic derivatives.
+	 * bufferDx, bufferDy and bufferDz receive dN/dx, dN/dy and dN/dz per image pixel, accumulated in the same traversal.
+	 * Divide by the frequency to get them per noise unit.
+	 */
+	public void generate3(GenerateContext3D context, double[][][] buffer, double[][][] bufferDx, double[][][] bufferDy, double[][][] bufferDz,
+			int x0, int y0, int z0) {
+		int depth = buffer.length;
+		int height = buffer[0].length;
+		int width = buffer[0][0].length;
+		generate3(context, buffer, bufferDx, bufferDy, bufferDz, x0, y0, z0, width, height, depth, 0, 0, 0);
+	}
+	
+	/**
+	 * Generate the 3D noise over a large area/volume, along with its analytic derivatives.
+	 * bufferDx, bufferDy and bufferDz receive dN/dx, dN/dy and dN/dz per image pixel, accumulated in the same traversal.
+	 * Pass null for all three to generate only the noise.
+	 */
+	public void generate3(GenerateContext3D context, double[][][] buffer, double[][][] bufferDx, double[][][] bufferDy, double[][][] bufferDz,
+			int x0, int y0, int z0, int width, int height, int depth, int skipX, int skipY, int skipZ) {
+		generate3(context, buffer, bufferDx, bufferDy, bufferDz, x0, y0, z0, width, height, depth, skipX, skipY, skipZ, null);
+	}
+	
+	/**
+	 * Generate the 3D noise over a large area/volume, along with its analytic derivatives, adding what the traversal did to stats.
+	 * Pass null for bufferDx, bufferDy and bufferDz to generate only the noise, and null for stats to not collect any.
+	 */
+	public void generate3(GenerateContext3D context, double[][][] buffer, double[][][] bufferDx, double[][][] bufferDy, double[][][] bufferDz,
+			int x0, int y0, int z0, int width, int height, int depth, int skipX, int skipY, int skipZ, GenerationStats stats) {
+		if ((bufferDx == null) != (bufferDy == null) || (bufferDx == null) != (bufferDz == null)) {
+			throw new IllegalArgumentException("Pass all of bufferDx, bufferDy and bufferDz, or none.");
+		}
+		if (bufferDx != null && (bufferDx.length < depth || bufferDy.length < depth || bufferDz.length < depth
+				|| bufferDx[0].length < height || bufferDy[0].length < height || bufferDz[0].length < height
+				|| bufferDx[0][0].length < width || bufferDy[0][0].length < width || bufferDz[0][0].length < width)) {
+			throw new IllegalArgumentException("bufferDx, bufferDy and bufferDz need to be at least width by height by depth.");
+		}
+		if (context.periodWidth != 0) {
+			generate3Periodic(context, buffer, bufferDx, bufferDy, bufferDz, x0, y0, z0, width, height, depth, skipX, skipY, skipZ, stats);
+			return;
+		}
+		
+		Generate3Event event = new Generate3Event();
+		event.begin();
+		long startNanos = stats != null ? System.nanoTime() : 0;
+		long verticesVisited = 0, probesOutOfRange = 0, probesAlreadySeen = 0, cellsStamped = 0, stampNanos = 0;
+		
+		Queue<AreaGenLatticePoint3D> queue = new LinkedList<AreaGenLatticePoint3D>();
+		Set<AreaGenLatticePoint3D> seen = new HashSet<AreaGenLatticePoint3D>();
+		
+		int scaledRadiusX = context.scaledRadiusX;
+		int scaledRadiusY = context.scaledRadiusY;
+		int scaledRadiusZ = context.scaledRadiusZ;
+		int x0Skipped = x0 + skipX, y0Skipped = y0 + skipY, z0Skipped = z0 + skipZ;
+		VertexStamper3D stamper = new VertexStamper3D(context, buffer, bufferDx, bufferDy, bufferDz, x0, y0, z0, width, height, depth, skipX, skipY, skipZ);
+		
+		// Quaternion multiplication for rotation.
+		// https://blog.molecular-matters.com/2013/05/24/a-faster-quaternion-vector-multiplication/
+		double qx = context.orientation.qx, qy = context.orientation.qy, qz = context.orientation.qz, qw = context.orientation.qw;
+		double x0f = context.m00 * x0Skipped + context.m01 * y0Skipped + context.m02 * z0Skipped;
+		double y0f = context.m10 * x0Skipped + context.m11 * y0Skipped + context.m12 * z0Skipped;
+		double z0f = context.m20 * x0Skipped + context.m21 * y0Skipped + context.m22 * z0Skipped;
+		double tx = 2 * (qy * z0f - qz * y0f);
+		double ty = 2 * (qz * x0f - qx * z0f);
+		double tz = 2 * (qx * y0f - qy * x0f);
+		double x0r = x0f + qw * tx + (qy * tz - qz * ty);
+		double y0r = y0f + qw * ty + (qz * tx - qx * tz);
+		double z0r = z0f + qw * tz + (qx * ty - qy * tx);
+		
+		int x0rb = fastFloor(x0r), y0rb = fastFloor(y0r), z0rb = fastFloor(z0r);
+		
+		AreaGenLatticePoint3D firstPoint = new AreaGenLatticePoint3D(context, x0rb, y0rb, z0rb, 0);
+		queue.add(firstPoint);
+		seen.add(firstPoint);
+		
+		while (!queue.isEmpty()) {
+			AreaGenLatticePoint3D point = queue.remove();
+			verticesVisited++;
+			
+			long stampStart = stats != null ? System.nanoTime() : 0;
+			cellsStamped += stamper.stamp(point.xsv, point.ysv, point.zsv, point.destPointX, point.destPointY, point.destPointZ);
+			if (stats != null) stampNanos += System.nanoTime() - stampStart;
+			
+			// For each neighbor of the point
+			for (int i = 0; i < NEIGHBOR_MAP_3D[0].length; i++) {
+				int l = point.lattice;
+				AreaGenLatticePoint3D neighbor = new AreaGenLatticePoint3D(context,
+						point.xsv + NEIGHBOR_MAP_3D[l][i][0], point.ysv + NEIGHBOR_MAP_3D[l][i][1], point.zsv + NEIGHBOR_MAP_3D[l][i][2], 1 ^ l);
+						
+				// If it's in range of the buffer region and not seen before
+				if (neighbor.destPointX + scaledRadiusX >= x0Skipped && neighbor.destPointX - scaledRadiusX <= x0 + width - 1
+						&& neighbor.destPointY + scaledRadiusY >= y0Skipped && neighbor.destPointY - scaledRadiusY <= y0 + height - 1
+						&& neighbor.destPointZ + scaledRadiusZ >= z0Skipped && neighbor.destPointZ - scaledRadiusZ <= z0 + depth - 1) {
+					if (!seen.contains(neighbor)) {
+						
+						// Add it to the queue so we can process it at some point
+						queue.add(neighbor);
+						
+						// Add it to the set so we don't add it to the queue again
+						seen.add(neighbor);
+					} else {
+						probesAlreadySeen++;
+					}
+				} else {
+					probesOutOfRange++;
+				}
+			}
+		}
+		
+		if (stats != null) {
+			stats.record(verticesVisited, probesOutOfRange, probesAlreadySeen, cellsStamped, System.nanoTime() - startNanos - stampNanos, stampNanos);
+		}
+		if (event.shouldCommit()) {
+			event.orientation = context.orientation.name();
+			event.m00 = context.m00; event.m01 = context.m01; event.m02 = context.m02;
+			event.m10 = context.m10; event.m11 = context.m11; event.m12 = context.m12;
+			event.m20 = context.m20; event.m21 = context.m21; event.m22 = context.m22;
+			event.amplitude = context.amplitude;
+			event.x0 = x0; event.y0 = y0; event.z0 = z0;
+			event.width = width; event.height = height; event.depth = depth;
+			event.derivatives = bufferDx != null;
+			event.vertices = verticesVisited;
+			event.cellsStamped = cellsStamped;
+			event.commit();
+		}
+	}
+	
+	/*
+	 * Periodic volume generation, for contexts made with GenerateContext3D.periodic. The same as generate2Periodic,
+	 * with one vertex per set of copies on each of the two lattices.
+	 */
+	private void generate3Periodic(GenerateContext3D context, double[][][] buffer, double[][][] bufferDx, double[][][] bufferDy, double[][][] bufferDz,
+			int x0, int y0, int z0, int width, int height, int depth, int skipX, int skipY, int skipZ, GenerationStats stats) {
+		Generate3Event event = new Generate3Event();
+		event.begin();
+		long startNanos = stats != null ? System.nanoTime() : 0;
+		long verticesVisited = 0, cellsStamped = 0, stampNanos = 0;
+		
+		int scaledRadiusX = context.scaledRadiusX;
+		int scaledRadiusY = context.scaledRadiusY;
+		int scaledRadiusZ = context.scaledRadiusZ;
+		int x0Skipped = x0 + skipX, y0Skipped = y0 + skipY, z0Skipped = z0 + skipZ;
+		VertexStamper3D stamper = new VertexStamper3D(context, buffer, bufferDx, bufferDy, bufferDz, x0, y0, z0, width, height, depth, skipX, skipY, skipZ);
+		
+		// Period vectors are the columns of P. A vertex at u - lattice / 2 is P times a, with a = adjugate(P) (2u - lattice) / (2 determinant),
+		// and the one with every component of a in [0, 1) stands in for all of its copies.
+		int periodWidth = context.periodWidth, periodHeight = context.periodHeight, periodDepth = context.periodDepth;
+		long p00 = context.period00, p01 = context.period01, p02 = context.period02;
+		long p10 = context.period10, p11 = context.period11, p12 = context.period12;
+		long p20 = context.period20, p21 = context.period21, p22 = context.period22;
+		long a00 = p11 * p22 - p21 * p12, a01 = p21 * p02 - p01 * p22, a02 = p01 * p12 - p11 * p02;
+		long a10 = p12 * p20 - p22 * p10, a11 = p22 * p00 - p02 * p20, a12 = p02 * p10 - p12 * p00;
+		long a20 = p10 * p21 - p20 * p11, a21 = p20 * p01 - p00 * p21, a22 = p00 * p11 - p10 * p01;
+		long determinant = p00 * a00 + p10 * a01 + p20 * a02;
+		long sign = determinant > 0 ? 1 : -1, cells = 2 * Math.abs(determinant);
+		int[] bounds = new int[6];
+		for (int corner = 0; corner < 8; corner++) {
+			long cx = 0, cy = 0, cz = 0;
+			if ((corner & 1) != 0) { cx += p00; cy += p10; cz += p20; }
+			if ((corner & 2) != 0) { cx += p01; cy += p11; cz += p21; }
+			if ((corner & 4) != 0) { cx += p02; cy += p12; cz += p22; }
+			bounds[0] = (int)Math.min(bounds[0], cx); bounds[1] = (int)Math.max(bounds[1], cx);
+			bounds[2] = (int)Math.min(bounds[2], cy); bounds[3] = (int)Math.max(bounds[3], cy);
+			bounds[4] = (int)Math.min(bounds[4], cz); bounds[5] = (int)Math.max(bounds[5], cz);
+		}
+		List<AreaGenLatticePoint3D> vertices = new ArrayList<AreaGenLatticePoint3D>();
+		for (int lattice = 0; lattice < 2; lattice++) {
+			for (int w = bounds[4]; w <= bounds[5] + 1; w++) {
+				for (int v = bounds[2]; v <= bounds[3] + 1; v++) {
+					for (int u = bounds[0]; u <= bounds[1] + 1; u++) {
+						long ux = 2 * u - lattice, vy = 2 * v - lattice, wz = 2 * w - lattice;
+						long s = sign * (a00 * ux + a01 * vy + a02 * wz);
+						long t = sign * (a10 * ux + a11 * vy + a12 * wz);
+						long r = sign * (a20 * ux + a21 * vy + a22 * wz);
+						if (s >= 0 && s < cells && t >= 0 && t < cells && r >= 0 && r < cells) {
+							vertices.add(new AreaGenLatticePoint3D(context, u + 1024 * lattice, v + 1024 * lattice, w + 1024 * lattice, lattice));
+						}
+					}
+				}
+			}
+		}
+		
+		for (AreaGenLatticePoint3D point : vertices) {
+			
+			// Every copy whose kernel reaches the volume.
+			int ix0 = Math.floorDiv(x0Skipped - scaledRadiusX - point.destPointX + periodWidth - 1, periodWidth);
+			int ix1 = Math.floorDiv(x0 + width - 1 + scaledRadiusX - point.destPointX, periodWidth);
+			int iy0 = Math.floorDiv(y0Skipped - scaledRadiusY - point.destPointY + periodHeight - 1, periodHeight);
+			int iy1 = Math.floorDiv(y0 + height - 1 + scaledRadiusY - point.destPointY, periodHeight);
+			int iz0 = Math.floorDiv(z0Skipped - scaledRadiusZ - point.destPointZ + periodDepth - 1, periodDepth);
+			int iz1 = Math.floorDiv(z0 + depth - 1 + scaledRadiusZ - point.destPointZ, periodDepth);
+			for (int iz = iz0; iz <= iz1; iz++) {
+				int destPointZ = point.destPointZ + iz * periodDepth;
+				for (int iy = iy0; iy <= iy1; iy++) {
+					int destPointY = point.destPointY + iy * periodHeight;
+					for (int ix = ix0; ix <= ix1; ix++) {
+						int destPointX = point.destPointX + ix * periodWidth;
+						verticesVisited++;
+						
+						long stampStart = stats != null ? System.nanoTime() : 0;
+						cellsStamped += stamper.stamp(point.xsv, point.ysv, point.zsv, destPointX, destPointY, destPointZ);
+						if (stats != null) stampNanos += System.nanoTime() - stampStart;
+					}
+				}
+			}
+		}
+		
+		if (stats != null) {
+			stats.record(verticesVisited, 0, 0, cellsStamped, System.nanoTime() - startNanos - stampNanos, stampNanos);
+		}
+		if (event.shouldCommit()) {
+			event.orientation = context.orientation.name();
+			event.m00 = context.m00; event.m01 = context.m01; event.m02 = context.m02;
+			event.m10 = context.m10; event.m11 = context.m11; event.m12 = context.m12;
+			event.m20 = context.m20; event.m21 = context.m21; event.m22 = context.m22;
+			event.amplitude = context.amplitude;
+			event.x0 = x0; event.y0 = y0; event.z0 = z0;
+			event.width = width; event.height = height; event.depth = depth;
+			event.derivatives = bufferDx != null;
+			event.vertices = verticesVisited;
+			event.cellsStamped = cellsStamped;
+			event.commit();
+		}
+	}
+	
+	/*
+	 * Stamps one vertex's contribution into a region, for generate3, generate3Periodic and generate3Tiled,
+	 * which only differ in which vertices they visit and where in the image each one lands.
+	 */
+	private class VertexStamper3D {
+		
+		private GenerateContext3D context;
+		private double[][][] buffer, bufferDx, bufferDy, bufferDz;
+		private double[][][] kernelDx, kernelDy, kernelDz;
+		private int x0, y0, z0, width, height, depth, x0Skipped, y0Skipped, z0Skipped;
+		private long kernelCells;
+		
+		private VertexStamper3D(GenerateContext3D context, double[][][] buffer, double[][][] bufferDx, double[][][] bufferDy, double[][][] bufferDz,
+				int x0, int y0, int z0, int width, int height, int depth, int skipX, int skipY, int skipZ) {
+			this.context = context;
+			this.buffer = buffer; this.bufferDx = bufferDx; this.bufferDy = bufferDy; this.bufferDz = bufferDz;
+			this.x0 = x0; this.y0 = y0; this.z0 = z0;
+			this.width = width; this.height = height; this.depth = depth;
+			this.x0Skipped = x0 + skipX; this.y0Skipped = y0 + skipY; this.z0Skipped = z0 + skipZ;
+			
+			// Slopes of the kernel along X, Y and Z, if derivatives were asked for.
+			if (bufferDx != null) {
+				double[][][][] derivativeKernels = context.derivativeKernels();
+				kernelDx = derivativeKernels[0];
+				kernelDy = derivativeKernels[1];
+				kernelDz = derivativeKernels[2];
+			}
+			
+			// Interior vertices stamp the whole kernel, so count its cells once instead of row by row.
+			for (int kz = context.kernelBoundsZ0; kz < context.kernelBoundsZ1; kz++) {
+				for (int ky = context.kernelBoundsY0[kz]; ky < context.kernelBoundsY1[kz]; ky++) {
+					kernelCells += context.kernelBoundsX1[kz][ky] - context.kernelBoundsX0[kz][ky];
+				}
+			}
+		}
+		
+		/*
+		 * Adds the contribution of vertex (xsv, ysv, zsv), centered on (destPointX, destPointY, destPointZ) in the image,
+		 * and returns how many cells it wrote.
+		 */
+		private long stamp(int xsv, int ysv, int zsv, int destPointX, int destPointY, int destPointZ) {
+			GenerateContext3D context = this.context;
+			double[][][] buffer = this.buffer, bufferDx = this.bufferDx, bufferDy = this.bufferDy, bufferDz = this.bufferDz;
+			double[][][] kernel = context.kernel, kernelDx = this.kernelDx, kernelDy = this.kernelDy, kernelDz = this.kernelDz;
+			int x0 = this.x0, y0 = this.y0, z0 = this.z0, width = this.width, height = this.height, depth = this.depth;
+			int x0Skipped = this.x0Skipped, y0Skipped = this.y0Skipped, z0Skipped = this.z0Skipped;
+			int scaledRadiusX = context.scaledRadiusX;
+			int scaledRadiusY = context.scaledRadiusY;
+			int scaledRadiusZ = context.scaledRadiusZ;
+			
+			// Prepare gradient vector
+			int pxm = (xsv ^ seedX) & PMASK, pym = (ysv ^ seedY) & PMASK, pzm = (zsv ^ seedZ) & PMASK;
+			Grad3 grad = context.orientation.gradients[perm[perm[perm[pxm] ^ pym] ^ pzm]];
+			double gx = grad.dx * context.m00 + grad.dy * context.m10 + grad.dz * context.m20;
+			double gy = grad.dx * context.m01 + grad.dy * context.m11 + grad.dz * context.m21;
+			double gz = grad.dx * context.m02 + grad.dy * context.m12 + grad.dz * context.m22;
+			double gOff = 0.5 * (gx + gy + gz); // to correct for (0.5, 0.5, 0.5)-offset kernel
+			
+			// Vertices whose whole kernel lands inside the region don't need any clamping,
+			// and can walk the kernel rows start to end, with trip counts that only depend on the context.
+			if (kernelDx == null && destPointX - scaledRadiusX >= x0Skipped && destPointX + scaledRadiusX <= x0 + width
+					&& destPointY - scaledRadiusY >= y0Skipped && destPointY + scaledRadiusY <= y0 + height
+					&& destPointZ - scaledRadiusZ >= z0Skipped && destPointZ + scaledRadiusZ <= z0 + depth) {
+				int kernelBoundsZ0 = context.kernelBoundsZ0, kernelBoundsZ1 = context.kernelBoundsZ1;
+				int[] kernelBoundsY0 = context.kernelBoundsY0, kernelBoundsY1 = context.kernelBoundsY1;
+				int[][] kernelBoundsX0 = context.kernelBoundsX0, kernelBoundsX1 = context.kernelBoundsX1;
+				int rowOffset = destPointX - scaledRadiusX - x0;
+				int columnOffset = destPointY - scaledRadiusY - y0;
+				int sliceOffset = destPointZ - scaledRadiusZ - z0;
+				double extrapolationOffset = gOff - gx * scaledRadiusX - gy * scaledRadiusY - gz * scaledRadiusZ;
+				
+				// For each x/y slice of the contribution ellipsoid,
+				for (int kz = kernelBoundsZ0; kz < kernelBoundsZ1; kz++) {
+					double[][] kernelSlice = kernel[kz];
+					double[][] slice = buffer[kz + sliceOffset];
+					int[] kernelBoundsX0Slice = kernelBoundsX0[kz], kernelBoundsX1Slice = kernelBoundsX1[kz];
+					double sliceExtrapolation = gz * kz + extrapolationOffset;
+					
+					// For each row of the contribution ellipse,
+					for (int ky = kernelBoundsY0[kz], ky1 = kernelBoundsY1[kz]; ky < ky1; ky++) {
+						double[] kernelRow = kernelSlice[ky];
+						double[] row = slice[ky + columnOffset];
+						double rowExtrapolation = gy * ky + sliceExtrapolation;
+						
+						// For each point on that row
+						for (int kx = kernelBoundsX0Slice[ky], kx1 = kernelBoundsX1Slice[ky]; kx < kx1; kx++) {
+							row[kx + rowOffset] += kernelRow[kx] * (gx * kx + rowExtrapolation);
+						}
+					}
+				}
+				return kernelCells;
+			}
+			
+			// Contribution kernel bounds.
+			long cellsStamped = 0;
+			int zz0 = destPointZ + context.kernelBoundsZ0 - scaledRadiusZ; if (zz0 < z0Skipped) zz0 = z0Skipped;
+			int zz1 = destPointZ + context.kernelBoundsZ1 - scaledRadiusZ; if (zz1 > z0 + depth) zz1 = z0 + depth;
+			
+			// For each x/y slice of the contribution ellipsoid,
+			for (int zz = zz0; zz < zz1; zz++) {
+				int dz = zz - destPointZ;
+				int kz = dz + scaledRadiusZ;
+				
+				// Set up bounds so we only loop over what we need to
+				int yy0 = destPointY + context.kernelBoundsY0[kz] - scaledRadiusY; if (yy0 < y0Skipped) yy0 = y0Skipped;
+				int yy1 = destPointY + context.kernelBoundsY1[kz] - scaledRadiusY; if (yy1 > y0 + height) yy1 = y0 + height;
+				
+				// For each row of the contribution ellipse,
+				for (int yy = yy0; yy < yy1; yy++) {
+					int dy = yy - destPointY;
+					int ky = dy + scaledRadiusY;
+					
+					// Set up bounds so we only loop over what we need to
+					int xx0 = destPointX + context.kernelBoundsX0[kz][ky] - scaledRadiusX; if (xx0 < x0Skipped) xx0 = x0Skipped;
+					int xx1 = destPointX + context.kernelBoundsX1[kz][ky] - scaledRadiusX; if (xx1 > x0 + width) xx1 = x0 + width;
+					
+					if (xx1 > xx0) cellsStamped += xx1 - xx0;
+					
+					if (kernelDx == null) {
+						
+						// For each point on that row
+						for (int xx = xx0; xx < xx1; xx++) {
+							int dx = xx - destPointX;
+							int kx = dx + scaledRadiusX;
+							
+							// gOff accounts for our choice to offset the pre-generated kernel by (0.5, 0.5, 0.5) to avoid the zero center.
+							double extrapolation = gx * dx + gy * dy + gz * dz + gOff;
+							buffer[zz - z0][yy - y0][xx - x0] += kernel[kz][ky][kx] * extrapolation;
+							
+						}
+					} else {
+						double[] kernelRow = kernel[kz][ky], kernelRowDx = kernelDx[kz][ky], kernelRowDy = kernelDy[kz][ky], kernelRowDz = kernelDz[kz][ky];
+						double[] row = buffer[zz - z0][yy - y0], rowDx = bufferDx[zz - z0][yy - y0];
+						double[] rowDy = bufferDy[zz - z0][yy - y0], rowDz = bufferDz[zz - z0][yy - y0];
+						
+						// For each point on that row
+						for (int xx = xx0; xx < xx1; xx++) {
+							int dx = xx - destPointX;
+							int kx = dx + scaledRadiusX;
+							
+							// Product rule: the kernel's slope times the extrapolation, plus the kernel times the gradient.
+							double extrapolation = gx * dx + gy * dy + gz * dz + gOff;
+							double k = kernelRow[kx];
+							row[xx - x0] += k * extrapolation;
+							rowDx[xx - x0] += kernelRowDx[kx] * extrapolation + k * gx;
+							rowDy[xx - x0] += kernelRowDy[kx] * extrapolation + k * gy;
+							rowDz[xx - x0] += kernelRowDz[kx] * extrapolation + k * gz;
+						}
+					}
+				}
+			}
+			return cellsStamped;
+		}
+	}
+	
+	/*
+	 * Cache-blocked traversal
+	 */
+	
+	// Tiles that vertices are grouped into by destination, as a power of two pixels on a side.
+	// One tile's stamps, plus the kernel reaching out of it, should stay in L2.
+	private static final int TILE_SHIFT_2D = 5;
+	private static final int TILE_SHIFT_3D = 4;
+	
+	/**
+	 * Generate the 2D noise over a large area, the same as generate2, but stamping the vertices grouped by destination tile.
+	 * Breadth-first order spreads consecutive stamps over rows far apart, which falls out of cache on large buffers.
+	 */
+	public void generate2Tiled(GenerateContext2D context, double[][] buffer, int x0, int y0) {
+		int height = buffer.length;
+		int width = buffer[0].length;
+		generate2Tiled(context, buffer, x0, y0, width, height, 0, 0);
+	}
+	
+	/**
+	 * Generate the 2D noise over a large area, the same as generate2, but stamping the vertices grouped by destination tile.
+	 * Breadth-first order spreads consecutive stamps over rows far apart, which falls out of cache on large buffers.
+	 */
+	public void generate2Tiled(GenerateContext2D context, double[][] buffer, int x0, int y0, int width, int height, int skipX, int skipY) {
+		if (context.periodWidth != 0) throw new IllegalArgumentException("generate2Tiled doesn't support periodic contexts, use generate2.");
+		Queue<AreaGenLatticePoint2D> queue = new LinkedList<AreaGenLatticePoint2D>();
+		Set<AreaGenLatticePoint2D> seen = new HashSet<AreaGenLatticePoint2D>();
+		List<AreaGenLatticePoint2D> vertices = new ArrayList<AreaGenLatticePoint2D>();
+		
+		int scaledRadiusX = context.scaledRadiusX;
+		int scaledRadiusY = context.scaledRadiusY;
+		int x0Skipped = x0 + skipX, y0Skipped = y0 + skipY;
+		
+		// Same starting point as generate2.
+		double x0f = context.m00 * x0Skipped + context.m01 * y0Skipped;
+		double y0f = context.m10 * x0Skipped + context.m11 * y0Skipped;
+		double x0s = context.orientation.s00 * x0f + context.orientation.s01 * y0f;
+		double y0s = context.orientation.s10 * x0f + context.orientation.s11 * y0f;
+		AreaGenLatticePoint2D firstPoint = new AreaGenLatticePoint2D(context, fastFloor(x0s), fastFloor(y0s));
+		queue.add(firstPoint);
+		seen.add(firstPoint);
+		
+		// First only find the vertices, with the same flood-fill.
+		while (!queue.isEmpty()) {
+			AreaGenLatticePoint2D point = queue.remove();
+			vertices.add(point);
+			
+			for (int i = 0; i < NEIGHBOR_MAP_2D.length; i++) {
+				AreaGenLatticePoint2D neighbor = new AreaGenLatticePoint2D(context,
+						point.xsv + NEIGHBOR_MAP_2D[i][0], point.ysv + NEIGHBOR_MAP_2D[i][1]);
+				
+				// If it's in range of the buffer region and not seen before
+				if (neighbor.destPointX + scaledRadiusX >= x0Skipped && neighbor.destPointX - scaledRadiusX <= x0 + width - 1
+						&& neighbor.destPointY + scaledRadiusY >= y0Skipped && neighbor.destPointY - scaledRadiusY <= y0 + height - 1
+						&& !seen.contains(neighbor)) {
+					queue.add(neighbor);
+					seen.add(neighbor);
+				}
+			}
+		}
+		
+		// Then put them in tile order.
+		int count = vertices.size();
+		int tilesX = ((width - skipX - 1) >> TILE_SHIFT_2D) + 1, tilesY = ((height - skipY - 1) >> TILE_SHIFT_2D) + 1;
+		int[] tiles = new int[count];
+		for (int i = 0; i < count; i++) {
+			AreaGenLatticePoint2D point = vertices.get(i);
+			int tileX = clamp((point.destPointX - x0Skipped) >> TILE_SHIFT_2D, tilesX);
+			int tileY = clamp((point.destPointY - y0Skipped) >> TILE_SHIFT_2D, tilesY);
+			tiles[i] = tileY * tilesX + tileX;
+		}
+		int[] order = tileOrder(tiles, count, tilesX, tilesY, 1);
+		
+		// And stamp them, with the same stamper as generate2.
+		VertexStamper2D stamper = new VertexStamper2D(context, buffer, null, null, x0, y0, width, height, skipX, skipY);
+		for (int j = 0; j < count; j++) {
+			AreaGenLatticePoint2D point = vertices.get(order[j]);
+			stamper.stamp(point.xsv, point.ysv, point.destPointX, point.destPointY);
+		}
+	}
+	
+	/**
+	 * Generate the 3D noise sampled every strideX, strideY and strideZ voxels, and fill in the voxels between
+	 * the samples by trilinear interpolation, the way voxel terrain density usually is.
+	 * Only the samples are evaluated. The traversal visits about as many vertices as generate3 would on a buffer stride^3 times
+	 * smaller, but there is no pre-built kernel: each vertex solves for the span of every sample row it reaches, and works out
+	 * the attenuation exactly at each sample, which costs a few more multiplies per sample than reading a kernel would.
+	 * The interpolation then writes every voxel once. The samples go straight into their voxels in the buffer,
+	 * and are interpolated in place, so there is no separate coarse array.
+	 * Samples sit at multiples of the strides, so x0, y0 and z0 must be multiples of them, and width - 1, height - 1
+	 * and depth - 1 too, for the buffer to end on a sample. Unlike generate3, this overwrites the buffer instead of adding to it.
+	 */
+	public void generate3Strided(GenerateContext3D context, double[][][] buffer, int x0, int y0, int z0, int strideX, int strideY, int strideZ) {
+		int depth = buffer.length;
+		int height = buffer[0].length;
+		int width = buffer[0][0].length;
+		generate3Strided(context, buffer, x0, y0, z0, width, height, depth, strideX, strideY, strideZ);
+	}
+	
+	/**
+	 * Generate the 3D noise sampled every strideX, strideY and strideZ voxels, and fill in the voxels between
+	 * the samples by trilinear interpolation. See above.
+	 */
+	public void generate3Strided(GenerateContext3D context, double[][][] buffer, int x0, int y0, int z0, int width, int height, int depth,
+			int strideX, int strideY, int strideZ) {
+		if (context.periodWidth != 0) throw new IllegalArgumentException("generate3Strided doesn't support periodic contexts, use generate3.");
+		if (strideX < 1 || strideY < 1 || strideZ < 1) throw new IllegalArgumentException("Strides must be at least 1");
+		if (x0 % strideX != 0 || y0 % strideY != 0 || z0 % strideZ != 0) {
+			throw new IllegalArgumentException("x0, y0 and z0 must be multiples of the strides (" + strideX + ", " + strideY + ", " + strideZ + ")");
+		}
+		if ((width - 1) % strideX != 0 || (height - 1) % strideY != 0 || (depth - 1) % strideZ != 0) {
+			throw new IllegalArgumentException("width - 1, height - 1 and depth - 1 must be multiples of the strides ("
+					+ strideX + ", " + strideY + ", " + strideZ + ")");
+		}
+		
+		// The samples, in coarse coordinates.
+		GenerateContext3D coarse = context.strided(strideX, strideY, strideZ);
+		int cx0 = x0 / strideX, cy0 = y0 / strideY, cz0 = z0 / strideZ;
+		int coarseWidth = (width - 1) / strideX + 1, coarseHeight = (height - 1) / strideY + 1, coarseDepth = (depth - 1) / strideZ + 1;
+		for (int k = 0; k < coarseDepth; k++) {
+			for (int j = 0; j < coarseHeight; j++) {
+				double[] row = buffer[k * strideZ][j * strideY];
+				for (int i = 0; i < coarseWidth; i++) {
+					row[i * strideX] = 0;
+				}
+			}
+		}
+		
+		Queue<AreaGenLatticePoint3D> queue = new LinkedList<AreaGenLatticePoint3D>();
+		Set<AreaGenLatticePoint3D> seen = new HashSet<AreaGenLatticePoint3D>();
+		int scaledRadiusX = coarse.scaledRadiusX;
+		int scaledRadiusY = coarse.scaledRadiusY;
+		int scaledRadiusZ = coarse.scaledRadiusZ;
+		double m00 = coarse.m00, m01 = coarse.m01, m02 = coarse.m02;
+		double m10 = coarse.m10, m11 = coarse.m11, m12 = coarse.m12;
+		double m20 = coarse.m20, m21 = coarse.m21, m22 = coarse.m22;
+		double amplitude = coarse.amplitude;
+		
+		// |M (a, b, c)|^2 is quadratic in a along each row, with these coefficients on a^2, and on a (times the rest of the row).
+		double aa = m00 * m00 + m10 * m10 + m20 * m20;
+		double ab = 2 * (m00 * m01 + m10 * m11 + m20 * m21), ac = 2 * (m00 * m02 + m10 * m12 + m20 * m22);
+		
+		// Same starting point as generate3, on the coarse grid.
+		double qx = coarse.orientation.qx, qy = coarse.orientation.qy, qz = coarse.orientation.qz, qw = coarse.orientation.qw;
+		double x0f = m00 * cx0 + m01 * cy0 + m02 * cz0;
+		double y0f = m10 * cx0 + m11 * cy0 + m12 * cz0;
+		double z0f = m20 * cx0 + m21 * cy0 + m22 * cz0;
+		double tx = 2 * (qy * z0f - qz * y0f);
+		double ty = 2 * (qz * x0f - qx * z0f);
+		double tz = 2 * (qx * y0f - qy * x0f);
+		double x0r = x0f + qw * tx + (qy * tz - qz * ty);
+		double y0r = y0f + qw * ty + (qz * tx - qx * tz);
+		double z0r = z0f + qw * tz + (qx * ty - qy * tx);
+		AreaGenLatticePoint3D firstPoint = new AreaGenLatticePoint3D(coarse, fastFloor(x0r), fastFloor(y0r), fastFloor(z0r), 0);
+		queue.add(firstPoint);
+		seen.add(firstPoint);
+		
+		while (!queue.isEmpty()) {
+			AreaGenLatticePoint3D point = queue.remove();
+			int destPointX = point.destPointX;
+			int destPointY = point.destPointY;
+			int destPointZ = point.destPointZ;
+			
+			// Prepare gradient vector
+			int pxm = (point.xsv ^ seedX) & PMASK, pym = (point.ysv ^ seedY) & PMASK, pzm = (point.zsv ^ seedZ) & PMASK;
+			Grad3 grad = coarse.orientation.gradients[perm[perm[perm[pxm] ^ pym] ^ pzm]];
+			double gx = grad.dx * m00 + grad.dy * m10 + grad.dz * m20;
+			double gy = grad.dx * m01 + grad.dy * m11 + grad.dz * m21;
+			double gz = grad.dx * m02 + grad.dy * m12 + grad.dz * m22;
+			
+			// Where the vertex really is on the coarse grid. A kernel snapped to the coarse grid would be off
+			// by up to half a sample spacing, so the samples are evaluated at their exact offsets instead.
+			double xr = point.xsv - point.lattice * 1024.5, yr = point.ysv - point.lattice * 1024.5, zr = point.zsv - point.lattice * 1024.5;
+			double ux = 2 * (qz * yr - qy * zr);
+			double uy = 2 * (qx * zr - qz * xr);
+			double uz = 2 * (qy * xr - qx * yr);
+			double xrr = xr + qw * ux - (qy * uz - qz * uy);
+			double yrr = yr + qw * uy - (qz * ux - qx * uz);
+			double zrr = zr + qw * uz - (qx * uy - qy * ux);
+			double vx = coarse.inverse00 * xrr + coarse.inverse01 * yrr + coarse.inverse02 * zrr;
+			double vy = coarse.inverse10 * xrr + coarse.inverse11 * yrr + coarse.inverse12 * zrr;
+			double vz = coarse.inverse20 * xrr + coarse.inverse21 * yrr + coarse.inverse22 * zrr;
+			
+			int zz0 = destPointZ - scaledRadiusZ; if (zz0 < cz0) zz0 = cz0;
+			int zz1 = destPointZ + scaledRadiusZ; if (zz1 > cz0 + coarseDepth) zz1 = cz0 + coarseDepth;
+			int yy0 = destPointY - scaledRadiusY; if (yy0 < cy0) yy0 = cy0;
+			int yy1 = destPointY + scaledRadiusY; if (yy1 > cy0 + coarseHeight) yy1 = cy0 + coarseHeight;
+			for (int zz = zz0; zz < zz1; zz++) {
+				double c = zz - vz;
+				double[][] slice = buffer[(zz - cz0) * strideZ];
+				for (int yy = yy0; yy < yy1; yy++) {
+					double b = yy - vy;
+					
+					// The part of the ellipsoid on this row, from the roots of 0.75 - |M (a, b, c)|^2.
+					double ex = m01 * b + m02 * c, ey = m11 * b + m12 * c, ez = m21 * b + m22 * c;
+					double linear = ab * b + ac * c, constant = ex * ex + ey * ey + ez * ez - 0.75;
+					double discriminant = linear * linear - 4 * aa * constant;
+					if (discriminant <= 0) continue;
+					double root = Math.sqrt(discriminant);
+					int xx0 = (int)Math.ceil(vx + (-linear - root) / (2 * aa)); if (xx0 < cx0) xx0 = cx0;
+					int xx1 = (int)Math.ceil(vx + (-linear + root) / (2 * aa)); if (xx1 > cx0 + coarseWidth) xx1 = cx0 + coarseWidth;
+					
+					double[] row = slice[(yy - cy0) * strideY];
+					double rowExtrapolation = gy * b + gz * c;
+					for (int xx = xx0; xx < xx1; xx++) {
+						double a = xx - vx;
+						double attn = -constant - a * (linear + aa * a);
+						attn *= attn;
+						row[(xx - cx0) * strideX] += attn * attn * amplitude * (gx * a + rowExtrapolation);
+					}
+				}
+			}
+			
+			for (int i = 0; i < NEIGHBOR_MAP_3D[0].length; i++) {
+				int l = point.lattice;
+				AreaGenLatticePoint3D neighbor = new AreaGenLatticePoint3D(coarse,
+						point.xsv + NEIGHBOR_MAP_3D[l][i][0], point.ysv + NEIGHBOR_MAP_3D[l][i][1], point.zsv + NEIGHBOR_MAP_3D[l][i][2], 1 ^ l);
+				
+				// If it's in range of the coarse region and not seen before
+				if (neighbor.destPointX + scaledRadiusX >= cx0 && neighbor.destPointX - scaledRadiusX <= cx0 + coarseWidth - 1
+						&& neighbor.destPointY + scaledRadiusY >= cy0 && neighbor.destPointY - scaledRadiusY <= cy0 + coarseHeight - 1
+						&& neighbor.destPointZ + scaledRadiusZ >= cz0 && neighbor.destPointZ - scaledRadiusZ <= cz0 + coarseDepth - 1
+						&& !seen.contains(neighbor)) {
+					queue.add(neighbor);
+					seen.add(neighbor);
+				}
+			}
+		}
+		
+		interpolateStrided(buffer, width, height, depth, strideX, strideY, strideZ);
+	}
+	
+	/*
+	 * Trilinear interpolation between the samples, one axis at a time, which comes out the same.
+	 * X along the sample rows first, then Y across whole rows of the sample slices, then Z across whole slices,
+	 * so the last two passes are plain loops over rows that C2 can vectorize.
+	 */
+	private static void interpolateStrided(double[][][] buffer, int width, int height, int depth, int strideX, int strideY, int strideZ) {
+		for (int z = 0; z < depth; z += strideZ) {
+			for (int y = 0; y < height; y += strideY) {
+				double[] row = buffer[z][y];
+				for (int x = 0; x < width - 1; x += strideX) {
+					double a = row[x], step = (row[x + strideX] - a) / strideX;
+					for (int t = 1; t < strideX; t++) {
+						row[x + t] = a + step * t;
+					}
+				}
+			}
+			double[][] slice = buffer[z];
+			for (int y = 0; y < height - 1; y += strideY) {
+				double[] row0 = slice[y], row1 = slice[y + strideY];
+				for (int t = 1; t < strideY; t++) {
+					double[] row = slice[y + t];
+					double w = (double)t / strideY;
+					for (int x = 0; x < width; x++) {
+						row[x] = row0[x] + (row1[x] - row0[x]) * w;
+					}
+				}
+			}
+		}
+		for (int z = 0; z < depth - 1; z += strideZ) {
+			double[][] slice0 = buffer[z], slice1 = buffer[z + strideZ];
+			for (int t = 1; t < strideZ; t++) {
+				double[][] slice = buffer[z + t];
+				double w = (double)t / strideZ;
+				for (int y = 0; y < height; y++) {
+					double[] row = slice[y], row0 = slice0[y], row1 = slice1[y];
+					for (int x = 0; x < width; x++) {
+						row[x] = row0[x] + (row1[x] - row0[x]) * w;
+					}
+				}
+			}
+		}
+	}
+	
+	// Added to both ends of every bound. Far more than the rounding error, and far less than anything it could matter to.
+	private static final double BOUNDS_ROUNDING_MARGIN = 1e-9;
+	
+	/**
+	 * A conservative range for what generate3 would put anywhere in the box, without stamping anything: { min, max }.
+	 * If the box is entirely on one side of a threshold, generating it can be skipped.
+	 * Vertices' contributions cancel out a lot, which a bound per vertex can't see, so this gets loose on boxes much
+	 * bigger than a few percent of the noise's period. Bound a grid of smaller cells with the other overload instead.
+	 */
+	public double[] bounds3(GenerateContext3D context, int x0, int y0, int z0, int width, int height, int depth) {
+		double[][][] lower = new double[1][1][1], upper = new double[1][1][1];
+		bounds3(context, lower, upper, x0, y0, z0, width, height, depth);
+		return new double[] { lower[0][0][0], upper[0][0][0] };
+	}
+	
+	/**
+	 * Conservative ranges for what generate3 would put in each cell of a grid, without stamping anything.
+	 * Cell (cx, cy, cz) covers cellWidth by cellHeight by cellDepth pixels from (x0 + cx * cellWidth, ...), and its range
+	 * goes in lower[cz][cy][cx] and upper[cz][cy][cx], so the grid's size is the arrays'. Terms added to the noise,
+	 * such as a height gradient for terrain density, can then be bounded per cell too, which is much tighter than over the whole grid.
+	 * Walks the same vertices as generate3 once, and costs about a vertex's worth of arithmetic for each cell it reaches.
+	 * No range is wider than the most generate3 can output anywhere with the context, which the first call works out.
+	 */
+	public void bounds3(GenerateContext3D context, double[][][] lower, double[][][] upper, int x0, int y0, int z0,
+			int cellWidth, int cellHeight, int cellDepth) {
+		if (context.periodWidth != 0) throw new IllegalArgumentException("bounds3 doesn't support periodic contexts.");
+		int cellsZ = lower.length, cellsY = lower[0].length, cellsX = lower[0][0].length;
+		int width = cellsX * cellWidth, height = cellsY * cellHeight, depth = cellsZ * cellDepth;
+		Queue<AreaGenLatticePoint3D> queue = new LinkedList<AreaGenLatticePoint3D>();
+		Set<AreaGenLatticePoint3D> seen = new HashSet<AreaGenLatticePoint3D>();
+		
+		int scaledRadiusX = context.scaledRadiusX;
+		int scaledRadiusY = context.scaledRadiusY;
+		int scaledRadiusZ = context.scaledRadiusZ;
+		double m00 = context.m00, m01 = context.m01, m02 = context.m02;
+		double m10 = context.m10, m11 = context.m11, m12 = context.m12;
+		double m20 = context.m20, m21 = context.m21, m22 = context.m22;
+		double amplitude = context.amplitude;
+		
+		// Half a cell, from its center to its last pixels, and the radius of a sphere around it in noise space.
+		double halfX = (cellWidth - 1) * 0.5, halfY = (cellHeight - 1) * 0.5, halfZ = (cellDepth - 1) * 0.5;
+		double cellRadius = 0;
+		for (int corner = 0; corner < 8; corner++) {
+			double a = (corner & 1) == 0 ? -halfX : halfX, b = (corner & 2) == 0 ? -halfY : halfY, c = (corner & 4) == 0 ? -halfZ : halfZ;
+			double dx = m00 * a + m01 * b + m02 * c, dy = m10 * a + m11 * b + m12 * c, dz = m20 * a + m21 * b + m22 * c;
+			cellRadius = Math.max(cellRadius, Math.sqrt(dx * dx + dy * dy + dz * dz));
+		}
+		
+		// Per cell: the interval sums, and the value, slope and curvature for the Taylor bound.
+		double[] sums = new double[cellsX * cellsY * cellsZ * 7];
+		
+		// Same starting point as generate3.
+		double qx = context.orientation.qx, qy = context.orientation.qy, qz = context.orientation.qz, qw = context.orientation.qw;
+		double x0f = m00 * x0 + m01 * y0 + m02 * z0;
+		double y0f = m10 * x0 + m11 * y0 + m12 * z0;
+		double z0f = m20 * x0 + m21 * y0 + m22 * z0;
+		double tx = 2 * (qy * z0f - qz * y0f);
+		double ty = 2 * (qz * x0f - qx * z0f);
+		double tz = 2 * (qx * y0f - qy * x0f);
+		double x0r = x0f + qw * tx + (qy * tz - qz * ty);
+		double y0r = y0f + qw * ty + (qz * tx - qx * tz);
+		double z0r = z0f + qw * tz + (qx * ty - qy * tx);
+		AreaGenLatticePoint3D firstPoint = new AreaGenLatticePoint3D(context, fastFloor(x0r), fastFloor(y0r), fastFloor(z0r), 0);
+		queue.add(firstPoint);
+		seen.add(firstPoint);
+		
+		while (!queue.isEmpty()) {
+			AreaGenLatticePoint3D point = queue.remove();
+			
+			int pxm = (point.xsv ^ seedX) & PMASK, pym = (point.ysv ^ seedY) & PMASK, pzm = (point.zsv ^ seedZ) & PMASK;
+			Grad3 grad = context.orientation.gradients[perm[perm[perm[pxm] ^ pym] ^ pzm]];
+			double gx = grad.dx * m00 + grad.dy * m10 + grad.dz * m20;
+			double gy = grad.dx * m01 + grad.dy * m11 + grad.dz * m21;
+			double gz = grad.dx * m02 + grad.dy * m12 + grad.dz * m22;
+			double gradientLength = Math.sqrt(grad.dx * grad.dx + grad.dy * grad.dy + grad.dz * grad.dz);
+			double rampSpread = Math.abs(gx) * halfX + Math.abs(gy) * halfY + Math.abs(gz) * halfZ;
+			
+			// The cells its kernel reaches.
+			int cx0 = Math.max(0, Math.floorDiv(point.destPointX - scaledRadiusX - x0, cellWidth));
+			int cx1 = Math.min(cellsX - 1, Math.floorDiv(point.destPointX + scaledRadiusX - 1 - x0, cellWidth));
+			int cy0 = Math.max(0, Math.floorDiv(point.destPointY - scaledRadiusY - y0, cellHeight));
+			int cy1 = Math.min(cellsY - 1, Math.floorDiv(point.destPointY + scaledRadiusY - 1 - y0, cellHeight));
+			int cz0 = Math.max(0, Math.floorDiv(point.destPointZ - scaledRadiusZ - z0, cellDepth));
+			int cz1 = Math.min(cellsZ - 1, Math.floorDiv(point.destPointZ + scaledRadiusZ - 1 - z0, cellDepth));
+			for (int cz = cz0; cz <= cz1; cz++) {
+				for (int cy = cy0; cy <= cy1; cy++) {
+					for (int cx = cx0; cx <= cx1; cx++) {
+						
+						// generate3's kernel is centered half a pixel before destPoint on each axis, so that's where the contribution comes from.
+						double ox = x0 + cx * cellWidth + halfX - (point.destPointX - 0.5);
+						double oy = y0 + cy * cellHeight + halfY - (point.destPointY - 0.5);
+						double oz = z0 + cz * cellDepth + halfZ - (point.destPointZ - 0.5);
+						double dx = m00 * ox + m01 * oy + m02 * oz, dy = m10 * ox + m11 * oy + m12 * oz, dz = m20 * ox + m21 * oy + m22 * oz;
+						double centerDistanceSq = dx * dx + dy * dy + dz * dz;
+						double centerDistance = Math.sqrt(centerDistanceSq);
+						double nearest = Math.max(0, centerDistance - cellRadius), farthest = centerDistance + cellRadius;
+						double attnMax = 0.75 - nearest * nearest;
+						if (attnMax <= 0) continue;
+						double attnMin = Math.max(0, 0.75 - farthest * farthest);
+						double farthestInKernelSq = Math.min(farthest * farthest, 0.75);
+						int s = ((cz * cellsY + cy) * cellsX + cx) * 7;
+						
+						// The kernel is in [attnMin^4, attnMax^4], times the gradient ramp, whose range over the cell is exact since it's linear.
+						// A negative amplitude flips the ramp instead, so that the kernel stays positive.
+						double ramp = gx * ox + gy * oy + gz * oz;
+						double signedRamp = amplitude < 0 ? -ramp : ramp;
+						double rampMin = signedRamp - rampSpread, rampMax = signedRamp + rampSpread;
+						double kernelMax = attnMax * attnMax * attnMax * attnMax * Math.abs(amplitude);
+						double kernelMin = attnMin * attnMin * attnMin * attnMin * Math.abs(amplitude);
+						sums[s] += rampMin >= 0 ? kernelMin * rampMin : kernelMax * rampMin;
+						sums[s + 1] += rampMax >= 0 ? kernelMax * rampMax : kernelMin * rampMax;
+						
+						// The value and slope at the center exactly, and a bound on how much it can curve: |grad| |d| attn^2 (24 attn + 48 |d|^2).
+						double attnCenter = 0.75 - centerDistanceSq;
+						if (attnCenter > 0) {
+							double attnCenter3 = attnCenter * attnCenter * attnCenter * amplitude;
+							double attnCenter4 = attnCenter3 * attnCenter;
+							double rampSlope = -8 * attnCenter3 * ramp;
+							sums[s + 2] += attnCenter4 * ramp;
+							sums[s + 3] += attnCenter4 * gx + rampSlope * (m00 * dx + m10 * dy + m20 * dz);
+							sums[s + 4] += attnCenter4 * gy + rampSlope * (m01 * dx + m11 * dy + m21 * dz);
+							sums[s + 5] += attnCenter4 * gz + rampSlope * (m02 * dx + m12 * dy + m22 * dz);
+						}
+						sums[s + 6] += gradientLength * Math.sqrt(farthestInKernelSq) * attnMax * attnMax * (24 * attnMax + 48 * farthestInKernelSq) * Math.abs(amplitude);
+					}
+				}
+			}
+			
+			for (int i = 0; i < NEIGHBOR_MAP_3D[0].length; i++) {
+				int l = point.lattice;
+				AreaGenLatticePoint3D neighbor = new AreaGenLatticePoint3D(context,
+						point.xsv + NEIGHBOR_MAP_3D[l][i][0], point.ysv + NEIGHBOR_MAP_3D[l][i][1], point.zsv + NEIGHBOR_MAP_3D[l][i][2], 1 ^ l);
+				
+				// If it's in range of the grid and not seen before
+				if (neighbor.destPointX + scaledRadiusX >= x0 && neighbor.destPointX - scaledRadiusX <= x0 + width - 1
+						&& neighbor.destPointY + scaledRadiusY >= y0 && neighbor.destPointY - scaledRadiusY <= y0 + height - 1
+						&& neighbor.destPointZ + scaledRadiusZ >= z0 && neighbor.destPointZ - scaledRadiusZ <= z0 + depth - 1
+						&& !seen.contains(neighbor)) {
+					queue.add(neighbor);
+					seen.add(neighbor);
+				}
+			}
+		}
+		
+		// Both bounds hold, and so does the most generate3 can output at all, so each cell gets the tighter side of each,
+		// plus a little for rounding, since generate3 adds the same things up in a different order.
+		double limit = context.boundsLimit();
+		for (int cz = 0, s = 0; cz < cellsZ; cz++) {
+			for (int cy = 0; cy < cellsY; cy++) {
+				for (int cx = 0; cx < cellsX; cx++, s += 7) {
+					double taylorSpread = Math.abs(sums[s + 3]) * halfX + Math.abs(sums[s + 4]) * halfY + Math.abs(sums[s + 5]) * halfZ
+							+ 0.5 * sums[s + 6] * cellRadius * cellRadius;
+					lower[cz][cy][cx] = Math.max(Math.max(sums[s], sums[s + 2] - taylorSpread), -limit) - BOUNDS_ROUNDING_MARGIN;
+					upper[cz][cy][cx] = Math.min(Math.min(sums[s + 1], sums[s + 2] + taylorSpread), limit) + BOUNDS_ROUNDING_MARGIN;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Generate the 3D noise over a volume, running post's operations on every sample and putting the result in the buffer
+	 * by post's write mode. It goes one brick at a time, so each sample is generated, processed, written and reduced
+	 * while it's still in cache, instead of the buffer being streamed through again for each of those afterwards.
+	 * The buffer doesn't need clearing first for WriteMode.Overwrite. Pass null for reduction to not collect one.
+	 */
+	public void generate3Processed(GenerateContext3D context, double[][][] buffer, int x0, int y0, int z0, PostProcess post, Reduction reduction) {
+		int depth = buffer.length;
+		int height = buffer[0].length;
+		int width = buffer[0][0].length;
+		generate3Processed(context, buffer, x0, y0, z0, width, height, depth, post, reduction);
+	}
+	
+	/**
+	 * Generate the 3D noise over a volume, running post's operations on every sample and putting the result in the buffer
+	 * by post's write mode, one brick at a time while it's still in cache. Pass null for reduction to not collect one.
+	 */
+	public void generate3Processed(GenerateContext3D context, double[][][] buffer, int x0, int y0, int z0, int width, int height, int depth,
+			PostProcess post, Reduction reduction) {
+		int brickWidth = Math.min(width, PROCESSED_TILE_SIZE_3D);
+		int brickHeight = Math.min(height, PROCESSED_TILE_SIZE_3D);
+		int brickDepth = Math.min(depth, PROCESSED_TILE_SIZE_3D);
+		double[][][] brick = new double[brickDepth][brickHeight][brickWidth];
+		
+		for (int bz = 0; bz < depth; bz += brickDepth) {
+			int slices = Math.min(brickDepth, depth - bz);
+			for (int by = 0; by < height; by += brickHeight) {
+				int rows = Math.min(brickHeight, height - by);
+				for (int bx = 0; bx < width; bx += brickWidth) {
+					int columns = Math.min(brickWidth, width - bx);
+					for (int z = 0; z < slices; z++) {
+						for (int y = 0; y < rows; y++) {
+							Arrays.fill(brick[z][y], 0);
+						}
+					}
+					generate3(context, brick, x0 + bx, y0 + by, z0 + bz, columns, rows, slices, 0, 0, 0);
+					for (int z = 0; z < slices; z++) {
+						for (int y = 0; y < rows; y++) {
+							post.process(brick[z][y], buffer[bz + z][by + y], bx, columns, reduction);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Generate the 3D noise over a large volume in fixed point, adding the noise times 2^FIXED_SHIFT to each int in the buffer.
+	 * Every vertex's contribution to every voxel is worked out in integers and added exactly, so the result doesn't depend on
+	 * the order vertices are visited in, or on how the volume is split between calls or threads, and is the same on every machine.
+	 */
+	public void generate3Fixed(GenerateContext3D context, int[][][] buffer, int x0, int y0, int z0) {
+		int depth = buffer.length;
+		int height = buffer[0].length;
+		int width = buffer[0][0].length;
+		generate3Fixed(context, buffer, x0, y0, z0, width, height, depth);
+	}
+	
+	/**
+	 * Generate the 3D noise over a large volume in fixed point, adding the noise times 2^FIXED_SHIFT to each int in the buffer.
+	 * The kernel and gradients are quantized once per context, so the result differs from generate3 by about 1e-4.
+	 */
+	public void generate3Fixed(GenerateContext3D context, int[][][] buffer, int x0, int y0, int z0, int width, int height, int depth) {
+		if (context.periodWidth != 0) throw new IllegalArgumentException("generate3Fixed doesn't support periodic contexts, use generate3.");
+		Queue<AreaGenLatticePoint3D> queue = new LinkedList<AreaGenLatticePoint3D>();
+		Set<AreaGenLatticePoint3D> seen = new HashSet<AreaGenLatticePoint3D>();
+		
+		int[][][] kernel = context.fixedKernel();
+		int[] gradientsX = context.fixedGradientsX, gradientsY = context.fixedGradientsY, gradientsZ = context.fixedGradientsZ;
+		int gradientShift = context.fixedGradientShift, outputShift = context.fixedOutputShift;
+		int rounding = 1 << (outputShift - 1);
+		int scaledRadiusX = context.scaledRadiusX;
+		int scaledRadiusY = context.scaledRadiusY;
+		int scaledRadiusZ = context.scaledRadiusZ;
+		int kernelBoundsZ0 = context.kernelBoundsZ0, kernelBoundsZ1 = context.kernelBoundsZ1;
+		int[] kernelBoundsY0 = context.kernelBoundsY0, kernelBoundsY1 = context.kernelBoundsY1;
+		int[][] kernelBoundsX0 = context.kernelBoundsX0, kernelBoundsX1 = context.kernelBoundsX1;
+		
+		double qx = context.orientation.qx, qy = context.orientation.qy, qz = context.orientation.qz, qw = context.orientation.qw;
+		double x0f = context.m00 * x0 + context.m01 * y0 + context.m02 * z0;
+		double y0f = context.m10 * x0 + context.m11 * y0 + context.m12 * z0;
+		double z0f = context.m20 * x0 + context.m21 * y0 + context.m22 * z0;
+		double tx = 2 * (qy * z0f - qz * y0f);
+		double ty = 2 * (qz * x0f - qx * z0f);
+		double tz = 2 * (qx * y0f - qy * x0f);
+		double x0r = x0f + qw * tx + (qy * tz - qz * ty);
+		double y0r = y0f + qw * ty + (qz * tx - qx * tz);
+		double z0r = z0f + qw * tz + (qx * ty - qy * tx);
+		AreaGenLatticePoint3D firstPoint = new AreaGenLatticePoint3D(context, fastFloor(x0r), fastFloor(y0r), fastFloor(z0r), 0);
+		queue.add(firstPoint);
+		seen.add(firstPoint);
+		
+		while (!queue.isEmpty()) {
+			AreaGenLatticePoint3D point = queue.remove();
+			int destPointX = point.destPointX;
+			int destPointY = point.destPointY;
+			int destPointZ = point.destPointZ;
+			
+			// Twice the extrapolation at each voxel center, in integers, the same way as generate2Fixed.
+			int pxm = (point.xsv ^ seedX) & PMASK, pym = (point.ysv ^ seedY) & PMASK, pzm = (point.zsv ^ seedZ) & PMASK;
+			int gradient = perm[perm[perm[pxm] ^ pym] ^ pzm];
+			int gx = gradientsX[gradient], gy = gradientsY[gradient], gz = gradientsZ[gradient];
+			int gx2 = 2 * gx;
+			int extrapolationOffset = gx * (1 - 2 * scaledRadiusX) + gy * (1 - 2 * scaledRadiusY) + gz * (1 - 2 * scaledRadiusZ);
+			
+			int rowOffset = destPointX - scaledRadiusX - x0;
+			int columnOffset = destPointY - scaledRadiusY - y0;
+			int sliceOffset = destPointZ - scaledRadiusZ - z0;
+			int kz0 = Math.max(kernelBoundsZ0, -sliceOffset), kz1 = Math.min(kernelBoundsZ1, depth - sliceOffset);
+			for (int kz = kz0; kz < kz1; kz++) {
+				int[][] kernelSlice = kernel[kz];
+				int[][] slice = buffer[kz + sliceOffset];
+				int[] kernelBoundsX0Slice = kernelBoundsX0[kz], kernelBoundsX1Slice = kernelBoundsX1[kz];
+				int sliceExtrapolation = 2 * gz * kz + extrapolationOffset;
+				int ky0 = Math.max(kernelBoundsY0[kz], -columnOffset), ky1 = Math.min(kernelBoundsY1[kz], height - columnOffset);
+				for (int ky = ky0; ky < ky1; ky++) {
+					int[] kernelRow = kernelSlice[ky];
+					int[] row = slice[ky + columnOffset];
+					int rowExtrapolation = 2 * gy * ky + sliceExtrapolation;
+					int kx0 = Math.max(kernelBoundsX0Slice[ky], -rowOffset), kx1 = Math.min(kernelBoundsX1Slice[ky], width - rowOffset);
+					for (int kx = kx0; kx < kx1; kx++) {
+						int extrapolation = (gx2 * kx + rowExtrapolation) >> gradientShift;
+						row[kx + rowOffset] += (kernelRow[kx] * extrapolation + rounding) >> outputShift;
+					}
+				}
+			}
+			
+			// For each neighbor of the point
+			for (int i = 0; i < NEIGHBOR_MAP_3D[0].length; i++) {
+				int l = point.lattice;
+				AreaGenLatticePoint3D neighbor = new AreaGenLatticePoint3D(context,
+						point.xsv + NEIGHBOR_MAP_3D[l][i][0], point.ysv + NEIGHBOR_MAP_3D[l][i][1], point.zsv + NEIGHBOR_MAP_3D[l][i][2], 1 ^ l);
+				
+				// If it's in range of the buffer region and not seen before
+				if (neighbor.destPointX + scaledRadiusX >= x0 && neighbor.destPointX - scaledRadiusX <= x0 + width - 1
+						&& neighbor.destPointY + scaledRadiusY >= y0 && neighbor.destPointY - scaledRadiusY <= y0 + height - 1
+						&& neighbor.destPointZ + scaledRadiusZ >= z0 && neighbor.destPointZ - scaledRadiusZ <= z0 + depth - 1
+						&& !seen.contains(neighbor)) {
+					queue.add(neighbor);
+					seen.add(neighbor);
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Fixed point scales for a kernel whose largest value is kernelMax, whose extrapolation gets up to extrapolationMax,
+	 * and whose largest kernel value times extrapolation is productMax. Picked so that product stays under 2^30 in an int,
+	 * with its bits split between the kernel and the extrapolation in proportion to how big each gets.
+	 * The gradients get extra bits, so the extrapolation is still right to its last bit at the far side of the kernel.
+	 * Returns the kernel's shift, the extrapolation's shift, the gradients' extra bits, and the shift back down to FIXED_SHIFT.
+	 */
+	private static int[] fixedShifts(double kernelMax, double extrapolationMax, double productMax) {
+		if (kernelMax == 0) return new int[] { 15, 15, 0, 30 - FIXED_SHIFT };
+		int total = Math.min(29 - Math.getExponent(productMax), FIXED_SHIFT + 30);
+		if (total - FIXED_SHIFT < 1) {
+			throw new IllegalArgumentException("Amplitude is too large for fixed point, the noise has to fit in an int at 2^" + FIXED_SHIFT + ".");
+		}
+		int kernelShift = (total + Math.getExponent(extrapolationMax) - Math.getExponent(kernelMax)) >> 1;
+		int extrapolationShift = total - kernelShift;
+		int gradientBits = Math.max(28 - Math.getExponent(extrapolationMax) - extrapolationShift, 0);
+		return new int[] { kernelShift, extrapolationShift, gradientBits, total - FIXED_SHIFT };
+	}
+	
+	/**
+	 * Generate the 3D noise over a large volume, the same as generate3, but stamping the vertices grouped by destination tile.
+	 * Breadth-first order spreads consecutive stamps over slices far apart, which falls out of cache on large buffers.
+	 */
+	public void generate3Tiled(GenerateContext3D context, double[][][] buffer, int x0, int y0, int z0) {
+		int depth = buffer.length;
+		int height = buffer[0].length;
+		int width = buffer[0][0].length;
+		generate3Tiled(context, buffer, x0, y0, z0, width, height, depth, 0, 0, 0);
+	}
+	
+	/**
+	 * Generate the 3D noise over a large volume, the same as generate3, but stamping the vertices grouped by destination tile.
+	 * Breadth-first order spreads consecutive stamps over slices far apart, which falls out of cache on large buffers.
+	 */
+	public void generate3Tiled(GenerateContext3D context, double[][][] buffer, int x0, int y0, int z0,
+			int width, int height, int depth, int skipX, int skipY, int skipZ) {
+		if (context.periodWidth != 0) throw new IllegalArgumentException("generate3Tiled doesn't support periodic contexts, use generate3.");
+		Queue<AreaGenLatticePoint3D> queue = new LinkedList<AreaGenLatticePoint3D>();
+		Set<AreaGenLatticePoint3D> seen = new HashSet<AreaGenLatticePoint3D>();
+		List<AreaGenLatticePoint3D> vertices = new ArrayList<AreaGenLatticePoint3D>();
+		
+		int scaledRadiusX = context.scaledRadiusX;
+		int scaledRadiusY = context.scaledRadiusY;
+		int scaledRadiusZ = context.scaledRadiusZ;
+		int x0Skipped = x0 + skipX, y0Skipped = y0 + skipY, z0Skipped = z0 + skipZ;
+		
+		// Same starting point as generate3.
+		double qx = context.orientation.qx, qy = context.orientation.qy, qz = context.orientation.qz, qw = context.orientation.qw;
+		double x0f = context.m00 * x0Skipped + context.m01 * y0Skipped + context.m02 * z0Skipped;
+		double y0f = context.m10 * x0Skipped + context.m11 * y0Skipped + context.m12 * z0Skipped;
+		double z0f = context.m20 * x0Skipped + context.m21 * y0Skipped + context.m22 * z0Skipped;
+		double tx = 2 * (qy * z0f - qz * y0f);
+		double ty = 2 * (qz * x0f - qx * z0f);
+		double tz = 2 * (qx * y0f - qy * x0f);
+		double x0r = x0f + qw * tx + (qy * tz - qz * ty);
+		double y0r = y0f + qw * ty + (qz * tx - qx * tz);
+		double z0r = z0f + qw * tz + (qx * ty - qy * tx);
+		AreaGenLatticePoint3D firstPoint = new AreaGenLatticePoint3D(context, fastFloor(x0r), fastFloor(y0r), fastFloor(z0r), 0);
+		queue.add(firstPoint);
+		seen.add(firstPoint);
+		
+		// First only find the vertices, with the same flood-fill.
+		while (!queue.isEmpty()) {
+			AreaGenLatticePoint3D point = queue.remove();
+			vertices.add(point);
+			
+			for (int i = 0; i < NEIGHBOR_MAP_3D[0].length; i++) {
+				int l = point.lattice;
+				AreaGenLatticePoint3D neighbor = new AreaGenLatticePoint3D(context,
+						point.xsv + NEIGHBOR_MAP_3D[l][i][0], point.ysv + NEIGHBOR_MAP_3D[l][i][1], point.zsv + NEIGHBOR_MAP_3D[l][i][2], 1 ^ l);
+				
+				// If it's in range of the buffer region and not seen before
+				if (neighbor.destPointX + scaledRadiusX >= x0Skipped && neighbor.destPointX - scaledRadiusX <= x0 + width - 1
+						&& neighbor.destPointY + scaledRadiusY >= y0Skipped && neighbor.destPointY - scaledRadiusY <= y0 + height - 1
+						&& neighbor.destPointZ + scaledRadiusZ >= z0Skipped && neighbor.destPointZ - scaledRadiusZ <= z0 + depth - 1
+						&& !seen.contains(neighbor)) {
+					queue.add(neighbor);
+					seen.add(neighbor);
+				}
+			}
+		}
+		
+		// Then put them in tile order.
+		int count = vertices.size();
+		int tilesX = ((width - skipX - 1) >> TILE_SHIFT_3D) + 1, tilesY = ((height - skipY - 1) >> TILE_SHIFT_3D) + 1;
+		int tilesZ = ((depth - skipZ - 1) >> TILE_SHIFT_3D) + 1;
+		int[] tiles = new int[count];
+		for (int i = 0; i < count; i++) {
+			AreaGenLatticePoint3D point = vertices.get(i);
+			int tileX = clamp((point.destPointX - x0Skipped) >> TILE_SHIFT_3D, tilesX);
+			int tileY = clamp((point.destPointY - y0Skipped) >> TILE_SHIFT_3D, tilesY);
+			int tileZ = clamp((point.destPointZ - z0Skipped) >> TILE_SHIFT_3D, tilesZ);
+			tiles[i] = (tileZ * tilesY + tileY) * tilesX + tileX;
+		}
+		int[] order = tileOrder(tiles, count, tilesX, tilesY, tilesZ);
+		
+		// And stamp them, with the same stamper as generate3.
+		VertexStamper3D stamper = new VertexStamper3D(context, buffer, null, null, null, x0, y0, z0, width, height, depth, skipX, skipY, skipZ);
+		for (int j = 0; j < count; j++) {
+			AreaGenLatticePoint3D point = vertices.get(order[j]);
+			stamper.stamp(point.xsv, point.ysv, point.zsv, point.destPointX, point.destPointY, point.destPointZ);
+		}
+	}
+	
+	/**
+	 * Counting sort of vertex indices by tile, with the tiles in Morton (Z-curve) order,
+	 * so that tiles next to each other in the order are mostly next to each other in the buffer too.
+	 */
+	private static int[] tileOrder(int[] tiles, int count, int tilesX, int tilesY, int tilesZ) {
+		int nTiles = tilesX * tilesY * tilesZ;
+		
+		// Morton codes are unique, so sorting them and decoding them back gives each tile's place in the order.
+		long[] codes = new long[nTiles];
+		for (int tileZ = 0, t = 0; tileZ < tilesZ; tileZ++) {
+			for (int tileY = 0; tileY < tilesY; tileY++) {
+				for (int tileX = 0; tileX < tilesX; tileX++, t++) {
+					long code = 0;
+					for (int b = 0; b < 21; b++) {
+						code |= ((long)(tileX >> b & 1) << (3 * b)) | ((long)(tileY >> b & 1) << (3 * b + 1)) | ((long)(tileZ >> b & 1) << (3 * b + 2));
+					}
+					codes[t] = code;
+				}
+			}
+		}
+		Arrays.sort(codes);
+		int[] rank = new int[nTiles];
+		for (int r = 0; r < nTiles; r++) {
+			int tileX = 0, tileY = 0, tileZ = 0;
+			for (int b = 0; b < 21; b++) {
+				tileX |= (int)(codes[r] >> (3 * b) & 1) << b;
+				tileY |= (int)(codes[r] >> (3 * b + 1) & 1) << b;
+				tileZ |= (int)(codes[r] >> (3 * b + 2) & 1) << b;
+			}
+			rank[(tileZ * tilesY + tileY) * tilesX + tileX] = r;
+		}
+		
+		int[] start = new int[nTiles + 1];
+		for (int i = 0; i < count; i++) {
+			start[rank[tiles[i]] + 1]++;
+		}
+		for (int r = 0; r < nTiles; r++) {
+			start[r + 1] += start[r];
+		}
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[start[rank[tiles[i]]]++] = i;
+		}
+		return order;
+	}
+	
+	/**
+	 * Stream successive Z slices of the 3D noise, for animating 2D fields through time.
+	 * Each frame is the same as generate3 with a depth of 1, at z0, z0 + 1, and so on.
+	 * Use LatticeOrientation3D.XYBeforeZ, as with noise3_XYBeforeZ(x, y, T).
+	 */
+	public SliceStream3D sliceStream3(GenerateContext3D context, int x0, int y0, int z0, int width, int height) {
+		if (context.periodWidth != 0) throw new IllegalArgumentException("sliceStream3 doesn't support periodic contexts, use generate3.");
+		return new SliceStream3D(context, x0, y0, z0, width, height);
+	}
+	
+	/**
+	 * Consecutive frames share almost all of their vertices. So rather than flood-filling each frame from scratch,
+	 * this keeps the active vertices and their gradients between frames. A vertex is brought in on the first frame
+	 * it can reach, which is also when its neighbors are looked at, and retired after the last.
+	 */
+	public class SliceStream3D {
+		
+		private GenerateContext3D context;
+		private int x0, y0, width, height;
+		private int z;
+		private double[][] frame;
+		
+		private List<SliceStreamVertex3D> active = new ArrayList<SliceStreamVertex3D>();
+		private Queue<SliceStreamVertex3D> pending = new PriorityQueue<SliceStreamVertex3D>();
+		private Set<AreaGenLatticePoint3D> seen = new HashSet<AreaGenLatticePoint3D>();
+		
+		private SliceStream3D(GenerateContext3D context, int x0, int y0, int z0, int width, int height) {
+			this.context = context;
+			this.x0 = x0; this.y0 = y0; this.z = z0;
+			this.width = width; this.height = height;
+			this.frame = new double[height][width];
+			
+			// Same starting point as generate3.
+			double qx = context.orientation.qx, qy = context.orientation.qy, qz = context.orientation.qz, qw = context.orientation.qw;
+			double x0f = context.m00 * x0 + context.m01 * y0 + context.m02 * z0;
+			double y0f = context.m10 * x0 + context.m11 * y0 + context.m12 * z0;
+			double z0f = context.m20 * x0 + context.m21 * y0 + context.m22 * z0;
+			double tx = 2 * (qy * z0f - qz * y0f);
+			double ty = 2 * (qz * x0f - qx * z0f);
+			double tz = 2 * (qx * y0f - qy * x0f);
+			double x0r = x0f + qw * tx + (qy * tz - qz * ty);
+			double y0r = y0f + qw * ty + (qz * tx - qx * tz);
+			double z0r = z0f + qw * tz + (qx * ty - qy * tx);
+			
+			AreaGenLatticePoint3D firstPoint = new AreaGenLatticePoint3D(context, fastFloor(x0r), fastFloor(y0r), fastFloor(z0r), 0);
+			seen.add(firstPoint);
+			activate(new SliceStreamVertex3D(context, firstPoint));
+		}
+		
+		/**
+		 * The Z of the frame the next call to nextFrame will produce.
+		 */
+		public int getZ() {
+			return z;
+		}
+		
+		/**
+		 * Generate the frame at the current Z, then move on to the next.
+		 * The same buffer is returned every time, and overwritten by the next call.
+		 */
+		public double[][] nextFrame() {
+			int scaledRadiusX = context.scaledRadiusX;
+			int scaledRadiusY = context.scaledRadiusY;
+			int scaledRadiusZ = context.scaledRadiusZ;
+			double[][][] kernel = context.kernel;
+			
+			// Retire the vertices the slab has moved past.
+			for (int i = active.size() - 1; i >= 0; i--) {
+				SliceStreamVertex3D vertex = active.get(i);
+				if (vertex.lastZ < z) {
+					seen.remove(vertex.point);
+					SliceStreamVertex3D last = active.remove(active.size() - 1);
+					if (i < active.size()) active.set(i, last);
+				}
+			}
+			
+			// Bring in the vertices that reach this frame. Their neighbors may too.
+			while (!pending.isEmpty() && pending.peek().firstZ <= z) {
+				activate(pending.remove());
+			}
+			
+			for (int y = 0; y < height; y++) {
+				Arrays.fill(frame[y], 0);
+			}
+			
+			for (int i = 0; i < active.size(); i++) {
+				SliceStreamVertex3D vertex = active.get(i);
+				int destPointX = vertex.point.destPointX;
+				int destPointY = vertex.point.destPointY;
+				int dz = z - vertex.point.destPointZ;
+				int kz = dz + scaledRadiusZ;
+				if (kz < context.kernelBoundsZ0 || kz >= context.kernelBoundsZ1) continue;
+				double gx = vertex.gx, gy = vertex.gy, gzOff = vertex.gz * dz + vertex.gOff;
+				
+				// Set up bounds so we only loop over what we need to
+				int yy0 = destPointY + context.kernelBoundsY0[kz] - scaledRadiusY; if (yy0 < y0) yy0 = y0;
+				int yy1 = destPointY + context.kernelBoundsY1[kz] - scaledRadiusY; if (yy1 > y0 + height) yy1 = y0 + height;
+				
+				// For each row of the contribution ellipse,
+				for (int yy = yy0; yy < yy1; yy++) {
+					int dy = yy - destPointY;
+					int ky = dy + scaledRadiusY;
+					
+					// Set up bounds so we only loop over what we need to
+					int xx0 = destPointX + context.kernelBoundsX0[kz][ky] - scaledRadiusX; if (xx0 < x0) xx0 = x0;
+					int xx1 = destPointX + context.kernelBoundsX1[kz][ky] - scaledRadiusX; if (xx1 > x0 + width) xx1 = x0 + width;
+					double[] kernelRow = kernel[kz][ky];
+					double[] row = frame[yy - y0];
+					
+					// Loop over the kernel row rather than the frame row. The JIT unrolls this one much better.
+					int kx0 = xx0 - destPointX + scaledRadiusX, kx1 = xx1 - destPointX + scaledRadiusX;
+					int rowOffset = destPointX - scaledRadiusX - x0;
+					double rowExtrapolation = gy * dy + gzOff - gx * scaledRadiusX;
+					
+					// For each point on that row
+					for (int kx = kx0; kx < kx1; kx++) {
+						row[kx + rowOffset] += kernelRow[kx] * (gx * kx + rowExtrapolation);
+					}
+				}
+			}
+			
+			z++;
+			return frame;
+		}
+		
+		/**
+		 * Start using a vertex for frames, and look at its neighbors.
+		 * Any that are in range of the frame and not behind the slab get queued for the first frame they reach.
+		 */
+		private void activate(SliceStreamVertex3D vertex) {
+			AreaGenLatticePoint3D point = vertex.point;
+			int pxm = (point.xsv ^ seedX) & PMASK, pym = (point.ysv ^ seedY) & PMASK, pzm = (point.zsv ^ seedZ) & PMASK;
+			Grad3 grad = context.orientation.gradients[perm[perm[perm[pxm] ^ pym] ^ pzm]];
+			vertex.gx = grad.dx * context.m00 + grad.dy * context.m10 + grad.dz * context.m20;
+			vertex.gy = grad.dx * context.m01 + grad.dy * context.m11 + grad.dz * context.m21;
+			vertex.gz = grad.dx * context.m02 + grad.dy * context.m12 + grad.dz * context.m22;
+			vertex.gOff = 0.5 * (vertex.gx + vertex.gy + vertex.gz); // to correct for (0.5, 0.5, 0.5)-offset kernel
+			active.add(vertex);
+			
+			int scaledRadiusX = context.scaledRadiusX;
+			int scaledRadiusY = context.scaledRadiusY;
+			for (int i = 0; i < NEIGHBOR_MAP_3D[0].length; i++) {
+				int l = point.lattice;
+				AreaGenLatticePoint3D neighbor = new AreaGenLatticePoint3D(context,
+						point.xsv + NEIGHBOR_MAP_3D[l][i][0], point.ysv + NEIGHBOR_MAP_3D[l][i][1], point.zsv + NEIGHBOR_MAP_3D[l][i][2], 1 ^ l);
+				
+				// If it's in range of the frame, hasn't been passed by the slab, and not seen before
+				if (neighbor.destPointX + scaledRadiusX >= x0 && neighbor.destPointX - scaledRadiusX <= x0 + width - 1
+						&& neighbor.destPointY + scaledRadiusY >= y0 && neighbor.destPointY - scaledRadiusY <= y0 + height - 1
+						&& neighbor.destPointZ + context.scaledRadiusZ >= z
+						&& !seen.contains(neighbor)) {
+					seen.add(neighbor);
+					pending.add(new SliceStreamVertex3D(context, neighbor));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Generate a 2D slice, along any plane, of the 3D noise.
+	 * Buffer pixel (x, y) is at origin + x * u + y * v, where u and v are the axes given to the context.
+	 * Only visits the vertices within range of the plane.
+	 * Results may occasionally slightly exceed [-1, 1] due to the grid-snapped pre-generated kernels.
+	 */
+	public void generateSlice3(GenerateContextSlice3D context, double[][] buffer, double originX, double originY, double originZ) {
+		int height = buffer.length;
+		int width = buffer[0].length;
+		generateSlice3(context, buffer, originX, originY, originZ, 0, 0, width, height, 0, 0);
+	}
+	
+	/**
+	 * Generate a 2D slice, along any plane, of the 3D noise.
+	 * Buffer pixel (x, y) is at origin + (x0 + x) * u + (y0 + y) * v, where u and v are the axes given to the context.
+	 * Only visits the vertices within range of the plane.
+	 * Results may occasionally slightly exceed [-1, 1] due to the grid-snapped pre-generated kernels.
+	 */
+	public void generateSlice3(GenerateContextSlice3D context, double[][] buffer, double originX, double originY, double originZ,
+			int x0, int y0, int width, int height, int skipX, int skipY) {
+		Queue<AreaGenSlicePoint3D> queue = new LinkedList<AreaGenSlicePoint3D>();
+		Set<AreaGenSlicePoint3D> seen = new HashSet<AreaGenSlicePoint3D>();
+		
+		int scaledRadiusX = context.scaledRadiusX;
+		int scaledRadiusY = context.scaledRadiusY;
+		int x0Skipped = x0 + skipX, y0Skipped = y0 + skipY;
+		
+		// Plane origin, in frequency-scaled space.
+		double fox = originX * context.xFrequency, foy = originY * context.yFrequency, foz = originZ * context.zFrequency;
+		
+		// Get started with the vertices around the first pixel.
+		// Unlike in generate3, the base of the cube might be too far from the plane.
+		// The nearest BCC vertex is always in range, and it's one of these 16.
+		double x0f = fox + x0Skipped * context.ux + y0Skipped * context.vx;
+		double y0f = foy + x0Skipped * context.uy + y0Skipped * context.vy;
+		double z0f = foz + x0Skipped * context.uz + y0Skipped * context.vz;
+		double qx = context.orientation.qx, qy = context.orientation.qy, qz = context.orientation.qz, qw = context.orientation.qw;
+		double tx = 2 * (qy * z0f - qz * y0f);
+		double ty = 2 * (qz * x0f - qx * z0f);
+		double tz = 2 * (qx * y0f - qy * x0f);
+		double x0r = x0f + qw * tx + (qy * tz - qz * ty);
+		double y0r = y0f + qw * ty + (qz * tx - qx * tz);
+		double z0r = z0f + qw * tz + (qx * ty - qy * tx);
+		for (int l = 0; l < 2; l++) {
+			int x0rb = fastFloor(x0r - l * 0.5), y0rb = fastFloor(y0r - l * 0.5), z0rb = fastFloor(z0r - l * 0.5);
+			for (int i = 0; i < 8; i++) {
+				AreaGenSlicePoint3D startPoint = new AreaGenSlicePoint3D(context, fox, foy, foz,
+						x0rb + (i & 1) + l * 1024, y0rb + ((i >> 1) & 1) + l * 1024, z0rb + (i >> 2) + l * 1024, l);
+				if (startPoint.level >= 0 && !seen.contains(startPoint)) {
+					queue.add(startPoint);
+					seen.add(startPoint);
+				}
+			}
+		}
+		
+		while (!queue.isEmpty()) {
+			AreaGenSlicePoint3D point = queue.remove();
+			int destPointX = point.destPointX;
+			int destPointY = point.destPointY;
+			int level = point.level;
+			
+			// Prepare gradient vector, projected onto the plane axes.
+			// The part perpendicular to the plane goes into the base, along with the exact offset of the vertex.
+			int pxm = (point.xsv ^ seedX) & PMASK, pym = (point.ysv ^ seedY) & PMASK, pzm = (point.zsv ^ seedZ) & PMASK;
+			Grad3 grad = context.orientation.gradients[perm[perm[perm[pxm] ^ pym] ^ pzm]];
+			double gu = grad.dx * context.ux + grad.dy * context.uy + grad.dz * context.uz;
+			double gv = grad.dx * context.vx + grad.dy * context.vy + grad.dz * context.vz;
+			double gBase = gu * destPointX + gv * destPointY - (grad.dx * point.offsetX + grad.dy * point.offsetY + grad.dz * point.offsetZ);
+			
+			// Contribution kernel bounds, for this distance from the plane.
+			double[][] kernel = context.kernel[level];
+			int[] kernelBoundsX0 = context.kernelBoundsX0[level];
+			int[] kernelBoundsX1 = context.kernelBoundsX1[level];
+			int yy0 = destPointY + context.kernelBoundsY0[level] - scaledRadiusY; if (yy0 < y0Skipped) yy0 = y0Skipped;
+			int yy1 = destPointY + context.kernelBoundsY1[level] - scaledRadiusY; if (yy1 > y0 + height) yy1 = y0 + height;
+			
+			// For each row of the contribution ellipse,
+			for (int yy = yy0; yy < yy1; yy++) {
+				int dy = yy - destPointY;
+				int ky = dy + scaledRadiusY;
+				
+				// Set up bounds so we only loop over what we need to.
+				// Skewed plane axes make the ellipse lopsided on each row, so there are two bounds.
+				int xx0 = destPointX + kernelBoundsX0[ky] - scaledRadiusX; if (xx0 < x0Skipped) xx0 = x0Skipped;
+				int xx1 = destPointX + kernelBoundsX1[ky] - scaledRadiusX; if (xx1 > x0 + width) xx1 = x0 + width;
+				double rowExtrapolation = gv * dy + gBase;
+				
+				// For each point on that row
+				for (int xx = xx0; xx < xx1; xx++) {
+					int dx = xx - destPointX;
+					int kx = dx + scaledRadiusX;
+					
+					double extrapolation = gu * dx + rowExtrapolation;
+					buffer[yy - y0][xx - x0] += kernel[ky][kx] * extrapolation;
+				}
+			}
+			
+			// For each neighbor of the point
+			for (int i = 0; i < NEIGHBOR_MAP_3D[0].length; i++) {
+				int l = point.lattice;
+				AreaGenSlicePoint3D neighbor = new AreaGenSlicePoint3D(context, fox, foy, foz,
+						point.xsv + NEIGHBOR_MAP_3D[l][i][0], point.ysv + NEIGHBOR_MAP_3D[l][i][1], point.zsv + NEIGHBOR_MAP_3D[l][i][2], 1 ^ l);
+				
+				// If it's close enough to the plane, in range of the buffer region, and not seen before
+				if (neighbor.level >= 0
+						&& neighbor.destPointX + scaledRadiusX >= x0Skipped && neighbor.destPointX - scaledRadiusX <= x0 + width - 1
+						&& neighbor.destPointY + scaledRadiusY >= y0Skipped && neighbor.destPointY - scaledRadiusY <= y0 + height - 1
+						&& !seen.contains(neighbor)) {
+					
+					// Add it to the queue so we can process it at some point
+					queue.add(neighbor);
+					
+					// Add it to the set so we don't add it to the queue again
+					seen.add(neighbor);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Generate the 4D noise over a large volume-over-time.
+	 * Propagates by flood-fill instead of iterating over a range.
+	 * Results may occasionally slightly exceed [-1, 1] due to the grid-snapped pre-generated kernel.
+	 */
+	public void generate4(GenerateContext4D context, double[][][][] buffer, int x0, int y0, int z0, int w0) {
+		int extentW = buffer.length;
+		int depth = buffer[0].length;
+		int height = buffer[0][0].length;
+		int width = buffer[0][0][0].length;
+		generate4(context, buffer, x0, y0, z0, w0, width, height, depth, extentW, 0, 0, 0, 0);
+	}
+	
+	/**
+	 * Generate the 4D noise over a large volume-over-time.
+	 * Propagates by flood-fill instead of iterating over a range.
+	 * Results may occasionally slightly exceed [-1, 1] due to the grid-snapped pre-generated kernel.
+	 */
+	public void generate4(GenerateContext4D context, double[][][][] buffer, int x0, int y0, int z0, int w0,
+			int width, int height, int depth, int extentW, int skipX, int skipY, int skipZ, int skipW) {
+		Queue<AreaGenLatticePoint4D> queue = new LinkedList<AreaGenLatticePoint4D>();
+		Set<AreaGenLatticePoint4D> seen = new HashSet<AreaGenLatticePoint4D>();
+		
+		int scaledRadiusX = context.scaledRadiusX;
+		int scaledRadiusY = context.scaledRadiusY;
+		int scaledRadiusZ = context.scaledRadiusZ;
+		int scaledRadiusW = context.scaledRadiusW;
+		double[] kernelDx2 = context.kernelDx2;
+		int x0Skipped = x0 + skipX, y0Skipped = y0 + skipY, z0Skipped = z0 + skipZ, w0Skipped = w0 + skipW;
+		
+		// Get started with one point/vertex, the base of the skewed cell.
+		double x0f = x0Skipped * context.xFrequency, y0f = y0Skipped * context.yFrequency;
+		double z0f = z0Skipped * context.zFrequency, w0f = w0Skipped * context.wFrequency;
+		double s0 = context.orientation.skew * (x0f + y0f + z0f + w0f);
+		int x0sb = fastFloor(x0f + s0), y0sb = fastFloor(y0f + s0), z0sb = fastFloor(z0f + s0), w0sb = fastFloor(w0f + s0);
+		AreaGenLatticePoint4D firstPoint = new AreaGenLatticePoint4D(context, x0sb, y0sb, z0sb, w0sb);
+		queue.add(firstPoint);
+		seen.add(firstPoint);
+		
+		while (!queue.isEmpty()) {
+			AreaGenLatticePoint4D point = queue.remove();
+			int destPointX = point.destPointX;
+			int destPointY = point.destPointY;
+			int destPointZ = point.destPointZ;
+			int destPointW = point.destPointW;
+			
+			// Prepare gradient vector. Amplitude goes here, since the kernel is finished per-sample.
+			int pxm = (point.xsv ^ seedX) & PMASK, pym = (point.ysv ^ seedY) & PMASK, pzm = (point.zsv ^ seedZ) & PMASK, pwm = (point.wsv ^ seedW) & PMASK;
+			Grad4 grad = context.orientation.gradients[perm[perm[perm[perm[pxm] ^ pym] ^ pzm] ^ pwm]];
+			double gx = grad.dx * context.xFrequency * context.amplitude;
+			double gy = grad.dy * context.yFrequency * context.amplitude;
+			double gz = grad.dz * context.zFrequency * context.amplitude;
+			double gw = grad.dw * context.wFrequency * context.amplitude;
+			double gOff = 0.5 * (gx + gy + gz + gw); // to correct for (0.5, 0.5, 0.5, 0.5)-offset kernel
+			
+			// Contribution kernel bounds.
+			int ww0 = destPointW - scaledRadiusW; if (ww0 < w0Skipped) ww0 = w0Skipped;
+			int ww1 = destPointW + scaledRadiusW; if (ww1 > w0 + extentW) ww1 = w0 + extentW;
+			
+			// For each x/y/z volume of the contribution hypersphere,
+			for (int ww = ww0; ww < ww1; ww++) {
+				int dw = ww - destPointW;
+				int kw = dw + scaledRadiusW;
+				
+				// Set up bounds so we only loop over what we need to
+				int thisScaledRadiusZ = context.kernelBoundsZ[kw];
+				int zz0 = destPointZ - thisScaledRadiusZ; if (zz0 < z0Skipped) zz0 = z0Skipped;
+				int zz1 = destPointZ + thisScaledRadiusZ; if (zz1 > z0 + depth) zz1 = z0 + depth;
+				
+				// For each x/y slice of the contribution sphere,
+				for (int zz = zz0; zz < zz1; zz++) {
+					int dz = zz - destPointZ;
+					int kz = dz + scaledRadiusZ;
+					
+					// Set up bounds so we only loop over what we need to
+					int thisScaledRadiusY = context.kernelBoundsY[kw][kz];
+					int yy0 = destPointY - thisScaledRadiusY; if (yy0 < y0Skipped) yy0 = y0Skipped;
+					int yy1 = destPointY + thisScaledRadiusY; if (yy1 > y0 + height) yy1 = y0 + height;
+					double[] rowAttenuations = context.kernelRowAttenuation[kw][kz];
+					int[] rowBoundsX = context.kernelBoundsX[kw][kz];
+					
+					// For each row of the contribution circle,
+					for (int yy = yy0; yy < yy1; yy++) {
+						int dy = yy - destPointY;
+						int ky = dy + scaledRadiusY;
+						
+						// Set up bounds so we only loop over what we need to
+						int thisScaledRadiusX = rowBoundsX[ky];
+						int xx0 = destPointX - thisScaledRadiusX; if (xx0 < x0Skipped) xx0 = x0Skipped;
+						int xx1 = destPointX + thisScaledRadiusX; if (xx1 > x0 + width) xx1 = x0 + width;
+						
+						double rowAttenuation = rowAttenuations[ky];
+						double rowExtrapolation = gy * dy + gz * dz + gw * dw + gOff;
+						double[] row = buffer[ww - w0][zz - z0][yy - y0];
+						
+						// For each point on that row
+						for (int xx = xx0; xx < xx1; xx++) {
+							int dx = xx - destPointX;
+							int kx = dx + scaledRadiusX;
+							
+							// A full 4D kernel table would be far too large at typical frequencies,
+							// so only the attenuation is pre-generated, per row and per X.
+							double attn = rowAttenuation - kernelDx2[kx];
+							attn *= attn;
+							row[xx - x0] += attn * attn * (gx * dx + rowExtrapolation);
+						}
+					}
+				}
+			}
+			
+			// For each neighbor of the point
+			for (int i = 0; i < NEIGHBOR_MAP_4D.length; i++) {
+				AreaGenLatticePoint4D neighbor = new AreaGenLatticePoint4D(context,
+						point.xsv + NEIGHBOR_MAP_4D[i][0], point.ysv + NEIGHBOR_MAP_4D[i][1],
+						point.zsv + NEIGHBOR_MAP_4D[i][2], point.wsv + NEIGHBOR_MAP_4D[i][3]);
+				
+				// If it's in range of the buffer region and not seen before
+				if (neighbor.destPointX + scaledRadiusX >= x0Skipped && neighbor.destPointX - scaledRadiusX <= x0 + width - 1
+						&& neighbor.destPointY + scaledRadiusY >= y0Skipped && neighbor.destPointY - scaledRadiusY <= y0 + height - 1
+						&& neighbor.destPointZ + scaledRadiusZ >= z0Skipped && neighbor.destPointZ - scaledRadiusZ <= z0 + depth - 1
+						&& neighbor.destPointW + scaledRadiusW >= w0Skipped && neighbor.destPointW - scaledRadiusW <= w0 + extentW - 1
+						&& !seen.contains(neighbor)) {
+					
+					// Add it to the queue so we can process it at some point
+					queue.add(neighbor);
+					
+					// Add it to the set so we don't add it to the queue again
+					seen.add(neighbor);
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Domain warping
+	 */
+	
+	// Image space offsets for the second and third warp fields, so they don't repeat the first.
+	private static final int WARP_OFFSET_A = 5419;
+	private static final int WARP_OFFSET_B = -7173;
+	private static final int WARP_OFFSET_C = 3181;
+	
+	// Warp fields are generated in bands this many rows tall, and pixels are displaced and evaluated in tiles this wide.
+	private static final int WARP_TILE_SIZE = 64;
+	private static final int WARP_TILE_SIZE_3D = 16;
+	
+	/**
+	 * Generate domain-warped 2D noise over a large area.
+	 * The warp fields are area-generated like any other noise, then the base noise
+	 * is evaluated at the displaced positions, grouped by lattice cell.
+	 */
+	public void generateWarped2(GenerateContextWarp2D context, double[][] buffer, int x0, int y0) {
+		int height = buffer.length;
+		int width = buffer[0].length;
+		generateWarped2(context, buffer, x0, y0, width, height, 0, 0);
+	}
+	
+	/**
+	 * Generate domain-warped 2D noise over a large area.
+	 * The warp fields are area-generated like any other noise, then the base noise
+	 * is evaluated at the displaced positions, grouped by lattice cell.
+	 */
+	public void generateWarped2(GenerateContextWarp2D context, double[][] buffer, int x0, int y0, int width, int height, int skipX, int skipY) {
+		
+		// One band of rows at a time, so the warp fields and the batch stay in cache.
+		double[][] warpX = new double[WARP_TILE_SIZE][width];
+		double[][] warpY = new double[WARP_TILE_SIZE][width];
+		WarpBatch batch = new WarpBatch(WARP_TILE_SIZE * WARP_TILE_SIZE);
+		for (int by = skipY; by < height; by += WARP_TILE_SIZE) {
+			int bandHeight = Math.min(WARP_TILE_SIZE, height - by);
+			
+			// All warp octaves add into the same two fields. Their amplitudes are displacements in pixels.
+			for (int y = 0; y < bandHeight; y++) {
+				Arrays.fill(warpX[y], 0);
+				Arrays.fill(warpY[y], 0);
+			}
+			for (GenerateContext2D octave : context.warpOctaves) {
+				generate2(octave, warpX, x0, y0 + by, width, bandHeight, skipX, 0);
+				generate2(octave, warpY, x0 + WARP_OFFSET_A, y0 + by + WARP_OFFSET_B, width, bandHeight, skipX, 0);
+			}
+			
+			for (int tx = skipX; tx < width; tx += WARP_TILE_SIZE) {
+				int tx1 = Math.min(tx + WARP_TILE_SIZE, width);
+				
+				// Displace each pixel, and take it straight to skewed lattice space.
+				int count = 0;
+				for (int y = 0; y < bandHeight; y++) {
+					for (int x = tx; x < tx1; x++, count++) {
+						double xw = x0 + x + warpX[y][x], yw = y0 + by + y + warpY[y][x];
+						batch.xs[count] = context.s00 * xw + context.s01 * yw;
+						batch.ys[count] = context.s10 * xw + context.s11 * yw;
+					}
+				}
+				
+				noise2_Batched(batch, count);
+				
+				for (int y = 0, i = 0; y < bandHeight; y++) {
+					double[] row = buffer[by + y];
+					for (int x = tx; x < tx1; x++, i++) {
+						row[x] += batch.values[i] * context.amplitude;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Generate domain-warped 3D noise over a large volume.
+	 * The warp fields are area-generated like any other noise, then the base noise
+	 * is evaluated at the displaced positions, grouped by lattice cell.
+	 */
+	public void generateWarped3(GenerateContextWarp3D context, double[][][] buffer, int x0, int y0, int z0) {
+		int depth = buffer.length;
+		int height = buffer[0].length;
+		int width = buffer[0][0].length;
+		generateWarped3(context, buffer, x0, y0, z0, width, height, depth, 0, 0, 0);
+	}
+	
+	/**
+	 * Generate domain-warped 3D noise over a large volume.
+	 * The warp fields are area-generated like any other noise, then the base noise
+	 * is evaluated at the displaced positions, grouped by lattice cell.
+	 */
+	public void generateWarped3(GenerateContextWarp3D context, double[][][] buffer, int x0, int y0, int z0,
+			int width, int height, int depth, int skipX, int skipY, int skipZ) {
+		
+		// One slab of layers at a time, so the warp fields and the batch stay in cache.
+		double[][][] warpX = new double[WARP_TILE_SIZE_3D][height][width];
+		double[][][] warpY = new double[WARP_TILE_SIZE_3D][height][width];
+		double[][][] warpZ = new double[WARP_TILE_SIZE_3D][height][width];
+		WarpBatch batch = new WarpBatch(WARP_TILE_SIZE_3D * WARP_TILE_SIZE_3D * WARP_TILE_SIZE_3D);
+		for (int bz = skipZ; bz < depth; bz += WARP_TILE_SIZE_3D) {
+			int slabDepth = Math.min(WARP_TILE_SIZE_3D, depth - bz);
+			
+			// All warp octaves add into the same three fields. Their amplitudes are displacements in pixels.
+			for (int z = 0; z < slabDepth; z++) {
+				for (int y = 0; y < height; y++) {
+					Arrays.fill(warpX[z][y], 0);
+					Arrays.fill(warpY[z][y], 0);
+					Arrays.fill(warpZ[z][y], 0);
+				}
+			}
+			for (GenerateContext3D octave : context.warpOctaves) {
+				generate3(octave, warpX, x0, y0, z0 + bz, width, height, slabDepth, skipX, skipY, 0);
+				generate3(octave, warpY, x0 + WARP_OFFSET_A, y0 + WARP_OFFSET_B, z0 + bz + WARP_OFFSET_C, width, height, slabDepth, skipX, skipY, 0);
+				generate3(octave, warpZ, x0 + WARP_OFFSET_B, y0 + WARP_OFFSET_C, z0 + bz + WARP_OFFSET_A, width, height, slabDepth, skipX, skipY, 0);
+			}
+			
+			for (int ty = skipY; ty < height; ty += WARP_TILE_SIZE_3D) {
+				int ty1 = Math.min(ty + WARP_TILE_SIZE_3D, height);
+				for (int tx = skipX; tx < width; tx += WARP_TILE_SIZE_3D) {
+					int tx1 = Math.min(tx + WARP_TILE_SIZE_3D, width);
+					
+					// Displace each pixel, and take it straight to rotated lattice space.
+					int count = 0;
+					for (int z = 0; z < slabDepth; z++) {
+						for (int y = ty; y < ty1; y++) {
+							for (int x = tx; x < tx1; x++, count++) {
+								double xw = x0 + x + warpX[z][y][x], yw = y0 + y + warpY[z][y][x], zw = z0 + bz + z + warpZ[z][y][x];
+								batch.xs[count] = context.r00 * xw + context.r01 * yw + context.r02 * zw;
+								batch.ys[count] = context.r10 * xw + context.r11 * yw + context.r12 * zw;
+								batch.zs[count] = context.r20 * xw + context.r21 * yw + context.r22 * zw;
+							}
+						}
+					}
+					
+					noise3_Batched(batch, count);
+					
+					for (int z = 0, i = 0; z < slabDepth; z++) {
+						for (int y = ty; y < ty1; y++) {
+							double[] row = buffer[bz + z][y];
+							for (int x = tx; x < tx1; x++, i++) {
+								row[x] += batch.values[i] * context.amplitude;
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * noise2_Base over a tile of points at once. Neighboring pixels mostly share a lattice cell,
+	 * so each vertex around a cell is only hashed once for the whole run of points inside it.
+	 * Sorting the points by cell first was tried, but cost more than it saved.
+	 */
+	private void noise2_Batched(WarpBatch batch, int count) {
+		double[] xs = batch.xs, ys = batch.ys, values = batch.values;
+		
+		// Gradients of the 4x4 block of vertices around the current cell, filled as they're needed.
+		Grad2[] cellGrads = new Grad2[16];
+		int[] cellGradStamps = new int[16];
+		int stamp = 0;
+		int xsb = 0, ysb = 0;
+		
+		for (int i = 0; i < count; i++) {
+			int xsbHere = fastFloor(xs[i]), ysbHere = fastFloor(ys[i]);
+			if (i == 0 || xsbHere != xsb || ysbHere != ysb) {
+				xsb = xsbHere; ysb = ysbHere;
+				stamp++;
+			}
+			double xsi = xs[i] - xsb, ysi = ys[i] - ysb;
+			
+			// Index to point list
+			int a = (int)(xsi + ysi);
+			int index =
+				(a << 2) |
+				(int)(xsi - ysi / 2 + 1 - a / 2.0) << 3 |
+				(int)(ysi - xsi / 2 + 1 - a / 2.0) << 4;
+			
+			double ssi = (xsi + ysi) * -0.211324865405187;
+			double xi = xsi + ssi, yi = ysi + ssi;
+			
+			// Point contributions
+			double value = 0;
+			for (int j = 0; j < 4; j++) {
+				LatticePoint2D c = LOOKUP_2D[index + j];
+				
+				double dx = xi + c.dx, dy = yi + c.dy;
+				double attn = 2.0 / 3.0 - dx * dx - dy * dy;
+				if (attn <= 0) continue;
+				
+				int slot = c.cellSlot;
+				if (cellGradStamps[slot] != stamp) {
+					int pxm = ((xsb + c.xsv) ^ seedX) & PMASK, pym = ((ysb + c.ysv) ^ seedY) & PMASK;
+					cellGrads[slot] = permGrad2[perm[pxm] ^ pym];
+					cellGradStamps[slot] = stamp;
+				}
+				Grad2 grad = cellGrads[slot];
+				double extrapolation = grad.dx * dx + grad.dy * dy;
+				
+				attn *= attn;
+				value += attn * attn * extrapolation;
+			}
+			values[i] = value;
+		}
+	}
+	
+	/**
+	 * noise3_BCC over a tile of points at once. Neighboring pixels mostly share a lattice cell,
+	 * so each vertex around a cell is only hashed once for the whole run of points inside it.
+	 */
+	private void noise3_Batched(WarpBatch batch, int count) {
+		double[] xr = batch.xs, yr = batch.ys, zr = batch.zs, values = batch.values;
+		
+		// Gradients of the vertices around the current cell, on both cubic half-lattices, filled as they're needed.
+		Grad3[] cellGrads = new Grad3[54];
+		int[] cellGradStamps = new int[54];
+		int stamp = 0;
+		int xrb = 0, yrb = 0, zrb = 0;
+		
+		for (int i = 0; i < count; i++) {
+			int xrbHere = fastFloor(xr[i]), yrbHere = fastFloor(yr[i]), zrbHere = fastFloor(zr[i]);
+			if (i == 0 || xrbHere != xrb || yrbHere != yrb || zrbHere != zrb) {
+				xrb = xrbHere; yrb = yrbHere; zrb = zrbHere;
+				stamp++;
+			}
+			double xri = xr[i] - xrb, yri = yr[i] - yrb, zri = zr[i] - zrb;
+			
+			// Identify which octant of the cube we're in.
+			int xht = (int)(xri + 0.5), yht = (int)(yri + 0.5), zht = (int)(zri + 0.5);
+			int index = (xht << 0) | (yht << 1) | (zht << 2);
+			
+			// Point contributions
+			double value = 0;
+			LatticePoint3D c = LOOKUP_3D[index];
+			while (c != null) {
+				double dxr = xri + c.dxr, dyr = yri + c.dyr, dzr = zri + c.dzr;
+				double attn = 0.75 - dxr * dxr - dyr * dyr - dzr * dzr;
+				if (attn < 0) {
+					c = c.nextOnFailure;
+				} else {
+					int slot = c.cellSlot;
+					if (cellGradStamps[slot] != stamp) {
+						int pxm = ((xrb + c.xrv) ^ seedX) & PMASK, pym = ((yrb + c.yrv) ^ seedY) & PMASK, pzm = ((zrb + c.zrv) ^ seedZ) & PMASK;
+						cellGrads[slot] = permGrad3[perm[perm[pxm] ^ pym] ^ pzm];
+						cellGradStamps[slot] = stamp;
+					}
+					Grad3 grad = cellGrads[slot];
+					double extrapolation = grad.dx * dxr + grad.dy * dyr + grad.dz * dzr;
+					
+					attn *= attn;
+					value += attn * attn * extrapolation;
+					c = c.nextOnSuccess;
+				}
+			}
+			values[i] = value;
+		}
+	}
+	
+	/*
+	 * Utility
+	 */
+	
+	private static int fastFloor(double x) {
+		int xi = (int)x;
+		return x < xi ? xi - 1 : xi;
+	}
+	
+	private static int clamp(int i, int n) {
+		return i < 0 ? 0 : (i >= n ? n - 1 : i);
+	}
+	
+	/*
+	 * Definitions
+	 */
+
 	private static final LatticePoint2D[] LOOKUP_2D;
 	private static final LatticePoint3D[] LOOKUP_3D;
+	private static final LatticePoint4D[][] LOOKUP_4D;
 	static {
 		LOOKUP_2D = new LatticePoint2D[8 * 4];
 		LOOKUP_3D = new LatticePoint3D[8];
@@ -539,6 +3308,112 @@ public class OpenSimplex2S {
 			LOOKUP_3D[i] = c0;
 			
 		}
+		
+		// 4D: Find every lattice point that can be in range of some point in the simplex where x >= y >= z >= w.
+		// The other 23 simplices are coordinate permutations of it, and so are their lists.
+		LOOKUP_4D = new LatticePoint4D[64][];
+		double[][] simplexVertices = new double[5][];
+		for (int i = 0; i < 5; i++) {
+			simplexVertices[i] = unskew4(i > 0 ? 1 : 0, i > 1 ? 1 : 0, i > 2 ? 1 : 0, i > 3 ? 1 : 0);
+		}
+		int[][] inRange = new int[6 * 6 * 6 * 6][];
+		int nInRange = 0;
+		for (int xsv = -2; xsv <= 3; xsv++) {
+			for (int ysv = -2; ysv <= 3; ysv++) {
+				for (int zsv = -2; zsv <= 3; zsv++) {
+					for (int wsv = -2; wsv <= 3; wsv++) {
+						if (distanceToSimplex(unskew4(xsv, ysv, zsv, wsv), simplexVertices) < Math.sqrt(0.8)) {
+							inRange[nInRange++] = new int[] { xsv, ysv, zsv, wsv };
+						}
+					}
+				}
+			}
+		}
+		for (int a = 0; a < 4; a++) {
+			for (int b = 0; b < 4; b++) {
+				for (int c = 0; c < 4; c++) {
+					int d = 6 - a - b - c;
+					if (a == b || a == c || b == c || d == a || d == b || d == c) continue;
+					
+					// Axis a has the largest coordinate, axis d the smallest.
+					int[] order = { a, b, c, d };
+					double[] rank = new double[4];
+					for (int i = 0; i < 4; i++) rank[order[i]] = 4 - i;
+					int index =
+						(rank[0] > rank[1] ? 1 : 0) | (rank[0] > rank[2] ? 2 : 0) | (rank[0] > rank[3] ? 4 : 0) |
+						(rank[1] > rank[2] ? 8 : 0) | (rank[1] > rank[3] ? 16 : 0) | (rank[2] > rank[3] ? 32 : 0);
+					
+					LatticePoint4D[] points = new LatticePoint4D[nInRange];
+					for (int i = 0; i < nInRange; i++) {
+						int[] v = new int[4];
+						for (int j = 0; j < 4; j++) v[order[j]] = inRange[i][j];
+						points[i] = new LatticePoint4D(v[0], v[1], v[2], v[3]);
+					}
+					LOOKUP_4D[index] = points;
+				}
+			}
+		}
+	}
+	
+	private static double[] unskew4(int xsv, int ysv, int zsv, int wsv) {
+		double ssv = (xsv + ysv + zsv + wsv) * -0.138196601125011;
+		return new double[] { xsv + ssv, ysv + ssv, zsv + ssv, wsv + ssv };
+	}
+	
+	/**
+	 * Exact distance from a point to a simplex, for building lookup tables.
+	 * Projects onto the affine hull of every face, and keeps the projections that land inside it.
+	 */
+	private static double distanceToSimplex(double[] point, double[][] vertices) {
+		int n = vertices.length, dims = point.length;
+		double best = Double.POSITIVE_INFINITY;
+		for (int mask = 1; mask < (1 << n); mask++) {
+			int[] face = new int[Integer.bitCount(mask)];
+			for (int i = 0, j = 0; i < n; i++) {
+				if ((mask & (1 << i)) != 0) face[j++] = i;
+			}
+			
+			// Least squares for the weights of the edges leaving the first vertex of the face.
+			double[] origin = vertices[face[0]];
+			int m = face.length - 1;
+			double[][] system = new double[m][m + 1];
+			for (int r = 0; r < m; r++) {
+				for (int c = 0; c <= m; c++) {
+					double[] other = (c < m) ? vertices[face[c + 1]] : point;
+					double sum = 0;
+					for (int k = 0; k < dims; k++) {
+						sum += (vertices[face[r + 1]][k] - origin[k]) * (other[k] - origin[k]);
+					}
+					system[r][c] = sum;
+				}
+			}
+			for (int r = 0; r < m; r++) {
+				for (int r2 = r + 1; r2 < m; r2++) {
+					double f = system[r2][r] / system[r][r];
+					for (int c = r; c <= m; c++) system[r2][c] -= f * system[r][c];
+				}
+			}
+			double[] weights = new double[m];
+			double weightSum = 0;
+			boolean inside = true;
+			for (int r = m - 1; r >= 0; r--) {
+				double sum = system[r][m];
+				for (int c = r + 1; c < m; c++) sum -= system[r][c] * weights[c];
+				weights[r] = sum / system[r][r];
+				weightSum += weights[r];
+				if (weights[r] < 0) inside = false;
+			}
+			if (!inside || weightSum > 1) continue;
+			
+			double distSq = 0;
+			for (int k = 0; k < dims; k++) {
+				double projected = origin[k];
+				for (int r = 0; r < m; r++) projected += weights[r] * (vertices[face[r + 1]][k] - origin[k]);
+				distSq += (point[k] - projected) * (point[k] - projected);
+			}
+			if (distSq < best) best = distSq;
+		}
+		return Math.sqrt(best);
 	}
 	
 	// Hexagon surrounding each vertex.
@@ -546,6 +3421,17 @@ public class OpenSimplex2S {
 		{ 1, 0 }, { 1, 1 }, { 0, 1 }, { 0, -1 }, { -1, -1 }, { -1, 0 }
 	};
 	
+	// Every vertex that shares a simplex with each vertex.
+	// These are the sums of each non-empty subset of the axes, in both directions.
+	private static final int[][] NEIGHBOR_MAP_4D = {
+		{ 1, 0, 0, 0 }, { 0, 1, 0, 0 }, { 0, 0, 1, 0 }, { 0, 0, 0, 1 },
+		{ 1, 1, 0, 0 }, { 1, 0, 1, 0 }, { 1, 0, 0, 1 }, { 0, 1, 1, 0 }, { 0, 1, 0, 1 }, { 0, 0, 1, 1 },
+		{ 1, 1, 1, 0 }, { 1, 1, 0, 1 }, { 1, 0, 1, 1 }, { 0, 1, 1, 1 }, { 1, 1, 1, 1 },
+		{ -1, 0, 0, 0 }, { 0, -1, 0, 0 }, { 0, 0, -1, 0 }, { 0, 0, 0, -1 },
+		{ -1, -1, 0, 0 }, { -1, 0, -1, 0 }, { -1, 0, 0, -1 }, { 0, -1, -1, 0 }, { 0, -1, 0, -1 }, { 0, 0, -1, -1 },
+		{ -1, -1, -1, 0 }, { -1, -1, 0, -1 }, { -1, 0, -1, -1 }, { 0, -1, -1, -1 }, { -1, -1, -1, -1 }
+	};
+	
 	// Cube surrounding each vertex.
 	// Alternates between half-lattices.
 	private static final int[][][] NEIGHBOR_MAP_3D = {
@@ -562,8 +3448,10 @@ public class OpenSimplex2S {
 	private static class LatticePoint2D {
 		int xsv, ysv;
 		double dx, dy;
+		int cellSlot;
 		public LatticePoint2D(int xsv, int ysv) {
 			this.xsv = xsv; this.ysv = ysv;
+			this.cellSlot = (xsv + 1) * 4 + (ysv + 1);
 			double ssv = (xsv + ysv) * -0.211324865405187;
 			this.dx = -xsv - ssv;
 			this.dy = -ysv - ssv;
@@ -574,12 +3462,35 @@ public class OpenSimplex2S {
 		public double dxr, dyr, dzr;
 		public int xrv, yrv, zrv;
 		LatticePoint3D nextOnFailure, nextOnSuccess;
+		int cellSlot;
 		public LatticePoint3D(int xrv, int yrv, int zrv, int lattice) {
+			this.cellSlot = lattice * 27 + xrv * 9 + yrv * 3 + zrv;
 			this.dxr = -xrv + lattice * 0.5; this.dyr = -yrv + lattice * 0.5; this.dzr = -zrv + lattice * 0.5;
 			this.xrv = xrv + lattice * 1024; this.yrv = yrv + lattice * 1024; this.zrv = zrv + lattice * 1024;
 		}
 	}
 	
+	private static class LatticePoint4D {
+		int xsv, ysv, zsv, wsv;
+		double dx, dy, dz, dw;
+		public LatticePoint4D(int xsv, int ysv, int zsv, int wsv) {
+			this.xsv = xsv; this.ysv = ysv; this.zsv = zsv; this.wsv = wsv;
+			double ssv = (xsv + ysv + zsv + wsv) * -0.138196601125011;
+			this.dx = -xsv - ssv;
+			this.dy = -ysv - ssv;
+			this.dz = -zsv - ssv;
+			this.dw = -wsv - ssv;
+		}
+	}
+	
+	private static class WarpBatch {
+		double[] xs, ys, zs, values;
+		public WarpBatch(int capacity) {
+			xs = new double[capacity]; ys = new double[capacity]; zs = new double[capacity];
+			values = new double[capacity];
+		}
+	}
+	
 	private static class AreaGenLatticePoint2D {
 		int xsv, ysv;
 		int destPointX, destPointY;
@@ -587,8 +3498,12 @@ public class OpenSimplex2S {
 			this.xsv = xsv; this.ysv = ysv;
 			
 			//Matrix multiplication for inverse rotation. Simplex skew transforms have always been shorthand for matrices.
-			this.destPointX = (int)Math.ceil((context.orientation.t00 * xsv + context.orientation.t01 * ysv) * context.xFrequencyInverse);
-			this.destPointY = (int)Math.ceil((context.orientation.t10 * xsv + context.orientation.t11 * ysv) * context.yFrequencyInverse);
+			double xu = context.orientation.t00 * xsv + context.orientation.t01 * ysv;
+			double yu = context.orientation.t10 * xsv + context.orientation.t11 * ysv;
+			
+			// Then the inverse of the domain transform, to get to the image.
+			this.destPointX = (int)Math.ceil(context.inverse00 * xu + context.inverse01 * yu);
+			this.destPointY = (int)Math.ceil(context.inverse10 * xu + context.inverse11 * yu);
 		}
 		public int hashCode() {
 			return xsv * 7841 + ysv;
@@ -618,169 +3533,1453 @@ public class OpenSimplex2S {
 			double xrr = xr + qw * tx + (qy * tz - qz * ty);
 			double yrr = yr + qw * ty + (qz * tx - qx * tz);
 			double zrr = zr + qw * tz + (qx * ty - qy * tx);
+			
+			// Then the inverse of the domain transform, to get to the image.
+			this.destPointX = (int)Math.ceil(context.inverse00 * xrr + context.inverse01 * yrr + context.inverse02 * zrr);
+			this.destPointY = (int)Math.ceil(context.inverse10 * xrr + context.inverse11 * yrr + context.inverse12 * zrr);
+			this.destPointZ = (int)Math.ceil(context.inverse20 * xrr + context.inverse21 * yrr + context.inverse22 * zrr);
+		}
+		public int hashCode() {
+			return xsv * 2122193 + ysv * 2053 + zsv * 2 + lattice;
+		}
+		public boolean equals(Object obj) {
+			if (!(obj instanceof AreaGenLatticePoint3D)) return false;
+			AreaGenLatticePoint3D other = (AreaGenLatticePoint3D) obj;
+			return (other.xsv == this.xsv && other.ysv == this.ysv && other.zsv == this.zsv && other.lattice == this.lattice);
+		}
+	}
+	
+	private static class SliceStreamVertex3D implements Comparable<SliceStreamVertex3D> {
+		AreaGenLatticePoint3D point;
+		int firstZ, lastZ;
+		double gx, gy, gz, gOff;
+		public SliceStreamVertex3D(GenerateContext3D context, AreaGenLatticePoint3D point) {
+			this.point = point;
+			this.firstZ = point.destPointZ - context.scaledRadiusZ;
+			this.lastZ = point.destPointZ + context.scaledRadiusZ;
+		}
+		public int compareTo(SliceStreamVertex3D other) {
+			return Integer.compare(firstZ, other.firstZ);
+		}
+	}
+	
+	private static class AreaGenSlicePoint3D {
+		int xsv, ysv, zsv, lattice;
+		int destPointX, destPointY, level;
+		double offsetX, offsetY, offsetZ;
+		public AreaGenSlicePoint3D(GenerateContextSlice3D context, double fox, double foy, double foz, int xsv, int ysv, int zsv, int lattice) {
+			this.xsv = xsv; this.ysv = ysv; this.zsv = zsv; this.lattice = lattice;
+			double xr = (xsv - lattice * 1024.5);
+			double yr = (ysv - lattice * 1024.5);
+			double zr = (zsv - lattice * 1024.5);
+			
+			// Quaternion multiplication for inverse rotation.
+			double qx = -context.orientation.qx, qy = -context.orientation.qy, qz = -context.orientation.qz, qw = context.orientation.qw;
+			double tx = 2 * (qy * zr - qz * yr);
+			double ty = 2 * (qz * xr - qx * zr);
+			double tz = 2 * (qx * yr - qy * xr);
+			double xrr = xr + qw * tx + (qy * tz - qz * ty);
+			double yrr = yr + qw * ty + (qz * tx - qx * tz);
+			double zrr = zr + qw * tz + (qx * ty - qy * tx);
+			
+			// Offset from the plane origin, in frequency-scaled space.
+			this.offsetX = xrr - fox;
+			this.offsetY = yrr - foy;
+			this.offsetZ = zrr - foz;
+			
+			// Project onto the plane axes. They needn't be orthogonal, so go through the inverse Gram matrix.
+			double du = offsetX * context.ux + offsetY * context.uy + offsetZ * context.uz;
+			double dv = offsetX * context.vx + offsetY * context.vy + offsetZ * context.vz;
+			double preciseX = context.gramInverse00 * du + context.gramInverse01 * dv;
+			double preciseY = context.gramInverse01 * du + context.gramInverse11 * dv;
+			this.destPointX = (int)Math.ceil(preciseX);
+			this.destPointY = (int)Math.ceil(preciseY);
+			
+			// Distance from the plane picks the kernel, or rules the vertex out entirely.
+			double nx = offsetX - preciseX * context.ux - preciseY * context.vx;
+			double ny = offsetY - preciseX * context.uy - preciseY * context.vy;
+			double nz = offsetZ - preciseX * context.uz - preciseY * context.vz;
+			double distSq = nx * nx + ny * ny + nz * nz;
+			if (distSq >= 0.75) {
+				this.level = -1;
+			} else {
+				this.level = (int)(Math.sqrt(distSq) * context.levelsPerUnit);
+				if (this.level >= context.kernel.length) this.level = context.kernel.length - 1;
+			}
+		}
+		public int hashCode() {
+			return xsv * 2122193 + ysv * 2053 + zsv * 2 + lattice;
+		}
+		public boolean equals(Object obj) {
+			if (!(obj instanceof AreaGenSlicePoint3D)) return false;
+			AreaGenSlicePoint3D other = (AreaGenSlicePoint3D) obj;
+			return (other.xsv == this.xsv && other.ysv == this.ysv && other.zsv == this.zsv && other.lattice == this.lattice);
+		}
+	}
+	
+	private static class AreaGenLatticePoint4D {
+		int xsv, ysv, zsv, wsv;
+		int destPointX, destPointY, destPointZ, destPointW;
+		public AreaGenLatticePoint4D(GenerateContext4D context, int xsv, int ysv, int zsv, int wsv) {
+			this.xsv = xsv; this.ysv = ysv; this.zsv = zsv; this.wsv = wsv;
+			
+			// The 4D skew is the same along every axis, so the unskew is too.
+			double ssv = context.orientation.unskew * (xsv + ysv + zsv + wsv);
+			this.destPointX = (int)Math.ceil((xsv + ssv) * context.xFrequencyInverse);
+			this.destPointY = (int)Math.ceil((ysv + ssv) * context.yFrequencyInverse);
+			this.destPointZ = (int)Math.ceil((zsv + ssv) * context.zFrequencyInverse);
+			this.destPointW = (int)Math.ceil((wsv + ssv) * context.wFrequencyInverse);
+		}
+		public int hashCode() {
+			return xsv * 2122193 + ysv * 7841 + zsv * 2053 + wsv;
+		}
+		public boolean equals(Object obj) {
+			if (!(obj instanceof AreaGenLatticePoint4D)) return false;
+			AreaGenLatticePoint4D other = (AreaGenLatticePoint4D) obj;
+			return (other.xsv == this.xsv && other.ysv == this.ysv && other.zsv == this.zsv && other.wsv == this.wsv);
+		}
+	}
+	
+	public static class GenerateContext2D {
+		
+		double m00, m01, m10, m11;
+		double inverse00, inverse01, inverse10, inverse11;
+		int scaledRadiusX;
+		int scaledRadiusY;
+		double[][] kernel;
+		int kernelBoundsY0, kernelBoundsY1;
+		int[] kernelBoundsX0;
+		int[] kernelBoundsX1;
+		LatticeOrientation2D orientation;
+		double amplitude;
+		
+		// Zero unless made by periodic. Otherwise the period in pixels, and the lattice vector each period moves by, as columns.
+		int periodWidth, periodHeight;
+		int period00, period01, period10, period11;
+		
+		// Only built if derivatives are asked for.
+		private volatile double[][][] derivativeKernels;
+		
+		// Only built if fixed point is asked for.
+		private volatile int[][] fixedKernel;
+		int[] fixedGradientsX, fixedGradientsY;
+		int fixedGradientShift, fixedOutputShift;
+		
+		// Only built if pyramids are asked for, indexed by level.
+		private volatile GenerateContext2D[] pyramidLevels;
+		
+		public GenerateContext2D(LatticeOrientation2D orientation, double xFrequency, double yFrequency, double amplitude) {
+			this(orientation,
+					xFrequency, 0,
+					0, yFrequency,
+					amplitude);
+		}
+		
+		/**
+		 * Any invertible linear transform from image coordinates to noise coordinates, instead of per-axis frequencies.
+		 * The noise is evaluated at (t00 * x + t01 * y, t10 * x + t11 * y), so rotations and shears keep area generation speeds.
+		 */
+		public GenerateContext2D(LatticeOrientation2D orientation,
+				double t00, double t01,
+				double t10, double t11,
+				double amplitude) {
+		
+			// These will be used by every call to generate
+			this.orientation = orientation;
+			this.amplitude = amplitude;
+			this.m00 = t00; this.m01 = t01;
+			this.m10 = t10; this.m11 = t11;
+			double determinant = t00 * t11 - t01 * t10;
+			if (determinant == 0) {
+				throw new IllegalArgumentException("Domain transform must be invertible.");
+			}
+			if (t01 == 0 && t10 == 0) {
+				
+				// Plain reciprocals, so per-axis frequencies place vertices exactly as they always have.
+				this.inverse00 = 1.0 / t00; this.inverse01 = 0;
+				this.inverse10 = 0; this.inverse11 = 1.0 / t11;
+			} else {
+				this.inverse00 = t11 / determinant; this.inverse01 = -t01 / determinant;
+				this.inverse10 = -t10 / determinant; this.inverse11 = t00 / determinant;
+			}
+			
+			// Bounding box of the kernel, which becomes an ellipse in the image.
+			double preciseScaledRadiusX = Math.sqrt(2.0 / 3.0) * Math.sqrt(inverse00 * inverse00 + inverse01 * inverse01);
+			double preciseScaledRadiusY = Math.sqrt(2.0 / 3.0) * Math.sqrt(inverse10 * inverse10 + inverse11 * inverse11);
+			
+			// 0.25 because we offset center by 0.5
+			this.scaledRadiusX = (int)Math.ceil(preciseScaledRadiusX + 0.25);
+			this.scaledRadiusY = (int)Math.ceil(preciseScaledRadiusY + 0.25);
+			
+			// Without rotation or shear, the kernel is mirrored top to bottom, so those rows can be shared.
+			boolean mirrored = (t01 == 0 && t10 == 0);
+		
+			// So will these
+			kernel = new double[scaledRadiusY * 2][];
+			kernelBoundsX0 = new int[scaledRadiusY * 2];
+			kernelBoundsX1 = new int[scaledRadiusY * 2];
+			kernelBoundsY0 = scaledRadiusY * 2;
+			kernelBoundsY1 = 0;
+			for (int yy = 0; yy < scaledRadiusY * 2; yy++) {
+				if (mirrored && yy >= scaledRadiusY) {
+					kernel[yy] = kernel[2 * scaledRadiusY - yy - 1];
+					kernelBoundsX0[yy] = kernelBoundsX0[2 * scaledRadiusY - yy - 1];
+					kernelBoundsX1[yy] = kernelBoundsX1[2 * scaledRadiusY - yy - 1];
+				} else {
+					kernel[yy] = new double[scaledRadiusX * 2];
+					kernelBoundsX0[yy] = scaledRadiusX * 2;
+					
+					// Pre-generate kernel, and find where it starts and ends on this row.
+					// Rotations and shears make it lopsided, so it needs both ends.
+					for (int xx = 0; xx < scaledRadiusX * 2; xx++) {
+						double a = xx + 0.5 - scaledRadiusX, b = yy + 0.5 - scaledRadiusY;
+						double dx = t00 * a + t01 * b;
+						double dy = t10 * a + t11 * b;
+						double attn = (2.0 / 3.0) - dx * dx - dy * dy;
+						if (attn > 0) {
+							attn *= attn;
+							kernel[yy][xx] = attn * attn * amplitude;
+							if (xx < kernelBoundsX0[yy]) kernelBoundsX0[yy] = xx;
+							kernelBoundsX1[yy] = xx + 1;
+						} else {
+							kernel[yy][xx] = 0.0;
+						}
+					}
+				}
+				
+				if (kernelBoundsX1[yy] > kernelBoundsX0[yy]) {
+					if (yy < kernelBoundsY0) kernelBoundsY0 = yy;
+					kernelBoundsY1 = yy + 1;
+				} else {
+					kernelBoundsX0[yy] = kernelBoundsX1[yy] = 0;
+				}
+			}
+		}
+		
+		/**
+		 * A context whose noise repeats every width pixels along X and every height pixels along Y, so it tiles seamlessly.
+		 * A period has to move a whole number of steps along each of the lattice's own axes, so the frequencies are rounded to
+		 * the nearest that do, which can also shear the noise a little. The longer the period in noise units, the less that shows.
+		 * Use it with generate2 or generate2Rows, over any area: the value at (x + width, y) is the value at (x, y),
+		 * down to the last bit or so of rounding.
+		 */
+		public static GenerateContext2D periodic(LatticeOrientation2D orientation, int width, int height,
+				double xFrequency, double yFrequency, double amplitude) {
+			if (width < 1 || height < 1) throw new IllegalArgumentException("Period must be at least one pixel along each axis.");
+			double u = xFrequency * width, v = yFrequency * height;
+			int a = (int)Math.round(orientation.s00 * u), b = (int)Math.round(orientation.s10 * u);
+			int c = (int)Math.round(orientation.s01 * v), d = (int)Math.round(orientation.s11 * v);
+			if ((long)a * d - (long)b * c == 0) {
+				throw new IllegalArgumentException("Period is too short for the frequency, it needs to span at least a lattice cell.");
+			}
+			
+			// One period along X lands exactly on lattice vertex (a, b), and one along Y on (c, d).
+			GenerateContext2D context = new GenerateContext2D(orientation,
+					(orientation.t00 * a + orientation.t01 * b) / width, (orientation.t00 * c + orientation.t01 * d) / height,
+					(orientation.t10 * a + orientation.t11 * b) / width, (orientation.t10 * c + orientation.t11 * d) / height,
+					amplitude);
+			context.periodWidth = width; context.periodHeight = height;
+			context.period00 = a; context.period01 = c;
+			context.period10 = b; context.period11 = d;
+			return context;
+		}
+		
+		/**
+		 * The same context at 2^level times the pixel size, for that level of a pyramid.
+		 * Built the first time a pyramid asks for that level with this context.
+		 */
+		GenerateContext2D pyramidLevel(int level) {
+			if (level == 0) return this;
+			GenerateContext2D[] levels = pyramidLevels;
+			if (levels != null && level < levels.length && levels[level] != null) return levels[level];
+			synchronized (this) {
+				levels = pyramidLevels;
+				if (levels != null && level < levels.length && levels[level] != null) return levels[level];
+				
+				// Copied rather than filled in, so readers outside the lock only ever see finished contexts.
+				levels = levels == null ? new GenerateContext2D[level + 1] : Arrays.copyOf(levels, Math.max(levels.length, level + 1));
+				double scale = 1 << level;
+				levels[level] = new GenerateContext2D(orientation, m00 * scale, m01 * scale, m10 * scale, m11 * scale, amplitude);
+				pyramidLevels = levels;
+				return levels[level];
+			}
+		}
+		
+		/**
+		 * Slopes of the kernel along image X and Y, on the same grid as the kernel.
+		 * Built the first time derivatives are generated with this context.
+		 */
+		double[][][] derivativeKernels() {
+			double[][][] kernels = derivativeKernels;
+			if (kernels != null) return kernels;
+			synchronized (this) {
+				if (derivativeKernels != null) return derivativeKernels;
+				kernels = new double[2][scaledRadiusY * 2][scaledRadiusX * 2];
+				for (int yy = 0; yy < scaledRadiusY * 2; yy++) {
+					for (int xx = 0; xx < scaledRadiusX * 2; xx++) {
+						double a = xx + 0.5 - scaledRadiusX, b = yy + 0.5 - scaledRadiusY;
+						double dx = m00 * a + m01 * b;
+						double dy = m10 * a + m11 * b;
+						double attn = (2.0 / 3.0) - dx * dx - dy * dy;
+						if (attn <= 0) continue;
+						
+						// amplitude * attn^4 changes by -8 * amplitude * attn^3 * (M^T M (a, b)) per pixel.
+						double slope = -8 * amplitude * attn * attn * attn;
+						kernels[0][yy][xx] = slope * (m00 * dx + m10 * dy);
+						kernels[1][yy][xx] = slope * (m01 * dx + m11 * dy);
+					}
+				}
+				derivativeKernels = kernels;
+				return kernels;
+			}
+		}
+		
+		/**
+		 * The kernel in fixed point, for generate2Fixed, along with every gradient in image space at its own scale.
+		 * Built the first time fixed point is generated with this context. The other fixed fields are set before it's published.
+		 */
+		int[][] fixedKernel() {
+			int[][] fixed = fixedKernel;
+			if (fixed != null) return fixed;
+			synchronized (this) {
+				if (fixedKernel != null) return fixedKernel;
+				
+				// How far each pixel center is from the vertex in noise units, since the extrapolation is the gradient dotted with that.
+				double kernelMax = 0, distanceMax = 0, productMax = 0;
+				for (int yy = 0; yy < scaledRadiusY * 2; yy++) {
+					for (int xx = 0; xx < scaledRadiusX * 2; xx++) {
+						double k = Math.abs(kernel[yy][xx]);
+						if (k == 0) continue;
+						double a = xx + 0.5 - scaledRadiusX, b = yy + 0.5 - scaledRadiusY;
+						double dx = m00 * a + m01 * b;
+						double dy = m10 * a + m11 * b;
+						double distance = Math.sqrt(dx * dx + dy * dy);
+						kernelMax = Math.max(kernelMax, k);
+						distanceMax = Math.max(distanceMax, distance);
+						productMax = Math.max(productMax, k * distance);
+					}
+				}
+				Grad2[] gradients = orientation.gradients;
+				double gradientMax = 0;
+				for (Grad2 grad : gradients) gradientMax = Math.max(gradientMax, Math.sqrt(grad.dx * grad.dx + grad.dy * grad.dy));
+				int[] shifts = fixedShifts(kernelMax, gradientMax * distanceMax, gradientMax * productMax);
+				
+				fixed = new int[scaledRadiusY * 2][];
+				for (int yy = 0; yy < scaledRadiusY * 2; yy++) {
+					int mirror = 2 * scaledRadiusY - yy - 1;
+					if (mirror < yy && kernel[yy] == kernel[mirror]) {
+						fixed[yy] = fixed[mirror];
+						continue;
+					}
+					fixed[yy] = new int[scaledRadiusX * 2];
+					for (int xx = 0; xx < scaledRadiusX * 2; xx++) fixed[yy][xx] = (int)Math.round(Math.scalb(kernel[yy][xx], shifts[0]));
+				}
+				fixedGradientsX = new int[gradients.length];
+				fixedGradientsY = new int[gradients.length];
+				for (int i = 0; i < gradients.length; i++) {
+					Grad2 grad = gradients[i];
+					fixedGradientsX[i] = (int)Math.round(Math.scalb(grad.dx * m00 + grad.dy * m10, shifts[1] + shifts[2]));
+					fixedGradientsY[i] = (int)Math.round(Math.scalb(grad.dx * m01 + grad.dy * m11, shifts[1] + shifts[2]));
+				}
+				fixedGradientShift = shifts[2] + 1;
+				fixedOutputShift = shifts[3];
+				fixedKernel = fixed;
+				return fixed;
+			}
+		}
+	}
+	
+	public static class GenerateContext3D {
+		
+		double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+		double inverse00, inverse01, inverse02, inverse10, inverse11, inverse12, inverse20, inverse21, inverse22;
+		int scaledRadiusX;
+		int scaledRadiusY;
+		int scaledRadiusZ;
+		double[][][] kernel;
+		int kernelBoundsZ0, kernelBoundsZ1;
+		int[] kernelBoundsY0;
+		int[] kernelBoundsY1;
+		int[][] kernelBoundsX0;
+		int[][] kernelBoundsX1;
+		LatticeOrientation3D orientation;
+		double amplitude;
+		
+		// Zero unless made by periodic. Otherwise the period in pixels, and the lattice vector each period moves by, as columns.
+		int periodWidth, periodHeight, periodDepth;
+		int period00, period01, period02, period10, period11, period12, period20, period21, period22;
+		
+		// Only built if derivatives are asked for.
+		private volatile double[][][][] derivativeKernels;
+		
+		// Only built if fixed point is asked for.
+		private volatile int[][][] fixedKernel;
+		int[] fixedGradientsX, fixedGradientsY, fixedGradientsZ;
+		int fixedGradientShift, fixedOutputShift;
+		
+		// The last context strided made. Contexts strided makes keep the strides they were made with.
+		private volatile GenerateContext3D stridedContext;
+		int strideX, strideY, strideZ;
+		
+		// The most generate3 can output with this context, for bounds3, once it's been asked for.
+		private volatile double boundsLimit;
+		
+		public GenerateContext3D(LatticeOrientation3D orientation, double xFrequency, double yFrequency, double zFrequency, double amplitude) {
+			this(orientation,
+					xFrequency, 0, 0,
+					0, yFrequency, 0,
+					0, 0, zFrequency,
+					amplitude);
+		}
+		
+		/**
+		 * Any invertible linear transform from image coordinates to noise coordinates, instead of per-axis frequencies.
+		 * The noise is evaluated at (t00 * x + t01 * y + t02 * z, t10 * x + ..., t20 * x + ...),
+		 * so rotations and shears keep area generation speeds.
+		 */
+		public GenerateContext3D(LatticeOrientation3D orientation,
+				double t00, double t01, double t02,
+				double t10, double t11, double t12,
+				double t20, double t21, double t22,
+				double amplitude) {
+			this(orientation, t00, t01, t02, t10, t11, t12, t20, t21, t22, amplitude, true);
+		}
+		
+		// Without the kernel, for contexts that only need the transform and the radii.
+		private GenerateContext3D(LatticeOrientation3D orientation,
+				double t00, double t01, double t02,
+				double t10, double t11, double t12,
+				double t20, double t21, double t22,
+				double amplitude, boolean withKernel) {
+		
+			// These will be used by every call to generate
+			this.orientation = orientation;
+			this.amplitude = amplitude;
+			this.m00 = t00; this.m01 = t01; this.m02 = t02;
+			this.m10 = t10; this.m11 = t11; this.m12 = t12;
+			this.m20 = t20; this.m21 = t21; this.m22 = t22;
+			double cofactor00 = t11 * t22 - t12 * t21, cofactor01 = t12 * t20 - t10 * t22, cofactor02 = t10 * t21 - t11 * t20;
+			double determinant = t00 * cofactor00 + t01 * cofactor01 + t02 * cofactor02;
+			if (determinant == 0) {
+				throw new IllegalArgumentException("Domain transform must be invertible.");
+			}
+			if (t01 == 0 && t02 == 0 && t10 == 0 && t12 == 0 && t20 == 0 && t21 == 0) {
+				
+				// Plain reciprocals, so per-axis frequencies place vertices exactly as they always have.
+				this.inverse00 = 1.0 / t00; this.inverse01 = 0; this.inverse02 = 0;
+				this.inverse10 = 0; this.inverse11 = 1.0 / t11; this.inverse12 = 0;
+				this.inverse20 = 0; this.inverse21 = 0; this.inverse22 = 1.0 / t22;
+			} else {
+				this.inverse00 = cofactor00 / determinant;
+				this.inverse01 = (t02 * t21 - t01 * t22) / determinant;
+				this.inverse02 = (t01 * t12 - t02 * t11) / determinant;
+				this.inverse10 = cofactor01 / determinant;
+				this.inverse11 = (t00 * t22 - t02 * t20) / determinant;
+				this.inverse12 = (t02 * t10 - t00 * t12) / determinant;
+				this.inverse20 = cofactor02 / determinant;
+				this.inverse21 = (t01 * t20 - t00 * t21) / determinant;
+				this.inverse22 = (t00 * t11 - t01 * t10) / determinant;
+			}
+			
+			// Bounding box of the kernel, which becomes an ellipsoid in the image.
+			double preciseScaledRadiusX = Math.sqrt(0.75) * Math.sqrt(inverse00 * inverse00 + inverse01 * inverse01 + inverse02 * inverse02);
+			double preciseScaledRadiusY = Math.sqrt(0.75) * Math.sqrt(inverse10 * inverse10 + inverse11 * inverse11 + inverse12 * inverse12);
+			double preciseScaledRadiusZ = Math.sqrt(0.75) * Math.sqrt(inverse20 * inverse20 + inverse21 * inverse21 + inverse22 * inverse22);
+			
+			// 0.25 because we offset center by 0.5
+			this.scaledRadiusX = (int)Math.ceil(preciseScaledRadiusX + 0.25);
+			this.scaledRadiusY = (int)Math.ceil(preciseScaledRadiusY + 0.25);
+			this.scaledRadiusZ = (int)Math.ceil(preciseScaledRadiusZ + 0.25);
+			if (!withKernel) return;
+			
+			// Without rotation or shear, the kernel is mirrored along Y and Z, so those halves can be shared.
+			boolean mirrored = (t01 == 0 && t02 == 0 && t10 == 0 && t12 == 0 && t20 == 0 && t21 == 0);
+		
+			// So will these
+			kernel = new double[scaledRadiusZ * 2][][];
+			kernelBoundsY0 = new int[scaledRadiusZ * 2];
+			kernelBoundsY1 = new int[scaledRadiusZ * 2];
+			kernelBoundsX0 = new int[scaledRadiusZ * 2][];
+			kernelBoundsX1 = new int[scaledRadiusZ * 2][];
+			kernelBoundsZ0 = scaledRadiusZ * 2;
+			kernelBoundsZ1 = 0;
+			for (int zz = 0; zz < scaledRadiusZ * 2; zz++) {
+				if (mirrored && zz >= scaledRadiusZ) {
+					kernel[zz] = kernel[2 * scaledRadiusZ - zz - 1];
+					kernelBoundsY0[zz] = kernelBoundsY0[2 * scaledRadiusZ - zz - 1];
+					kernelBoundsY1[zz] = kernelBoundsY1[2 * scaledRadiusZ - zz - 1];
+					kernelBoundsX0[zz] = kernelBoundsX0[2 * scaledRadiusZ - zz - 1];
+					kernelBoundsX1[zz] = kernelBoundsX1[2 * scaledRadiusZ - zz - 1];
+				} else {
+					kernel[zz] = new double[scaledRadiusY * 2][];
+					kernelBoundsX0[zz] = new int[scaledRadiusY * 2];
+					kernelBoundsX1[zz] = new int[scaledRadiusY * 2];
+					kernelBoundsY0[zz] = scaledRadiusY * 2;
+					kernelBoundsY1[zz] = 0;
+					for (int yy = 0; yy < scaledRadiusY * 2; yy++) {
+						if (mirrored && yy >= scaledRadiusY) {
+							kernel[zz][yy] = kernel[zz][2 * scaledRadiusY - yy - 1];
+							kernelBoundsX0[zz][yy] = kernelBoundsX0[zz][2 * scaledRadiusY - yy - 1];
+							kernelBoundsX1[zz][yy] = kernelBoundsX1[zz][2 * scaledRadiusY - yy - 1];
+						} else {
+							kernel[zz][yy] = new double[scaledRadiusX * 2];
+							kernelBoundsX0[zz][yy] = scaledRadiusX * 2;
+					
+							// Pre-generate kernel, and find where it starts and ends on this row.
+							// Rotations and shears make it lopsided, so it needs both ends.
+							for (int xx = 0; xx < scaledRadiusX * 2; xx++) {
+								double a = xx + 0.5 - scaledRadiusX, b = yy + 0.5 - scaledRadiusY, c = zz + 0.5 - scaledRadiusZ;
+								double dx = t00 * a + t01 * b + t02 * c;
+								double dy = t10 * a + t11 * b + t12 * c;
+								double dz = t20 * a + t21 * b + t22 * c;
+								double attn = 0.75 - dx * dx - dy * dy - dz * dz;
+								if (attn > 0) {
+									attn *= attn;
+									kernel[zz][yy][xx] = attn * attn * amplitude;
+									if (xx < kernelBoundsX0[zz][yy]) kernelBoundsX0[zz][yy] = xx;
+									kernelBoundsX1[zz][yy] = xx + 1;
+								} else {
+									kernel[zz][yy][xx] = 0.0;
+								}
+							}
+						}
+						
+						if (kernelBoundsX1[zz][yy] > kernelBoundsX0[zz][yy]) {
+							if (yy < kernelBoundsY0[zz]) kernelBoundsY0[zz] = yy;
+							kernelBoundsY1[zz] = yy + 1;
+						} else {
+							kernelBoundsX0[zz][yy] = kernelBoundsX1[zz][yy] = 0;
+						}
+					}
+				}
+				
+				if (kernelBoundsY1[zz] > kernelBoundsY0[zz]) {
+					if (zz < kernelBoundsZ0) kernelBoundsZ0 = zz;
+					kernelBoundsZ1 = zz + 1;
+				} else {
+					kernelBoundsY0[zz] = kernelBoundsY1[zz] = 0;
+				}
+			}
+		}
+		
+		/**
+		 * A context whose noise repeats every width, height and depth pixels along X, Y and Z, so it tiles seamlessly.
+		 * The frequencies are rounded so that each period lands on a vertex of both lattices, the same as the 2D version.
+		 * Use it with generate3: the value at (x + width, y, z) is the value at (x, y, z), down to rounding.
+		 */
+		public static GenerateContext3D periodic(LatticeOrientation3D orientation, int width, int height, int depth,
+				double xFrequency, double yFrequency, double zFrequency, double amplitude) {
+			if (width < 1 || height < 1 || depth < 1) throw new IllegalArgumentException("Period must be at least one pixel along each axis.");
+			int[] sizes = { width, height, depth };
+			double[] frequencies = { xFrequency, yFrequency, zFrequency };
+			int[][] period = new int[3][3];
+			double[][] transform = new double[3][3];
+			double qx = orientation.qx, qy = orientation.qy, qz = orientation.qz, qw = orientation.qw;
+			for (int axis = 0; axis < 3; axis++) {
+				
+				// Rotate the period onto the lattice, and round it to the nearest vertex.
+				double x = axis == 0 ? frequencies[0] * sizes[0] : 0;
+				double y = axis == 1 ? frequencies[1] * sizes[1] : 0;
+				double z = axis == 2 ? frequencies[2] * sizes[2] : 0;
+				double tx = 2 * (qy * z - qz * y);
+				double ty = 2 * (qz * x - qx * z);
+				double tz = 2 * (qx * y - qy * x);
+				period[axis][0] = (int)Math.round(x + qw * tx + (qy * tz - qz * ty));
+				period[axis][1] = (int)Math.round(y + qw * ty + (qz * tx - qx * tz));
+				period[axis][2] = (int)Math.round(z + qw * tz + (qx * ty - qy * tx));
+				
+				// Then rotate that vertex back, for this axis' column of the transform.
+				double xr = period[axis][0], yr = period[axis][1], zr = period[axis][2];
+				tx = 2 * (-qy * zr + qz * yr);
+				ty = 2 * (-qz * xr + qx * zr);
+				tz = 2 * (-qx * yr + qy * xr);
+				transform[axis][0] = (xr + qw * tx + (-qy * tz + qz * ty)) / sizes[axis];
+				transform[axis][1] = (yr + qw * ty + (-qz * tx + qx * tz)) / sizes[axis];
+				transform[axis][2] = (zr + qw * tz + (-qx * ty + qy * tx)) / sizes[axis];
+			}
+			long determinant = (long)period[0][0] * ((long)period[1][1] * period[2][2] - (long)period[1][2] * period[2][1])
+					- (long)period[0][1] * ((long)period[1][0] * period[2][2] - (long)period[1][2] * period[2][0])
+					+ (long)period[0][2] * ((long)period[1][0] * period[2][1] - (long)period[1][1] * period[2][0]);
+			if (determinant == 0) {
+				throw new IllegalArgumentException("Period is too short for the frequency, it needs to span at least a lattice cell.");
+			}
+			
+			GenerateContext3D context = new GenerateContext3D(orientation,
+					transform[0][0], transform[1][0], transform[2][0],
+					transform[0][1], transform[1][1], transform[2][1],
+					transform[0][2], transform[1][2], transform[2][2],
+					amplitude);
+			context.periodWidth = width; context.periodHeight = height; context.periodDepth = depth;
+			context.period00 = period[0][0]; context.period01 = period[1][0]; context.period02 = period[2][0];
+			context.period10 = period[0][1]; context.period11 = period[1][1]; context.period12 = period[2][1];
+			context.period20 = period[0][2]; context.period21 = period[1][2]; context.period22 = period[2][2];
+			return context;
+		}
 		
-			this.destPointX = (int)Math.ceil(xrr * context.xFrequencyInverse);
-			this.destPointY = (int)Math.ceil(yrr * context.yFrequencyInverse);
-			this.destPointZ = (int)Math.ceil(zrr * context.zFrequencyInverse);
+		/**
+		 * The same context with each pixel stretched to strideX by strideY by strideZ, for generate3Strided.
+		 * It has no kernel, since generate3Strided works out the attenuation itself at each sample.
+		 * Only the last one asked for is kept, since callers tend to stick to one set of strides.
+		 */
+		GenerateContext3D strided(int strideX, int strideY, int strideZ) {
+			GenerateContext3D coarse = stridedContext;
+			if (coarse != null && coarse.strideX == strideX && coarse.strideY == strideY && coarse.strideZ == strideZ) return coarse;
+			coarse = new GenerateContext3D(orientation,
+					m00 * strideX, m01 * strideY, m02 * strideZ,
+					m10 * strideX, m11 * strideY, m12 * strideZ,
+					m20 * strideX, m21 * strideY, m22 * strideZ,
+					amplitude, false);
+			coarse.strideX = strideX; coarse.strideY = strideY; coarse.strideZ = strideZ;
+			stridedContext = coarse;
+			return coarse;
 		}
-		public int hashCode() {
-			return xsv * 2122193 + ysv * 2053 + zsv * 2 + lattice;
+		
+		/**
+		 * The most generate3 can put anywhere with this context, either way, for clamping bounds3 to.
+		 * It's every vertex in range at the most its kernel reaches, ignoring which way the gradients point, with each
+		 * kernel moved anywhere that generate3's snapping to the pixel grid could move it. That's a bit over |amplitude|,
+		 * and more for higher frequencies, since generate3 does go over [-1, 1] by about that much.
+		 */
+		double boundsLimit() {
+			double limit = boundsLimit;
+			if (limit != 0) return limit;
+			synchronized (this) {
+				if (boundsLimit != 0) return boundsLimit;
+				
+				// Snapping moves a kernel up to half a pixel along each image axis.
+				double snap = 0;
+				for (int corner = 0; corner < 8; corner++) {
+					double a = (corner & 1) == 0 ? -0.5 : 0.5, b = (corner & 2) == 0 ? -0.5 : 0.5, c = (corner & 4) == 0 ? -0.5 : 0.5;
+					double dx = m00 * a + m01 * b + m02 * c, dy = m10 * a + m11 * b + m12 * c, dz = m20 * a + m21 * b + m22 * c;
+					snap = Math.max(snap, Math.sqrt(dx * dx + dy * dy + dz * dz));
+				}
+				double gradientMax = 0;
+				for (Grad3 grad : orientation.gradients) {
+					gradientMax = Math.max(gradientMax, Math.sqrt(grad.dx * grad.dx + grad.dy * grad.dy + grad.dz * grad.dz));
+				}
+				
+				// The lattice mirrors about 0 and 0.5 on every axis, so points from 0 to 0.5 along each cover all of it.
+				// Each one stands in for everything up to half a step from it, which is the same as that much more snapping.
+				int steps = 24;
+				double spread = snap + Math.sqrt(3) * 0.25 / steps;
+				double radius = Math.sqrt(0.75), peak = Math.sqrt(0.75 / 9);
+				
+				// The vertices any of the points can reach.
+				int reach = (int)Math.ceil(radius + spread) + 1;
+				List<double[]> vertices = new ArrayList<double[]>();
+				for (int lattice = 0; lattice < 2; lattice++) {
+					for (int vz = -reach; vz <= reach; vz++) {
+						for (int vy = -reach; vy <= reach; vy++) {
+							for (int vx = -reach; vx <= reach; vx++) {
+								double x = vx + lattice * 0.5, y = vy + lattice * 0.5, z = vz + lattice * 0.5;
+								double dx = x - Math.max(0, Math.min(0.5, x)), dy = y - Math.max(0, Math.min(0.5, y)), dz = z - Math.max(0, Math.min(0.5, z));
+								if (dx * dx + dy * dy + dz * dz < (radius + spread) * (radius + spread)) vertices.add(new double[] { x, y, z });
+							}
+						}
+					}
+				}
+				
+				double sumMax = 0;
+				for (int k = 0; k <= steps; k++) {
+					for (int j = 0; j <= steps; j++) {
+						for (int i = 0; i <= steps; i++) {
+							double px = i * 0.5 / steps, py = j * 0.5 / steps, pz = k * 0.5 / steps;
+							double sum = 0;
+							for (double[] vertex : vertices) {
+								double dx = px - vertex[0], dy = py - vertex[1], dz = pz - vertex[2];
+								double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+								if (distance - spread >= radius) continue;
+								
+								// d (0.75 - d^2)^4 peaks at d = sqrt(0.75 / 9), so its most within spread is there or at the nearer end.
+								double d = Math.max(0, Math.max(distance - spread, Math.min(distance + spread, peak)));
+								double attn = 0.75 - d * d;
+								attn *= attn;
+								sum += d * attn * attn;
+							}
+							sumMax = Math.max(sumMax, sum);
+						}
+					}
+				}
+				limit = sumMax * gradientMax * Math.abs(amplitude);
+				boundsLimit = limit;
+				return limit;
+			}
 		}
-		public boolean equals(Object obj) {
-			if (!(obj instanceof AreaGenLatticePoint3D)) return false;
-			AreaGenLatticePoint3D other = (AreaGenLatticePoint3D) obj;
-			return (other.xsv == this.xsv && other.ysv == this.ysv && other.zsv == this.zsv && other.lattice == this.lattice);
+		
+		/**
+		 * Slopes of the kernel along image X, Y and Z, on the same grid as the kernel.
+		 * Built the first time derivatives are generated with this context.
+		 */
+		double[][][][] derivativeKernels() {
+			double[][][][] kernels = derivativeKernels;
+			if (kernels != null) return kernels;
+			synchronized (this) {
+				if (derivativeKernels != null) return derivativeKernels;
+				kernels = new double[3][scaledRadiusZ * 2][scaledRadiusY * 2][scaledRadiusX * 2];
+				for (int zz = 0; zz < scaledRadiusZ * 2; zz++) {
+					for (int yy = 0; yy < scaledRadiusY * 2; yy++) {
+						for (int xx = 0; xx < scaledRadiusX * 2; xx++) {
+							double a = xx + 0.5 - scaledRadiusX, b = yy + 0.5 - scaledRadiusY, c = zz + 0.5 - scaledRadiusZ;
+							double dx = m00 * a + m01 * b + m02 * c;
+							double dy = m10 * a + m11 * b + m12 * c;
+							double dz = m20 * a + m21 * b + m22 * c;
+							double attn = 0.75 - dx * dx - dy * dy - dz * dz;
+							if (attn <= 0) continue;
+							
+							// amplitude * attn^4 changes by -8 * amplitude * attn^3 * (M^T M (a, b, c)) per pixel.
+							double slope = -8 * amplitude * attn * attn * attn;
+							kernels[0][zz][yy][xx] = slope * (m00 * dx + m10 * dy + m20 * dz);
+							kernels[1][zz][yy][xx] = slope * (m01 * dx + m11 * dy + m21 * dz);
+							kernels[2][zz][yy][xx] = slope * (m02 * dx + m12 * dy + m22 * dz);
+						}
+					}
+				}
+				derivativeKernels = kernels;
+				return kernels;
+			}
+		}
+		
+		/**
+		 * The kernel in fixed point, for generate3Fixed, along with every gradient in image space at its own scale.
+		 * Built the first time fixed point is generated with this context. The other fixed fields are set before it's published.
+		 */
+		int[][][] fixedKernel() {
+			int[][][] fixed = fixedKernel;
+			if (fixed != null) return fixed;
+			synchronized (this) {
+				if (fixedKernel != null) return fixedKernel;
+				
+				// How far each voxel center is from the vertex in noise units, since the extrapolation is the gradient dotted with that.
+				double kernelMax = 0, distanceMax = 0, productMax = 0;
+				for (int zz = 0; zz < scaledRadiusZ * 2; zz++) {
+					for (int yy = 0; yy < scaledRadiusY * 2; yy++) {
+						for (int xx = 0; xx < scaledRadiusX * 2; xx++) {
+							double k = Math.abs(kernel[zz][yy][xx]);
+							if (k == 0) continue;
+							double a = xx + 0.5 - scaledRadiusX, b = yy + 0.5 - scaledRadiusY, c = zz + 0.5 - scaledRadiusZ;
+							double dx = m00 * a + m01 * b + m02 * c;
+							double dy = m10 * a + m11 * b + m12 * c;
+							double dz = m20 * a + m21 * b + m22 * c;
+							double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+							kernelMax = Math.max(kernelMax, k);
+							distanceMax = Math.max(distanceMax, distance);
+							productMax = Math.max(productMax, k * distance);
+						}
+					}
+				}
+				Grad3[] gradients = orientation.gradients;
+				double gradientMax = 0;
+				for (Grad3 grad : gradients) gradientMax = Math.max(gradientMax, Math.sqrt(grad.dx * grad.dx + grad.dy * grad.dy + grad.dz * grad.dz));
+				int[] shifts = fixedShifts(kernelMax, gradientMax * distanceMax, gradientMax * productMax);
+				
+				fixed = new int[scaledRadiusZ * 2][scaledRadiusY * 2][scaledRadiusX * 2];
+				for (int zz = 0; zz < scaledRadiusZ * 2; zz++) {
+					for (int yy = 0; yy < scaledRadiusY * 2; yy++) {
+						for (int xx = 0; xx < scaledRadiusX * 2; xx++) {
+							fixed[zz][yy][xx] = (int)Math.round(Math.scalb(kernel[zz][yy][xx], shifts[0]));
+						}
+					}
+				}
+				fixedGradientsX = new int[gradients.length];
+				fixedGradientsY = new int[gradients.length];
+				fixedGradientsZ = new int[gradients.length];
+				for (int i = 0; i < gradients.length; i++) {
+					Grad3 grad = gradients[i];
+					fixedGradientsX[i] = (int)Math.round(Math.scalb(grad.dx * m00 + grad.dy * m10 + grad.dz * m20, shifts[1] + shifts[2]));
+					fixedGradientsY[i] = (int)Math.round(Math.scalb(grad.dx * m01 + grad.dy * m11 + grad.dz * m21, shifts[1] + shifts[2]));
+					fixedGradientsZ[i] = (int)Math.round(Math.scalb(grad.dx * m02 + grad.dy * m12 + grad.dz * m22, shifts[1] + shifts[2]));
+				}
+				fixedGradientShift = shifts[2] + 1;
+				fixedOutputShift = shifts[3];
+				fixedKernel = fixed;
+				return fixed;
+			}
 		}
 	}
 	
-	public static class GenerateContext2D {
+	public static class GenerateContextSlice3D {
 		
 		double xFrequency;
 		double yFrequency;
-		double xFrequencyInverse;
-		double yFrequencyInverse;
+		double zFrequency;
+		double ux, uy, uz;
+		double vx, vy, vz;
+		double gramInverse00, gramInverse01, gramInverse11;
+		double levelsPerUnit;
 		int scaledRadiusX;
 		int scaledRadiusY;
-		double[][] kernel;
-		int[] kernelBounds;
-		LatticeOrientation2D orientation;
-		
-		public GenerateContext2D(LatticeOrientation2D orientation, double xFrequency, double yFrequency, double amplitude) {
+		double[][][] kernel;
+		int[] kernelBoundsY0;
+		int[] kernelBoundsY1;
+		int[][] kernelBoundsX0;
+		int[][] kernelBoundsX1;
+		LatticeOrientation3D orientation;
 		
+		/**
+		 * The axes (uX, uY, uZ) and (vX, vY, vZ) are the steps, in unscaled noise coordinates,
+		 * from one buffer pixel to the next along X and along Y. They can be any two non-parallel vectors.
+		 * A custom linear domain transform needs no separate support here: pass unit frequencies,
+		 * and apply the transform to the axes and to the origin given to generateSlice3.
+		 */
+		public GenerateContextSlice3D(LatticeOrientation3D orientation, double xFrequency, double yFrequency, double zFrequency, double amplitude,
+				double uX, double uY, double uZ, double vX, double vY, double vZ) {
+			
 			// These will be used by every call to generate
 			this.orientation = orientation;
 			this.xFrequency = xFrequency;
 			this.yFrequency = yFrequency;
-			this.xFrequencyInverse = 1.0 / xFrequency;
-			this.yFrequencyInverse = 1.0 / yFrequency;
+			this.zFrequency = zFrequency;
+			this.ux = uX * xFrequency; this.uy = uY * yFrequency; this.uz = uZ * zFrequency;
+			this.vx = vX * xFrequency; this.vy = vY * yFrequency; this.vz = vZ * zFrequency;
+			
+			double gram00 = ux * ux + uy * uy + uz * uz;
+			double gram01 = ux * vx + uy * vy + uz * vz;
+			double gram11 = vx * vx + vy * vy + vz * vz;
+			double determinant = gram00 * gram11 - gram01 * gram01;
+			if (!(determinant > 1e-12 * gram00 * gram11)) {
+				throw new IllegalArgumentException("Slice axes must not be parallel.");
+			}
+			this.gramInverse00 = gram11 / determinant;
+			this.gramInverse01 = -gram01 / determinant;
+			this.gramInverse11 = gram00 / determinant;
 			
-			double preciseScaledRadiusX = Math.sqrt(2.0 / 3.0) * xFrequencyInverse;
-			double preciseScaledRadiusY = Math.sqrt(2.0 / 3.0) * yFrequencyInverse;
+			// Bounding box of the kernel's in-plane ellipse, in pixels.
+			double radius = Math.sqrt(0.75);
+			double preciseScaledRadiusX = radius * Math.sqrt(gramInverse00);
+			double preciseScaledRadiusY = radius * Math.sqrt(gramInverse11);
 			
 			// 0.25 because we offset center by 0.5
 			this.scaledRadiusX = (int)Math.ceil(preciseScaledRadiusX + 0.25);
 			this.scaledRadiusY = (int)Math.ceil(preciseScaledRadiusY + 0.25);
-		
+			
+			// One kernel per distance from the plane, spaced about a pixel apart.
+			int nLevels = (int)Math.ceil(radius / Math.sqrt(Math.min(gram00, gram11)));
+			if (nLevels < 1) nLevels = 1;
+			this.levelsPerUnit = nLevels / radius;
+			
 			// So will these
-			kernel = new double[scaledRadiusY/* * 2*/][];
-			kernelBounds = new int[scaledRadiusY * 2];
-			for (int yy = 0; yy < scaledRadiusY * 2; yy++) {
-				
-				// Pre-generate boundary of circle
-				kernelBounds[yy] = (int)Math.ceil(
-						Math.sqrt(1.0
-							- (yy + 0.5 - scaledRadiusY) * (yy + 0.5 - scaledRadiusY) / (scaledRadiusY * scaledRadiusY)
-						) * scaledRadiusX);
-						
-				if (yy < scaledRadiusY) {
-					kernel[yy] = new double[scaledRadiusX * 2];
-					
-					// Pre-generate kernel
+			kernel = new double[nLevels][scaledRadiusY * 2][scaledRadiusX * 2];
+			kernelBoundsY0 = new int[nLevels];
+			kernelBoundsY1 = new int[nLevels];
+			kernelBoundsX0 = new int[nLevels][scaledRadiusY * 2];
+			kernelBoundsX1 = new int[nLevels][scaledRadiusY * 2];
+			for (int level = 0; level < nLevels; level++) {
+				double dn = (level + 0.5) / levelsPerUnit;
+				kernelBoundsY0[level] = scaledRadiusY * 2;
+				for (int yy = 0; yy < scaledRadiusY * 2; yy++) {
+					kernelBoundsX0[level][yy] = scaledRadiusX * 2;
 					for (int xx = 0; xx < scaledRadiusX * 2; xx++) {
-						double dx = (xx + 0.5 - scaledRadiusX) * xFrequency;
-						double dy = (yy + 0.5 - scaledRadiusY) * yFrequency;
-						double attn = (2.0 / 3.0) - dx * dx - dy * dy;
+						
+						// Pre-generate kernel, and find where it starts and ends on this row
+						double a = xx + 0.5 - scaledRadiusX, b = yy + 0.5 - scaledRadiusY;
+						double dx = a * ux + b * vx, dy = a * uy + b * vy, dz = a * uz + b * vz;
+						double attn = 0.75 - dn * dn - dx * dx - dy * dy - dz * dz;
 						if (attn > 0) {
 							attn *= attn;
-							kernel[yy][xx] = attn * attn * amplitude;
-						} else {
-							kernel[yy][xx] = 0.0;
+							kernel[level][yy][xx] = attn * attn * amplitude;
+							if (xx < kernelBoundsX0[level][yy]) kernelBoundsX0[level][yy] = xx;
+							kernelBoundsX1[level][yy] = xx + 1;
 						}
 					}
-				} /* else kernel[yy] = kernel[2 * scaledRadiusY - yy - 1];*/
+					if (kernelBoundsX1[level][yy] > 0) {
+						if (yy < kernelBoundsY0[level]) kernelBoundsY0[level] = yy;
+						kernelBoundsY1[level] = yy + 1;
+					} else {
+						kernelBoundsX0[level][yy] = 0;
+					}
+				}
 			}
 		}
 	}
 	
-	public static class GenerateContext3D {
+	public static class GenerateContext4D {
 		
 		double xFrequency;
 		double yFrequency;
 		double zFrequency;
+		double wFrequency;
 		double xFrequencyInverse;
 		double yFrequencyInverse;
 		double zFrequencyInverse;
+		double wFrequencyInverse;
+		double amplitude;
 		int scaledRadiusX;
 		int scaledRadiusY;
 		int scaledRadiusZ;
-		double[][][] kernel;
-		int[] kernelBoundsY;
-		int[][] kernelBoundsX;
-		LatticeOrientation3D orientation;
-		
-		public GenerateContext3D(LatticeOrientation3D orientation, double xFrequency, double yFrequency, double zFrequency, double amplitude) {
+		int scaledRadiusW;
+		double[] kernelDx2;
+		double[][][] kernelRowAttenuation;
+		int[] kernelBoundsZ;
+		int[][] kernelBoundsY;
+		int[][][] kernelBoundsX;
+		LatticeOrientation4D orientation;
 		
+		public GenerateContext4D(LatticeOrientation4D orientation, double xFrequency, double yFrequency, double zFrequency, double wFrequency, double amplitude) {
+			
 			// These will be used by every call to generate
 			this.orientation = orientation;
 			this.xFrequency = xFrequency;
 			this.yFrequency = yFrequency;
 			this.zFrequency = zFrequency;
+			this.wFrequency = wFrequency;
 			this.xFrequencyInverse = 1.0 / xFrequency;
 			this.yFrequencyInverse = 1.0 / yFrequency;
 			this.zFrequencyInverse = 1.0 / zFrequency;
+			this.wFrequencyInverse = 1.0 / wFrequency;
+			this.amplitude = amplitude;
 			
-			double preciseScaledRadiusX = Math.sqrt(0.75) * xFrequencyInverse;
-			double preciseScaledRadiusY = Math.sqrt(0.75) * yFrequencyInverse;
-			double preciseScaledRadiusZ = Math.sqrt(0.75) * zFrequencyInverse;
+			double preciseScaledRadiusX = Math.sqrt(0.8) * xFrequencyInverse;
+			double preciseScaledRadiusY = Math.sqrt(0.8) * yFrequencyInverse;
+			double preciseScaledRadiusZ = Math.sqrt(0.8) * zFrequencyInverse;
+			double preciseScaledRadiusW = Math.sqrt(0.8) * wFrequencyInverse;
 			
 			// 0.25 because we offset center by 0.5
 			this.scaledRadiusX = (int)Math.ceil(preciseScaledRadiusX + 0.25);
 			this.scaledRadiusY = (int)Math.ceil(preciseScaledRadiusY + 0.25);
 			this.scaledRadiusZ = (int)Math.ceil(preciseScaledRadiusZ + 0.25);
-		
-			// So will these
-			kernel = new double[scaledRadiusZ * 2][][];
-			kernelBoundsY = new int[scaledRadiusZ * 2];
-			kernelBoundsX = new int[scaledRadiusZ * 2][];
-			for (int zz = 0; zz < scaledRadiusZ * 2; zz++) {
-				
-				// Pre-generate boundary of sphere
-				kernelBoundsY[zz] = (int)Math.ceil(
-						Math.sqrt(1.0 - (zz + 0.5 - scaledRadiusZ) * (zz + 0.5 - scaledRadiusZ)
-						/ (scaledRadiusZ * scaledRadiusZ)) * scaledRadiusY);
-				
-				if (zz < scaledRadiusZ) {
-					kernel[zz] = new double[scaledRadiusY * 2][];
-					kernelBoundsX[zz] = new int[scaledRadiusY * 2];
-				} else {
-					kernel[zz] = kernel[2 * scaledRadiusZ - zz - 1];
-					kernelBoundsX[zz] = kernelBoundsX[2 * scaledRadiusZ - zz - 1];
-				}
-						
-				if (zz < scaledRadiusZ) {
+			this.scaledRadiusW = (int)Math.ceil(preciseScaledRadiusW + 0.25);
+			
+			// A full 4D kernel would be enormous, so we pre-generate what's left of the attenuation
+			// after each row's Y, Z, and W, and the squared X offset along the row.
+			kernelDx2 = new double[scaledRadiusX * 2];
+			for (int xx = 0; xx < scaledRadiusX * 2; xx++) {
+				double dx = (xx + 0.5 - scaledRadiusX) * xFrequency;
+				kernelDx2[xx] = dx * dx;
+			}
+			
+			// Mirrored halves share their arrays, like in 3D.
+			kernelRowAttenuation = new double[scaledRadiusW * 2][][];
+			kernelBoundsX = new int[scaledRadiusW * 2][][];
+			for (int ww = 0; ww < scaledRadiusW; ww++) {
+				kernelRowAttenuation[ww] = new double[scaledRadiusZ * 2][];
+				kernelBoundsX[ww] = new int[scaledRadiusZ * 2][];
+				for (int zz = 0; zz < scaledRadiusZ; zz++) {
+					kernelRowAttenuation[ww][zz] = new double[scaledRadiusY * 2];
+					kernelBoundsX[ww][zz] = new int[scaledRadiusY * 2];
 					for (int yy = 0; yy < scaledRadiusY * 2; yy++) {
+						double dy = (yy + 0.5 - scaledRadiusY) * yFrequency;
+						double dz = (zz + 0.5 - scaledRadiusZ) * zFrequency;
+						double dw = (ww + 0.5 - scaledRadiusW) * wFrequency;
+						double rowAttenuation = 0.8 - dy * dy - dz * dz - dw * dw;
+						kernelRowAttenuation[ww][zz][yy] = rowAttenuation;
 						
-						// Pre-generate boundary of sphere
-						kernelBoundsX[zz][yy] = (int)Math.ceil(
-								Math.sqrt(1.0
-									- (yy + 0.5 - scaledRadiusY) * (yy + 0.5 - scaledRadiusY) / (scaledRadiusY * scaledRadiusY)
-									- (zz + 0.5 - scaledRadiusZ) * (zz + 0.5 - scaledRadiusZ) / (scaledRadiusZ * scaledRadiusZ)
-								) * scaledRadiusX);
-						
-						if (yy < scaledRadiusY) {
-							kernel[zz][yy] = new double[scaledRadiusX * 2];
+						// Exact boundary of the hypersphere on this row, so the attenuation never goes negative.
+						int bound = 0;
+						while (bound < scaledRadiusX && kernelDx2[scaledRadiusX + bound] < rowAttenuation) bound++;
+						kernelBoundsX[ww][zz][yy] = bound;
+					}
+					kernelRowAttenuation[ww][2 * scaledRadiusZ - zz - 1] = kernelRowAttenuation[ww][zz];
+					kernelBoundsX[ww][2 * scaledRadiusZ - zz - 1] = kernelBoundsX[ww][zz];
+				}
+				kernelRowAttenuation[2 * scaledRadiusW - ww - 1] = kernelRowAttenuation[ww];
+				kernelBoundsX[2 * scaledRadiusW - ww - 1] = kernelBoundsX[ww];
+			}
+			
+			// Rows and slices that can't contribute anywhere are left out of the bounds.
+			kernelBoundsZ = new int[scaledRadiusW * 2];
+			kernelBoundsY = new int[scaledRadiusW * 2][];
+			for (int ww = 0; ww < scaledRadiusW * 2; ww++) {
+				kernelBoundsY[ww] = new int[scaledRadiusZ * 2];
+				for (int zz = 0; zz < scaledRadiusZ * 2; zz++) {
+					int bound = 0;
+					while (bound < scaledRadiusY && kernelBoundsX[ww][zz][scaledRadiusY + bound] > 0) bound++;
+					kernelBoundsY[ww][zz] = bound;
+				}
+				int bound = 0;
+				while (bound < scaledRadiusZ && kernelBoundsY[ww][scaledRadiusZ + bound] > 0) bound++;
+				kernelBoundsZ[ww] = bound;
+			}
+		}
+	}
+	
+	/**
+	 * Domain-warped 2D noise. The base noise uses this orientation and transform,
+	 * and is displaced by the sum of the warp octaves, whose amplitudes are in pixels.
+	 */
+	public static class GenerateContextWarp2D {
+		
+		double s00, s01, s10, s11;
+		double amplitude;
+		GenerateContext2D[] warpOctaves;
+		
+		public GenerateContextWarp2D(LatticeOrientation2D orientation, double xFrequency, double yFrequency, double amplitude,
+				GenerateContext2D... warpOctaves) {
+			this(orientation,
+					xFrequency, 0,
+					0, yFrequency,
+					amplitude, warpOctaves);
+		}
+		
+		public GenerateContextWarp2D(LatticeOrientation2D orientation,
+				double t00, double t01,
+				double t10, double t11,
+				double amplitude, GenerateContext2D... warpOctaves) {
+			
+			// Domain transform, then the lattice skew, as one matrix.
+			this.s00 = orientation.s00 * t00 + orientation.s01 * t10;
+			this.s01 = orientation.s00 * t01 + orientation.s01 * t11;
+			this.s10 = orientation.s10 * t00 + orientation.s11 * t10;
+			this.s11 = orientation.s10 * t01 + orientation.s11 * t11;
+			this.amplitude = amplitude;
+			this.warpOctaves = warpOctaves.clone();
+		}
+	}
+	
+	/**
+	 * Domain-warped 3D noise. The base noise uses this orientation and transform,
+	 * and is displaced by the sum of the warp octaves, whose amplitudes are in pixels.
+	 */
+	public static class GenerateContextWarp3D {
+		
+		double r00, r01, r02, r10, r11, r12, r20, r21, r22;
+		double amplitude;
+		GenerateContext3D[] warpOctaves;
+		
+		public GenerateContextWarp3D(LatticeOrientation3D orientation, double xFrequency, double yFrequency, double zFrequency, double amplitude,
+				GenerateContext3D... warpOctaves) {
+			this(orientation,
+					xFrequency, 0, 0,
+					0, yFrequency, 0,
+					0, 0, zFrequency,
+					amplitude, warpOctaves);
+		}
+		
+		public GenerateContextWarp3D(LatticeOrientation3D orientation,
+				double t00, double t01, double t02,
+				double t10, double t11, double t12,
+				double t20, double t21, double t22,
+				double amplitude, GenerateContext3D... warpOctaves) {
+			
+			// The orientation quaternion as a rotation matrix, the same one the noise3_ functions apply.
+			double qx = orientation.qx, qy = orientation.qy, qz = orientation.qz, qw = orientation.qw;
+			double q00 = 1 - 2 * (qy * qy + qz * qz), q01 = 2 * (qx * qy - qz * qw), q02 = 2 * (qx * qz + qy * qw);
+			double q10 = 2 * (qx * qy + qz * qw), q11 = 1 - 2 * (qx * qx + qz * qz), q12 = 2 * (qy * qz - qx * qw);
+			double q20 = 2 * (qx * qz - qy * qw), q21 = 2 * (qy * qz + qx * qw), q22 = 1 - 2 * (qx * qx + qy * qy);
+			
+			// Domain transform, then the rotation, as one matrix.
+			this.r00 = q00 * t00 + q01 * t10 + q02 * t20; this.r01 = q00 * t01 + q01 * t11 + q02 * t21; this.r02 = q00 * t02 + q01 * t12 + q02 * t22;
+			this.r10 = q10 * t00 + q11 * t10 + q12 * t20; this.r11 = q10 * t01 + q11 * t11 + q12 * t21; this.r12 = q10 * t02 + q11 * t12 + q12 * t22;
+			this.r20 = q20 * t00 + q21 * t10 + q22 * t20; this.r21 = q20 * t01 + q21 * t11 + q22 * t21; this.r22 = q20 * t02 + q21 * t12 + q22 * t22;
+			this.amplitude = amplitude;
+			this.warpOctaves = warpOctaves.clone();
+		}
+	}
+	
+	/**
+	 * Which pixels of a width by height area to generate, for generate2Masked, as spans of set pixels on each row.
+	 * Alongside them it keeps a summed-area table of set pixels per block of BLOCK_SIZE pixels, so asking whether
+	 * any pixel in a rectangle is set takes four lookups, however big the rectangle is.
+	 */
+	public static class Mask2D {
+		static final int BLOCK_SHIFT = 4;
+		static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+		
+		final int width, height;
+		final int[][] spans;
+		final long area;
+		
+		// Summed-area table over the blocks, (blockRows + 1) by (blockColumns + 1) with a zero first row and column.
+		final int blockColumns, blockRows;
+		final int[] blockSums;
+		
+		// The first set pixel found in each block, or -1 if it has none.
+		final int[] blockSeedX, blockSeedY;
+		
+		/**
+		 * spans[y] lists the set pixels on row y as start and end pairs, x from start up to but not including end,
+		 * in increasing order and not overlapping. A null row has nothing set.
+		 */
+		public Mask2D(int width, int height, int[][] spans) {
+			if (width < 1 || height < 1) throw new IllegalArgumentException("Mask must be at least 1x1");
+			if (spans.length != height) throw new IllegalArgumentException("Need one row of spans per row of the mask");
+			this.width = width;
+			this.height = height;
+			this.spans = new int[height][];
+			this.blockColumns = ((width - 1) >> BLOCK_SHIFT) + 1;
+			this.blockRows = ((height - 1) >> BLOCK_SHIFT) + 1;
+			this.blockSeedX = new int[blockColumns * blockRows];
+			this.blockSeedY = new int[blockColumns * blockRows];
+			Arrays.fill(blockSeedX, -1);
+			Arrays.fill(blockSeedY, -1);
+			int[] blockCounts = new int[blockColumns * blockRows];
+			long area = 0;
+			for (int y = 0; y < height; y++) {
+				int[] row = spans[y] == null ? new int[0] : spans[y].clone();
+				if ((row.length & 1) != 0) throw new IllegalArgumentException("Row " + y + " has an odd number of span ends");
+				for (int s = 0; s < row.length; s += 2) {
+					if (row[s] < (s == 0 ? 0 : row[s - 1]) || row[s + 1] <= row[s] || row[s + 1] > width) {
+						throw new IllegalArgumentException("Row " + y + " has spans out of order, empty, or outside the mask");
+					}
+					area += row[s + 1] - row[s];
 					
-							// Pre-generate kernel
-							for (int xx = 0; xx < scaledRadiusX * 2; xx++) {
-								double dx = (xx + 0.5 - scaledRadiusX) * xFrequency;
-								double dy = (yy + 0.5 - scaledRadiusY) * yFrequency;
-								double dz = (zz + 0.5 - scaledRadiusZ) * zFrequency;
-								double attn = 0.75 - dx * dx - dy * dy - dz * dz;
-								if (attn > 0) {
-									attn *= attn;
-									kernel[zz][yy][xx] = attn * attn * amplitude;
-								} else {
-									kernel[zz][yy][xx] = 0.0;
-								}
-							}
-							
-						} else kernel[zz][yy] = kernel[zz][2 * scaledRadiusY - yy - 1];
+					// Count its pixels into each block it crosses
+					for (int x = row[s]; x < row[s + 1]; x = ((x >> BLOCK_SHIFT) + 1) << BLOCK_SHIFT) {
+						int block = (y >> BLOCK_SHIFT) * blockColumns + (x >> BLOCK_SHIFT);
+						blockCounts[block] += Math.min(row[s + 1], ((x >> BLOCK_SHIFT) + 1) << BLOCK_SHIFT) - x;
+						if (blockSeedX[block] < 0) {
+							blockSeedX[block] = x;
+							blockSeedY[block] = y;
+						}
 					}
 				}
+				this.spans[y] = row;
+			}
+			this.area = area;
+			
+			blockSums = new int[(blockRows + 1) * (blockColumns + 1)];
+			for (int by = 0; by < blockRows; by++) {
+				for (int bx = 0; bx < blockColumns; bx++) {
+					blockSums[(by + 1) * (blockColumns + 1) + bx + 1] = blockCounts[by * blockColumns + bx]
+							+ blockSums[by * (blockColumns + 1) + bx + 1] + blockSums[(by + 1) * (blockColumns + 1) + bx]
+							- blockSums[by * (blockColumns + 1) + bx];
+				}
+			}
+		}
+		
+		/**
+		 * A mask of the set entries of bitmap[y][x].
+		 */
+		public static Mask2D fromBitmap(boolean[][] bitmap) {
+			int height = bitmap.length, width = bitmap[0].length;
+			int[][] spans = new int[height][];
+			int[] row = new int[width + 1];
+			for (int y = 0; y < height; y++) {
+				int count = 0;
+				for (int x = 0; x < width; x++) {
+					if (bitmap[y][x] && (x == 0 || !bitmap[y][x - 1])) row[count++] = x;
+					if (bitmap[y][x] && (x == width - 1 || !bitmap[y][x + 1])) row[count++] = x + 1;
+				}
+				spans[y] = Arrays.copyOf(row, count);
+			}
+			return new Mask2D(width, height, spans);
+		}
+		
+		/**
+		 * The pixels whose centers are within radius of (centerX, centerY), such as a view distance around a player.
+		 */
+		public static Mask2D circle(int width, int height, double centerX, double centerY, double radius) {
+			int[][] spans = new int[height][];
+			for (int y = 0; y < height; y++) {
+				double dy = y + 0.5 - centerY;
+				if (dy * dy >= radius * radius) continue;
+				double halfWidth = Math.sqrt(radius * radius - dy * dy);
+				int start = Math.max(0, (int)Math.floor(centerX - halfWidth - 0.5) + 1);
+				int end = Math.min(width, (int)Math.ceil(centerX + halfWidth - 0.5));
+				if (end > start) spans[y] = new int[] { start, end };
+			}
+			return new Mask2D(width, height, spans);
+		}
+		
+		public int width() {
+			return width;
+		}
+		
+		public int height() {
+			return height;
+		}
+		
+		/**
+		 * How many pixels are set.
+		 */
+		public long area() {
+			return area;
+		}
+		
+		/*
+		 * Whether the blocks covering the inclusive rectangle (xMin, yMin) to (xMax, yMax) have any set pixels.
+		 * Only to block precision, which is all the traversal needs, since it's only a bound on where vertices can reach.
+		 */
+		boolean intersects(int xMin, int yMin, int xMax, int yMax) {
+			if (xMin < 0) xMin = 0; if (xMax > width - 1) xMax = width - 1;
+			if (yMin < 0) yMin = 0; if (yMax > height - 1) yMax = height - 1;
+			if (xMin > xMax || yMin > yMax) return false;
+			int bx0 = xMin >> BLOCK_SHIFT, bx1 = (xMax >> BLOCK_SHIFT) + 1;
+			int by0 = yMin >> BLOCK_SHIFT, by1 = (yMax >> BLOCK_SHIFT) + 1;
+			int stride = blockColumns + 1;
+			return blockSums[by1 * stride + bx1] - blockSums[by0 * stride + bx1] - blockSums[by1 * stride + bx0] + blockSums[by0 * stride + bx0] > 0;
+		}
+		
+		/*
+		 * Index of the start of the first span on the row that ends after x.
+		 */
+		static int firstSpan(int[] rowSpans, int x) {
+			int low = 0, high = rowSpans.length >> 1;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (rowSpans[2 * middle + 1] <= x) low = middle + 1;
+				else high = middle;
+			}
+			return 2 * low;
+		}
+	}
+	
+	/**
+	 * How generate2Processed and generate3Processed put each sample in the buffer.
+	 * Overwrite replaces what's there, so the buffer needs no clearing first. Add and WeightedAdd accumulate, like generate2 and generate3 do.
+	 */
+	public enum WriteMode {
+		Overwrite, Add, WeightedAdd
+	}
+	
+	/**
+	 * Per-sample operations for generate2Processed and generate3Processed, run in the order they were added,
+	 * then the write mode. They return this, so they chain: new PostProcess(WriteMode.WeightedAdd, 0.5).ridge().scale(2).
+	 * Not changed by generating with it, so one instance can be shared between threads once it's set up.
+	 */
+	public static class PostProcess {
+		private static final int SCALE = 0, OFFSET = 1, ABS = 2, RIDGE = 3, BILLOW = 4, CLAMP = 5;
+		
+		private final WriteMode mode;
+		private final double weight;
+		private int[] ops = new int[0];
+		private double[] params = new double[0];
+		
+		public PostProcess() {
+			this(WriteMode.Overwrite, 1.0);
+		}
+		
+		public PostProcess(WriteMode mode) {
+			this(mode, 1.0);
+		}
+		
+		/**
+		 * weight only matters for WriteMode.WeightedAdd, where each sample goes in as weight * value.
+		 */
+		public PostProcess(WriteMode mode, double weight) {
+			if (mode == null) throw new IllegalArgumentException("The write mode can't be null.");
+			this.mode = mode;
+			this.weight = weight;
+		}
+		
+		public PostProcess scale(double factor) {
+			return add(SCALE, factor, 0);
+		}
+		
+		public PostProcess offset(double amount) {
+			return add(OFFSET, amount, 0);
+		}
+		
+		public PostProcess abs() {
+			return add(ABS, 0, 0);
+		}
+		
+		/**
+		 * 1 - |value|, sharp crests where the noise crosses zero.
+		 */
+		public PostProcess ridge() {
+			return add(RIDGE, 0, 0);
+		}
+		
+		/**
+		 * 2|value| - 1, rounded hills with creases between them, back in about [-1, 1].
+		 */
+		public PostProcess billow() {
+			return add(BILLOW, 0, 0);
+		}
+		
+		public PostProcess clamp(double min, double max) {
+			if (!(min <= max)) throw new IllegalArgumentException("The clamp min " + min + " is more than its max " + max + ".");
+			return add(CLAMP, min, max);
+		}
+		
+		private PostProcess add(int op, double a, double b) {
+			int n = ops.length;
+			ops = Arrays.copyOf(ops, n + 1);
+			params = Arrays.copyOf(params, 2 * n + 2);
+			ops[n] = op;
+			params[2 * n] = a;
+			params[2 * n + 1] = b;
+			return this;
+		}
+		
+		/*
+		 * Runs the operations on the first count samples of row in place, then writes them into destination from destinationX.
+		 * Each is its own loop over the row, which is in L1 by now, so they stay simple enough to vectorize.
+		 */
+		void process(double[] row, double[] destination, int destinationX, int count, Reduction reduction) {
+			for (int i = 0; i < ops.length; i++) {
+				double a = params[2 * i], b = params[2 * i + 1];
+				switch (ops[i]) {
+					case SCALE:
+						for (int x = 0; x < count; x++) row[x] *= a;
+						break;
+					case OFFSET:
+						for (int x = 0; x < count; x++) row[x] += a;
+						break;
+					case ABS:
+						for (int x = 0; x < count; x++) row[x] = Math.abs(row[x]);
+						break;
+					case RIDGE:
+						for (int x = 0; x < count; x++) row[x] = 1 - Math.abs(row[x]);
+						break;
+					case BILLOW:
+						for (int x = 0; x < count; x++) row[x] = 2 * Math.abs(row[x]) - 1;
+						break;
+					case CLAMP:
+						for (int x = 0; x < count; x++) row[x] = Math.min(Math.max(row[x], a), b);
+						break;
+				}
+			}
+			
+			switch (mode) {
+				case Overwrite:
+					System.arraycopy(row, 0, destination, destinationX, count);
+					break;
+				case Add:
+					for (int x = 0; x < count; x++) destination[destinationX + x] += row[x];
+					break;
+				case WeightedAdd:
+					for (int x = 0; x < count; x++) destination[destinationX + x] += weight * row[x];
+					break;
+			}
+			
+			if (reduction != null) reduction.accumulate(destination, destinationX, count);
+		}
+	}
+	
+	/**
+	 * The min, max and mean of what generate2Processed and generate3Processed left in the buffer, for normalizing it.
+	 * Each call adds to what's already there, so one instance can total up many tiles.
+	 * Not thread-safe, so use one per thread and add them up after.
+	 */
+	public static class Reduction {
+		public double min = Double.POSITIVE_INFINITY;
+		public double max = Double.NEGATIVE_INFINITY;
+		public double sum;
+		public long count;
+		
+		public double mean() {
+			return sum / count;
+		}
+		
+		public void reset() {
+			min = Double.POSITIVE_INFINITY;
+			max = Double.NEGATIVE_INFINITY;
+			sum = 0;
+			count = 0;
+		}
+		
+		public void add(Reduction other) {
+			min = Math.min(min, other.min);
+			max = Math.max(max, other.max);
+			sum += other.sum;
+			count += other.count;
+		}
+		
+		void accumulate(double[] row, int from, int count) {
+			double min = this.min, max = this.max, sum = 0;
+			for (int x = from; x < from + count; x++) {
+				double value = row[x];
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+				sum += value;
 			}
+			this.min = min;
+			this.max = max;
+			this.sum += sum;
+			this.count += count;
+		}
+		
+		public String toString() {
+			return "min=" + min + ", max=" + max + ", mean=" + mean() + ", count=" + count;
+		}
+	}
+	
+	/**
+	 * Counters for the generate2/generate3 overloads that take one. Each call adds to what's already there,
+	 * so one instance can total up many calls. Not thread-safe, so use one per thread and add them up after.
+	 */
+	public static class GenerationStats {
+		public long calls;
+		public long verticesVisited;
+		public long probesOutOfRange;
+		public long probesAlreadySeen;
+		public long cellsStamped;
+		public long traversalNanos;
+		public long stampNanos;
+		
+		public void reset() {
+			calls = verticesVisited = probesOutOfRange = probesAlreadySeen = cellsStamped = traversalNanos = stampNanos = 0;
+		}
+		
+		public void add(GenerationStats other) {
+			calls += other.calls;
+			verticesVisited += other.verticesVisited;
+			probesOutOfRange += other.probesOutOfRange;
+			probesAlreadySeen += other.probesAlreadySeen;
+			cellsStamped += other.cellsStamped;
+			traversalNanos += other.traversalNanos;
+			stampNanos += other.stampNanos;
+		}
+		
+		void record(long verticesVisited, long probesOutOfRange, long probesAlreadySeen, long cellsStamped, long traversalNanos, long stampNanos) {
+			this.calls++;
+			this.verticesVisited += verticesVisited;
+			this.probesOutOfRange += probesOutOfRange;
+			this.probesAlreadySeen += probesAlreadySeen;
+			this.cellsStamped += cellsStamped;
+			this.traversalNanos += traversalNanos;
+			this.stampNanos += stampNanos;
+		}
+		
+		public String toString() {
+			return "calls=" + calls + ", vertices=" + verticesVisited + ", probes out of range=" + probesOutOfRange
+					+ ", probes already seen=" + probesAlreadySeen + ", cells stamped=" + cellsStamped
+					+ ", traversal=" + (traversalNanos / 1000000.0) + "ms, stamping=" + (stampNanos / 1000000.0) + "ms";
 		}
 	}
 	
+	/*
+	 * Flight Recorder events, one per generate2, generate2Masked or generate3 call. The duration is the event's own.
+	 * Enable them with e.g. -XX:StartFlightRecording, or by name in a .jfc settings file.
+	 * While they're disabled, the JIT drops the event object and nothing is recorded.
+	 */
+	
+	@Name("OpenSimplex2S.Generate2")
+	@Label("OpenSimplex2S generate2")
+	@Category({ "Noise", "Area Generation" })
+	static class Generate2Event extends Event {
+		@Label("Orientation") String orientation;
+		@Label("Transform 00") double m00;
+		@Label("Transform 01") double m01;
+		@Label("Transform 10") double m10;
+		@Label("Transform 11") double m11;
+		@Label("Amplitude") double amplitude;
+		@Label("X0") int x0;
+		@Label("Y0") int y0;
+		@Label("Width") int width;
+		@Label("Height") int height;
+		@Label("Derivatives") boolean derivatives;
+		@Label("Vertices") long vertices;
+		@Label("Cells Stamped") long cellsStamped;
+	}
+	
+	@Name("OpenSimplex2S.Generate3")
+	@Label("OpenSimplex2S generate3")
+	@Category({ "Noise", "Area Generation" })
+	static class Generate3Event extends Event {
+		@Label("Orientation") String orientation;
+		@Label("Transform 00") double m00;
+		@Label("Transform 01") double m01;
+		@Label("Transform 02") double m02;
+		@Label("Transform 10") double m10;
+		@Label("Transform 11") double m11;
+		@Label("Transform 12") double m12;
+		@Label("Transform 20") double m20;
+		@Label("Transform 21") double m21;
+		@Label("Transform 22") double m22;
+		@Label("Amplitude") double amplitude;
+		@Label("X0") int x0;
+		@Label("Y0") int y0;
+		@Label("Z0") int z0;
+		@Label("Width") int width;
+		@Label("Height") int height;
+		@Label("Depth") int depth;
+		@Label("Derivatives") boolean derivatives;
+		@Label("Vertices") long vertices;
+		@Label("Cells Stamped") long cellsStamped;
+	}
+	
 	public enum LatticeOrientation2D {
 		// Simplex skew transforms have always been shorthand for the matrices they represent.
 		// But when we bake the rotation into the skew transform, we need to use the general form.
@@ -819,6 +5018,19 @@ public class OpenSimplex2S {
 		}
 	}
 	
+	public enum LatticeOrientation4D {
+		// The 4D skew is uniform, so it's stored as its two factors rather than as matrices.
+		Classic(GRADIENTS_4D, 0.309016994374947, -0.138196601125011);
+		
+		Grad4[] gradients;
+		double skew, unskew;
+		
+		private LatticeOrientation4D(Grad4[] gradients, double skew, double unskew) {
+			this.gradients = gradients;
+			this.skew = skew; this.unskew = unskew;
+		}
+	}
+	
 	/*
 	 * Gradients
 	 */
@@ -837,10 +5049,19 @@ public class OpenSimplex2S {
 		}
 	}
 	
+	public static class Grad4 {
+		double dx, dy, dz, dw;
+		public Grad4(double dx, double dy, double dz, double dw) {
+			this.dx = dx; this.dy = dy; this.dz = dz; this.dw = dw;
+		}
+	}
+	
 	public static final double N2 = 0.05481866495625118;
 	public static final double N3 = 0.2781926117527186;
+	public static final double N4 = 0.1809510295767272;
 	private static final Grad2[] GRADIENTS_2D, GRADIENTS_2D_X_BEFORE_Y;
 	private static final Grad3[] GRADIENTS_3D, GRADIENTS_3D_CLASSIC, GRADIENTS_3D_XY_BEFORE_Z, GRADIENTS_3D_XZ_BEFORE_Y;
+	private static final Grad4[] GRADIENTS_4D;
 	static {
 		
 		GRADIENTS_2D = new Grad2[PSIZE];
@@ -967,6 +5188,24 @@ public class OpenSimplex2S {
 			GRADIENTS_3D_XY_BEFORE_Z[i] = grad3XYBeforeZ[i % grad3XYBeforeZ.length];
 			GRADIENTS_3D_XZ_BEFORE_Y[i] = grad3XZBeforeY[i % grad3XZBeforeY.length];
 		}
+		
+		GRADIENTS_4D = new Grad4[PSIZE];
+		Grad4[] grad4 = {
+			new Grad4( 0,  1,  1,  1), new Grad4( 0,  1,  1, -1), new Grad4( 0,  1, -1,  1), new Grad4( 0,  1, -1, -1),
+			new Grad4( 0, -1,  1,  1), new Grad4( 0, -1,  1, -1), new Grad4( 0, -1, -1,  1), new Grad4( 0, -1, -1, -1),
+			new Grad4( 1,  0,  1,  1), new Grad4( 1,  0,  1, -1), new Grad4( 1,  0, -1,  1), new Grad4( 1,  0, -1, -1),
+			new Grad4(-1,  0,  1,  1), new Grad4(-1,  0,  1, -1), new Grad4(-1,  0, -1,  1), new Grad4(-1,  0, -1, -1),
+			new Grad4( 1,  1,  0,  1), new Grad4( 1,  1,  0, -1), new Grad4( 1, -1,  0,  1), new Grad4( 1, -1,  0, -1),
+			new Grad4(-1,  1,  0,  1), new Grad4(-1,  1,  0, -1), new Grad4(-1, -1,  0,  1), new Grad4(-1, -1,  0, -1),
+			new Grad4( 1,  1,  1,  0), new Grad4( 1,  1, -1,  0), new Grad4( 1, -1,  1,  0), new Grad4( 1, -1, -1,  0),
+			new Grad4(-1,  1,  1,  0), new Grad4(-1,  1, -1,  0), new Grad4(-1, -1,  1,  0), new Grad4(-1, -1, -1,  0)
+		};
+		for (int i = 0; i < grad4.length; i++) {
+			grad4[i].dx /= N4; grad4[i].dy /= N4; grad4[i].dz /= N4; grad4[i].dw /= N4;
+		}
+		for (int i = 0; i < PSIZE; i++) {
+			GRADIENTS_4D[i] = grad4[i % grad4.length];
+		}
 	}
 }
 
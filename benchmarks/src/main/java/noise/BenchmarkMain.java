@@ -0,0 +1,33 @@
+package noise;
+
+/*
+ * Runs the benchmarks like JMH's own main, and takes all the same options,
+ * but adds the GC profiler and writes JSON results unless told otherwise, so every run can be compared with the last.
+ *
+ * java -jar benchmarks/target/benchmarks.jar [JMH options, e.g. Generate2 -p cls=2S -p size=1024 -rff results.json]
+ */
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkMain {
+	
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions options = new CommandLineOptions(args);
+		if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+				|| options.shouldListProfilers() || options.shouldListResultFormats()) {
+			Main.main(args);
+			return;
+		}
+		
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+		if (options.getProfilers().isEmpty()) builder.addProfiler(GCProfiler.class);
+		if (!options.getResultFormat().hasValue()) builder.resultFormat(ResultFormatType.JSON);
+		new Runner(builder.build()).run();
+	}
+}
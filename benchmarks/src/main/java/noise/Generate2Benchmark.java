@@ -0,0 +1,118 @@
+package noise;
+
+/*
+ * 2D area generation vs point evaluation, over class, orientation, buffer size and period.
+ * Replaces NoiseMetrics and NoiseMetricsVsFastNoise. Each op fills the whole buffer, so divide by size^2 for time per value.
+ * The area path clears the buffer first, since generate2 adds to it, and that's part of what it really costs.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Generate2Benchmark {
+	
+	static final int OFF_X = 8192;
+	static final int OFF_Y = 8192;
+	
+	@Param({ "2S", "2F" })
+	public String cls;
+	
+	@Param({ "Standard", "XBeforeY" })
+	public String orientation;
+	
+	@Param({ "64", "256", "1024" })
+	public int size;
+	
+	@Param({ "32", "128" })
+	public double period;
+	
+	@Param({ "area", "point" })
+	public String path;
+	
+	double[][] buffer;
+	Workload workload;
+	
+	@Setup
+	public void setup() {
+		buffer = new double[size][size];
+		final double freq = 1.0 / period;
+		boolean area = path.equals("area");
+		if (cls.equals("2S")) {
+			final OpenSimplex2S noise = new OpenSimplex2S(0);
+			OpenSimplex2S.LatticeOrientation2D o = OpenSimplex2S.LatticeOrientation2D.valueOf(orientation);
+			final OpenSimplex2S.GenerateContext2D ctx = new OpenSimplex2S.GenerateContext2D(o, freq, freq, 1.0);
+			if (area) {
+				workload = new Workload() { void run(double[][] buffer) {
+					clear(buffer);
+					noise.generate2(ctx, buffer, OFF_X, OFF_Y);
+				} };
+			} else if (o == OpenSimplex2S.LatticeOrientation2D.Standard) {
+				workload = new PointWorkload(freq) { double point(double x, double y) { return noise.noise2(x, y); } };
+			} else {
+				workload = new PointWorkload(freq) { double point(double x, double y) { return noise.noise2_XBeforeY(x, y); } };
+			}
+		} else if (cls.equals("2F")) {
+			final OpenSimplex2F noise = new OpenSimplex2F(0);
+			OpenSimplex2F.LatticeOrientation2D o = OpenSimplex2F.LatticeOrientation2D.valueOf(orientation);
+			final OpenSimplex2F.GenerateContext2D ctx = new OpenSimplex2F.GenerateContext2D(o, freq, freq, 1.0);
+			if (area) {
+				workload = new Workload() { void run(double[][] buffer) {
+					clear(buffer);
+					noise.generate2(ctx, buffer, OFF_X, OFF_Y);
+				} };
+			} else if (o == OpenSimplex2F.LatticeOrientation2D.Standard) {
+				workload = new PointWorkload(freq) { double point(double x, double y) { return noise.noise2(x, y); } };
+			} else {
+				workload = new PointWorkload(freq) { double point(double x, double y) { return noise.noise2_XBeforeY(x, y); } };
+			}
+		} else {
+			throw new IllegalArgumentException("Unknown class: " + cls);
+		}
+	}
+	
+	@Benchmark
+	public void generate(Blackhole blackhole) {
+		workload.run(buffer);
+		blackhole.consume(buffer);
+	}
+	
+	static void clear(double[][] buffer) {
+		for (double[] row : buffer) Arrays.fill(row, 0);
+	}
+	
+	static abstract class Workload {
+		abstract void run(double[][] buffer);
+	}
+	
+	static abstract class PointWorkload extends Workload {
+		final double freq;
+		PointWorkload(double freq) { this.freq = freq; }
+		abstract double point(double x, double y);
+		void run(double[][] buffer) {
+			for (int y = 0; y < buffer.length; y++) {
+				for (int x = 0; x < buffer[y].length; x++) {
+					buffer[y][x] = point((x + OFF_X) * freq, (y + OFF_Y) * freq);
+				}
+			}
+		}
+	}
+}
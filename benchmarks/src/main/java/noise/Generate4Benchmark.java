@@ -0,0 +1,117 @@
+package noise;
+
+/*
+ * 4D area generation vs point evaluation, over class, buffer size and period.
+ * Each op fills the whole buffer, so divide by size^4 for time per value. Sizes stop at 32^4, which is already 8 MB.
+ * The area path clears the buffer first, since generate4 adds to it, and that's part of what it really costs.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Generate4Benchmark {
+	
+	static final int OFF_X = 8192;
+	static final int OFF_Y = 8192;
+	static final int OFF_Z = 8192;
+	static final int OFF_W = 8192;
+	
+	@Param({ "2S", "2F" })
+	public String cls;
+	
+	@Param({ "8", "16", "32" })
+	public int size;
+	
+	@Param({ "32", "128" })
+	public double period;
+	
+	@Param({ "area", "point" })
+	public String path;
+	
+	double[][][][] buffer;
+	Workload workload;
+	
+	@Setup
+	public void setup() {
+		buffer = new double[size][size][size][size];
+		final double freq = 1.0 / period;
+		boolean area = path.equals("area");
+		if (cls.equals("2S")) {
+			final OpenSimplex2S noise = new OpenSimplex2S(0);
+			final OpenSimplex2S.GenerateContext4D ctx = new OpenSimplex2S.GenerateContext4D(OpenSimplex2S.LatticeOrientation4D.Classic,
+					freq, freq, freq, freq, 1.0);
+			if (area) {
+				workload = new Workload() { void run(double[][][][] buffer) {
+					clear(buffer);
+					noise.generate4(ctx, buffer, OFF_X, OFF_Y, OFF_Z, OFF_W);
+				} };
+			} else {
+				workload = new PointWorkload(freq) { double point(double x, double y, double z, double w) { return noise.noise4_Classic(x, y, z, w); } };
+			}
+		} else if (cls.equals("2F")) {
+			final OpenSimplex2F noise = new OpenSimplex2F(0);
+			final OpenSimplex2F.GenerateContext4D ctx = new OpenSimplex2F.GenerateContext4D(OpenSimplex2F.LatticeOrientation4D.Classic,
+					freq, freq, freq, freq, 1.0);
+			if (area) {
+				workload = new Workload() { void run(double[][][][] buffer) {
+					clear(buffer);
+					noise.generate4(ctx, buffer, OFF_X, OFF_Y, OFF_Z, OFF_W);
+				} };
+			} else {
+				workload = new PointWorkload(freq) { double point(double x, double y, double z, double w) { return noise.noise4_Classic(x, y, z, w); } };
+			}
+		} else {
+			throw new IllegalArgumentException("Unknown class: " + cls);
+		}
+	}
+	
+	@Benchmark
+	public void generate(Blackhole blackhole) {
+		workload.run(buffer);
+		blackhole.consume(buffer);
+	}
+	
+	static void clear(double[][][][] buffer) {
+		for (double[][][] volume : buffer) for (double[][] slice : volume) for (double[] row : slice) Arrays.fill(row, 0);
+	}
+	
+	static abstract class Workload {
+		abstract void run(double[][][][] buffer);
+	}
+	
+	static abstract class PointWorkload extends Workload {
+		final double freq;
+		PointWorkload(double freq) { this.freq = freq; }
+		abstract double point(double x, double y, double z, double w);
+		void run(double[][][][] buffer) {
+			for (int w = 0; w < buffer.length; w++) {
+				for (int z = 0; z < buffer[w].length; z++) {
+					for (int y = 0; y < buffer[w][z].length; y++) {
+						for (int x = 0; x < buffer[w][z][y].length; x++) {
+							buffer[w][z][y][x] = point((x + OFF_X) * freq, (y + OFF_Y) * freq, (z + OFF_Z) * freq, (w + OFF_W) * freq);
+						}
+					}
+				}
+			}
+		}
+	}
+}